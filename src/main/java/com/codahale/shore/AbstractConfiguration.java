@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.Entity;
 import javax.servlet.Filter;
@@ -11,14 +12,22 @@ import javax.ws.rs.Path;
 import javax.ws.rs.ext.Provider;
 
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.NCSARequestLog;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.bio.SocketConnector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 import net.jcip.annotations.NotThreadSafe;
 
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.server.AsyncRequestLog;
+import com.codahale.shore.server.InstrumentedThreadPool;
+import com.codahale.shore.server.SaturationPolicy;
+import com.codahale.shore.server.VirtualThreadPool;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -40,7 +49,8 @@ import com.google.inject.Stage;
  * 			addResourcePackage("com.example.myapp.providers");
  * 			addModule(new DAOModule());
  * 			setStage(Stage.PRODUCTION);
- * 			addServletFilter(GzipFilter.class, "/*");
+ * 			addStaticFiles("/assets/*", "/var/www/assets");
+ * 			addWarmUpRequest("/widgets/1");
  * `	}
  * }
  * </pre>
@@ -55,7 +65,21 @@ public abstract class AbstractConfiguration {
 	private final List<Module> modules = Lists.newLinkedList();
 	private final Map<FilterHolder, String> servletFilters = Maps.newLinkedHashMap();
 	private final List<String> ignoredPaths = Lists.newLinkedList();
+	private final List<String> sessionlessPaths = Lists.newLinkedList();
+	private final Map<String, Long> cachedPaths = Maps.newLinkedHashMap();
+	private final Map<String, List<String>> coalescedPaths = Maps.newLinkedHashMap();
+	private final List<String> warmUpRequests = Lists.newLinkedList();
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	private final List<Class<? extends HealthCheck>> healthChecks = Lists.newLinkedList();
+	private final Map<String, String> staticFiles = Maps.newLinkedHashMap();
 	private Stage stage = Stage.DEVELOPMENT;
+	private int minThreads = 10;
+	private int maxThreads = 254;
+	private int maxQueuedRequests = 1024;
+	private SaturationPolicy saturationPolicy = SaturationPolicy.REJECT;
+	private boolean virtualThreads = false;
+	private boolean tracePinnedThreads = false;
+	private boolean asyncRequestLog = false;
 	
 	/**
 	 * Add a package containing Hibernate {@link Entity} classes.
@@ -85,6 +109,42 @@ public abstract class AbstractConfiguration {
 		resourcePackages.add(checkNotNull(resourcePackage));
 	}
 	
+	/**
+	 * Add a {@link HealthCheck}, which is built by Guice and run by the admin
+	 * server's {@code /healthcheck} endpoint.
+	 * 
+	 * @param healthCheck the health check's class
+	 * @see com.codahale.shore.admin.AdminServer
+	 */
+	protected final void addHealthCheck(Class<? extends HealthCheck> healthCheck) {
+		healthChecks.add(checkNotNull(healthCheck));
+	}
+	
+	/**
+	 * Add a request to be sent to the application before the server starts
+	 * accepting connections, to warm it up.
+	 * 
+	 * @param path the path and query string to {@code GET}
+	 * @see com.codahale.shore.server.WarmUp
+	 */
+	protected final void addWarmUpRequest(String path) {
+		warmUpRequests.add(checkNotNull(path));
+	}
+	
+	/**
+	 * Serve the files in a directory. Files are served from memory-mapped
+	 * buffers, and if a file has a {@code .gz} sibling, it's served to
+	 * clients which accept {@code gzip}, so run {@code gzip -k} over static
+	 * assets when packaging the application. Requests for static files
+	 * aren't compressed on the fly or handled in a Hibernate unit of work.
+	 * 
+	 * @param urlPattern the URL pattern for static files (e.g., {@code /assets/*})
+	 * @param resourceBase the directory or resource URL to serve them from
+	 */
+	protected final void addStaticFiles(String urlPattern, String resourceBase) {
+		staticFiles.put(checkNotNull(urlPattern), checkNotNull(resourceBase));
+	}
+	
 	/**
 	 * Add a servlet {@link Filter}.
 	 * 
@@ -114,14 +174,85 @@ public abstract class AbstractConfiguration {
 	/**
 	 * Returns a new {@link Connector} to be used by Jetty to response to HTTP
 	 * reqests. Override this method to return a specifically-configured
-	 * {@link Connector}. By default, a stock {@link SocketConnector} is
-	 * returned. (If you're not running Linux 2.6.27+ on a 64-bit system, you
-	 * may want to override this to return a SelectChannelConnector.)
+	 * {@link Connector}. By default, a non-blocking
+	 * {@link SelectChannelConnector} is returned, which doesn't tie up a
+	 * thread for each idle keep-alive connection. Its acceptors, accept
+	 * queue, idle timeout, and low-resource thresholds can be tuned in the
+	 * properties file (see {@link com.codahale.shore.server.ConnectorSettings}).
 	 * 
-	 * @return a {@link SocketConnector}
+	 * @return a {@link SelectChannelConnector}
 	 */
 	public Connector getConnector() {
-		return new SocketConnector();
+		return new SelectChannelConnector();
+	}
+	
+	/**
+	 * Returns a new {@link RequestLog} to be used by Jetty to log requests.
+	 * By default, an {@link NCSARequestLog} is returned. If
+	 * {@link #useAsyncRequestLog()} has been called, an
+	 * {@link AsyncRequestLog} is returned instead, which writes NCSA-format
+	 * lines from a background thread. Override
+	 * {@link #configureRequestLog(RequestLog)} to customize it.
+	 * 
+	 * @return an {@link NCSARequestLog} or {@link AsyncRequestLog}
+	 */
+	public RequestLog getRequestLog() {
+		if (asyncRequestLog) {
+			return new AsyncRequestLog();
+		}
+		return new NCSARequestLog();
+	}
+	
+	/**
+	 * Returns a new {@link ThreadPool} to be used by Jetty to handle
+	 * requests. By default, an {@link InstrumentedThreadPool} is returned,
+	 * sized by {@link #setThreadPoolSize(int, int)} and
+	 * {@link #setMaxQueuedRequests(int)}. If {@link #useVirtualThreads(boolean)}
+	 * has been called, a {@link VirtualThreadPool} is returned instead.
+	 * 
+	 * @return an {@link InstrumentedThreadPool} or {@link VirtualThreadPool}
+	 */
+	public ThreadPool getThreadPool() {
+		if (virtualThreads) {
+			return new VirtualThreadPool(tracePinnedThreads);
+		}
+		return new InstrumentedThreadPool(minThreads, maxThreads, maxQueuedRequests);
+	}
+	
+	/**
+	 * Returns {@code true} if requests are run on virtual threads.
+	 */
+	public final boolean isUsingVirtualThreads() {
+		return virtualThreads;
+	}
+	
+	/**
+	 * Returns the minimum number of request threads.
+	 */
+	public final int getMinThreads() {
+		return minThreads;
+	}
+	
+	/**
+	 * Returns the maximum number of request threads.
+	 */
+	public final int getMaxThreads() {
+		return maxThreads;
+	}
+	
+	/**
+	 * Returns the maximum number of requests which can wait for a thread.
+	 */
+	public final int getMaxQueuedRequests() {
+		return maxQueuedRequests;
+	}
+	
+	/**
+	 * Returns what the server does with requests when its thread pool is
+	 * saturated.
+	 */
+	public final SaturationPolicy getSaturationPolicy() {
+		return saturationPolicy;
 	}
 	
 	/**
@@ -131,8 +262,71 @@ public abstract class AbstractConfiguration {
 		return ImmutableList.copyOf(entityPackages);
 	}
 	
+	/**
+	 * Returns a list of URI specs for requests which aren't logged.
+	 * 
+	 * @see #doNotLogRequestsFor(String)
+	 */
 	public List<String> getIgnoredPaths() {
-		return ignoredPaths;
+		return ImmutableList.copyOf(ignoredPaths);
+	}
+	
+	/**
+	 * Returns a list of URI specs for requests which aren't handled in a
+	 * Hibernate unit of work.
+	 * 
+	 * @see #doNotOpenSessionsFor(String)
+	 */
+	public List<String> getSessionlessPaths() {
+		return ImmutableList.copyOf(sessionlessPaths);
+	}
+	
+	/**
+	 * Returns an ordered map of URI specs for coalesced requests and the
+	 * headers which distinguish them.
+	 * 
+	 * @see #coalesceRequestsFor(String, String...)
+	 */
+	public Map<String, List<String>> getCoalescedPaths() {
+		return ImmutableMap.copyOf(coalescedPaths);
+	}
+	
+	/**
+	 * Returns an ordered map of URI specs for cached responses and how long
+	 * they're cached, in milliseconds.
+	 * 
+	 * @see #cacheResponsesFor(String, long, TimeUnit)
+	 */
+	public Map<String, Long> getCachedPaths() {
+		return ImmutableMap.copyOf(cachedPaths);
+	}
+	
+	/**
+	 * Returns a list of paths requested to warm up the application.
+	 * 
+	 * @see #addWarmUpRequest(String)
+	 */
+	public final List<String> getWarmUpRequests() {
+		return ImmutableList.copyOf(warmUpRequests);
+	}
+	
+	/**
+	 * Returns a list of the application's health check classes.
+	 * 
+	 * @see #addHealthCheck(Class)
+	 */
+	public final List<Class<? extends HealthCheck>> getHealthChecks() {
+		return ImmutableList.copyOf(healthChecks);
+	}
+	
+	/**
+	 * Returns an ordered map of URL patterns for static files and the
+	 * directories they're served from.
+	 * 
+	 * @see #addStaticFiles(String, String)
+	 */
+	public final Map<String, String> getStaticFiles() {
+		return ImmutableMap.copyOf(staticFiles);
 	}
 	
 	/**
@@ -156,6 +350,15 @@ public abstract class AbstractConfiguration {
 		return ImmutableMap.copyOf(servletFilters);
 	}
 	
+	/**
+	 * Returns the application's metrics. Every resource method is timed
+	 * here, and it's bound for injection so that resources can record their
+	 * own metrics.
+	 */
+	public final MetricsRegistry getMetrics() {
+		return metrics;
+	}
+	
 	/**
 	 * Returns the Guice stage.
 	 */
@@ -163,8 +366,61 @@ public abstract class AbstractConfiguration {
 		return stage;
 	}
 	
+	/**
+	 * Excludes requests matching {@code uriSpec} from the request log. Specs
+	 * can be exact paths ({@code /ping}), prefixes ({@code /health/*}),
+	 * extensions ({@code *.png}), globs ({@code /status*}), or regular
+	 * expressions ({@code regex:^/v[0-9]+/ping$}).
+	 * 
+	 * @param uriSpec a URI spec
+	 * @see com.codahale.shore.util.PathMatcher
+	 */
 	public void doNotLogRequestsFor(String uriSpec) {
-		ignoredPaths.add(uriSpec);
+		ignoredPaths.add(checkNotNull(uriSpec));
+	}
+	
+	/**
+	 * Excludes requests matching {@code uriSpec} from the Hibernate unit of
+	 * work, so no session is opened for them (e.g., static assets and health
+	 * checks). Resources serving these requests can't use DAOs. Specs are the
+	 * same as for {@link #doNotLogRequestsFor(String)}.
+	 * 
+	 * @param uriSpec a URI spec
+	 */
+	public void doNotOpenSessionsFor(String uriSpec) {
+		sessionlessPaths.add(checkNotNull(uriSpec));
+	}
+	
+	/**
+	 * Caches the responses to {@code GET} requests matching {@code uriSpec}
+	 * for {@code ttl}, so repeated requests are answered without opening a
+	 * session or calling the resource. Responses must not depend on who's
+	 * asking. Specs are the same as for {@link #doNotLogRequestsFor(String)};
+	 * the first matching spec wins.
+	 * 
+	 * @param uriSpec a URI spec
+	 * @param ttl how long to cache responses
+	 * @param unit the unit of {@code ttl}
+	 * @see com.codahale.shore.server.ResponseCacheFilter
+	 */
+	public void cacheResponsesFor(String uriSpec, long ttl, TimeUnit unit) {
+		cachedPaths.put(checkNotNull(uriSpec), unit.toMillis(ttl));
+	}
+	
+	/**
+	 * Coalesces concurrent, identical {@code GET} requests matching
+	 * {@code uriSpec}, so only one is handled by the application and the rest
+	 * share its response. Requests are identical if they have the same path,
+	 * query string, {@code Accept} header, and values for {@code headers}. Specs are the same as for
+	 * {@link #doNotLogRequestsFor(String)}; the first matching spec wins.
+	 * 
+	 * @param uriSpec a URI spec
+	 * @param headers the names of any other headers which distinguish
+	 *            requests (e.g., {@code Accept-Language})
+	 * @see com.codahale.shore.server.SingleFlightFilter
+	 */
+	public void coalesceRequestsFor(String uriSpec, String... headers) {
+		coalescedPaths.put(checkNotNull(uriSpec), ImmutableList.of(headers));
 	}
 	
 	/**
@@ -176,6 +432,65 @@ public abstract class AbstractConfiguration {
 		this.stage = checkNotNull(stage);
 	}
 	
+	/**
+	 * Sets the minimum and maximum number of threads used to handle
+	 * requests.
+	 * 
+	 * @param minThreads the minimum number of request threads
+	 * @param maxThreads the maximum number of request threads
+	 */
+	protected final void setThreadPoolSize(int minThreads, int maxThreads) {
+		checkArgument(minThreads > 0, "minThreads must be positive");
+		checkArgument(maxThreads >= minThreads, "maxThreads must be at least minThreads");
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+	}
+	
+	/**
+	 * Sets the maximum number of requests which can wait for a thread.
+	 * 
+	 * @param maxQueuedRequests the capacity of the thread pool's queue
+	 */
+	protected final void setMaxQueuedRequests(int maxQueuedRequests) {
+		checkArgument(maxQueuedRequests > 0, "maxQueuedRequests must be positive");
+		this.maxQueuedRequests = maxQueuedRequests;
+	}
+	
+	/**
+	 * Sets what the server does with requests when its thread pool's queue
+	 * is full. By default, they are rejected with a
+	 * {@code 503 Service Unavailable} response.
+	 * 
+	 * @param saturationPolicy the server's saturation policy
+	 */
+	protected final void setSaturationPolicy(SaturationPolicy saturationPolicy) {
+		this.saturationPolicy = checkNotNull(saturationPolicy);
+	}
+	
+	/**
+	 * Runs each request on its own virtual thread instead of a pooled
+	 * platform thread. Requires Java 21 or later. The thread pool size and
+	 * saturation policy don't apply in this mode.
+	 * 
+	 * @param tracePinnedThreads if {@code true}, log a stack trace whenever
+	 *            a request blocks while pinned to its carrier thread
+	 * @see VirtualThreadPool
+	 */
+	protected final void useVirtualThreads(boolean tracePinnedThreads) {
+		this.virtualThreads = true;
+		this.tracePinnedThreads = tracePinnedThreads;
+	}
+	
+	/**
+	 * Logs requests with an {@link AsyncRequestLog}, which doesn't block
+	 * request threads on I/O, instead of an {@link NCSARequestLog}. Overrides
+	 * of {@link #configureRequestLog(RequestLog)} will be passed an
+	 * {@link AsyncRequestLog}.
+	 */
+	protected final void useAsyncRequestLog() {
+		this.asyncRequestLog = true;
+	}
+	
 	/**
 	 * Returns the application binary's names.
 	 * 
@@ -203,6 +518,12 @@ public abstract class AbstractConfiguration {
 		// no customizations needed
 	}
 	
+	/**
+	 * Configures the Jetty {@link RequestLog} before it is started. Override
+	 * this to customize the request log (e.g., to log to a file).
+	 * 
+	 * @param log the request log returned by {@link #getRequestLog()}
+	 */
 	protected void configureRequestLog(RequestLog log) {
 		// no customizations needed
 	}
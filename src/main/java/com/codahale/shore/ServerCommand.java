@@ -2,32 +2,83 @@ package com.codahale.shore;
 
 import static com.google.common.base.Preconditions.*;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.Map.Entry;
 import java.util.logging.Logger;
 
+import javax.servlet.Filter;
+import javax.ws.rs.Path;
+import javax.ws.rs.ext.Provider;
+
 import net.jcip.annotations.Immutable;
 
 import org.eclipse.jetty.server.Connector;
-import org.eclipse.jetty.server.NCSARequestLog;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.FilterMapping;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
 
+import com.codahale.shore.admin.AdminServer;
+import com.codahale.shore.health.DatabaseHealthCheck;
+import com.codahale.shore.health.DeadlockHealthCheck;
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.hibernate.EntityChanges;
+import com.codahale.shore.hibernate.LazySessionFilter;
+import com.codahale.shore.hibernate.ReadOnlyRequestFilter;
+import com.codahale.shore.hibernate.RoutingConnectionProvider;
+import com.codahale.shore.hibernate.StatelessSessionFilter;
+import com.codahale.shore.index.ClassIndex;
+import com.codahale.shore.metrics.MetricsServlet;
+import com.codahale.shore.metrics.TimedResourceMethodDispatchAdapter;
 import com.codahale.shore.modules.HibernateModule;
-import com.google.common.base.Functions;
+import com.codahale.shore.params.ParamCache;
+import com.codahale.shore.params.ParamRejections;
+import com.codahale.shore.pool.PooledConnectionProvider;
+import com.codahale.shore.server.CompressionHandler;
+import com.codahale.shore.server.ConnectorSettings;
+import com.codahale.shore.server.DrainHandler;
+import com.codahale.shore.server.ExcludingFilter;
+import com.codahale.shore.server.FilteringRequestLogHandler;
+import com.codahale.shore.server.GracefulShutdown;
+import com.codahale.shore.server.InstrumentedThreadPool;
+import com.codahale.shore.server.LoadSheddingHandler;
+import com.codahale.shore.server.ResponseCache;
+import com.codahale.shore.server.ResponseCacheFilter;
+import com.codahale.shore.server.SaturationPolicy;
+import com.codahale.shore.server.ServerModule;
+import com.codahale.shore.server.SingleFlightFilter;
+import com.codahale.shore.server.Startup;
+import com.codahale.shore.server.WarmUp;
+import com.codahale.shore.util.PathMatcher;
+import com.codahale.shore.util.TypedProperties;
 import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
-import com.sun.jersey.api.core.PackagesResourceConfig;
+import com.sun.jersey.api.core.ClassNamesResourceConfig;
+import com.sun.jersey.core.spi.scanning.PackageNamesScanner;
 import com.sun.jersey.guice.spi.container.servlet.GuiceContainer;
+import com.sun.jersey.spi.scanning.AnnotationScannerListener;
 import com.wideplay.warp.persist.SessionFilter;
 
 /**
@@ -38,7 +89,7 @@ import com.wideplay.warp.persist.SessionFilter;
  */
 @Immutable
 public class ServerCommand implements Runnable {
-	private static final int GRACEFUL_SHUTDOWN_PERIOD = 5000; //ms
+	private static final String RESOURCE_CONFIG_CLASS = "com.sun.jersey.config.property.resourceConfigClass";
 	private static final Logger LOGGER = Logger.getLogger(ServerCommand.class.getCanonicalName());
 	private final AbstractConfiguration configuration;
 	private final String host;
@@ -106,34 +157,217 @@ public class ServerCommand implements Runnable {
 
 	@Override
 	public void run() {
+		final TypedProperties typedProperties = new TypedProperties(properties);
+		final Startup startup = new Startup(LOGGER, typedProperties.getInt(Startup.THREADS_PROPERTY, Startup.DEFAULT_THREADS));
 		final Server server = new Server();
-		configuration.configure();
-		server.addConnector(buildConnector());
-		server.setHandler(buildHandlers());
-		server.setSendServerVersion(false);
-		server.setGracefulShutdown(GRACEFUL_SHUTDOWN_PERIOD);
-		server.setStopAtShutdown(gracefulShutdown);
-		
+		try {
+			startup.run("configuration", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					configuration.configure();
+					return null;
+				}
+			});
+			final ThreadPool threadPool = configuration.getThreadPool();
+			final ResponseCache responseCache = new ResponseCache(
+				typedProperties.getInt(ResponseCache.SIZE_PROPERTY, ResponseCache.DEFAULT_SIZE)
+			);
+			ParamCache.configure(typedProperties);
+			final ParamRejections paramRejections = new ParamRejections(
+				configuration.getMetrics(),
+				typedProperties.getBoolean(ParamRejections.TERSE_PROPERTY, false)
+			);
+			
+			// Scanning entities and building the SessionFactory doesn't
+			// depend on finding the resource classes, so they're done
+			// concurrently.
+			final Future<Injector> injector = startup.submit(new Callable<Injector>() {
+				@Override
+				public Injector call() throws Exception {
+					final Module hibernateModule = startup.run("entities", new Callable<Module>() {
+						@Override
+						public Module call() throws Exception {
+							return buildHibernateModule();
+						}
+					});
+					return startup.run("injector", new Callable<Injector>() {
+						@Override
+						public Injector call() throws Exception {
+							return buildInjector(threadPool, responseCache, paramRejections, hibernateModule);
+						}
+					});
+				}
+			});
+			final Future<List<String>> resourceClasses = startup.submit("resources", new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws Exception {
+					return findResourceClasses();
+				}
+			});
+			
+			final WarmUp warmUp = new WarmUp(typedProperties);
+			final Injector injectorInstance = startup.await(injector);
+			injectorInstance.getInstance(EntityChanges.class).subscribe(responseCache);
+			final Future<Integer> connections = warmUp.isEnabled() ? startup.submit("pool", new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return warmUp.prefillPools(PooledConnectionProvider.getPools().values());
+				}
+			}) : null;
+			final Future<Integer> queries = warmUp.isEnabled() ? startup.submit("queries", new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return warmUp.compileNamedQueries(
+						injectorInstance.getInstance(SessionFactory.class),
+						injectorInstance.getInstance(Configuration.class)
+					);
+				}
+			}) : null;
+			
+			// Until the application's warmed up, requests only come in
+			// through a local connector.
+			final LocalConnector localConnector = new LocalConnector();
+			server.setThreadPool(threadPool);
+			server.addConnector(localConnector);
+			final DrainHandler drainHandler = buildDrainHandler(typedProperties);
+			final List<String> resourceClassNames = startup.await(resourceClasses);
+			drainHandler.setHandler(buildHandlers(
+				threadPool,
+				responseCache,
+				buildServletHolder(injectorInstance, resourceClassNames),
+				StatelessSessionFilter.isRequired(injectorInstance, loadClasses(resourceClassNames))
+			));
+			server.setHandler(drainHandler);
+			server.setSendServerVersion(false);
+			final AdminServer adminServer = AdminServer.isEnabled(typedProperties) ? new AdminServer(
+				typedProperties,
+				buildHealthChecks(injectorInstance),
+				drainHandler,
+				configuration.getMetrics(),
+				injectorInstance.getInstance(DatabaseStatistics.class)
+			) : null;
+			if (gracefulShutdown) {
+				final GracefulShutdown shutdown = new GracefulShutdown(
+					server,
+					drainHandler,
+					injectorInstance.getInstance(SessionFactory.class),
+					typedProperties
+				);
+				if (adminServer != null) {
+					shutdown.alsoStop(adminServer);
+				}
+				Runtime.getRuntime().addShutdownHook(new Thread(shutdown, "shore-shutdown"));
+			}
+			configuration.configureServer(server);
+			
+			startup.run("server", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					server.start();
+					return null;
+				}
+			});
+			
+			if (warmUp.isEnabled()) {
+				startup.await(connections);
+				startup.await(queries);
+				startup.run("requests", new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						return warmUp.sendRequests(localConnector, configuration.getWarmUpRequests());
+					}
+				});
+			}
+			
+			startup.run("connector", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					server.removeConnector(localConnector);
+					localConnector.stop();
+					
+					final Connector connector = buildConnector();
+					server.addConnector(connector);
+					connector.start();
+					return null;
+				}
+			});
+			
+			// Started last, so its health check doesn't pass until the
+			// application is accepting connections.
+			if (adminServer != null) {
+				startup.run("admin", new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						adminServer.start();
+						return null;
+					}
+				});
+			}
+		} finally {
+			startup.finish();
+		}
 		
-		configuration.configureServer(server);
 		try {
-			server.start();
 			server.join();
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 	
-	private HandlerCollection buildHandlers() {
+	private HandlerCollection buildHandlers(ThreadPool threadPool, ResponseCache responseCache,
+			ServletHolder servletHolder, boolean statelessSessions) {
 		final HandlerCollection handlers = new HandlerCollection();
-		handlers.addHandler(buildContext(buildServletHolder()));
+		handlers.addHandler(buildLoadShedding(threadPool, buildCompression(buildContext(responseCache, servletHolder, statelessSessions))));
 		handlers.addHandler(buildRequestLog());
 		return handlers;
 	}
 	
+	private List<HealthCheck> buildHealthChecks(Injector injector) {
+		final List<HealthCheck> healthChecks = Lists.newArrayList();
+		healthChecks.add(new DatabaseHealthCheck());
+		healthChecks.add(new DeadlockHealthCheck());
+		for (Class<? extends HealthCheck> healthCheck : configuration.getHealthChecks()) {
+			healthChecks.add(injector.getInstance(healthCheck));
+		}
+		return healthChecks;
+	}
+	
+	private DrainHandler buildDrainHandler(TypedProperties typedProperties) {
+		final String healthChecks = typedProperties.getString(
+			GracefulShutdown.HEALTH_CHECK_PROPERTY,
+			GracefulShutdown.DEFAULT_HEALTH_CHECK
+		);
+		return new DrainHandler(new PathMatcher(Splitter.on(',').trimResults().omitEmptyStrings().split(healthChecks)));
+	}
+	
+	private Handler buildLoadShedding(ThreadPool threadPool, Handler handler) {
+		if ((configuration.getSaturationPolicy() == SaturationPolicy.REJECT)
+				&& (threadPool instanceof InstrumentedThreadPool)) {
+			final LoadSheddingHandler loadShedding = new LoadSheddingHandler((InstrumentedThreadPool) threadPool);
+			loadShedding.setHandler(handler);
+			return loadShedding;
+		}
+		return handler;
+	}
+	
+	private Handler buildCompression(Handler handler) {
+		final TypedProperties typedProperties = new TypedProperties(properties);
+		if (typedProperties.getBoolean(CompressionHandler.ENABLED_PROPERTY, true)) {
+			final CompressionHandler compression = new CompressionHandler(
+				typedProperties,
+				new PathMatcher(configuration.getStaticFiles().keySet())
+			);
+			compression.setHandler(handler);
+			return compression;
+		}
+		return handler;
+	}
+	
 	private RequestLogHandler buildRequestLog() {
-		final RequestLogHandler handler = new RequestLogHandler();
-		final NCSARequestLog log = new NCSARequestLog();
+		final RequestLogHandler handler = new FilteringRequestLogHandler(
+			new PathMatcher(configuration.getIgnoredPaths())
+		);
+		final RequestLog log = configuration.getRequestLog();
 		configuration.configureRequestLog(log);
 		handler.setRequestLog(log);
 		return handler;
@@ -143,41 +377,165 @@ public class ServerCommand implements Runnable {
 		final Connector connector = configuration.getConnector();
 		connector.setHost(host);
 		connector.setPort(port);
-		return connector;
+		return new ConnectorSettings(new TypedProperties(properties)).applyTo(connector);
 	}
 
-	private ServletContextHandler buildContext(ServletHolder servletHolder) {
+	private ServletContextHandler buildContext(ResponseCache responseCache, ServletHolder servletHolder,
+			boolean statelessSessions) {
 		final ServletContextHandler root = new ServletContextHandler();
 		root.setContextPath("/");
 		root.addServlet(servletHolder, "/*");
+		final TypedProperties typedProperties = new TypedProperties(properties);
+		if (!AdminServer.isEnabled(typedProperties)
+				&& typedProperties.getBoolean(MetricsServlet.ENABLED_PROPERTY, false)) {
+			root.addServlet(
+				new ServletHolder(new MetricsServlet(configuration.getMetrics())),
+				typedProperties.getString(MetricsServlet.PATH_PROPERTY, MetricsServlet.DEFAULT_PATH)
+			);
+		}
+		for (Entry<String, String> staticFiles : configuration.getStaticFiles().entrySet()) {
+			root.addServlet(buildStaticFilesHolder(staticFiles.getValue()), staticFiles.getKey());
+		}
 		for (Entry<FilterHolder, String> filter : configuration.getServletFilters().entrySet()) {
 			root.addFilter(filter.getKey(), filter.getValue(), FilterMapping.DEFAULT);
 		}
-		root.addFilter(SessionFilter.class, "/*", FilterMapping.DEFAULT);
+		// ahead of the session filters, so cache hits and coalesced requests
+		// never open a session
+		if (!configuration.getCachedPaths().isEmpty()) {
+			root.addFilter(new FilterHolder(new ResponseCacheFilter(
+				responseCache,
+				configuration.getCachedPaths(),
+				configuration.getMetrics()
+			)), "/*", FilterMapping.DEFAULT);
+		}
+		if (!configuration.getCoalescedPaths().isEmpty()) {
+			root.addFilter(new FilterHolder(new SingleFlightFilter(
+				configuration.getCoalescedPaths(),
+				configuration.getMetrics(),
+				typedProperties.getLong(SingleFlightFilter.TIMEOUT_PROPERTY, SingleFlightFilter.DEFAULT_TIMEOUT)
+			)), "/*", FilterMapping.DEFAULT);
+		}
+		if (routesSafeRequestsToReplica()) {
+			root.addFilter(ReadOnlyRequestFilter.class, "/*", FilterMapping.DEFAULT);
+		}
+		root.addFilter(buildSessionFilter(), "/*", FilterMapping.DEFAULT);
+		if (statelessSessions) {
+			root.addFilter(StatelessSessionFilter.class, "/*", FilterMapping.DEFAULT);
+		}
 		configuration.configureContext(root);
 		return root;
 	}
 
-	private ServletHolder buildServletHolder() {
-		final ServletHolder servletHolder = new ServletHolder(new GuiceContainer(buildInjector()));
-		servletHolder.setInitParameter(PackagesResourceConfig.PROPERTY_PACKAGES, getResourcePackages());
+	private ServletHolder buildStaticFilesHolder(String resourceBase) {
+		final ServletHolder holder = new ServletHolder(DefaultServlet.class);
+		holder.setInitParameter("resourceBase", resourceBase);
+		holder.setInitParameter("pathInfoOnly", "true");
+		holder.setInitParameter("dirAllowed", "false");
+		// serve foo.css.gz in place of foo.css to clients which accept gzip
+		holder.setInitParameter("gzip", "true");
+		// the NIO connector writes mapped buffers straight to the socket
+		holder.setInitParameter("useFileMappedBuffer", "true");
+		return holder;
+	}
+
+	private FilterHolder buildSessionFilter() {
+		final boolean lazy = new TypedProperties(properties).getBoolean(HibernateModule.LAZY_SESSIONS, false);
+		final Filter filter = lazy ? new LazySessionFilter() : new SessionFilter();
+		final PathMatcher sessionlessPaths = new PathMatcher(Iterables.concat(
+			configuration.getSessionlessPaths(),
+			configuration.getStaticFiles().keySet()
+		));
+		if (sessionlessPaths.isEmpty()) {
+			return new FilterHolder(filter);
+		}
+		return new FilterHolder(new ExcludingFilter(filter, sessionlessPaths));
+	}
+
+	private boolean routesSafeRequestsToReplica() {
+		final TypedProperties typedProperties = new TypedProperties(properties);
+		return typedProperties.contains(RoutingConnectionProvider.REPLICA_URL)
+				&& typedProperties.getBoolean(ReadOnlyRequestFilter.ENABLED_PROPERTY, false);
+	}
+
+	private ServletHolder buildServletHolder(Injector injector, List<String> resourceClasses) {
+		final ServletHolder servletHolder = new ServletHolder(new GuiceContainer(injector));
+		final List<String> classNames = Lists.newArrayList(resourceClasses);
+		classNames.add(TimedResourceMethodDispatchAdapter.class.getName());
+		classNames.add(ParamRejections.class.getName());
+		servletHolder.setInitParameter(RESOURCE_CONFIG_CLASS, ClassNamesResourceConfig.class.getName());
+		servletHolder.setInitParameter(ClassNamesResourceConfig.PROPERTY_CLASSNAMES, Joiner.on(";").join(classNames));
 		LOGGER.info("Configured resource packages: " + configuration.getResourcePackages());
 		return servletHolder;
 	}
 
-	private String getResourcePackages() {
-		return Joiner.on(";").join(Iterables.transform(
-			configuration.getResourcePackages(),
-			Functions.toStringFunction()
-		));
+	/**
+	 * Returns the resource and provider classes in the resource packages,
+	 * read from the index or, for packages which aren't fully indexed, found
+	 * by scanning the classpath.
+	 */
+	private List<String> findResourceClasses() {
+		final ClassIndex index = readResourceIndex();
+		final List<String> classNames = Lists.newArrayList();
+		for (String resourcePackage : configuration.getResourcePackages()) {
+			final Set<String> indexedClassNames = index.getClassNames(resourcePackage);
+			final Set<String> unindexedRoots = index.getUnindexedRoots(resourcePackage);
+			if (!unindexedRoots.isEmpty()) {
+				if (!indexedClassNames.isEmpty()) {
+					LOGGER.warning("The resource index is incomplete for " + resourcePackage
+						+ " (not indexed: " + unindexedRoots + "); scanning the classpath instead");
+				}
+				
+				@SuppressWarnings("unchecked")
+				final AnnotationScannerListener listener = new AnnotationScannerListener(Path.class, Provider.class);
+				final PackageNamesScanner scanner = new PackageNamesScanner(new String[] { resourcePackage });
+				LOGGER.info("Scanning " + resourcePackage + " for resource classes");
+				scanner.scan(listener);
+				for (Class<?> resourceClass : listener.getAnnotatedClasses()) {
+					classNames.add(resourceClass.getName());
+				}
+			} else {
+				LOGGER.info("Read resource classes in " + resourcePackage + " from the index");
+				classNames.addAll(indexedClassNames);
+			}
+		}
+		return classNames;
+	}
+
+	private List<Class<?>> loadClasses(List<String> classNames) {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		final List<Class<?>> classes = Lists.newArrayList();
+		for (String className : classNames) {
+			try {
+				classes.add(Class.forName(className, false, classLoader));
+			} catch (ClassNotFoundException e) {
+				LOGGER.warning("Unable to load resource class " + className);
+			}
+		}
+		return classes;
+	}
+
+	private ClassIndex readResourceIndex() {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			return ClassIndex.read(ClassIndex.RESOURCES, classLoader);
+		} catch (IOException e) {
+			LOGGER.warning("Unable to read the resource index: " + e.getMessage());
+			return new ClassIndex(classLoader, ImmutableList.<String>of());
+		}
 	}
 
-	private Injector buildInjector() {
+	private Injector buildInjector(ThreadPool threadPool, ResponseCache responseCache,
+			ParamRejections paramRejections, Module hibernateModule) {
 		return Guice.createInjector(
 			configuration.getStage(),
 			Iterables.concat(
 				configuration.getModules(),
-				ImmutableList.of(buildHibernateModule())
+				ImmutableList.of(hibernateModule, new ServerModule(
+					threadPool,
+					configuration.getMetrics(),
+					responseCache,
+					paramRejections
+				))
 			)
 		);
 	}
@@ -0,0 +1,98 @@
+package com.codahale.shore.admin;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.metrics.MetricsServlet;
+import com.codahale.shore.server.DrainHandler;
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * A small Jetty server for operational endpoints, with its own port and
+ * thread pool, so they stay reachable while the application's request pool
+ * is saturated:
+ * <dl>
+ * 	<dt>{@code /healthcheck}</dt>
+ * 	<dd>Runs the application's health checks.</dd>
+ * 	<dt>{@code /threads}</dt>
+ * 	<dd>Dumps every thread's stack.</dd>
+ * 	<dt>{@code /metrics}</dt>
+ * 	<dd>Reports the application's metrics as JSON.</dd>
+ * 	<dt>{@code /status}</dt>
+ * 	<dd>Reports the state of the connection pools, database, and
+ * 	caches.</dd>
+ * </dl>
+ * The admin server is started if {@code shore.admin.port} is set. It listens
+ * on {@code shore.admin.host} (default: all interfaces) and handles up to
+ * {@code shore.admin.threads} (default: {@code 4}) requests at once. Idle
+ * connections don't hold a thread, and are closed after
+ * {@code shore.admin.max_idle_time} milliseconds (default: {@code 10000}), so
+ * a monitoring system's keep-alive connections can't use up the server.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class AdminServer extends Server {
+	public static final String PORT_PROPERTY = "shore.admin.port";
+	public static final String HOST_PROPERTY = "shore.admin.host";
+	public static final String THREADS_PROPERTY = "shore.admin.threads";
+	public static final String MAX_IDLE_TIME_PROPERTY = "shore.admin.max_idle_time";
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_MAX_IDLE_TIME = 10000;
+	
+	/**
+	 * Returns {@code true} if an admin port is configured.
+	 * 
+	 * @param properties the application's properties
+	 */
+	public static boolean isEnabled(TypedProperties properties) {
+		return properties.contains(PORT_PROPERTY);
+	}
+	
+	/**
+	 * Creates a new {@link AdminServer}.
+	 * 
+	 * @param properties the application's properties
+	 * @param healthChecks the application's health checks
+	 * @param drainHandler the main server's drain handler
+	 * @param metrics the application's metrics
+	 * @param statistics the application's database statistics
+	 */
+	public AdminServer(TypedProperties properties, Iterable<HealthCheck> healthChecks,
+			DrainHandler drainHandler, MetricsRegistry metrics, DatabaseStatistics statistics) {
+		checkNotNull(properties);
+		
+		// One thread accepts connections and selects; the rest handle them.
+		final QueuedThreadPool threadPool = new QueuedThreadPool(Math.max(2, properties.getInt(THREADS_PROPERTY, DEFAULT_THREADS) + 1));
+		threadPool.setMinThreads(2);
+		threadPool.setName("shore-admin");
+		setThreadPool(threadPool);
+		
+		final SelectChannelConnector connector = new SelectChannelConnector();
+		connector.setHost(properties.getString(HOST_PROPERTY, null));
+		connector.setPort(properties.getInt(PORT_PROPERTY, 0));
+		connector.setAcceptors(1);
+		connector.setMaxIdleTime(properties.getInt(MAX_IDLE_TIME_PROPERTY, DEFAULT_MAX_IDLE_TIME));
+		addConnector(connector);
+		
+		final ServletContextHandler context = new ServletContextHandler();
+		context.setContextPath("/");
+		context.addServlet(new ServletHolder(new HealthCheckServlet(healthChecks, drainHandler)), "/healthcheck");
+		context.addServlet(new ServletHolder(new ThreadDumpServlet()), "/threads");
+		context.addServlet(new ServletHolder(new MetricsServlet(metrics)), "/metrics");
+		context.addServlet(new ServletHolder(new StatusServlet(statistics)), "/status");
+		setHandler(context);
+		setSendServerVersion(false);
+	}
+}
@@ -0,0 +1,86 @@
+package com.codahale.shore.admin;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.health.HealthCheck.Result;
+import com.codahale.shore.server.DrainHandler;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * A servlet which runs the application's {@link HealthCheck}s, responding
+ * with {@code 200 OK} if they all pass and {@code 500 Internal Server Error}
+ * if any fail. While the server is draining, it responds with
+ * {@code 503 Service Unavailable} without running them.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class HealthCheckServlet extends HttpServlet {
+	private static final long serialVersionUID = 7357916128497532197L;
+	private static final Logger LOGGER = Logger.getLogger(HealthCheckServlet.class.getCanonicalName());
+	private final transient List<HealthCheck> healthChecks;
+	private final transient DrainHandler drainHandler;
+	
+	/**
+	 * Creates a new {@link HealthCheckServlet}.
+	 * 
+	 * @param healthChecks the application's health checks
+	 * @param drainHandler the main server's drain handler
+	 */
+	public HealthCheckServlet(Iterable<HealthCheck> healthChecks, DrainHandler drainHandler) {
+		this.healthChecks = ImmutableList.copyOf(healthChecks);
+		this.drainHandler = checkNotNull(drainHandler);
+	}
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+		
+		if (drainHandler.isDraining()) {
+			resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			resp.getWriter().println("! draining");
+			return;
+		}
+		
+		final Map<String, Result> results = Maps.newLinkedHashMap();
+		boolean healthy = true;
+		for (HealthCheck healthCheck : healthChecks) {
+			final Result result = healthCheck.execute();
+			if (!result.isHealthy()) {
+				healthy = false;
+				LOGGER.log(Level.WARNING, "Health check " + healthCheck.getName() + " failed: "
+						+ result.getMessage(), result.getError());
+			}
+			results.put(healthCheck.getName(), result);
+		}
+		
+		resp.setStatus(healthy ? HttpServletResponse.SC_OK : HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		final PrintWriter writer = resp.getWriter();
+		for (Entry<String, Result> entry : results.entrySet()) {
+			writer.print(entry.getValue().isHealthy() ? "* " : "! ");
+			writer.print(entry.getKey());
+			writer.print(": ");
+			writer.println(entry.getValue());
+		}
+		writer.flush();
+	}
+}
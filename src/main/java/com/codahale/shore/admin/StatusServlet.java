@@ -0,0 +1,93 @@
+package com.codahale.shore.admin;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.cache.BoundedCache;
+import com.codahale.shore.cache.BoundedCacheProvider;
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.metrics.Histogram;
+import com.codahale.shore.pool.ConnectionPool;
+import com.codahale.shore.pool.PooledConnectionProvider;
+
+/**
+ * A servlet which reports the state of the application's connection pools,
+ * database statistics, and cache regions as plain text.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class StatusServlet extends HttpServlet {
+	private static final long serialVersionUID = 3580207329409853497L;
+	private final transient DatabaseStatistics statistics;
+	
+	/**
+	 * Creates a new {@link StatusServlet}.
+	 * 
+	 * @param statistics the application's database statistics
+	 */
+	public StatusServlet(DatabaseStatistics statistics) {
+		this.statistics = checkNotNull(statistics);
+	}
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+		
+		final PrintWriter writer = resp.getWriter();
+		writer.println("Connection pools:");
+		for (ConnectionPool pool : PooledConnectionProvider.getPools().values()) {
+			final Histogram waitTimes = pool.getWaitTimes();
+			writer.print("    ");
+			writer.print(pool);
+			writer.print(" created=");
+			writer.print(pool.getConnectionsCreated());
+			writer.print(" timeouts=");
+			writer.print(pool.getTimeouts());
+			writer.print(" leaks=");
+			writer.print(pool.getLeaks());
+			writer.print(" wait p99=");
+			writer.print(waitTimes.getQuantile(0.99));
+			writer.print("us max=");
+			writer.print(waitTimes.getMax());
+			writer.println("us");
+		}
+		writer.println();
+		
+		writer.println("Database:");
+		writer.print("    ");
+		writer.println(statistics);
+		writer.println();
+		
+		writer.println("Cache regions:");
+		for (BoundedCache region : BoundedCacheProvider.getRegions()) {
+			writer.print("    ");
+			writer.print(region.getRegionName());
+			writer.print(" ");
+			writer.print(region.getSettings());
+			writer.print(" entries=");
+			writer.print(region.getElementCountInMemory());
+			writer.print(" hits=");
+			writer.print(region.getHits());
+			writer.print(" misses=");
+			writer.print(region.getMisses());
+			writer.print(" evictions=");
+			writer.print(region.getEvictions());
+			writer.print(" expirations=");
+			writer.println(region.getExpirations());
+		}
+		writer.flush();
+	}
+}
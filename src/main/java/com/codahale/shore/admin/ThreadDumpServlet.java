@@ -0,0 +1,86 @@
+package com.codahale.shore.admin;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A servlet which responds with a dump of every thread's stack, along with
+ * the locks each thread holds and is waiting on.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class ThreadDumpServlet extends HttpServlet {
+	private static final long serialVersionUID = -2690343532336103046L;
+	
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("text/plain");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+		
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		final PrintWriter writer = resp.getWriter();
+		for (ThreadInfo info : threads.dumpAllThreads(true, true)) {
+			writeThread(writer, info);
+		}
+		writer.flush();
+	}
+	
+	private void writeThread(PrintWriter writer, ThreadInfo info) {
+		// ThreadInfo#toString() truncates stacks, so it's formatted here
+		writer.print('"');
+		writer.print(info.getThreadName());
+		writer.print("\" id=");
+		writer.print(info.getThreadId());
+		writer.print(" state=");
+		writer.print(info.getThreadState());
+		if (info.getLockName() != null) {
+			writer.print(" waiting on ");
+			writer.print(info.getLockName());
+			if (info.getLockOwnerName() != null) {
+				writer.print(" owned by \"");
+				writer.print(info.getLockOwnerName());
+				writer.print("\" id=");
+				writer.print(info.getLockOwnerId());
+			}
+		}
+		writer.println();
+		
+		final StackTraceElement[] stack = info.getStackTrace();
+		final MonitorInfo[] monitors = info.getLockedMonitors();
+		for (int i = 0; i < stack.length; i++) {
+			writer.print("    at ");
+			writer.println(stack[i]);
+			for (MonitorInfo monitor : monitors) {
+				if (monitor.getLockedStackDepth() == i) {
+					writer.print("      - locked ");
+					writer.println(monitor);
+				}
+			}
+		}
+		
+		final LockInfo[] synchronizers = info.getLockedSynchronizers();
+		if (synchronizers.length > 0) {
+			writer.println("    Locked synchronizers:");
+			for (LockInfo synchronizer : synchronizers) {
+				writer.print("      - ");
+				writer.println(synchronizer);
+			}
+		}
+		writer.println();
+	}
+}
@@ -0,0 +1,309 @@
+package com.codahale.shore.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.cache.Cache;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.Timestamper;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A bounded, in-memory Hibernate cache region with optional expiration and
+ * LRU or LFU eviction, which keeps hit, miss, and eviction statistics.
+ * <p>
+ * LFU eviction looks at the oldest few entries and evicts the one with the
+ * fewest hits, which keeps eviction cheap while still favoring hot entries.
+ * <p>
+ * Large regions are split into up to 16 segments by key hash, each with its
+ * own lock and its share of the region's capacity, so concurrent lookups of
+ * different keys rarely contend. Eviction is per segment, so it's only
+ * approximately LRU or LFU across the region as a whole.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class BoundedCache implements Cache {
+	private static final int LFU_SAMPLE_SIZE = 8;
+	private static final int MAX_SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 64;
+	private static final int LOCK_TIMEOUT = Timestamper.ONE_MS * 60000;
+	private final String regionName;
+	private final RegionSettings settings;
+	private final Segment[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong puts = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	
+	/**
+	 * Creates a new {@link BoundedCache}.
+	 * 
+	 * @param regionName the name of the cache region
+	 * @param settings the region's settings
+	 */
+	public BoundedCache(String regionName, RegionSettings settings) {
+		this.regionName = checkNotNull(regionName);
+		this.settings = checkNotNull(settings);
+		
+		final int maxEntries = settings.getMaxEntries();
+		int count = 1;
+		while ((count < MAX_SEGMENTS) && ((maxEntries / (count * 2)) >= MIN_SEGMENT_SIZE)) {
+			count *= 2;
+		}
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			final int share = (maxEntries / count) + ((i < (maxEntries % count)) ? 1 : 0);
+			segments[i] = new Segment(share);
+		}
+	}
+	
+	@Override
+	public Object read(Object key) throws CacheException {
+		return get(key);
+	}
+	
+	@Override
+	public Object get(Object key) throws CacheException {
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			final CacheEntry entry = segment.entries.get(key);
+			if (entry == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+			
+			if (entry.isExpired(System.currentTimeMillis())) {
+				segment.entries.remove(key);
+				expirations.incrementAndGet();
+				misses.incrementAndGet();
+				return null;
+			}
+			
+			entry.hits++;
+			hits.incrementAndGet();
+			return entry.value;
+		}
+	}
+	
+	@Override
+	public void put(Object key, Object value) throws CacheException {
+		final long expiresAt = (settings.getTimeToLive() > 0)
+				? System.currentTimeMillis() + settings.getTimeToLive()
+				: Long.MAX_VALUE;
+		
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.entries.put(key, new CacheEntry(value, expiresAt));
+			puts.incrementAndGet();
+			while (segment.entries.size() > segment.maxEntries) {
+				segment.evictOne(key);
+				evictions.incrementAndGet();
+			}
+		}
+	}
+	
+	@Override
+	public void update(Object key, Object value) throws CacheException {
+		put(key, value);
+	}
+	
+	@Override
+	public void remove(Object key) throws CacheException {
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.entries.remove(key);
+		}
+	}
+	
+	@Override
+	public void clear() throws CacheException {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.entries.clear();
+			}
+		}
+	}
+	
+	@Override
+	public void destroy() throws CacheException {
+		clear();
+	}
+	
+	@Override
+	public void lock(Object key) throws CacheException {
+		// Hibernate's read-write strategy does its own locking
+	}
+	
+	@Override
+	public void unlock(Object key) throws CacheException {
+		// Hibernate's read-write strategy does its own locking
+	}
+	
+	@Override
+	public long nextTimestamp() {
+		return Timestamper.next();
+	}
+	
+	@Override
+	public int getTimeout() {
+		return LOCK_TIMEOUT;
+	}
+	
+	@Override
+	public String getRegionName() {
+		return regionName;
+	}
+	
+	@Override
+	public long getSizeInMemory() {
+		return -1;
+	}
+	
+	@Override
+	public long getElementCountInMemory() {
+		long count = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				count += segment.entries.size();
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	public long getElementCountOnDisk() {
+		return 0;
+	}
+	
+	@Override
+	public Map toMap() {
+		final long now = System.currentTimeMillis();
+		final Map<Object, Object> map = Maps.newHashMap();
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				for (Entry<Object, CacheEntry> entry : segment.entries.entrySet()) {
+					if (!entry.getValue().isExpired(now)) {
+						map.put(entry.getKey(), entry.getValue().value);
+					}
+				}
+			}
+		}
+		return map;
+	}
+	
+	/**
+	 * Returns the region's settings.
+	 */
+	public RegionSettings getSettings() {
+		return settings;
+	}
+	
+	/**
+	 * Returns the number of lookups which found an entry.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Returns the number of lookups which didn't find an entry.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * Returns the number of entries added or replaced.
+	 */
+	public long getPuts() {
+		return puts.get();
+	}
+	
+	/**
+	 * Returns the number of entries evicted to make room for others.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+	
+	/**
+	 * Returns the number of entries removed because they'd expired.
+	 */
+	public long getExpirations() {
+		return expirations.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "BoundedCache(" + regionName + ")";
+	}
+	
+	/*
+	 * Spreads the key's hash (as java.util.HashMap does) so that keys whose
+	 * hash codes only differ in their high bits land in different segments.
+	 */
+	private Segment segmentFor(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[h & (segments.length - 1)];
+	}
+	
+	private final class Segment {
+		private final int maxEntries;
+		private final LinkedHashMap<Object, CacheEntry> entries;
+		
+		public Segment(int maxEntries) {
+			this.maxEntries = maxEntries;
+			final boolean accessOrder = settings.getEvictionPolicy() == EvictionPolicy.LRU;
+			this.entries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, accessOrder);
+		}
+		
+		public void evictOne(Object newKey) {
+			if (settings.getEvictionPolicy() == EvictionPolicy.LRU) {
+				final Iterator<CacheEntry> iterator = entries.values().iterator();
+				iterator.next();
+				iterator.remove();
+			} else {
+				Object victim = null;
+				long fewestHits = Long.MAX_VALUE;
+				final Iterator<Entry<Object, CacheEntry>> candidates = entries.entrySet().iterator();
+				for (int i = 0; (i < LFU_SAMPLE_SIZE) && candidates.hasNext(); i++) {
+					final Entry<Object, CacheEntry> candidate = candidates.next();
+					// don't evict the entry we're making room for
+					if (!candidate.getKey().equals(newKey) && (candidate.getValue().hits < fewestHits)) {
+						fewestHits = candidate.getValue().hits;
+						victim = candidate.getKey();
+					}
+				}
+				entries.remove(victim);
+			}
+		}
+	}
+	
+	private static final class CacheEntry {
+		private final Object value;
+		private final long expiresAt;
+		private long hits = 0;
+		
+		public CacheEntry(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+		
+		public boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.codahale.shore.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.cache.Cache;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.CacheProvider;
+import org.hibernate.cache.Timestamper;
+
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A Hibernate {@link CacheProvider} which builds a {@link BoundedCache} for
+ * each region, configured by {@link RegionSettings}. The regions built by
+ * every running provider are available via {@link #getRegions()}, so their
+ * statistics can be reported. Each provider keeps its own regions, so session
+ * factories with regions of the same name don't replace each other's, and
+ * stopping one doesn't drop another's.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class BoundedCacheProvider implements CacheProvider {
+	private static final Set<BoundedCacheProvider> PROVIDERS =
+		Collections.newSetFromMap(new MapMaker().<BoundedCacheProvider, Boolean>makeMap());
+	
+	/**
+	 * Returns the regions built by the running providers.
+	 * 
+	 * @return the active cache regions
+	 */
+	public static List<BoundedCache> getRegions() {
+		final List<BoundedCache> regions = Lists.newArrayList();
+		for (BoundedCacheProvider provider : PROVIDERS) {
+			regions.addAll(provider.regions.values());
+		}
+		return Collections.unmodifiableList(regions);
+	}
+	
+	private final ConcurrentMap<String, BoundedCache> regions = new MapMaker().makeMap();
+	
+	@Override
+	public Cache buildCache(String regionName, Properties properties) throws CacheException {
+		final BoundedCache cache = new BoundedCache(
+			regionName,
+			RegionSettings.forRegion(regionName, new TypedProperties(properties))
+		);
+		regions.put(regionName, cache);
+		PROVIDERS.add(this);
+		return cache;
+	}
+	
+	@Override
+	public boolean isMinimalPutsEnabledByDefault() {
+		return false;
+	}
+	
+	@Override
+	public long nextTimestamp() {
+		return Timestamper.next();
+	}
+	
+	@Override
+	public void start(Properties properties) throws CacheException {
+		PROVIDERS.add(this);
+	}
+	
+	@Override
+	public void stop() {
+		PROVIDERS.remove(this);
+		regions.clear();
+	}
+}
@@ -0,0 +1,45 @@
+package com.codahale.shore.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures the second-level cache region of an entity class which is
+ * annotated with Hibernate's {@link org.hibernate.annotations.Cache}:
+ * <pre>
+ * &#64;Entity
+ * &#64;Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+ * &#64;CacheRegion(maxEntries=5000, timeToLive=300, eviction=EvictionPolicy.LFU)
+ * public class Widget {
+ *   // ...
+ * }
+ * </pre>
+ * These settings are picked up when the entity packages are scanned, and can
+ * be overridden in the properties file (see {@link RegionSettings}).
+ * 
+ * @author coda
+ *
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheRegion {
+	/**
+	 * The maximum number of entries in the region.
+	 */
+	int maxEntries() default RegionSettings.DEFAULT_MAX_ENTRIES;
+	
+	/**
+	 * The number of seconds an entry stays in the region, or {@code 0} to
+	 * keep entries until they're evicted.
+	 */
+	long timeToLive() default 0;
+	
+	/**
+	 * How the region picks an entry to evict when it's full.
+	 */
+	EvictionPolicy eviction() default EvictionPolicy.LRU;
+}
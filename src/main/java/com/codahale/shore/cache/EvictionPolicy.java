@@ -0,0 +1,19 @@
+package com.codahale.shore.cache;
+
+/**
+ * How a full cache region picks an entry to evict.
+ * 
+ * @author coda
+ *
+ */
+public enum EvictionPolicy {
+	/**
+	 * Evict the least recently used entry.
+	 */
+	LRU,
+	
+	/**
+	 * Evict the least frequently used of the oldest few entries.
+	 */
+	LFU
+}
@@ -0,0 +1,115 @@
+package com.codahale.shore.cache;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * The size, expiration, and eviction settings for a cache region. Settings
+ * are read from the properties file:
+ * <pre>
+ * shore.cache.default.max_entries=10000
+ * shore.cache.default.ttl=0
+ * shore.cache.default.eviction=lru
+ * shore.cache.region.com.example.Widget.max_entries=5000
+ * shore.cache.region.com.example.Widget.ttl=300
+ * shore.cache.region.com.example.Widget.eviction=lfu
+ * </pre>
+ * TTLs are in seconds; {@code 0} means entries never expire. Hibernate's
+ * update timestamps region is never bounded or expired, since losing a
+ * timestamp would let the query cache return stale results.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class RegionSettings {
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	private static final String TIMESTAMPS_REGION = "org.hibernate.cache.UpdateTimestampsCache";
+	private static final String DEFAULT_PREFIX = "shore.cache.default.";
+	private static final String REGION_PREFIX = "shore.cache.region.";
+	private final int maxEntries;
+	private final long timeToLive;
+	private final EvictionPolicy evictionPolicy;
+	
+	/**
+	 * Creates a new {@link RegionSettings}.
+	 * 
+	 * @param maxEntries the maximum number of entries
+	 * @param timeToLive the number of milliseconds an entry is kept, or
+	 *            {@code 0} to keep it until it's evicted
+	 * @param evictionPolicy the eviction policy
+	 */
+	public RegionSettings(int maxEntries, long timeToLive, EvictionPolicy evictionPolicy) {
+		checkArgument(maxEntries > 0, "maxEntries must be positive");
+		checkArgument(timeToLive >= 0, "timeToLive must not be negative");
+		this.maxEntries = maxEntries;
+		this.timeToLive = timeToLive;
+		this.evictionPolicy = checkNotNull(evictionPolicy);
+	}
+	
+	/**
+	 * Returns the settings for {@code region}.
+	 * 
+	 * @param region a region name
+	 * @param properties the Hibernate properties
+	 * @return the region's settings
+	 */
+	public static RegionSettings forRegion(String region, TypedProperties properties) {
+		if (TIMESTAMPS_REGION.equals(region)) {
+			return new RegionSettings(Integer.MAX_VALUE, 0, EvictionPolicy.LRU);
+		}
+		
+		final int defaultMaxEntries = properties.getInt(DEFAULT_PREFIX + "max_entries", DEFAULT_MAX_ENTRIES);
+		final long defaultTimeToLive = properties.getLong(DEFAULT_PREFIX + "ttl", 0);
+		final String defaultEviction = properties.getString(DEFAULT_PREFIX + "eviction", EvictionPolicy.LRU.toString());
+		
+		return new RegionSettings(
+			properties.getInt(key(region, "max_entries"), defaultMaxEntries),
+			TimeUnit.SECONDS.toMillis(properties.getLong(key(region, "ttl"), defaultTimeToLive)),
+			EvictionPolicy.valueOf(properties.getString(key(region, "eviction"), defaultEviction).toUpperCase())
+		);
+	}
+	
+	/**
+	 * Returns the name of a region's property.
+	 * 
+	 * @param region a region name
+	 * @param setting {@code max_entries}, {@code ttl}, or {@code eviction}
+	 * @return the property name
+	 */
+	public static String key(String region, String setting) {
+		return REGION_PREFIX + region + "." + setting;
+	}
+	
+	/**
+	 * Returns the maximum number of entries in the region.
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	/**
+	 * Returns the number of milliseconds an entry is kept, or {@code 0} if
+	 * entries don't expire.
+	 */
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+	
+	/**
+	 * Returns the region's eviction policy.
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+	
+	@Override
+	public String toString() {
+		return "[max entries: " + maxEntries + ", ttl: " + timeToLive + "ms, eviction: " + evictionPolicy + "]";
+	}
+}
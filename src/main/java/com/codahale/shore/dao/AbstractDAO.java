@@ -10,6 +10,8 @@ import net.jcip.annotations.Immutable;
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 
 import com.google.inject.Provider;
@@ -24,6 +26,17 @@ import com.google.inject.Provider;
  */
 @Immutable
 public class AbstractDAO<E> {
+	/**
+	 * The number of entities {@link #persistAll(Iterable)} saves between
+	 * flushes, which matches the default {@code hibernate.jdbc.batch_size}.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 50;
+	
+	/**
+	 * The number of rows {@link #scroll(Criteria)} and {@link #scroll(Query)}
+	 * ask the JDBC driver to fetch at a time.
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 100;
 	private final Provider<Session> provider;
 	private final Class<E> entityClass;
 
@@ -59,6 +72,30 @@ public class AbstractDAO<E> {
 		return currentSession().createCriteria(entityClass);
 	}
 
+	/**
+	 * Creates a new {@link Criteria} query for {@code <E>} whose results are
+	 * stored in the query cache.
+	 * 
+	 * @return a new cacheable {@link Criteria} query
+	 * @see Criteria#setCacheable(boolean)
+	 */
+	protected Criteria cachedCriteria() {
+		return criteria().setCacheable(true);
+	}
+
+	/**
+	 * Creates a new {@link Criteria} query for {@code <E>} whose results are
+	 * stored in a specific query cache region.
+	 * 
+	 * @param region
+	 *            the name of the query cache region
+	 * @return a new cacheable {@link Criteria} query
+	 * @see Criteria#setCacheRegion(String)
+	 */
+	protected Criteria cachedCriteria(String region) {
+		return cachedCriteria().setCacheRegion(checkNotNull(region));
+	}
+
 	/**
 	 * Returns a named {@link Query}.
 	 * 
@@ -138,6 +175,72 @@ public class AbstractDAO<E> {
 		return checkNotNull(query).list();
 	}
 
+	/**
+	 * Iterates over the results of a {@link Criteria} query without loading
+	 * them all into memory, fetching {@value #DEFAULT_FETCH_SIZE} rows at a
+	 * time.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} query to run
+	 * @return an iterator over the query results
+	 * @see #scroll(Criteria, int)
+	 */
+	protected ScrollableIterator<E> scroll(Criteria criteria) throws HibernateException {
+		return scroll(criteria, DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * Iterates over the results of a {@link Criteria} query without loading
+	 * them all into memory. Each entity is evicted from the session once the
+	 * iterator moves past it, so changes made to it after that aren't saved.
+	 * The iterator must be closed if it's not read to the end.
+	 * <p/>
+	 * <b>N.B.:</b> Some JDBC drivers ignore fetch sizes; MySQL's, for
+	 * example, only streams results with a fetch size of
+	 * {@link Integer#MIN_VALUE}.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} query to run
+	 * @param fetchSize
+	 *            the number of rows to fetch at a time
+	 * @return an iterator over the query results
+	 * @see Criteria#scroll(ScrollMode)
+	 */
+	protected ScrollableIterator<E> scroll(Criteria criteria, int fetchSize) throws HibernateException {
+		final ScrollableResults results = checkNotNull(criteria).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+		return new ScrollableIterator<E>(currentSession(), results);
+	}
+
+	/**
+	 * Iterates over the results of a query without loading them all into
+	 * memory, fetching {@value #DEFAULT_FETCH_SIZE} rows at a time.
+	 * 
+	 * @param query
+	 *            the query to run
+	 * @return an iterator over the query results
+	 * @see #scroll(Query, int)
+	 */
+	protected ScrollableIterator<E> scroll(Query query) throws HibernateException {
+		return scroll(query, DEFAULT_FETCH_SIZE);
+	}
+
+	/**
+	 * Iterates over the results of a query without loading them all into
+	 * memory.
+	 * 
+	 * @param query
+	 *            the query to run
+	 * @param fetchSize
+	 *            the number of rows to fetch at a time
+	 * @return an iterator over the query results
+	 * @see #scroll(Criteria, int)
+	 * @see Query#scroll(ScrollMode)
+	 */
+	protected ScrollableIterator<E> scroll(Query query, int fetchSize) throws HibernateException {
+		final ScrollableResults results = checkNotNull(query).setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY);
+		return new ScrollableIterator<E>(currentSession(), results);
+	}
+
 	/**
 	 * Return the persistent instance of {@code <E>} with the given identifier, or {@code null} if
 	 * there is no such persistent instance. (If the instance, or a proxy for the instance, is
@@ -160,6 +263,9 @@ public class AbstractDAO<E> {
 	 * <p/>
 	 * This operation cascades to associated instances if the association is mapped with
 	 * <tt>cascade="save-update"</tt>.
+	 * <p/>
+	 * Once the transaction commits, the change is published to
+	 * {@link com.codahale.shore.hibernate.EntityChanges}' subscribers.
 	 * 
 	 * @param entity
 	 *            a transient or detached instance containing new or updated state
@@ -170,4 +276,61 @@ public class AbstractDAO<E> {
 		currentSession().saveOrUpdate(checkNotNull(entity));
 		return entity;
 	}
+
+	/**
+	 * Saves or updates a large number of instances in batches of
+	 * {@value #DEFAULT_BATCH_SIZE}.
+	 * 
+	 * @param entities
+	 *            transient or detached instances
+	 * @return the number of instances persisted
+	 * @throws HibernateException
+	 * @see #persistAll(Iterable, int)
+	 */
+	protected int persistAll(Iterable<E> entities) throws HibernateException {
+		return persistAll(entities, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Saves or updates a large number of instances, flushing and clearing the
+	 * session after every {@code batchSize} instances so that memory usage
+	 * stays flat and the inserts and updates can be sent to the database as
+	 * JDBC batches. {@code batchSize} should match
+	 * {@code hibernate.jdbc.batch_size}.
+	 * <p/>
+	 * <b>N.B.:</b> Clearing the session detaches <i>every</i> instance
+	 * associated with it, not just the ones passed to this method. Entities
+	 * with {@code IDENTITY} identifiers are inserted one at a time no matter
+	 * what, since Hibernate must read each generated key back.
+	 * 
+	 * @param entities
+	 *            transient or detached instances
+	 * @param batchSize
+	 *            the number of instances to save between flushes
+	 * @return the number of instances persisted
+	 * @throws HibernateException
+	 * @see Session#flush()
+	 * @see Session#clear()
+	 */
+	protected int persistAll(Iterable<E> entities, int batchSize) throws HibernateException {
+		checkNotNull(entities);
+		checkArgument(batchSize > 0, "batchSize must be positive");
+		
+		final Session session = currentSession();
+		int count = 0;
+		for (E entity : entities) {
+			session.saveOrUpdate(checkNotNull(entity));
+			count++;
+			if ((count % batchSize) == 0) {
+				session.flush();
+				session.clear();
+			}
+		}
+		
+		if ((count % batchSize) != 0) {
+			session.flush();
+			session.clear();
+		}
+		return count;
+	}
 }
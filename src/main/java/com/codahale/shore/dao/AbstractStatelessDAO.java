@@ -0,0 +1,201 @@
+package com.codahale.shore.dao;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.Query;
+import org.hibernate.StatelessSession;
+
+import com.google.inject.Provider;
+
+/**
+ * An abstract base class for Guice-injected Hibernate DAO classes which use a
+ * {@link StatelessSession}. Stateless sessions have no first-level cache and
+ * don't do dirty checking, cascading, or lazy loading, which makes them a
+ * good fit for bulk inserts and reports over large tables. Changes must be
+ * written explicitly via {@link #insert(Object)}, {@link #update(Object)}, and
+ * {@link #delete(Object)}, which go to the database immediately.
+ * 
+ * @author coda
+ * 
+ * @param <E>
+ *            the class which this DAO manages
+ * @see AbstractDAO
+ */
+@Immutable
+public class AbstractStatelessDAO<E> {
+	private final Provider<StatelessSession> provider;
+	private final Class<E> entityClass;
+
+	/**
+	 * Creates a new DAO with a given stateless session provider.
+	 * 
+	 * @param provider
+	 *            a stateless session provider
+	 * @param entityClass
+	 *            the entity class this DAO manages
+	 */
+	public AbstractStatelessDAO(Provider<StatelessSession> provider, Class<E> entityClass) {
+		this.provider = checkNotNull(provider);
+		this.entityClass = checkNotNull(entityClass);
+	}
+
+	/**
+	 * Returns the current {@link StatelessSession}.
+	 * 
+	 * @return the current stateless session
+	 */
+	protected StatelessSession currentSession() {
+		return provider.get();
+	}
+
+	/**
+	 * Creates a new {@link Criteria} query for {@code <E>}.
+	 * 
+	 * @return a new {@link Criteria} query
+	 * @see StatelessSession#createCriteria(Class)
+	 */
+	protected Criteria criteria() {
+		return currentSession().createCriteria(entityClass);
+	}
+
+	/**
+	 * Returns a named {@link Query}.
+	 * 
+	 * @param queryName
+	 *            the name of the query
+	 * @return the named query
+	 * @see StatelessSession#getNamedQuery(String)
+	 */
+	protected Query namedQuery(String queryName) throws HibernateException {
+		return currentSession().getNamedQuery(checkNotNull(queryName));
+	}
+
+	/**
+	 * Returns the entity class managed by this DAO.
+	 * 
+	 * @return this DAO's entity class
+	 */
+	public Class<E> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * Convenience method to return a single instance that matches the criteria, or null if the
+	 * critera returns no results.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} query to run
+	 * @return the single result or {@code null}
+	 * @throws HibernateException
+	 *             if there is more than one matching result
+	 * @see Criteria#uniqueResult()
+	 */
+	@SuppressWarnings("unchecked")
+	protected E uniqueResult(Criteria criteria) throws HibernateException {
+		return (E) checkNotNull(criteria).uniqueResult();
+	}
+
+	/**
+	 * Convenience method to return a single instance that matches the query, or null if the query
+	 * returns no results.
+	 * 
+	 * @param query
+	 *            the query to run
+	 * @return the single result or {@code null}
+	 * @throws HibernateException
+	 *             if there is more than one matching result
+	 * @see Query#uniqueResult()
+	 */
+	@SuppressWarnings("unchecked")
+	protected E uniqueResult(Query query) throws HibernateException {
+		return (E) checkNotNull(query).uniqueResult();
+	}
+
+	/**
+	 * Get the results of a {@link Criteria} query.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} query to run
+	 * @return the list of matched query results
+	 * @see Criteria#list()
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<E> list(Criteria criteria) throws HibernateException {
+		return checkNotNull(criteria).list();
+	}
+
+	/**
+	 * Get the results of a query.
+	 * 
+	 * @param query
+	 *            the query to run
+	 * @return the list of matched query results
+	 * @see Query#list()
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<E> list(Query query) throws HibernateException {
+		return checkNotNull(query).list();
+	}
+
+	/**
+	 * Return the instance of {@code <E>} with the given identifier, or {@code null} if there is no
+	 * such instance. The instance is always loaded from the database.
+	 * 
+	 * @param id
+	 *            an identifier
+	 * @return a detached instance or {@code null}
+	 * @throws HibernateException
+	 * @see StatelessSession#get(Class, Serializable)
+	 */
+	@SuppressWarnings("unchecked")
+	protected E get(Serializable id) throws HibernateException {
+		return (E) currentSession().get(entityClass, checkNotNull(id));
+	}
+
+	/**
+	 * Inserts a new instance.
+	 * 
+	 * @param entity
+	 *            a transient instance
+	 * @return {@code entity}
+	 * @throws HibernateException
+	 * @see StatelessSession#insert(Object)
+	 */
+	protected E insert(E entity) throws HibernateException {
+		currentSession().insert(checkNotNull(entity));
+		return entity;
+	}
+
+	/**
+	 * Updates an existing instance.
+	 * 
+	 * @param entity
+	 *            a detached instance containing updated state
+	 * @return {@code entity}
+	 * @throws HibernateException
+	 * @see StatelessSession#update(Object)
+	 */
+	protected E update(E entity) throws HibernateException {
+		currentSession().update(checkNotNull(entity));
+		return entity;
+	}
+
+	/**
+	 * Deletes an existing instance.
+	 * 
+	 * @param entity
+	 *            a detached instance
+	 * @throws HibernateException
+	 * @see StatelessSession#delete(Object)
+	 */
+	protected void delete(E entity) throws HibernateException {
+		currentSession().delete(checkNotNull(entity));
+	}
+}
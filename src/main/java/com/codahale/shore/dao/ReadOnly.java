@@ -0,0 +1,35 @@
+package com.codahale.shore.dao;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method (or every method of a class) as a read-only unit of work.
+ * If a replica database is configured, connections acquired while the
+ * method runs come from the replica:
+ * <pre>
+ * public class WidgetDAO extends AbstractDAO&lt;Widget&gt; {
+ *   &#64;ReadOnly
+ *   &#64;Transactional
+ *   public List&lt;Widget&gt; findAll() {
+ *     return list(criteria());
+ *   }
+ * }
+ * </pre>
+ * Only connections acquired inside the method are affected, so a read-only
+ * method called from inside a read-write transaction still reads from the
+ * primary and sees that transaction's writes. The class must be created by
+ * Guice for the annotation to have any effect.
+ * 
+ * @author coda
+ * @see com.codahale.shore.hibernate.RoutingConnectionProvider
+ */
+@Documented
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnly {
+	
+}
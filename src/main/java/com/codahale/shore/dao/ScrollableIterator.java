@@ -0,0 +1,101 @@
+package com.codahale.shore.dao;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+/**
+ * An {@link Iterator} over a {@link ScrollableResults} which evicts each
+ * entity from the {@link Session} once the caller moves on to the next one,
+ * so that iterating over a large result set uses a constant amount of memory.
+ * <p>
+ * The underlying results are closed when the iterator is exhausted, but
+ * callers which stop early must call {@link #close()} themselves.
+ * 
+ * @author coda
+ *
+ * @param <E>
+ *            the type of entity returned
+ */
+@NotThreadSafe
+public class ScrollableIterator<E> implements Iterator<E>, Closeable {
+	private final Session session;
+	private final ScrollableResults results;
+	private E current;
+	private boolean advanced, hasNext, closed;
+	
+	/**
+	 * Creates a new {@link ScrollableIterator}.
+	 * 
+	 * @param session
+	 *            the session the results were loaded in
+	 * @param results
+	 *            a set of results, the first column of which is returned
+	 */
+	public ScrollableIterator(Session session, ScrollableResults results) {
+		this.session = checkNotNull(session);
+		this.results = checkNotNull(results);
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (!advanced) {
+			evictCurrent();
+			this.hasNext = !closed && results.next();
+			this.advanced = true;
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		this.advanced = false;
+		this.current = (E) results.get(0);
+		return current;
+	}
+	
+	/**
+	 * Not supported.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void remove() throws UnsupportedOperationException {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Evicts the current entity and closes the underlying results. Calling
+	 * this more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			this.closed = true;
+			evictCurrent();
+			results.close();
+		}
+	}
+	
+	private void evictCurrent() {
+		// scalar results aren't in the session
+		if ((current != null) && session.contains(current)) {
+			session.evict(current);
+		}
+		this.current = null;
+	}
+}
@@ -0,0 +1,41 @@
+package com.codahale.shore.health;
+
+import java.sql.Connection;
+import java.util.Map;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.pool.ConnectionPool;
+import com.codahale.shore.pool.PooledConnectionProvider;
+
+/**
+ * Checks that a connection can be checked out of each of the application's
+ * connection pools. Idle connections are validated on checkout, so a
+ * database which has gone away is noticed.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class DatabaseHealthCheck extends HealthCheck {
+	/**
+	 * Creates a new {@link DatabaseHealthCheck}.
+	 */
+	public DatabaseHealthCheck() {
+		super("database");
+	}
+	
+	@Override
+	protected Result check() throws Exception {
+		final Map<String, ConnectionPool> pools = PooledConnectionProvider.getPools();
+		if (pools.isEmpty()) {
+			return Result.healthy("no connection pools");
+		}
+		
+		for (ConnectionPool pool : pools.values()) {
+			final Connection connection = pool.getConnection();
+			pool.release(connection);
+		}
+		return Result.healthy(pools.values().toString());
+	}
+}
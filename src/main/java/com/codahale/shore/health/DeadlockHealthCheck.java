@@ -0,0 +1,57 @@
+package com.codahale.shore.health;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * Checks that no threads are deadlocked.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class DeadlockHealthCheck extends HealthCheck {
+	private final ThreadMXBean threads;
+	
+	/**
+	 * Creates a new {@link DeadlockHealthCheck}.
+	 */
+	public DeadlockHealthCheck() {
+		this(ManagementFactory.getThreadMXBean());
+	}
+	
+	/**
+	 * Creates a new {@link DeadlockHealthCheck}.
+	 * 
+	 * @param threads the JVM's thread bean
+	 */
+	public DeadlockHealthCheck(ThreadMXBean threads) {
+		super("deadlocks");
+		this.threads = checkNotNull(threads);
+	}
+	
+	@Override
+	protected Result check() throws Exception {
+		final long[] ids = threads.findDeadlockedThreads();
+		if (ids == null) {
+			return Result.healthy();
+		}
+		
+		final List<String> names = Lists.newArrayList();
+		for (ThreadInfo info : threads.getThreadInfo(ids)) {
+			if (info != null) {
+				names.add(info.getThreadName() + " (waiting on " + info.getLockName() + ")");
+			}
+		}
+		return Result.unhealthy("deadlocked threads: " + Joiner.on(", ").join(names));
+	}
+}
@@ -0,0 +1,146 @@
+package com.codahale.shore.health;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A check of whether some part of an application is healthy, reported on
+ * the admin port. Subclasses are built by Guice, so they can inject the
+ * resources they check:
+ * <pre>
+ * public class WidgetStoreHealthCheck extends HealthCheck {
+ * 	private final WidgetStore store;
+ * 
+ * 	&#64;Inject
+ * 	public WidgetStoreHealthCheck(WidgetStore store) {
+ * 		super("widget-store");
+ * 		this.store = store;
+ * 	}
+ * 
+ * 	&#64;Override
+ * 	protected Result check() throws Exception {
+ * 		return store.isConnected() ? Result.healthy() : Result.unhealthy("not connected");
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @author coda
+ * @see com.codahale.shore.AbstractConfiguration#addHealthCheck(Class)
+ */
+@ThreadSafe
+public abstract class HealthCheck {
+	/**
+	 * The result of a {@link HealthCheck}.
+	 */
+	@Immutable
+	public static class Result {
+		private static final Result HEALTHY = new Result(true, null, null);
+		
+		/**
+		 * Returns a healthy result.
+		 */
+		public static Result healthy() {
+			return HEALTHY;
+		}
+		
+		/**
+		 * Returns a healthy result with a message.
+		 * 
+		 * @param message a description of the result
+		 */
+		public static Result healthy(String message) {
+			return new Result(true, checkNotNull(message), null);
+		}
+		
+		/**
+		 * Returns an unhealthy result.
+		 * 
+		 * @param message a description of what's wrong
+		 */
+		public static Result unhealthy(String message) {
+			return new Result(false, checkNotNull(message), null);
+		}
+		
+		/**
+		 * Returns an unhealthy result caused by an exception.
+		 * 
+		 * @param error the exception thrown by the check
+		 */
+		public static Result unhealthy(Throwable error) {
+			return new Result(false, checkNotNull(error).getMessage(), error);
+		}
+		
+		private final boolean healthy;
+		private final String message;
+		private final Throwable error;
+		
+		private Result(boolean healthy, String message, Throwable error) {
+			this.healthy = healthy;
+			this.message = message;
+			this.error = error;
+		}
+		
+		public boolean isHealthy() {
+			return healthy;
+		}
+		
+		/**
+		 * Returns a description of the result, or {@code null}.
+		 */
+		public String getMessage() {
+			return message;
+		}
+		
+		/**
+		 * Returns the exception thrown by the check, or {@code null}.
+		 */
+		public Throwable getError() {
+			return error;
+		}
+		
+		@Override
+		public String toString() {
+			final String status = healthy ? "OK" : "ERROR";
+			return (message == null) ? status : (status + ": " + message);
+		}
+	}
+	
+	private final String name;
+	
+	/**
+	 * Creates a new {@link HealthCheck}.
+	 * 
+	 * @param name the check's name
+	 */
+	protected HealthCheck(String name) {
+		this.name = checkNotNull(name);
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Performs the check.
+	 * 
+	 * @return the check's result
+	 * @throws Exception if the check fails, in which case the application
+	 *             is considered unhealthy
+	 */
+	protected abstract Result check() throws Exception;
+	
+	/**
+	 * Performs the check, treating any exception as an unhealthy result.
+	 * 
+	 * @return the check's result
+	 */
+	public Result execute() {
+		try {
+			return check();
+		} catch (Exception e) {
+			return Result.unhealthy(e);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.codahale.shore.hibernate;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.metrics.Histogram;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Statistics about an application's database usage: statements executed,
+ * entities loaded, sessions flushed, and connections acquired, along with
+ * how long each took.
+ * <p>
+ * Unlike Hibernate's {@code StatisticsImpl}, which synchronizes on every
+ * update, recording a measurement here is a handful of uncontended atomic
+ * adds. Statements are timed in Hibernate's batchers rather than by wrapping
+ * JDBC objects, so enabling them (via {@code shore.statistics}, which is off
+ * by default) doesn't put a proxy in front of every JDBC call. All
+ * latencies are recorded in microseconds.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class DatabaseStatistics {
+	/**
+	 * The property which tells Hibernate plugins (which Hibernate creates
+	 * reflectively) which {@link DatabaseStatistics} to record to.
+	 */
+	public static final String ID_PROPERTY = "shore.statistics.id";
+	
+	private static final AtomicInteger IDS = new AtomicInteger();
+	private static final ConcurrentMap<String, DatabaseStatistics> REGISTRY =
+		new MapMaker().weakValues().makeMap();
+	
+	/**
+	 * Returns the {@link DatabaseStatistics} with a given ID.
+	 * 
+	 * @param id the ID of a {@link DatabaseStatistics}
+	 * @return the matching {@link DatabaseStatistics}, or {@code null}
+	 * @see #getId()
+	 */
+	public static DatabaseStatistics lookup(String id) {
+		return (id == null) ? null : REGISTRY.get(id);
+	}
+	
+	private final String id;
+	private final Histogram statements = new Histogram();
+	private final Histogram entityLoads = new Histogram();
+	private final Histogram flushes = new Histogram();
+	private final Histogram connectionAcquisitions = new Histogram();
+	
+	/**
+	 * Creates a new {@link DatabaseStatistics}.
+	 */
+	public DatabaseStatistics() {
+		this.id = "statistics-" + IDS.incrementAndGet();
+		REGISTRY.put(id, this);
+	}
+	
+	/**
+	 * Returns a unique ID for this instance, which can be passed to
+	 * {@link #lookup(String)}.
+	 */
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * Records the execution of a SQL statement.
+	 * 
+	 * @param nanos the number of nanoseconds the statement took
+	 */
+	public void recordStatement(long nanos) {
+		statements.update(toMicros(nanos));
+	}
+	
+	/**
+	 * Records the loading of an entity.
+	 * 
+	 * @param nanos the number of nanoseconds the load took
+	 */
+	public void recordEntityLoad(long nanos) {
+		entityLoads.update(toMicros(nanos));
+	}
+	
+	/**
+	 * Records the flushing of a session.
+	 * 
+	 * @param nanos the number of nanoseconds the flush took
+	 */
+	public void recordFlush(long nanos) {
+		flushes.update(toMicros(nanos));
+	}
+	
+	/**
+	 * Records the acquisition of a database connection.
+	 * 
+	 * @param nanos the number of nanoseconds spent waiting for the connection
+	 */
+	public void recordConnectionAcquisition(long nanos) {
+		connectionAcquisitions.update(toMicros(nanos));
+	}
+	
+	/**
+	 * Returns the latencies of SQL statements (queries and updates alike).
+	 */
+	public Histogram getStatements() {
+		return statements;
+	}
+	
+	/**
+	 * Returns the latencies of entity loads, including those satisfied by the
+	 * session or the second-level cache.
+	 */
+	public Histogram getEntityLoads() {
+		return entityLoads;
+	}
+	
+	/**
+	 * Returns the latencies of session flushes.
+	 */
+	public Histogram getFlushes() {
+		return flushes;
+	}
+	
+	/**
+	 * Returns the time spent waiting for database connections.
+	 */
+	public Histogram getConnectionAcquisitions() {
+		return connectionAcquisitions;
+	}
+	
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		append(builder, "statements", statements);
+		append(builder.append(", "), "entity loads", entityLoads);
+		append(builder.append(", "), "flushes", flushes);
+		append(builder.append(", "), "connection acquisitions", connectionAcquisitions);
+		return builder.toString();
+	}
+	
+	private void append(StringBuilder builder, String name, Histogram histogram) {
+		builder.append(name).append('=').append(histogram.getCount())
+				.append(" (mean=").append(Math.round(histogram.getMean()))
+				.append("us, p99=").append(histogram.getQuantile(0.99))
+				.append("us)");
+	}
+	
+	private static long toMicros(long nanos) {
+		// the histograms record negative durations, which can happen when
+		// System.nanoTime() isn't monotonic, as zero
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+}
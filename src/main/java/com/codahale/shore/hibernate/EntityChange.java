@@ -0,0 +1,92 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A committed change to an entity.
+ * 
+ * @author coda
+ * @see EntityChanges
+ */
+@Immutable
+public class EntityChange {
+	/**
+	 * The kind of change.
+	 */
+	public enum Type {
+		INSERT, UPDATE, DELETE
+	}
+	
+	private final Type type;
+	private final Class<?> entityClass;
+	private final Serializable id;
+	
+	/**
+	 * Creates a new {@link EntityChange}.
+	 * 
+	 * @param type the kind of change
+	 * @param entityClass the entity's class
+	 * @param id the entity's identifier
+	 */
+	public EntityChange(Type type, Class<?> entityClass, Serializable id) {
+		this.type = checkNotNull(type);
+		this.entityClass = checkNotNull(entityClass);
+		this.id = checkNotNull(id);
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public Class<?> getEntityClass() {
+		return entityClass;
+	}
+	
+	public Serializable getId() {
+		return id;
+	}
+	
+	/**
+	 * Returns a string which identifies the entity, e.g.
+	 * {@code com.example.Widget#42}.
+	 */
+	public String getKey() {
+		return key(entityClass, id);
+	}
+	
+	/**
+	 * Returns a string which identifies an entity.
+	 * 
+	 * @param entityClass the entity's class
+	 * @param id the entity's identifier
+	 */
+	public static String key(Class<?> entityClass, Serializable id) {
+		return entityClass.getName() + "#" + id;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof EntityChange)) {
+			return false;
+		}
+		final EntityChange other = (EntityChange) obj;
+		return (type == other.type) && entityClass.equals(other.entityClass) && id.equals(other.id);
+	}
+	
+	@Override
+	public int hashCode() {
+		return (31 * ((31 * type.hashCode()) + entityClass.hashCode())) + id.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return type + " " + getKey();
+	}
+}
@@ -0,0 +1,93 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Transaction;
+import org.hibernate.event.EventSource;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostLoadEvent;
+import org.hibernate.event.PostLoadEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+
+/**
+ * A Hibernate event listener which publishes inserts, updates, and deletes
+ * to {@link EntityChanges} after the session's transaction commits (or
+ * immediately, if the session isn't in a transaction), and records loads.
+ * 
+ * @author coda
+ *
+ */
+public class EntityChangeEventListener implements PostInsertEventListener, PostUpdateEventListener,
+		PostDeleteEventListener, PostLoadEventListener {
+	private static final long serialVersionUID = -3805906262460941367L;
+	private final transient EntityChanges changes;
+	
+	/**
+	 * Creates a new {@link EntityChangeEventListener}.
+	 * 
+	 * @param changes the publisher to publish changes to
+	 */
+	public EntityChangeEventListener(EntityChanges changes) {
+		this.changes = checkNotNull(changes);
+	}
+	
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		publishAfterCommit(event.getSession(), new EntityChange(
+			EntityChange.Type.INSERT, event.getEntity().getClass(), event.getId()
+		));
+	}
+	
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		publishAfterCommit(event.getSession(), new EntityChange(
+			EntityChange.Type.UPDATE, event.getEntity().getClass(), event.getId()
+		));
+	}
+	
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		publishAfterCommit(event.getSession(), new EntityChange(
+			EntityChange.Type.DELETE, event.getEntity().getClass(), event.getId()
+		));
+	}
+	
+	@Override
+	public void onPostLoad(PostLoadEvent event) {
+		final Serializable id = event.getId();
+		if (id != null) {
+			EntityChanges.recordLoad(event.getEntity().getClass(), id);
+		}
+	}
+	
+	private void publishAfterCommit(EventSource session, final EntityChange change) {
+		final Transaction transaction = session.getTransaction();
+		if ((transaction == null) || !transaction.isActive()) {
+			changes.publish(change);
+			return;
+		}
+		
+		transaction.registerSynchronization(new Synchronization() {
+			@Override
+			public void beforeCompletion() {
+				
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED) {
+					changes.publish(change);
+				}
+			}
+		});
+	}
+}
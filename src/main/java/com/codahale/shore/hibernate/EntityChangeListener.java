@@ -0,0 +1,17 @@
+package com.codahale.shore.hibernate;
+
+/**
+ * Something which needs to know when entities change, like a cache.
+ * 
+ * @author coda
+ * @see EntityChanges#subscribe(EntityChangeListener)
+ */
+public interface EntityChangeListener {
+	/**
+	 * Called after a transaction which changed an entity commits. Called on
+	 * the committing thread, so implementations should be quick.
+	 * 
+	 * @param change the change
+	 */
+	public void onChange(EntityChange change);
+}
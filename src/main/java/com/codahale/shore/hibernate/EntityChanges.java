@@ -0,0 +1,98 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Publishes the entities inserted, updated, and deleted through Hibernate
+ * sessions to {@link EntityChangeListener}s once their transactions commit,
+ * so caches can evict exactly what changed. It's bound for injection, so
+ * caches can subscribe to it.
+ * <p>
+ * Changes made with HQL bulk updates or a
+ * {@link org.hibernate.StatelessSession} aren't published.
+ * <p>
+ * It can also record which entities a thread loads, so a cache can tell
+ * which changes should evict a value it's about to store.
+ * 
+ * @author coda
+ * @see EntityChangeEventListener
+ */
+@ThreadSafe
+public class EntityChanges {
+	private static final Logger LOGGER = Logger.getLogger(EntityChanges.class.getCanonicalName());
+	private static final ThreadLocal<Set<String>> LOADED = new ThreadLocal<Set<String>>();
+	private final List<EntityChangeListener> listeners = new CopyOnWriteArrayList<EntityChangeListener>();
+	
+	/**
+	 * Subscribes a listener to changes.
+	 * 
+	 * @param listener a listener
+	 */
+	public void subscribe(EntityChangeListener listener) {
+		listeners.add(checkNotNull(listener));
+	}
+	
+	/**
+	 * Unsubscribes a listener from changes.
+	 * 
+	 * @param listener a listener
+	 */
+	public void unsubscribe(EntityChangeListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * Publishes a change to every listener. A listener which throws an
+	 * exception doesn't keep the others from hearing about it.
+	 * 
+	 * @param change a committed change
+	 */
+	public void publish(EntityChange change) {
+		for (EntityChangeListener listener : listeners) {
+			try {
+				listener.onChange(change);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Error publishing " + change + " to " + listener, e);
+			}
+		}
+	}
+	
+	/**
+	 * Starts recording the entities the current thread loads.
+	 */
+	public static void startRecordingLoads() {
+		LOADED.set(Sets.<String>newHashSet());
+	}
+	
+	/**
+	 * Stops recording the entities the current thread loads.
+	 * 
+	 * @return the classes and keys (see {@link EntityChange#key(Class, Serializable)})
+	 *         of the entities loaded since recording started
+	 */
+	public static Set<String> stopRecordingLoads() {
+		final Set<String> loaded = LOADED.get();
+		LOADED.remove();
+		return (loaded == null) ? ImmutableSet.<String>of() : ImmutableSet.copyOf(loaded);
+	}
+	
+	static void recordLoad(Class<?> entityClass, Serializable id) {
+		final Set<String> loaded = LOADED.get();
+		if (loaded != null) {
+			loaded.add(entityClass.getName());
+			loaded.add(EntityChange.key(entityClass, id));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.codahale.shore.hibernate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.connection.ConnectionProviderFactory;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * A {@link ConnectionProvider} which wraps another provider, recording how
+ * long it takes to acquire connections to a {@link DatabaseStatistics}. The
+ * connections themselves are passed through untouched; statements are timed
+ * by {@link TimedBatcherFactory}.
+ * <p>
+ * The wrapped provider's class is read from
+ * {@code shore.statistics.connection_provider}; the statistics are looked up
+ * using {@code shore.statistics.id}.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class InstrumentedConnectionProvider implements ConnectionProvider {
+	/**
+	 * The property which holds the class name of the wrapped provider.
+	 */
+	public static final String DELEGATE_PROPERTY = "shore.statistics.connection_provider";
+	private volatile ConnectionProvider delegate;
+	private volatile DatabaseStatistics statistics;
+	
+	@Override
+	public void configure(Properties props) throws HibernateException {
+		final TypedProperties properties = new TypedProperties(props);
+		final String delegateClass = properties.getString(DELEGATE_PROPERTY, null);
+		if ((delegateClass == null) || delegateClass.equals(getClass().getName())) {
+			throw new HibernateException(DELEGATE_PROPERTY + " must be the name of a ConnectionProvider class");
+		}
+		
+		final DatabaseStatistics statistics = DatabaseStatistics.lookup(properties.getString(DatabaseStatistics.ID_PROPERTY, null));
+		this.statistics = (statistics == null) ? new DatabaseStatistics() : statistics;
+		
+		final Properties delegateProperties = new Properties();
+		delegateProperties.putAll(props);
+		delegateProperties.setProperty(Environment.CONNECTION_PROVIDER, delegateClass);
+		this.delegate = ConnectionProviderFactory.newConnectionProvider(delegateProperties);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		final long start = System.nanoTime();
+		try {
+			return delegate.getConnection();
+		} finally {
+			statistics.recordConnectionAcquisition(System.nanoTime() - start);
+		}
+	}
+	
+	@Override
+	public void closeConnection(Connection conn) throws SQLException {
+		delegate.closeConnection(conn);
+	}
+	
+	@Override
+	public void close() throws HibernateException {
+		delegate.close();
+	}
+	
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return delegate.supportsAggressiveRelease();
+	}
+	
+	/**
+	 * Returns the wrapped provider.
+	 */
+	public ConnectionProvider getDelegate() {
+		return delegate;
+	}
+	
+	/**
+	 * Returns the statistics this provider records to.
+	 */
+	public DatabaseStatistics getStatistics() {
+		return statistics;
+	}
+}
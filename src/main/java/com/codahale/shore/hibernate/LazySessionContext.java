@@ -0,0 +1,93 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.hibernate.HibernateException;
+import org.hibernate.classic.Session;
+import org.hibernate.context.CurrentSessionContext;
+import org.hibernate.engine.SessionFactoryImplementor;
+
+/**
+ * A {@link CurrentSessionContext} which doesn't open a session until one is
+ * asked for. {@link LazySessionFilter} begins a unit of work for each
+ * request, but a session (and with it, a JDBC connection) is only opened when
+ * something calls {@link org.hibernate.SessionFactory#getCurrentSession()},
+ * so requests which never touch the database pay nothing.
+ * <p>
+ * A unit of work isn't tied to a particular session factory: each factory
+ * using this context opens its own session in it, and they're all closed
+ * when it ends.
+ * 
+ * @author coda
+ *
+ */
+public class LazySessionContext implements CurrentSessionContext {
+	private static final long serialVersionUID = 6219563411627466584L;
+	
+	private static class UnitOfWork {
+		private final Map<SessionFactoryImplementor, Session> sessions =
+			new IdentityHashMap<SessionFactoryImplementor, Session>(2);
+	}
+	
+	private static final ThreadLocal<UnitOfWork> UNITS = new ThreadLocal<UnitOfWork>();
+	
+	/**
+	 * Begins a unit of work on the current thread.
+	 * 
+	 * @throws IllegalStateException if a unit of work has already begun
+	 */
+	public static void begin() throws IllegalStateException {
+		checkState(UNITS.get() == null, "a unit of work has already begun");
+		UNITS.set(new UnitOfWork());
+	}
+	
+	/**
+	 * Ends the current thread's unit of work, closing its sessions if any
+	 * were opened.
+	 * 
+	 * @return {@code true} if a session was opened during the unit of work
+	 */
+	public static boolean end() {
+		final UnitOfWork unit = UNITS.get();
+		UNITS.remove();
+		if ((unit == null) || unit.sessions.isEmpty()) {
+			return false;
+		}
+		
+		for (Session session : unit.sessions.values()) {
+			if (session.isOpen()) {
+				session.close();
+			}
+		}
+		return true;
+	}
+	
+	private final SessionFactoryImplementor factory;
+	
+	/**
+	 * Creates a new {@link LazySessionContext}. Called by Hibernate.
+	 * 
+	 * @param factory the session factory
+	 */
+	public LazySessionContext(SessionFactoryImplementor factory) {
+		this.factory = checkNotNull(factory);
+	}
+	
+	@Override
+	public Session currentSession() throws HibernateException {
+		final UnitOfWork unit = UNITS.get();
+		if (unit == null) {
+			throw new HibernateException("No unit of work has begun on this thread");
+		}
+		
+		Session session = unit.sessions.get(factory);
+		if (session == null) {
+			session = factory.openSession();
+			unit.sessions.put(factory, session);
+		}
+		return session;
+	}
+}
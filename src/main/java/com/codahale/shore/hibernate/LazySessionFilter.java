@@ -0,0 +1,45 @@
+package com.codahale.shore.hibernate;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A servlet filter which handles each request in a unit of work, with a
+ * session opened only if the request needs one. Used in place of Warp
+ * Persist's {@code SessionFilter} when {@code shore.session.lazy} is
+ * {@code true}.
+ * 
+ * @author coda
+ * @see LazySessionContext
+ */
+@ThreadSafe
+public class LazySessionFilter implements Filter {
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// nothing to see here
+	}
+	
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response,
+			FilterChain chain) throws IOException, ServletException {
+		LazySessionContext.begin();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			LazySessionContext.end();
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		// nothing to see here
+	}
+}
@@ -0,0 +1,48 @@
+package com.codahale.shore.hibernate;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Tracks whether the current thread is in a read-only unit of work. Units of
+ * work may be nested; the thread stays read-only until the outermost one
+ * ends.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public final class ReadOnlyContext {
+	private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+	
+	private ReadOnlyContext() {} // nope
+	
+	/**
+	 * Begins a read-only unit of work on the current thread.
+	 */
+	public static void begin() {
+		DEPTH.get()[0]++;
+	}
+	
+	/**
+	 * Ends the current thread's innermost read-only unit of work.
+	 */
+	public static void end() {
+		final int[] depth = DEPTH.get();
+		if (depth[0] > 0) {
+			depth[0]--;
+		}
+	}
+	
+	/**
+	 * Returns {@code true} if the current thread is in a read-only unit of
+	 * work.
+	 */
+	public static boolean isReadOnly() {
+		return DEPTH.get()[0] > 0;
+	}
+}
@@ -0,0 +1,28 @@
+package com.codahale.shore.hibernate;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Runs methods annotated with {@link com.codahale.shore.dao.ReadOnly} in a
+ * read-only unit of work. Must be bound before Warp Persist's transaction
+ * interceptor so that transactions begin (and acquire their connections)
+ * inside the unit of work.
+ * 
+ * @author coda
+ * @see ReadOnlyContext
+ */
+@ThreadSafe
+public class ReadOnlyInterceptor implements MethodInterceptor {
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		ReadOnlyContext.begin();
+		try {
+			return invocation.proceed();
+		} finally {
+			ReadOnlyContext.end();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.codahale.shore.hibernate;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A servlet filter which handles {@code GET} and {@code HEAD} requests in a
+ * read-only unit of work, so that their database reads go to the replica.
+ * Only safe if those requests never write to the database.
+ * 
+ * @author coda
+ * @see ReadOnlyContext
+ */
+@ThreadSafe
+public class ReadOnlyRequestFilter implements Filter {
+	/**
+	 * Whether or not to add this filter when a replica is configured.
+	 * Defaults to {@code false}.
+	 */
+	public static final String ENABLED_PROPERTY = "shore.replica.route_safe_requests";
+	
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// nothing to see here
+	}
+	
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response,
+			FilterChain chain) throws IOException, ServletException {
+		if (isSafe(request)) {
+			ReadOnlyContext.begin();
+			try {
+				chain.doFilter(request, response);
+			} finally {
+				ReadOnlyContext.end();
+			}
+		} else {
+			chain.doFilter(request, response);
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		// nothing to see here
+	}
+	
+	private boolean isSafe(ServletRequest request) {
+		if (request instanceof HttpServletRequest) {
+			final String method = ((HttpServletRequest) request).getMethod();
+			return "GET".equals(method) || "HEAD".equals(method);
+		}
+		return false;
+	}
+}
@@ -0,0 +1,131 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.connection.ConnectionProvider;
+
+/**
+ * Keeps track of whether a replica database is fit to serve reads. A replica
+ * is unavailable for a while after a connection to it fails, and, if a lag
+ * query is configured, whenever it's further behind the primary than the
+ * maximum lag.
+ * <p>
+ * The lag query must return a single row with a single column: the number of
+ * seconds the replica is behind the primary (e.g., MySQL's
+ * {@code Seconds_Behind_Master}, or the age of a heartbeat row).
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class ReplicaMonitor {
+	private static final Logger LOGGER = Logger.getLogger(ReplicaMonitor.class.getCanonicalName());
+	private final ConnectionProvider replica;
+	private final String lagQuery;
+	private final long maxLag;
+	private final long retryInterval;
+	private volatile long unavailableUntil;
+	private volatile long lag;
+	
+	/**
+	 * Creates a new {@link ReplicaMonitor}.
+	 * 
+	 * @param replica the replica's connection provider
+	 * @param lagQuery a query which returns the replica's lag in seconds, or
+	 *            {@code null}
+	 * @param maxLag the maximum acceptable lag, in seconds
+	 * @param retryInterval the number of milliseconds the replica is
+	 *            unavailable after a failure
+	 */
+	public ReplicaMonitor(ConnectionProvider replica, String lagQuery, long maxLag, long retryInterval) {
+		checkArgument(maxLag >= 0, "maxLag must not be negative");
+		checkArgument(retryInterval >= 0, "retryInterval must not be negative");
+		this.replica = checkNotNull(replica);
+		this.lagQuery = lagQuery;
+		this.maxLag = maxLag;
+		this.retryInterval = retryInterval;
+	}
+	
+	/**
+	 * Returns {@code true} if reads should be sent to the replica.
+	 */
+	public boolean isAvailable() {
+		return (lag <= maxLag) && (System.currentTimeMillis() >= unavailableUntil);
+	}
+	
+	/**
+	 * Marks the replica as unavailable for the retry interval.
+	 * 
+	 * @param cause the reason the replica failed
+	 */
+	public void markFailed(Exception cause) {
+		if (System.currentTimeMillis() >= unavailableUntil) {
+			LOGGER.log(Level.WARNING, "Replica failed; sending reads to the primary for " + retryInterval + "ms", cause);
+		}
+		this.unavailableUntil = System.currentTimeMillis() + retryInterval;
+	}
+	
+	/**
+	 * Measures the replica's lag using the lag query. Does nothing if no lag
+	 * query is configured.
+	 */
+	public void check() {
+		if (lagQuery == null) {
+			return;
+		}
+		
+		try {
+			final long lag = queryLag();
+			if ((lag > maxLag) && (this.lag <= maxLag)) {
+				LOGGER.warning("Replica is " + lag + "s behind; sending reads to the primary");
+			} else if ((lag <= maxLag) && (this.lag > maxLag)) {
+				LOGGER.info("Replica has caught up; sending reads to the replica");
+			}
+			this.lag = lag;
+		} catch (SQLException e) {
+			markFailed(e);
+		}
+	}
+	
+	/**
+	 * Returns the replica's last measured lag, in seconds.
+	 */
+	public long getLag() {
+		return lag;
+	}
+	
+	private long queryLag() throws SQLException {
+		final Connection connection = replica.getConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			try {
+				final ResultSet results = statement.executeQuery(lagQuery);
+				try {
+					if (!results.next()) {
+						throw new SQLException("Lag query returned no rows: " + lagQuery);
+					}
+					return results.getLong(1);
+				} finally {
+					results.close();
+				}
+			} finally {
+				statement.close();
+				if (!connection.getAutoCommit()) {
+					// don't leave a transaction open on a pooled connection
+					connection.rollback();
+				}
+			}
+		} finally {
+			replica.closeConnection(connection);
+		}
+	}
+}
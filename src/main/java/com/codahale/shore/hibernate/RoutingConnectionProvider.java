@@ -0,0 +1,187 @@
+package com.codahale.shore.hibernate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.connection.ConnectionProviderFactory;
+
+import com.codahale.shore.pool.PooledConnectionProvider;
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A {@link ConnectionProvider} which sends connections acquired in read-only
+ * units of work (see {@link ReadOnlyContext}) to a replica database, and all
+ * others to the primary. Both databases are served by the connection
+ * provider named by {@code shore.routing.connection_provider}.
+ * <p>
+ * The replica is configured in the properties file:
+ * <dl>
+ * 	<dt>{@code shore.replica.url}</dt>
+ * 	<dd>The replica's JDBC URL.</dd>
+ * 	<dt>{@code shore.replica.username}, {@code shore.replica.password}</dt>
+ * 	<dd>The replica's credentials. Default to the primary's.</dd>
+ * 	<dt>{@code shore.replica.lag_query}</dt>
+ * 	<dd>A query which returns the number of seconds the replica is behind
+ * 	the primary. Optional.</dd>
+ * 	<dt>{@code shore.replica.max_lag}</dt>
+ * 	<dd>The number of seconds the replica may fall behind before reads are
+ * 	sent to the primary. Defaults to 30.</dd>
+ * 	<dt>{@code shore.replica.check_interval}</dt>
+ * 	<dd>The number of milliseconds between lag checks, and for which the
+ * 	replica is avoided after a connection to it fails. Defaults to 5000.</dd>
+ * </dl>
+ * If the replica is lagging or unreachable, reads go to the primary.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class RoutingConnectionProvider implements ConnectionProvider {
+	/**
+	 * The property which holds the class name of the provider used for both
+	 * databases.
+	 */
+	public static final String DELEGATE_PROPERTY = "shore.routing.connection_provider";
+	public static final String REPLICA_URL = "shore.replica.url";
+	public static final String REPLICA_USERNAME = "shore.replica.username";
+	public static final String REPLICA_PASSWORD = "shore.replica.password";
+	public static final String REPLICA_LAG_QUERY = "shore.replica.lag_query";
+	public static final String REPLICA_MAX_LAG = "shore.replica.max_lag";
+	public static final String REPLICA_CHECK_INTERVAL = "shore.replica.check_interval";
+	private static final Logger LOGGER = Logger.getLogger(RoutingConnectionProvider.class.getCanonicalName());
+	
+	private final ConcurrentMap<Connection, ConnectionProvider> owners = new MapMaker().weakKeys().makeMap();
+	private volatile ConnectionProvider primary;
+	private volatile ConnectionProvider replica;
+	private volatile ReplicaMonitor monitor;
+	private volatile ScheduledExecutorService scheduler;
+	
+	@Override
+	public void configure(Properties props) throws HibernateException {
+		final TypedProperties properties = new TypedProperties(props);
+		final String delegateClass = properties.getString(DELEGATE_PROPERTY, null);
+		if ((delegateClass == null) || delegateClass.equals(getClass().getName())) {
+			throw new HibernateException(DELEGATE_PROPERTY + " must be the name of a ConnectionProvider class");
+		}
+		
+		final String replicaUrl = properties.getString(REPLICA_URL, null);
+		if (replicaUrl == null) {
+			throw new HibernateException("Replica JDBC URL was not specified by property " + REPLICA_URL);
+		}
+		
+		final Properties primaryProperties = new Properties();
+		primaryProperties.putAll(props);
+		primaryProperties.setProperty(Environment.CONNECTION_PROVIDER, delegateClass);
+		this.primary = ConnectionProviderFactory.newConnectionProvider(primaryProperties);
+		
+		final Properties replicaProperties = new Properties();
+		replicaProperties.putAll(primaryProperties);
+		replicaProperties.setProperty(Environment.URL, replicaUrl);
+		replicaProperties.setProperty(Environment.USER, properties.getString(REPLICA_USERNAME, properties.getString(Environment.USER, "")));
+		replicaProperties.setProperty(Environment.PASS, properties.getString(REPLICA_PASSWORD, properties.getString(Environment.PASS, "")));
+		replicaProperties.setProperty(PooledConnectionProvider.NAME_PROPERTY, "replica");
+		this.replica = ConnectionProviderFactory.newConnectionProvider(replicaProperties);
+		
+		final long checkInterval = properties.getLong(REPLICA_CHECK_INTERVAL, 5000);
+		final String lagQuery = properties.getString(REPLICA_LAG_QUERY, null);
+		this.monitor = new ReplicaMonitor(replica, lagQuery, properties.getLong(REPLICA_MAX_LAG, 30), checkInterval);
+		if ((lagQuery != null) && (checkInterval > 0)) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "shore-replica-monitor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					monitor.check();
+				}
+			}, 0, checkInterval, TimeUnit.MILLISECONDS);
+		}
+		LOGGER.info("Sending read-only units of work to " + replicaUrl);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (ReadOnlyContext.isReadOnly() && monitor.isAvailable()) {
+			try {
+				return acquire(replica);
+			} catch (SQLException e) {
+				monitor.markFailed(e);
+			}
+		}
+		return acquire(primary);
+	}
+	
+	@Override
+	public void closeConnection(Connection conn) throws SQLException {
+		final ConnectionProvider owner = owners.remove(conn);
+		if (owner == null) {
+			// not one of ours, somehow
+			conn.close();
+		} else {
+			owner.closeConnection(conn);
+		}
+	}
+	
+	@Override
+	public void close() throws HibernateException {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		
+		try {
+			replica.close();
+		} finally {
+			primary.close();
+		}
+	}
+	
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return primary.supportsAggressiveRelease() && replica.supportsAggressiveRelease();
+	}
+	
+	/**
+	 * Returns the provider of connections to the primary.
+	 */
+	public ConnectionProvider getPrimary() {
+		return primary;
+	}
+	
+	/**
+	 * Returns the provider of connections to the replica.
+	 */
+	public ConnectionProvider getReplica() {
+		return replica;
+	}
+	
+	/**
+	 * Returns the replica's monitor.
+	 */
+	public ReplicaMonitor getMonitor() {
+		return monitor;
+	}
+	
+	private Connection acquire(ConnectionProvider provider) throws SQLException {
+		final Connection connection = provider.getConnection();
+		owners.put(connection, provider);
+		return connection;
+	}
+}
@@ -0,0 +1,264 @@
+package com.codahale.shore.hibernate;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.LinkedList;
+import java.util.Set;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.StatelessSession;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.LinkedKeyBinding;
+
+/**
+ * A servlet filter which ends the request thread's
+ * {@link org.hibernate.StatelessSession} once the request has been handled,
+ * committing its transaction if the request completed normally and rolling
+ * it back if an exception was thrown.
+ * <p>
+ * While a stateless session is open, flushing or closing the response is put
+ * off until its transaction has been committed, so that a failed commit
+ * turns into an error response instead of following a successful one out
+ * the door. Responses too large for the container's buffer are still
+ * streamed, though, and are sent before the commit. Requests which don't
+ * open a stateless session are flushed and closed as usual.
+ * <p>
+ * The filter is only installed if the application injects a
+ * {@link org.hibernate.StatelessSession} somewhere, e.g. via an
+ * {@link com.codahale.shore.dao.AbstractStatelessDAO}.
+ * 
+ * @author coda
+ * @see StatelessSessionProvider
+ */
+@ThreadSafe
+public class StatelessSessionFilter implements Filter {
+	/**
+	 * Returns {@code true} if anything bound in {@code injector}, or any of
+	 * the resource classes, depends on a {@link StatelessSession}, directly
+	 * or through the classes it's injected with.
+	 * 
+	 * @param injector the application's injector
+	 * @param resourceClasses the application's resource classes
+	 * @return whether or not requests may open a stateless session
+	 */
+	public static boolean isRequired(Injector injector, Iterable<Class<?>> resourceClasses) {
+		final Set<Class<?>> seen = Sets.newHashSet();
+		final LinkedList<Class<?>> pending = Lists.newLinkedList(resourceClasses);
+		for (Binding<?> binding : injector.getBindings().values()) {
+			pending.add(binding.getKey().getTypeLiteral().getRawType());
+			if (binding instanceof LinkedKeyBinding<?>) {
+				pending.add(((LinkedKeyBinding<?>) binding).getLinkedKey().getTypeLiteral().getRawType());
+			} else if (binding instanceof InstanceBinding<?>) {
+				pending.add(((InstanceBinding<?>) binding).getInstance().getClass());
+			}
+		}
+		
+		while (!pending.isEmpty()) {
+			final Class<?> type = pending.removeFirst();
+			if (!seen.add(type) || type.isPrimitive() || type.getName().startsWith("java.")) {
+				continue;
+			}
+			
+			for (Dependency<?> dependency : getDependencies(type)) {
+				final Class<?> dependencyType = getProvidedType(dependency.getKey());
+				if (StatelessSession.class.isAssignableFrom(dependencyType)) {
+					return true;
+				}
+				pending.add(dependencyType);
+				
+				final Binding<?> binding = injector.getBindings().get(dependency.getKey());
+				if (binding instanceof LinkedKeyBinding<?>) {
+					pending.add(((LinkedKeyBinding<?>) binding).getLinkedKey().getTypeLiteral().getRawType());
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static Set<Dependency<?>> getDependencies(Class<?> type) {
+		final Set<Dependency<?>> dependencies = Sets.newHashSet();
+		try {
+			dependencies.addAll(InjectionPoint.forConstructorOf(type).getDependencies());
+		} catch (ConfigurationException e) {
+			// interfaces and classes without an injectable constructor
+		}
+		try {
+			for (InjectionPoint point : InjectionPoint.forInstanceMethodsAndFields(type)) {
+				dependencies.addAll(point.getDependencies());
+			}
+		} catch (ConfigurationException e) {
+			// a malformed injection point; Guice will complain about it
+		}
+		return dependencies;
+	}
+	
+	/**
+	 * Returns {@code X} for a key of {@code Provider<X>}, and the key's type
+	 * otherwise.
+	 */
+	private static Class<?> getProvidedType(Key<?> key) {
+		final Type type = key.getTypeLiteral().getType();
+		if ((type instanceof ParameterizedType) && (((ParameterizedType) type).getRawType() == Provider.class)) {
+			final Type provided = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (provided instanceof Class<?>) {
+				return (Class<?>) provided;
+			} else if (provided instanceof ParameterizedType) {
+				return (Class<?>) ((ParameterizedType) provided).getRawType();
+			}
+		}
+		return key.getTypeLiteral().getRawType();
+	}
+	
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		// nothing to see here
+	}
+	
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response,
+			FilterChain chain) throws IOException, ServletException {
+		final DeferredFlushResponse deferred = (response instanceof HttpServletResponse)
+				? new DeferredFlushResponse((HttpServletResponse) response) : null;
+		boolean succeeded = false;
+		try {
+			chain.doFilter(request, (deferred == null) ? response : deferred);
+			succeeded = true;
+		} finally {
+			StatelessSessionProvider.close(succeeded);
+		}
+		
+		if (deferred != null) {
+			deferred.finish();
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		// nothing to see here
+	}
+	
+	@NotThreadSafe
+	private static class DeferredFlushResponse extends HttpServletResponseWrapper {
+		private ServletOutputStream stream;
+		private PrintWriter writer;
+		private boolean flushed, closed;
+		
+		public DeferredFlushResponse(HttpServletResponse response) {
+			super(response);
+		}
+		
+		@Override
+		public void flushBuffer() throws IOException {
+			if (StatelessSessionProvider.isOpen()) {
+				this.flushed = true;
+			} else {
+				super.flushBuffer();
+			}
+		}
+		
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (!StatelessSessionProvider.isOpen()) {
+				// nothing to commit, so nothing to defer
+				return (stream == null) ? super.getOutputStream() : stream;
+			}
+			
+			if (stream == null) {
+				final ServletOutputStream out = super.getOutputStream();
+				this.stream = new ServletOutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						out.write(b);
+					}
+					
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						out.write(b, off, len);
+					}
+					
+					@Override
+					public void flush() throws IOException {
+						flushBuffer();
+					}
+					
+					@Override
+					public void close() throws IOException {
+						if (StatelessSessionProvider.isOpen()) {
+							closed = true;
+						} else {
+							out.close();
+						}
+					}
+				};
+			}
+			return stream;
+		}
+		
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (!StatelessSessionProvider.isOpen()) {
+				return (writer == null) ? super.getWriter() : writer;
+			}
+			
+			if (writer == null) {
+				final PrintWriter out = super.getWriter();
+				this.writer = new PrintWriter(new FilterWriter(out) {
+					@Override
+					public void flush() throws IOException {
+						flushBuffer();
+					}
+					
+					@Override
+					public void close() throws IOException {
+						if (StatelessSessionProvider.isOpen()) {
+							closed = true;
+						} else {
+							out.close();
+						}
+					}
+				});
+			}
+			return writer;
+		}
+		
+		/**
+		 * Does whatever flushing or closing was put off.
+		 */
+		public void finish() throws IOException {
+			if (closed) {
+				if (writer != null) {
+					super.getWriter().close();
+				} else {
+					super.getOutputStream().close();
+				}
+			} else if (flushed) {
+				super.flushBuffer();
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Provides each thread with a {@link StatelessSession}, opened (along with a
+ * transaction) the first time it's asked for and kept until
+ * {@link #close(boolean)} is called. {@link StatelessSessionFilter} does that
+ * at the end of each request, so a stateless session has the same lifecycle
+ * as the session provided by Warp Persist's {@code SessionFilter}.
+ * <p>
+ * Nothing closes a stateless session opened outside of a request (e.g. by a
+ * background thread or a scheduled job), so its connection would be held
+ * for as long as the thread lives. Code which uses one there must call
+ * {@link #close(boolean)} itself, in a {@code finally} block.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class StatelessSessionProvider implements Provider<StatelessSession> {
+	private static final ThreadLocal<StatelessSession> SESSIONS = new ThreadLocal<StatelessSession>();
+	
+	/**
+	 * Ends the current thread's stateless session, if it has one, committing
+	 * or rolling back its transaction and closing it.
+	 * 
+	 * @param commit
+	 *            {@code true} if the transaction should be committed,
+	 *            {@code false} if it should be rolled back
+	 * @throws HibernateException
+	 *             if the transaction can't be committed
+	 */
+	public static void close(boolean commit) throws HibernateException {
+		final StatelessSession session = SESSIONS.get();
+		if (session == null) {
+			return;
+		}
+		
+		SESSIONS.remove();
+		try {
+			final Transaction transaction = session.getTransaction();
+			if (transaction.isActive()) {
+				if (commit) {
+					transaction.commit();
+				} else {
+					transaction.rollback();
+				}
+			}
+		} finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * Returns {@code true} if the current thread has a stateless session.
+	 */
+	public static boolean isOpen() {
+		return SESSIONS.get() != null;
+	}
+	
+	private final Provider<SessionFactory> sessionFactoryProvider;
+	
+	/**
+	 * Creates a new {@link StatelessSessionProvider}.
+	 * 
+	 * @param sessionFactoryProvider
+	 *            a provider of the application's {@link SessionFactory}
+	 */
+	@Inject
+	public StatelessSessionProvider(Provider<SessionFactory> sessionFactoryProvider) {
+		this.sessionFactoryProvider = checkNotNull(sessionFactoryProvider);
+	}
+	
+	@Override
+	public StatelessSession get() {
+		StatelessSession session = SESSIONS.get();
+		if (session == null) {
+			session = sessionFactoryProvider.get().openStatelessSession();
+			session.beginTransaction();
+			SESSIONS.set(session);
+		}
+		return session;
+	}
+}
@@ -0,0 +1,142 @@
+package com.codahale.shore.hibernate;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Interceptor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.jdbc.Batcher;
+import org.hibernate.jdbc.BatcherFactory;
+import org.hibernate.jdbc.BatchingBatcher;
+import org.hibernate.jdbc.ConnectionManager;
+import org.hibernate.jdbc.Expectation;
+import org.hibernate.jdbc.NonBatchingBatcher;
+
+/**
+ * A {@link BatcherFactory} whose batchers record how long queries and JDBC
+ * batches take to a {@link DatabaseStatistics}. Hibernate runs every query
+ * and every batched write through its session's batcher, so timing them
+ * there doesn't require wrapping connections or statements.
+ * <p>
+ * If {@code hibernate.jdbc.batch_size} is {@code 0}, the batchers execute
+ * each write as it's added, like Hibernate's own {@link NonBatchingBatcher}.
+ * <p>
+ * The statistics are looked up using {@code shore.statistics.id}, which must
+ * be the ID of a registered {@link DatabaseStatistics}. Writes which
+ * Hibernate doesn't run through its batcher (inserts of entities with
+ * identity-generated keys, HQL bulk updates) aren't recorded.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class TimedBatcherFactory implements BatcherFactory {
+	private volatile DatabaseStatistics statistics;
+	
+	@Override
+	public Batcher createBatcher(ConnectionManager connectionManager, Interceptor interceptor) {
+		final DatabaseStatistics statistics = getStatistics(connectionManager);
+		if (connectionManager.getFactory().getSettings().getJdbcBatchSize() > 0) {
+			return new TimedBatcher(connectionManager, interceptor, statistics);
+		}
+		return new TimedNonBatchingBatcher(connectionManager, interceptor, statistics);
+	}
+	
+	private DatabaseStatistics getStatistics(ConnectionManager connectionManager) {
+		if (statistics == null) {
+			final String id = connectionManager.getFactory().getProperties().getProperty(DatabaseStatistics.ID_PROPERTY);
+			final DatabaseStatistics found = DatabaseStatistics.lookup(id);
+			if (found == null) {
+				throw new HibernateException("No DatabaseStatistics is registered as " + DatabaseStatistics.ID_PROPERTY
+						+ "=" + id);
+			}
+			this.statistics = found;
+		}
+		return statistics;
+	}
+	
+	private static class TimedBatcher extends BatchingBatcher {
+		private final DatabaseStatistics statistics;
+		
+		public TimedBatcher(ConnectionManager connectionManager, Interceptor interceptor,
+				DatabaseStatistics statistics) {
+			super(connectionManager, interceptor);
+			this.statistics = statistics;
+		}
+		
+		@Override
+		public ResultSet getResultSet(PreparedStatement ps) throws SQLException {
+			final long start = System.nanoTime();
+			try {
+				return super.getResultSet(ps);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+		
+		@Override
+		public ResultSet getResultSet(CallableStatement ps, Dialect dialect) throws SQLException {
+			final long start = System.nanoTime();
+			try {
+				return super.getResultSet(ps, dialect);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+		
+		@Override
+		protected void doExecuteBatch(PreparedStatement ps) throws SQLException, HibernateException {
+			final long start = System.nanoTime();
+			try {
+				super.doExecuteBatch(ps);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+	}
+	
+	private static class TimedNonBatchingBatcher extends NonBatchingBatcher {
+		private final DatabaseStatistics statistics;
+		
+		public TimedNonBatchingBatcher(ConnectionManager connectionManager, Interceptor interceptor,
+				DatabaseStatistics statistics) {
+			super(connectionManager, interceptor);
+			this.statistics = statistics;
+		}
+		
+		@Override
+		public ResultSet getResultSet(PreparedStatement ps) throws SQLException {
+			final long start = System.nanoTime();
+			try {
+				return super.getResultSet(ps);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+		
+		@Override
+		public ResultSet getResultSet(CallableStatement ps, Dialect dialect) throws SQLException {
+			final long start = System.nanoTime();
+			try {
+				return super.getResultSet(ps, dialect);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+		
+		@Override
+		public void addToBatch(Expectation expectation) throws SQLException, HibernateException {
+			final long start = System.nanoTime();
+			try {
+				super.addToBatch(expectation);
+			} finally {
+				statistics.recordStatement(System.nanoTime() - start);
+			}
+		}
+	}
+}
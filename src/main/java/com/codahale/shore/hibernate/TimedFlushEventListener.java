@@ -0,0 +1,43 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.FlushEvent;
+import org.hibernate.event.FlushEventListener;
+
+/**
+ * A {@link FlushEventListener} which records how long a set of listeners
+ * take to flush a session.
+ * 
+ * @author coda
+ *
+ */
+public class TimedFlushEventListener implements FlushEventListener {
+	private static final long serialVersionUID = 7215384829178385219L;
+	private final FlushEventListener[] listeners;
+	private final transient DatabaseStatistics statistics;
+	
+	/**
+	 * Creates a new {@link TimedFlushEventListener}.
+	 * 
+	 * @param listeners the listeners which actually flush sessions
+	 * @param statistics the statistics to record flushes to
+	 */
+	public TimedFlushEventListener(FlushEventListener[] listeners, DatabaseStatistics statistics) {
+		this.listeners = checkNotNull(listeners).clone();
+		this.statistics = checkNotNull(statistics);
+	}
+	
+	@Override
+	public void onFlush(FlushEvent event) throws HibernateException {
+		final long start = System.nanoTime();
+		try {
+			for (FlushEventListener listener : listeners) {
+				listener.onFlush(event);
+			}
+		} finally {
+			statistics.recordFlush(System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.codahale.shore.hibernate;
+
+import static com.google.common.base.Preconditions.*;
+
+import org.hibernate.HibernateException;
+import org.hibernate.event.LoadEvent;
+import org.hibernate.event.LoadEventListener;
+
+/**
+ * A {@link LoadEventListener} which records how long a set of listeners take
+ * to load an entity.
+ * 
+ * @author coda
+ *
+ */
+public class TimedLoadEventListener implements LoadEventListener {
+	private static final long serialVersionUID = -3326127497315651587L;
+	private final LoadEventListener[] listeners;
+	private final transient DatabaseStatistics statistics;
+	
+	/**
+	 * Creates a new {@link TimedLoadEventListener}.
+	 * 
+	 * @param listeners the listeners which actually load entities
+	 * @param statistics the statistics to record loads to
+	 */
+	public TimedLoadEventListener(LoadEventListener[] listeners, DatabaseStatistics statistics) {
+		this.listeners = checkNotNull(listeners).clone();
+		this.statistics = checkNotNull(statistics);
+	}
+	
+	@Override
+	public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+		final long start = System.nanoTime();
+		try {
+			for (LoadEventListener listener : listeners) {
+				listener.onLoad(event, loadType);
+			}
+		} finally {
+			statistics.recordEntityLoad(System.nanoTime() - start);
+		}
+	}
+}
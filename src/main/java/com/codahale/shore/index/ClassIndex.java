@@ -0,0 +1,194 @@
+package com.codahale.shore.index;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Sets;
+
+/**
+ * A build-time index of annotated classes, written by {@link IndexProcessor}.
+ * Indexes from every JAR on the classpath are merged, and the index
+ * remembers which classpath roots it was read from, so a package which is
+ * only partly indexed can be told apart from one which is fully indexed.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class ClassIndex {
+	/**
+	 * The index of {@link javax.persistence.Entity} classes.
+	 */
+	public static final String ENTITIES = "entities";
+	
+	/**
+	 * The index of {@link javax.ws.rs.Path} and
+	 * {@link javax.ws.rs.ext.Provider} classes.
+	 */
+	public static final String RESOURCES = "resources";
+	
+	static final String PREFIX = "META-INF/shore/";
+	private static final Logger LOGGER = Logger.getLogger(ClassIndex.class.getCanonicalName());
+	
+	/**
+	 * Reads an index from the classpath.
+	 * 
+	 * @param name the index's name
+	 * @param classLoader the class loader to read the index from
+	 * @return the index, which is empty if no JARs have one
+	 * @throws IOException if the index can't be read
+	 */
+	public static ClassIndex read(String name, ClassLoader classLoader) throws IOException {
+		final String path = PREFIX + checkNotNull(name);
+		final SortedSet<String> classNames = Sets.newTreeSet();
+		final Set<String> roots = Sets.newHashSet();
+		final Enumeration<URL> urls = classLoader.getResources(path);
+		while (urls.hasMoreElements()) {
+			final URL url = urls.nextElement();
+			roots.add(getRoot(url, path));
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().length() > 0) {
+						classNames.add(line.trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return new ClassIndex(classLoader, roots, classNames);
+	}
+	
+	/**
+	 * Returns the classpath root which {@code url} was found in by looking up
+	 * {@code path}, e.g. {@code jar:file:/app.jar!/} for
+	 * {@code jar:file:/app.jar!/com/example}.
+	 */
+	private static String getRoot(URL url, String path) {
+		String root = url.toString();
+		if (root.endsWith("/")) {
+			root = root.substring(0, root.length() - 1);
+		}
+		if (root.endsWith(path)) {
+			root = root.substring(0, root.length() - path.length());
+		}
+		return root;
+	}
+	
+	private final ClassLoader classLoader;
+	private final ImmutableSet<String> roots;
+	private final ImmutableSortedSet<String> classNames;
+	
+	/**
+	 * Creates a new {@link ClassIndex} which wasn't read from any classpath
+	 * roots.
+	 * 
+	 * @param classLoader the class loader to load classes with
+	 * @param classNames the binary names of the indexed classes
+	 */
+	public ClassIndex(ClassLoader classLoader, Iterable<String> classNames) {
+		this(classLoader, ImmutableSet.<String>of(), classNames);
+	}
+	
+	/**
+	 * Creates a new {@link ClassIndex}.
+	 * 
+	 * @param classLoader the class loader to load classes with
+	 * @param roots the classpath roots the index was read from, as URLs
+	 * @param classNames the binary names of the indexed classes
+	 */
+	public ClassIndex(ClassLoader classLoader, Iterable<String> roots, Iterable<String> classNames) {
+		this.classLoader = checkNotNull(classLoader);
+		this.roots = ImmutableSet.copyOf(checkNotNull(roots));
+		this.classNames = ImmutableSortedSet.copyOf(checkNotNull(classNames));
+	}
+	
+	/**
+	 * Returns the classpath roots which contain a package but which weren't
+	 * indexed (e.g. a JAR compiled with {@code -proc:none}). If this is
+	 * empty, the index has every class in the package; otherwise the package
+	 * must be scanned.
+	 * 
+	 * @param packageName a package name
+	 * @return the unindexed classpath roots, as URLs, which contain
+	 *         {@code packageName}
+	 */
+	public SortedSet<String> getUnindexedRoots(String packageName) {
+		final String path = checkNotNull(packageName).replace('.', '/');
+		final SortedSet<String> unindexed = Sets.newTreeSet();
+		try {
+			final Enumeration<URL> urls = classLoader.getResources(path);
+			while (urls.hasMoreElements()) {
+				final String root = getRoot(urls.nextElement(), path);
+				if (!roots.contains(root)) {
+					unindexed.add(root);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warning("Unable to find " + packageName + " on the classpath: " + e.getMessage());
+			unindexed.add(path);
+		}
+		return unindexed;
+	}
+	
+	/**
+	 * Returns the names of the indexed classes in a package or its
+	 * subpackages.
+	 * 
+	 * @param packageName a package name
+	 * @return the classes in {@code packageName}, which is empty if the
+	 *         package isn't indexed
+	 */
+	public SortedSet<String> getClassNames(String packageName) {
+		final String prefix = checkNotNull(packageName) + ".";
+		final SortedSet<String> names = Sets.newTreeSet();
+		for (String className : classNames.tailSet(prefix)) {
+			if (!className.startsWith(prefix)) {
+				break;
+			}
+			names.add(className);
+		}
+		return names;
+	}
+	
+	/**
+	 * Loads the indexed classes in a package or its subpackages. Classes
+	 * which no longer exist are skipped.
+	 * 
+	 * @param packageName a package name
+	 * @return the classes in {@code packageName}, which is empty if the
+	 *         package isn't indexed
+	 */
+	public Set<Class<?>> getClasses(String packageName) {
+		final Set<Class<?>> classes = Sets.newLinkedHashSet();
+		for (String className : getClassNames(packageName)) {
+			try {
+				classes.add(Class.forName(className, false, classLoader));
+			} catch (ClassNotFoundException e) {
+				LOGGER.warning("Skipping " + className + ", which is indexed but doesn't exist");
+			}
+		}
+		return classes;
+	}
+	
+	/**
+	 * Returns {@code true} if nothing has been indexed.
+	 */
+	public boolean isEmpty() {
+		return classNames.isEmpty();
+	}
+}
@@ -0,0 +1,106 @@
+package com.codahale.shore.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.SortedSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.google.common.collect.Sets;
+
+/**
+ * An annotation processor which writes the names of a project's entity,
+ * resource, and provider classes to {@code META-INF/shore/entities} and
+ * {@code META-INF/shore/resources}, so that Shore doesn't have to scan the
+ * classpath for them at startup. It's picked up automatically by
+ * {@code javac} when Shore is on the compile classpath.
+ * 
+ * @author coda
+ * @see ClassIndex
+ */
+@SupportedAnnotationTypes({ "javax.persistence.Entity", "javax.ws.rs.Path", "javax.ws.rs.ext.Provider" })
+public class IndexProcessor extends AbstractProcessor {
+	private final SortedSet<String> entities = Sets.newTreeSet();
+	private final SortedSet<String> resources = Sets.newTreeSet();
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			write(ClassIndex.ENTITIES, entities);
+			write(ClassIndex.RESOURCES, resources);
+			return false;
+		}
+		
+		for (TypeElement annotation : annotations) {
+			final String name = annotation.getQualifiedName().toString();
+			final Set<String> index = "javax.persistence.Entity".equals(name) ? entities : resources;
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element instanceof TypeElement) {
+					index.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+				}
+			}
+		}
+		
+		// other processors may want these annotations too
+		return false;
+	}
+	
+	private void write(String indexName, SortedSet<String> classNames) {
+		final String path = ClassIndex.PREFIX + indexName;
+		
+		// Incremental builds only process changed sources, so merge with the
+		// existing index. Stale entries are skipped when the index is read.
+		try {
+			final FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), "UTF-8"));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().length() > 0) {
+						classNames.add(line.trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// no existing index
+		}
+		
+		if (classNames.isEmpty()) {
+			return;
+		}
+		
+		try {
+			final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+			final Writer writer = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+			try {
+				for (String className : classNames) {
+					writer.write(className);
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + path + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.codahale.shore.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values, with
+ * log-linear buckets in the style of HdrHistogram.
+ * <p>
+ * Values below 32 are counted exactly. Above that, each power of two is
+ * split into 16 buckets, so quantiles are accurate to within about 6%
+ * across the entire range of {@code long}. Recording a value is a few
+ * atomic adds and never allocates.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = SUB_BUCKETS + ((64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS);
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final StripedCounter count = new StripedCounter();
+	private final StripedCounter sum = new StripedCounter();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Records a value. Negative values are recorded as zero.
+	 * 
+	 * @param value the value to record
+	 */
+	public void update(long value) {
+		final long v = Math.max(0, value);
+		buckets.getAndIncrement(bucketIndex(v));
+		count.increment();
+		sum.add(v);
+		
+		long current = max.get();
+		while ((v > current) && !max.compareAndSet(current, v)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Returns the number of values recorded.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	
+	/**
+	 * Returns the sum of the values recorded.
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+	
+	/**
+	 * Returns the largest value recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Returns the arithmetic mean of the values recorded.
+	 */
+	public double getMean() {
+		final long n = getCount();
+		return (n == 0) ? 0.0 : ((double) getSum() / n);
+	}
+	
+	/**
+	 * Returns an estimate of the value at a quantile.
+	 * 
+	 * @param quantile a quantile between {@code 0.0} and {@code 1.0}
+	 * @return the upper bound of the bucket containing the quantile
+	 */
+	public long getQuantile(double quantile) {
+		checkArgument((quantile >= 0.0) && (quantile <= 1.0), "quantile must be between 0.0 and 1.0");
+		
+		long total = 0;
+		final long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		
+		if (total == 0) {
+			return 0;
+		}
+		
+		final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS + 1;
+		final int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKETS;
+		return SUB_BUCKETS + ((exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS) + subBucket;
+	}
+	
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		
+		final int offset = index - SUB_BUCKETS;
+		final int exponent = SUB_BUCKET_BITS + (offset / HALF_SUB_BUCKETS);
+		final int shift = exponent - SUB_BUCKET_BITS + 1;
+		final long lowerBound = ((long) ((offset % HALF_SUB_BUCKETS) + HALF_SUB_BUCKETS)) << shift;
+		final long upperBound = lowerBound + (1L << shift) - 1;
+		return (upperBound < 0) ? Long.MAX_VALUE : upperBound;
+	}
+}
@@ -0,0 +1,135 @@
+package com.codahale.shore.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A meter of the rate at which events occur, with exponentially-weighted
+ * moving averages over one, five, and fifteen minutes, like the load
+ * averages in {@code top}.
+ * <p>
+ * Events are counted with a {@link StripedCounter}; the averages are only
+ * updated every five seconds, by whichever thread first notices that one
+ * has passed. Marking an event never allocates or locks.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class Meter {
+	private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+	private static final double SECONDS_PER_TICK = 5.0;
+	private static final double M1_ALPHA = 1 - Math.exp(-SECONDS_PER_TICK / 60.0);
+	private static final double M5_ALPHA = 1 - Math.exp(-SECONDS_PER_TICK / 60.0 / 5);
+	private static final double M15_ALPHA = 1 - Math.exp(-SECONDS_PER_TICK / 60.0 / 15);
+	private final StripedCounter count = new StripedCounter();
+	private final long startedAt;
+	private final AtomicLong lastTick;
+	private long lastCount;
+	private volatile boolean initialized;
+	private volatile double m1Rate, m5Rate, m15Rate;
+
+	/**
+	 * Creates a new {@link Meter}.
+	 */
+	public Meter() {
+		this.startedAt = System.nanoTime();
+		this.lastTick = new AtomicLong(startedAt);
+	}
+
+	/**
+	 * Marks the occurrence of an event.
+	 */
+	public void mark() {
+		mark(1);
+	}
+
+	/**
+	 * Marks the occurrence of {@code n} events.
+	 *
+	 * @param n the number of events
+	 */
+	public void mark(long n) {
+		tickIfNecessary();
+		count.add(n);
+	}
+
+	/**
+	 * Returns the number of events which have been marked.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean number of events per second since the meter was
+	 * created.
+	 */
+	public double getMeanRate() {
+		final long elapsed = System.nanoTime() - startedAt;
+		return (elapsed <= 0) ? 0.0 : (getCount() / (elapsed / 1e9));
+	}
+
+	/**
+	 * Returns the one-minute moving average of events per second.
+	 */
+	public double getOneMinuteRate() {
+		tickIfNecessary();
+		return m1Rate;
+	}
+
+	/**
+	 * Returns the five-minute moving average of events per second.
+	 */
+	public double getFiveMinuteRate() {
+		tickIfNecessary();
+		return m5Rate;
+	}
+
+	/**
+	 * Returns the fifteen-minute moving average of events per second.
+	 */
+	public double getFifteenMinuteRate() {
+		tickIfNecessary();
+		return m15Rate;
+	}
+
+	private void tickIfNecessary() {
+		final long oldTick = lastTick.get();
+		final long now = System.nanoTime();
+		final long age = now - oldTick;
+		if (age > TICK_INTERVAL) {
+			final long newTick = now - (age % TICK_INTERVAL);
+			if (lastTick.compareAndSet(oldTick, newTick)) {
+				tick(age / TICK_INTERVAL);
+			}
+		}
+	}
+
+	private synchronized void tick(long ticks) {
+		// Everything counted since the last tick happened in the first of
+		// the elapsed intervals; the rest were idle.
+		final long currentCount = count.sum();
+		final double rate = (currentCount - lastCount) / SECONDS_PER_TICK;
+		this.lastCount = currentCount;
+
+		if (initialized) {
+			this.m1Rate += M1_ALPHA * (rate - m1Rate);
+			this.m5Rate += M5_ALPHA * (rate - m5Rate);
+			this.m15Rate += M15_ALPHA * (rate - m15Rate);
+		} else {
+			this.m1Rate = rate;
+			this.m5Rate = rate;
+			this.m15Rate = rate;
+			this.initialized = true;
+		}
+
+		for (long i = 1; i < ticks; i++) {
+			this.m1Rate -= M1_ALPHA * m1Rate;
+			this.m5Rate -= M5_ALPHA * m5Rate;
+			this.m15Rate -= M15_ALPHA * m15Rate;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.codahale.shore.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A named collection of an application's {@link Timer}s, {@link Meter}s,
+ * and {@link Histogram}s. Metrics are created the first time they're asked
+ * for, and look-ups of existing metrics don't lock, but callers on a hot
+ * path should look a metric up once and keep it.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class MetricsRegistry {
+	private final ConcurrentMap<String, Timer> timers = new MapMaker().makeMap();
+	private final ConcurrentMap<String, Meter> meters = new MapMaker().makeMap();
+	private final ConcurrentMap<String, Histogram> histograms = new MapMaker().makeMap();
+
+	/**
+	 * Returns the timer with a name, creating it if necessary.
+	 *
+	 * @param name the timer's name
+	 * @return the timer named {@code name}
+	 */
+	public Timer timer(String name) {
+		final Timer timer = timers.get(checkNotNull(name));
+		if (timer != null) {
+			return timer;
+		}
+
+		final Timer newTimer = new Timer();
+		final Timer existing = timers.putIfAbsent(name, newTimer);
+		return (existing == null) ? newTimer : existing;
+	}
+
+	/**
+	 * Returns the meter with a name, creating it if necessary.
+	 *
+	 * @param name the meter's name
+	 * @return the meter named {@code name}
+	 */
+	public Meter meter(String name) {
+		final Meter meter = meters.get(checkNotNull(name));
+		if (meter != null) {
+			return meter;
+		}
+
+		final Meter newMeter = new Meter();
+		final Meter existing = meters.putIfAbsent(name, newMeter);
+		return (existing == null) ? newMeter : existing;
+	}
+
+	/**
+	 * Returns the histogram with a name, creating it if necessary.
+	 *
+	 * @param name the histogram's name
+	 * @return the histogram named {@code name}
+	 */
+	public Histogram histogram(String name) {
+		final Histogram histogram = histograms.get(checkNotNull(name));
+		if (histogram != null) {
+			return histogram;
+		}
+
+		final Histogram newHistogram = new Histogram();
+		final Histogram existing = histograms.putIfAbsent(name, newHistogram);
+		return (existing == null) ? newHistogram : existing;
+	}
+
+	/**
+	 * Returns the registry's timers, sorted by name.
+	 */
+	public SortedMap<String, Timer> getTimers() {
+		return ImmutableSortedMap.copyOf(timers);
+	}
+
+	/**
+	 * Returns the registry's meters, sorted by name.
+	 */
+	public SortedMap<String, Meter> getMeters() {
+		return ImmutableSortedMap.copyOf(meters);
+	}
+
+	/**
+	 * Returns the registry's histograms, sorted by name.
+	 */
+	public SortedMap<String, Histogram> getHistograms() {
+		return ImmutableSortedMap.copyOf(histograms);
+	}
+}
@@ -0,0 +1,166 @@
+package com.codahale.shore.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A servlet which reports the metrics in a {@link MetricsRegistry} as JSON:
+ * <pre>
+ * {
+ *   "timers": {
+ *     "com.example.WidgetResource.getWidget": {
+ *       "count": 1024, "mean": 1.2, "max": 30.1,
+ *       "p50": 1.0, "p75": 1.4, "p95": 3.9, "p99": 12.2, "p999": 28.6,
+ *       "mean_rate": 4.1, "m1_rate": 5.0, "m5_rate": 4.4, "m15_rate": 4.2
+ *     }
+ *   },
+ *   "meters": { ... },
+ *   "histograms": { ... }
+ * }
+ * </pre>
+ * Timer durations are in milliseconds; rates are per second. The servlet is
+ * served by the admin server if there is one. Otherwise, if
+ * {@code shore.metrics.servlet} is {@code true} (it defaults to
+ * {@code false}, to keep the metrics off the public port), it's mapped to
+ * {@code shore.metrics.path} (default: {@code /metrics}).
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class MetricsServlet extends HttpServlet {
+	public static final String ENABLED_PROPERTY = "shore.metrics.servlet";
+	public static final String PATH_PROPERTY = "shore.metrics.path";
+	public static final String DEFAULT_PATH = "/metrics";
+	private static final long serialVersionUID = -5497291282209452962L;
+	private final transient MetricsRegistry metrics;
+
+	/**
+	 * Creates a new {@link MetricsServlet}.
+	 *
+	 * @param metrics the registry to report
+	 */
+	public MetricsServlet(MetricsRegistry metrics) {
+		this.metrics = checkNotNull(metrics);
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("application/json");
+		resp.setCharacterEncoding("UTF-8");
+		resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+
+		final PrintWriter writer = resp.getWriter();
+		writer.print("{\"timers\":{");
+		writeTimers(writer, metrics.getTimers());
+		writer.print("},\"meters\":{");
+		writeMeters(writer, metrics.getMeters());
+		writer.print("},\"histograms\":{");
+		writeHistograms(writer, metrics.getHistograms());
+		writer.print("}}");
+		writer.flush();
+	}
+
+	private void writeTimers(PrintWriter writer, Map<String, Timer> timers) {
+		boolean first = true;
+		for (Entry<String, Timer> entry : timers.entrySet()) {
+			if (!first) {
+				writer.print(',');
+			}
+			final Timer timer = entry.getValue();
+			writer.print(quote(entry.getKey()));
+			writer.print(":{");
+			writeHistogram(writer, timer.getDurations(), 1000.0);
+			writer.print(',');
+			writeMeter(writer, timer.getMeter());
+			writer.print('}');
+			first = false;
+		}
+	}
+
+	private void writeMeters(PrintWriter writer, Map<String, Meter> meters) {
+		boolean first = true;
+		for (Entry<String, Meter> entry : meters.entrySet()) {
+			if (!first) {
+				writer.print(',');
+			}
+			writer.print(quote(entry.getKey()));
+			writer.print(":{\"count\":");
+			writer.print(entry.getValue().getCount());
+			writer.print(',');
+			writeMeter(writer, entry.getValue());
+			writer.print('}');
+			first = false;
+		}
+	}
+
+	private void writeHistograms(PrintWriter writer, Map<String, Histogram> histograms) {
+		boolean first = true;
+		for (Entry<String, Histogram> entry : histograms.entrySet()) {
+			if (!first) {
+				writer.print(',');
+			}
+			writer.print(quote(entry.getKey()));
+			writer.print(":{");
+			writeHistogram(writer, entry.getValue(), 1.0);
+			writer.print('}');
+			first = false;
+		}
+	}
+
+	private void writeHistogram(PrintWriter writer, Histogram histogram, double divisor) {
+		writer.print("\"count\":");
+		writer.print(histogram.getCount());
+		writer.print(",\"mean\":");
+		writer.print(histogram.getMean() / divisor);
+		writer.print(",\"max\":");
+		writer.print(histogram.getMax() / divisor);
+		writer.print(",\"p50\":");
+		writer.print(histogram.getQuantile(0.5) / divisor);
+		writer.print(",\"p75\":");
+		writer.print(histogram.getQuantile(0.75) / divisor);
+		writer.print(",\"p95\":");
+		writer.print(histogram.getQuantile(0.95) / divisor);
+		writer.print(",\"p99\":");
+		writer.print(histogram.getQuantile(0.99) / divisor);
+		writer.print(",\"p999\":");
+		writer.print(histogram.getQuantile(0.999) / divisor);
+	}
+
+	private void writeMeter(PrintWriter writer, Meter meter) {
+		writer.print("\"mean_rate\":");
+		writer.print(meter.getMeanRate());
+		writer.print(",\"m1_rate\":");
+		writer.print(meter.getOneMinuteRate());
+		writer.print(",\"m5_rate\":");
+		writer.print(meter.getFiveMinuteRate());
+		writer.print(",\"m15_rate\":");
+		writer.print(meter.getFifteenMinuteRate());
+	}
+
+	private String quote(String s) {
+		final StringBuilder builder = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
@@ -0,0 +1,74 @@
+package com.codahale.shore.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A counter which spreads increments across several padded cells, picked by
+ * thread, so that threads updating it concurrently rarely contend on the same
+ * cache line. Reads sum the cells, so they're slower than writes and only
+ * weakly consistent with concurrent updates.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class StripedCounter {
+	// 8 longs = 64 bytes, so each cell gets its own cache line
+	private static final int PADDING = 8;
+	private static final int STRIPES = stripeCount();
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+	
+	/**
+	 * Adds one to the counter.
+	 */
+	public void increment() {
+		add(1);
+	}
+	
+	/**
+	 * Adds {@code n} to the counter.
+	 * 
+	 * @param n the amount to add
+	 */
+	public void add(long n) {
+		cells.getAndAdd(cellIndex(), n);
+	}
+	
+	/**
+	 * Returns the counter's value.
+	 * 
+	 * @return the sum of all increments
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += cells.get(i * PADDING);
+		}
+		return sum;
+	}
+	
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+	
+	private static int cellIndex() {
+		long id = Thread.currentThread().getId();
+		// spread sequential thread IDs across the stripes
+		id ^= (id >>> 17);
+		id *= 0x9E3779B97F4A7C15L;
+		id ^= (id >>> 29);
+		return ((int) id & (STRIPES - 1)) * PADDING;
+	}
+	
+	private static int stripeCount() {
+		final int target = Runtime.getRuntime().availableProcessors() * 2;
+		int stripes = 1;
+		while (stripes < target) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+}
@@ -0,0 +1,108 @@
+package com.codahale.shore.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ext.Provider;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.inject.Inject;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchAdapter;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+/**
+ * A Jersey provider which times every resource method, recording each one's
+ * latency in a {@link Timer} named after its class and method (e.g.
+ * {@code com.example.WidgetResource.getWidget}). Overloaded methods have their
+ * parameter types appended (e.g.
+ * {@code com.example.WidgetResource.getWidget(String,int)}), so they're timed
+ * separately. The timers are looked up
+ * once, when Jersey builds its dispatchers, so timing a request doesn't
+ * allocate.
+ *
+ * @author coda
+ *
+ */
+@Provider
+@ThreadSafe
+public class TimedResourceMethodDispatchAdapter implements ResourceMethodDispatchAdapter {
+	private static class TimedRequestDispatcher implements RequestDispatcher {
+		private final RequestDispatcher dispatcher;
+		private final Timer timer;
+
+		public TimedRequestDispatcher(RequestDispatcher dispatcher, Timer timer) {
+			this.dispatcher = dispatcher;
+			this.timer = timer;
+		}
+
+		@Override
+		public void dispatch(Object resource, HttpContext context) {
+			final long start = System.nanoTime();
+			try {
+				dispatcher.dispatch(resource, context);
+			} finally {
+				timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private final MetricsRegistry metrics;
+
+	/**
+	 * Creates a new {@link TimedResourceMethodDispatchAdapter}.
+	 *
+	 * @param metrics the registry to record timings in
+	 */
+	@Inject
+	public TimedResourceMethodDispatchAdapter(MetricsRegistry metrics) {
+		this.metrics = checkNotNull(metrics);
+	}
+
+	@Override
+	public ResourceMethodDispatchProvider adapt(final ResourceMethodDispatchProvider provider) {
+		return new ResourceMethodDispatchProvider() {
+			@Override
+			public RequestDispatcher create(AbstractResourceMethod resourceMethod) {
+				final RequestDispatcher dispatcher = provider.create(resourceMethod);
+				if (dispatcher == null) {
+					return null;
+				}
+
+				return new TimedRequestDispatcher(dispatcher, metrics.timer(getName(resourceMethod.getMethod())));
+			}
+		};
+	}
+
+	private String getName(Method method) {
+		final StringBuilder name = new StringBuilder(method.getDeclaringClass().getName())
+											.append('.')
+											.append(method.getName());
+		if (isOverloaded(method)) {
+			name.append('(');
+			final Class<?>[] types = method.getParameterTypes();
+			for (int i = 0; i < types.length; i++) {
+				if (i > 0) {
+					name.append(',');
+				}
+				name.append(types[i].getSimpleName());
+			}
+			name.append(')');
+		}
+		return name.toString();
+	}
+
+	private boolean isOverloaded(Method method) {
+		for (Method other : method.getDeclaringClass().getMethods()) {
+			if (!other.isBridge() && other.getName().equals(method.getName()) && !other.equals(method)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
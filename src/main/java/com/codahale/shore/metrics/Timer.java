@@ -0,0 +1,53 @@
+package com.codahale.shore.metrics;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A timer of an operation, which records a {@link Histogram} of its
+ * durations in microseconds and a {@link Meter} of the rate at which it's
+ * performed. Recording a duration never allocates.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class Timer {
+	private final Histogram durations = new Histogram();
+	private final Meter meter = new Meter();
+
+	/**
+	 * Records the duration of an operation.
+	 *
+	 * @param duration the operation's duration
+	 * @param unit the unit of {@code duration}
+	 */
+	public void update(long duration, TimeUnit unit) {
+		durations.update(checkNotNull(unit).toMicros(duration));
+		meter.mark();
+	}
+
+	/**
+	 * Returns the number of operations timed.
+	 */
+	public long getCount() {
+		return durations.getCount();
+	}
+
+	/**
+	 * Returns the durations of the operations timed, in microseconds.
+	 */
+	public Histogram getDurations() {
+		return durations;
+	}
+
+	/**
+	 * Returns the rate at which operations are performed.
+	 */
+	public Meter getMeter() {
+		return meter;
+	}
+}
@@ -2,23 +2,54 @@ package com.codahale.shore.modules;
 
 import static com.google.common.base.Preconditions.*;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.persistence.Entity;
 
 import net.jcip.annotations.Immutable;
 
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.Cache;
 import org.hibernate.cfg.AnnotationConfiguration;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.Environment;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.event.EventListeners;
+import org.hibernate.event.FlushEventListener;
+import org.hibernate.event.LoadEventListener;
 
+import com.codahale.shore.cache.BoundedCacheProvider;
+import com.codahale.shore.cache.CacheRegion;
+import com.codahale.shore.cache.RegionSettings;
+import com.codahale.shore.dao.ReadOnly;
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.hibernate.EntityChangeEventListener;
+import com.codahale.shore.hibernate.EntityChanges;
+import com.codahale.shore.hibernate.InstrumentedConnectionProvider;
+import com.codahale.shore.hibernate.LazySessionContext;
+import com.codahale.shore.hibernate.ReadOnlyInterceptor;
+import com.codahale.shore.hibernate.RoutingConnectionProvider;
+import com.codahale.shore.hibernate.StatelessSessionProvider;
+import com.codahale.shore.hibernate.TimedBatcherFactory;
+import com.codahale.shore.hibernate.TimedFlushEventListener;
+import com.codahale.shore.hibernate.TimedLoadEventListener;
+import com.codahale.shore.index.ClassIndex;
+import com.codahale.shore.pool.PooledConnectionProvider;
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
 import com.sun.jersey.core.spi.scanning.PackageNamesScanner;
 import com.sun.jersey.spi.scanning.AnnotationScannerListener;
 import com.wideplay.warp.persist.PersistenceService;
@@ -28,13 +59,54 @@ import com.wideplay.warp.persist.UnitOfWork;
 /**
  * Binds {@link SessionFilter} (via Warp Persist's plumbing) to a Hibernate
  * {@link Configuration} for the annotated Hibernate {@link Entity} classes in
- * a set of packages.
+ * a set of packages. Also binds {@link StatelessSession} for use with
+ * {@link com.codahale.shore.hibernate.StatelessSessionFilter}.
  * 
  * @author coda
  */
 @Immutable
 public class HibernateModule extends AbstractModule {
+	/**
+	 * Whether or not to record {@link DatabaseStatistics}. Defaults to
+	 * {@code false}.
+	 */
+	public static final String STATISTICS = "shore.statistics";
+	
+	/**
+	 * Whether or not to open sessions only when they're needed. Defaults to
+	 * {@code false}.
+	 * 
+	 * @see LazySessionContext
+	 */
+	public static final String LAZY_SESSIONS = "shore.session.lazy";
+	
+	/**
+	 * Whether or not to keep entities annotated with
+	 * {@link org.hibernate.annotations.Cache} in Hibernate's second-level
+	 * cache. Defaults to {@code false}.
+	 */
+	public static final String ENTITY_CACHE = "shore.cache.entities";
+	
+	/**
+	 * Whether or not to keep the results of cacheable queries in Hibernate's
+	 * query cache. Defaults to {@code false}.
+	 */
+	public static final String QUERY_CACHE = "shore.cache.queries";
+	
+	/**
+	 * The connection pool to use: {@code shore} (the default) for
+	 * {@link PooledConnectionProvider}, {@code c3p0} for C3P0, or the class
+	 * name of a Hibernate {@link ConnectionProvider}. Ignored if
+	 * {@code hibernate.connection.provider_class} is set.
+	 */
+	public static final String CONNECTION_POOL = "shore.connection.pool";
+	private static final Map<String, String> CONNECTION_POOLS = ImmutableMap.of(
+		"shore", PooledConnectionProvider.class.getName(),
+		"c3p0", "org.hibernate.connection.C3P0ConnectionProvider"
+	);
 	private final AnnotationConfiguration configuration;
+	private final DatabaseStatistics statistics;
+	private final EntityChanges entityChanges;
 	private final Logger logger;
 	
 	/**
@@ -45,9 +117,15 @@ public class HibernateModule extends AbstractModule {
 	public HibernateModule(Logger logger, Properties properties, Collection<String> entityPackages) {
 		this.logger = checkNotNull(logger);
 		this.configuration = new AnnotationConfiguration();
+		this.statistics = new DatabaseStatistics();
+		this.entityChanges = new EntityChanges();
 		configureDefaultProperties(configuration);
 		configuration.addProperties(checkNotNull(properties));
 		configureRequiredProperties(configuration);
+		configureConnectionPool(configuration);
+		configureCaches(configuration);
+		configureStatistics(configuration);
+		configureEntityChanges(configuration);
 		addAnnotatedEntities(configuration, checkNotNull(entityPackages));
 	}
 
@@ -55,15 +133,12 @@ public class HibernateModule extends AbstractModule {
 			Iterable<String> entityPackages) {
 		checkNotNull(configuration);
 		
+		final ClassIndex index = readEntityIndex();
 		final List<String> entityClasses = Lists.newLinkedList();
 		for (String entityPackage : checkNotNull(entityPackages)) {
-			@SuppressWarnings("unchecked")
-			final AnnotationScannerListener listener = new AnnotationScannerListener(Entity.class);
-			final PackageNamesScanner scanner = new PackageNamesScanner(new String[] { entityPackage });
-			logger.info("Scanning " + entityPackage + " for entity classes");
-			scanner.scan(listener);
-			for (Class<?> entityClass : listener.getAnnotatedClasses()) {
+			for (Class<?> entityClass : findEntityClasses(index, entityPackage)) {
 				configuration.addAnnotatedClass(entityClass);
+				configureCacheRegion(configuration, entityClass);
 				entityClasses.add(entityClass.getCanonicalName());
 			}
 		}
@@ -71,9 +146,137 @@ public class HibernateModule extends AbstractModule {
 		logger.info("Configured entities: " + entityClasses);
 	}
 	
+	private Set<Class<?>> findEntityClasses(ClassIndex index, String entityPackage) {
+		final Set<String> unindexedRoots = index.getUnindexedRoots(entityPackage);
+		if (unindexedRoots.isEmpty()) {
+			logger.info("Read entity classes in " + entityPackage + " from the index");
+			return index.getClasses(entityPackage);
+		}
+		
+		if (!index.getClassNames(entityPackage).isEmpty()) {
+			logger.warning("The entity index is incomplete for " + entityPackage
+				+ " (not indexed: " + unindexedRoots + "); scanning the classpath instead");
+		}
+		
+		@SuppressWarnings("unchecked")
+		final AnnotationScannerListener listener = new AnnotationScannerListener(Entity.class);
+		final PackageNamesScanner scanner = new PackageNamesScanner(new String[] { entityPackage });
+		logger.info("Scanning " + entityPackage + " for entity classes");
+		scanner.scan(listener);
+		return listener.getAnnotatedClasses();
+	}
+	
+	private ClassIndex readEntityIndex() {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			return ClassIndex.read(ClassIndex.ENTITIES, classLoader);
+		} catch (IOException e) {
+			logger.warning("Unable to read the entity index: " + e.getMessage());
+			return new ClassIndex(classLoader, ImmutableList.<String>of());
+		}
+	}
+	
+	private void configureCacheRegion(Configuration configuration, Class<?> entityClass) {
+		final Cache cache = entityClass.getAnnotation(Cache.class);
+		if (cache == null) {
+			return;
+		}
+		
+		final String region = (cache.region().length() > 0) ? cache.region() : entityClass.getName();
+		final CacheRegion settings = entityClass.getAnnotation(CacheRegion.class);
+		if (settings != null) {
+			// Settings from the properties file take precedence.
+			setDefaultProperty(configuration, RegionSettings.key(region, "max_entries"), Integer.toString(settings.maxEntries()));
+			setDefaultProperty(configuration, RegionSettings.key(region, "ttl"), Long.toString(settings.timeToLive()));
+			setDefaultProperty(configuration, RegionSettings.key(region, "eviction"), settings.eviction().toString());
+		}
+		logger.info("Caching " + entityClass.getCanonicalName() + " in region " + region);
+	}
+	
+	private void setDefaultProperty(Configuration configuration, String name, String value) {
+		if (configuration.getProperty(name) == null) {
+			configuration.setProperty(name, value);
+		}
+	}
+	
+	private void configureConnectionPool(Configuration configuration) {
+		if (configuration.getProperty(Environment.CONNECTION_PROVIDER) == null) {
+			final String pool = new TypedProperties(configuration.getProperties()).getString(CONNECTION_POOL, "shore");
+			final String providerClass = CONNECTION_POOLS.get(pool.toLowerCase());
+			configuration.setProperty(Environment.CONNECTION_PROVIDER, (providerClass == null) ? pool : providerClass);
+		}
+		
+		// Send read-only units of work to the replica, if there is one.
+		if (configuration.getProperty(RoutingConnectionProvider.REPLICA_URL) != null) {
+			configuration.setProperty(RoutingConnectionProvider.DELEGATE_PROPERTY, configuration.getProperty(Environment.CONNECTION_PROVIDER));
+			configuration.setProperty(Environment.CONNECTION_PROVIDER, RoutingConnectionProvider.class.getName());
+		}
+		logger.info("Using connection provider " + configuration.getProperty(Environment.CONNECTION_PROVIDER));
+	}
+	
+	private void configureCaches(Configuration configuration) {
+		final TypedProperties properties = new TypedProperties(configuration.getProperties());
+		if (properties.getBoolean(ENTITY_CACHE, false)) {
+			configuration.setProperty(Environment.USE_SECOND_LEVEL_CACHE, "true");
+		}
+		
+		if (properties.getBoolean(QUERY_CACHE, false)) {
+			configuration.setProperty(Environment.USE_QUERY_CACHE, "true");
+		}
+	}
+	
+	private void configureStatistics(Configuration configuration) {
+		final TypedProperties properties = new TypedProperties(configuration.getProperties());
+		if (!properties.getBoolean(STATISTICS, false)) {
+			return;
+		}
+		
+		// Time connection acquisition by wrapping whichever connection
+		// provider was configured.
+		configuration.setProperty(DatabaseStatistics.ID_PROPERTY, statistics.getId());
+		final String connectionProvider = configuration.getProperty(Environment.CONNECTION_PROVIDER);
+		if (connectionProvider != null) {
+			configuration.setProperty(InstrumentedConnectionProvider.DELEGATE_PROPERTY, connectionProvider);
+			configuration.setProperty(Environment.CONNECTION_PROVIDER, InstrumentedConnectionProvider.class.getName());
+		}
+		
+		// Time queries and writes in the sessions' batchers, which only batch
+		// writes if there's a batch size.
+		if (configuration.getProperty(Environment.BATCH_STRATEGY) == null) {
+			configuration.setProperty(Environment.BATCH_STRATEGY, TimedBatcherFactory.class.getName());
+		}
+		
+		final EventListeners listeners = configuration.getEventListeners();
+		listeners.setLoadEventListeners(new LoadEventListener[] {
+			new TimedLoadEventListener(listeners.getLoadEventListeners(), statistics)
+		});
+		listeners.setFlushEventListeners(new FlushEventListener[] {
+			new TimedFlushEventListener(listeners.getFlushEventListeners(), statistics)
+		});
+	}
+	
+	private void configureEntityChanges(Configuration configuration) {
+		final EventListeners listeners = configuration.getEventListeners();
+		final EntityChangeEventListener listener = new EntityChangeEventListener(entityChanges);
+		listeners.setPostInsertEventListeners(append(listeners.getPostInsertEventListeners(), listener));
+		listeners.setPostUpdateEventListeners(append(listeners.getPostUpdateEventListeners(), listener));
+		listeners.setPostDeleteEventListeners(append(listeners.getPostDeleteEventListeners(), listener));
+		listeners.setPostLoadEventListeners(append(listeners.getPostLoadEventListeners(), listener));
+	}
+	
+	private static <T> T[] append(T[] listeners, T listener) {
+		final T[] appended = Arrays.copyOf(listeners, listeners.length + 1);
+		appended[listeners.length] = listener;
+		return appended;
+	}
+	
 	private void configureRequiredProperties(Configuration configuration) {
-		// Required for WarpPersist's SessionFilter to work.
-		configuration.setProperty("hibernate.current_session_context_class", "managed");
+		// Required for WarpPersist's SessionFilter (or LazySessionFilter) to work.
+		if (new TypedProperties(configuration.getProperties()).getBoolean(LAZY_SESSIONS, false)) {
+			configuration.setProperty(Environment.CURRENT_SESSION_CONTEXT_CLASS, LazySessionContext.class.getName());
+		} else {
+			configuration.setProperty(Environment.CURRENT_SESSION_CONTEXT_CLASS, "managed");
+		}
 	}
 
 	private void configureDefaultProperties(Configuration configuration) {
@@ -84,11 +287,24 @@ public class HibernateModule extends AbstractModule {
 		// Don't enable statistics unless we really need to.
 		// See http://tech.puredanger.com/2009/05/13/hibernate-concurrency-bugs/
 		// for an explanation of the drawbacks to Hibernate's StatisticsImpl.
+		// DatabaseStatistics records the important numbers without locking.
 		configuration.setProperty(Environment.GENERATE_STATISTICS, "false");
 		
-		// C3P0's the best connection pool, and this is how to keep most
+		// Send inserts and updates in JDBC batches, grouped by entity so that
+		// batches aren't broken up by interleaved statements.
+		configuration.setProperty(Environment.STATEMENT_BATCH_SIZE, "50");
+		configuration.setProperty(Environment.ORDER_INSERTS, "true");
+		configuration.setProperty(Environment.ORDER_UPDATES, "true");
+		configuration.setProperty(Environment.BATCH_VERSIONED_DATA, "true");
+		
+		// If enabled, entities annotated with @Cache and Criteria queries
+		// marked as cacheable are kept in bounded, in-memory regions.
+		configuration.setProperty(Environment.CACHE_PROVIDER, BoundedCacheProvider.class.getName());
+		configuration.setProperty(Environment.USE_SECOND_LEVEL_CACHE, "false");
+		configuration.setProperty(Environment.USE_QUERY_CACHE, "false");
+		
+		// If C3P0 is used instead of Shore's pool, this is how to keep most
 		// database connections from timing out after long periods of inactivity.
-		configuration.setProperty(Environment.CONNECTION_PROVIDER, "org.hibernate.connection.C3P0ConnectionProvider");
 		configuration.setProperty(Environment.C3P0_IDLE_TEST_PERIOD, "3600");
 		configuration.setProperty(Environment.C3P0_TIMEOUT, "10800");
 		configuration.setProperty("hibernate.c3p0.preferredTestQuery", "SELECT 1;");
@@ -98,16 +314,34 @@ public class HibernateModule extends AbstractModule {
 	@Override
 	protected void configure() {
 		bind(Configuration.class).toInstance(configuration);
+		bind(DatabaseStatistics.class).toInstance(statistics);
+		bind(EntityChanges.class).toInstance(entityChanges);
+		
+		// Bound before Warp's transaction interceptor so that read-only
+		// transactions acquire their connections from the replica.
+		final ReadOnlyInterceptor readOnlyInterceptor = new ReadOnlyInterceptor();
+		bindInterceptor(Matchers.any(), Matchers.annotatedWith(ReadOnly.class), readOnlyInterceptor);
+		bindInterceptor(Matchers.annotatedWith(ReadOnly.class), Matchers.any(), readOnlyInterceptor);
+		
 		install(
 			PersistenceService
 				.usingHibernate()
 				.across(UnitOfWork.REQUEST)
 				.buildModule()
 		);
+		bind(StatelessSession.class).toProvider(StatelessSessionProvider.class);
 		bind(HibernateInitializer.class).asEagerSingleton();
 	}
 	
 	public AnnotationConfiguration getConfiguration() {
 		return configuration;
 	}
+	
+	public DatabaseStatistics getStatistics() {
+		return statistics;
+	}
+	
+	public EntityChanges getEntityChanges() {
+		return entityChanges;
+	}
 }
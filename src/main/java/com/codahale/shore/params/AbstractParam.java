@@ -19,7 +19,8 @@ public abstract class AbstractParam<V> {
 	
 	/**
 	 * Parses {@code param}, throwing an exception if {@code param} is
-	 * unparsable.
+	 * unparsable. Rejections are thrown without a stack trace (see
+	 * {@link InvalidParamException}) and metered by {@link ParamRejections}.
 	 * 
 	 * @param param an external input from a path, query, form, or other parameter
 	 * @throws WebApplicationException if {@code param} is unparsable
@@ -28,7 +29,7 @@ public abstract class AbstractParam<V> {
 		try {
 			this.value = parse(param);
 		} catch (Exception e) {
-			throw new WebApplicationException(onError(param, e));
+			throw new InvalidParamException(this, param, e);
 		}
 	}
 	
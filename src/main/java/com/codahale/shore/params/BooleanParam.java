@@ -0,0 +1,74 @@
+package com.codahale.shore.params;
+
+import javax.ws.rs.WebApplicationException;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A parameter which parses {@code true} or {@code false} (ignoring case),
+ * without boxing it. Unlike {@link Boolean#valueOf(String)}, anything else is
+ * rejected rather than treated as {@code false}.
+ * <p>
+ * Jersey creates parameters with {@link #valueOf(String)}, which returns one
+ * of two shared instances.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public final class BooleanParam {
+	private static final BooleanParam TRUE = new BooleanParam(true);
+	private static final BooleanParam FALSE = new BooleanParam(false);
+	
+	/**
+	 * Parses {@code param}, returning a shared instance.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @return {@code param} as a {@link BooleanParam}
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public static BooleanParam valueOf(String param) throws WebApplicationException {
+		return parse(param) ? TRUE : FALSE;
+	}
+	
+	private final boolean value;
+	
+	/**
+	 * Parses {@code param}, throwing an exception if {@code param} is
+	 * unparsable.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public BooleanParam(String param) throws WebApplicationException {
+		this(parse(param));
+	}
+	
+	private BooleanParam(boolean value) {
+		this.value = value;
+	}
+	
+	/**
+	 * Returns the parsed value.
+	 * 
+	 * @return the parsed value
+	 */
+	public boolean getValue() {
+		return value;
+	}
+	
+	@Override
+	public String toString() {
+		return Boolean.toString(value);
+	}
+	
+	private static boolean parse(String param) throws WebApplicationException {
+		if ("true".equalsIgnoreCase(param)) {
+			return true;
+		}
+		if ("false".equalsIgnoreCase(param)) {
+			return false;
+		}
+		throw new InvalidParamException(BooleanParam.class, param, "must be \"true\" or \"false\"");
+	}
+}
@@ -0,0 +1,186 @@
+package com.codahale.shore.params;
+
+import java.util.Date;
+
+import javax.ws.rs.WebApplicationException;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A parameter which parses an ISO 8601 date or date and time, such as
+ * {@code 2010-03-01}, {@code 2010-03-01T14:30:00Z}, or
+ * {@code 2010-03-01T14:30:00.250-08:00}. Offsets may be written as
+ * {@code -08:00}, {@code -0800}, or {@code -08}. Dates and times without an
+ * offset are in UTC. It's parsed arithmetically into milliseconds since the
+ * epoch, without a {@link java.text.DateFormat} or
+ * {@link java.util.Calendar}.
+ * <p>
+ * Jersey creates parameters with {@link #valueOf(String)}, which keeps
+ * recently-parsed values in a small cache (see
+ * {@code shore.params.cache_size}), so a hot date is parsed once.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public final class DateTimeParam {
+	private static final ParamCache<DateTimeParam> CACHE = new ParamCache<DateTimeParam>();
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+	
+	/**
+	 * Parses {@code param}, returning a cached instance if it was recently
+	 * parsed.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @return {@code param} as a {@link DateTimeParam}
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public static DateTimeParam valueOf(String param) throws WebApplicationException {
+		final DateTimeParam cached = CACHE.get(param);
+		if (cached != null) {
+			return cached;
+		}
+		return CACHE.put(param, new DateTimeParam(param));
+	}
+	
+	private final String param;
+	private final long millis;
+	
+	/**
+	 * Parses {@code param}, throwing an exception if {@code param} is
+	 * unparsable.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public DateTimeParam(String param) throws WebApplicationException {
+		this.param = param;
+		this.millis = parse(param);
+	}
+	
+	/**
+	 * Returns the parsed value in milliseconds since the epoch.
+	 * 
+	 * @return the parsed value in milliseconds since the epoch
+	 */
+	public long getMillis() {
+		return millis;
+	}
+	
+	/**
+	 * Returns the parsed value as a new {@link Date}.
+	 * 
+	 * @return the parsed value
+	 */
+	public Date getValue() {
+		return new Date(millis);
+	}
+	
+	@Override
+	public String toString() {
+		return param;
+	}
+	
+	private static long parse(String param) throws WebApplicationException {
+		if ((param == null) || (param.length() < 10) || (param.charAt(4) != '-')
+				|| (param.charAt(7) != '-')) {
+			throw notADateTime(param);
+		}
+		
+		final int year = Params.digits(param, 0, 4);
+		final int month = Params.digits(param, 5, 2);
+		final int day = Params.digits(param, 8, 2);
+		if ((year < 0) || (month < 1) || (month > 12) || (day < 1) || (day > daysInMonth(year, month))) {
+			throw notADateTime(param);
+		}
+		
+		final int length = param.length();
+		int hour = 0, minute = 0, second = 0, millis = 0, offset = 0;
+		int i = 10;
+		if ((i < length) && (param.charAt(i) == 'T')) {
+			if (((i + 3) >= length) || (param.charAt(i + 3) != ':')) {
+				throw notADateTime(param);
+			}
+			hour = Params.digits(param, i + 1, 2);
+			minute = Params.digits(param, i + 4, 2);
+			i += 6;
+			
+			if ((i < length) && (param.charAt(i) == ':')) {
+				second = Params.digits(param, i + 1, 2);
+				i += 3;
+				
+				if ((i < length) && (param.charAt(i) == '.')) {
+					final int start = ++i;
+					while ((i < length) && Character.isDigit(param.charAt(i))) {
+						// anything finer than milliseconds is truncated
+						if ((i - start) < 3) {
+							millis = (millis * 10) + (param.charAt(i) - '0');
+						}
+						i++;
+					}
+					if (i == start) {
+						throw notADateTime(param);
+					}
+					for (int digits = i - start; digits < 3; digits++) {
+						millis *= 10;
+					}
+				}
+			}
+			
+			if ((hour < 0) || (hour > 23) || (minute < 0) || (minute > 59) || (second < 0) || (second > 59)) {
+				throw notADateTime(param);
+			}
+			
+			if (i < length) {
+				final char zone = param.charAt(i);
+				if (zone == 'Z') {
+					i++;
+				} else if ((zone == '+') || (zone == '-')) {
+					final int hours = Params.digits(param, i + 1, 2);
+					i += 3;
+					int minutes = 0;
+					if (i < length) {
+						if (param.charAt(i) == ':') {
+							i++;
+						}
+						minutes = Params.digits(param, i, 2);
+						i += 2;
+					}
+					if ((hours < 0) || (hours > 23) || (minutes < 0) || (minutes > 59)) {
+						throw notADateTime(param);
+					}
+					offset = ((hours * 60) + minutes) * ((zone == '-') ? -1 : 1);
+				}
+			}
+		}
+		
+		if (i != length) {
+			throw notADateTime(param);
+		}
+		
+		final long days = daysSinceEpoch(year, month, day);
+		final long minutes = (((days * 24) + hour) * 60) + minute - offset;
+		return (((minutes * 60) + second) * 1000) + millis;
+	}
+	
+	private static int daysInMonth(int year, int month) {
+		if ((month == 2) && ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0))) {
+			return 29;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+	
+	private static long daysSinceEpoch(int year, int month, int day) {
+		// counts from March, so leap days fall at the end of the year
+		final int y = (month <= 2) ? (year - 1) : year;
+		final int era = ((y >= 0) ? y : (y - 399)) / 400;
+		final int yearOfEra = y - (era * 400);
+		final int dayOfYear = ((((153 * (month + ((month > 2) ? -3 : 9))) + 2) / 5) + day) - 1;
+		final int dayOfEra = ((yearOfEra * 365) + (yearOfEra / 4)) - (yearOfEra / 100) + dayOfYear;
+		return ((era * 146097L) + dayOfEra) - 719468;
+	}
+	
+	private static WebApplicationException notADateTime(String param) {
+		return new InvalidParamException(DateTimeParam.class, param, "not an ISO 8601 date");
+	}
+}
@@ -0,0 +1,97 @@
+package com.codahale.shore.params;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.WebApplicationException;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.MapMaker;
+
+/**
+ * An abstract base class for parameters which parse the name of an enum
+ * constant, ignoring case. The constants of each enum type are looked up in
+ * a table built once, so parsing a valid name allocates nothing but the
+ * parameter.
+ * <p>
+ * Descendant classes must have a public constructor which takes a
+ * {@link String}:
+ * 
+ * <pre>
+ * public class ColorParam extends EnumParam&lt;Color&gt; {
+ * 	public ColorParam(String param) throws WebApplicationException {
+ * 		super(Color.class, param);
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @author coda
+ *
+ * @param <E> the enum type
+ */
+@Immutable
+public abstract class EnumParam<E extends Enum<E>> {
+	@Immutable
+	private static class Constants {
+		private final Map<String, Enum<?>> byName;
+		private final String reason;
+		
+		public Constants(Class<? extends Enum<?>> type) {
+			final Map<String, Enum<?>> byName = new TreeMap<String, Enum<?>>(String.CASE_INSENSITIVE_ORDER);
+			for (Enum<?> constant : type.getEnumConstants()) {
+				byName.put(constant.name(), constant);
+			}
+			this.byName = Collections.unmodifiableMap(byName);
+			this.reason = "must be one of " + Joiner.on(", ").join(type.getEnumConstants());
+		}
+	}
+	
+	private static final ConcurrentMap<Class<?>, Constants> CONSTANTS = new MapMaker().makeMap();
+	private final E value;
+	
+	/**
+	 * Parses {@code param}, throwing an exception if {@code param} isn't the
+	 * name of one of {@code type}'s constants.
+	 * 
+	 * @param type the enum type
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	protected EnumParam(Class<E> type, String param) throws WebApplicationException {
+		final Constants constants = getConstants(type);
+		final Enum<?> constant = (param == null) ? null : constants.byName.get(param);
+		if (constant == null) {
+			throw new InvalidParamException(getClass(), param, constants.reason);
+		}
+		this.value = type.cast(constant);
+	}
+	
+	/**
+	 * Returns the parsed value.
+	 * 
+	 * @return the parsed value
+	 */
+	public E getValue() {
+		return value;
+	}
+	
+	@Override
+	public String toString() {
+		return value.toString();
+	}
+	
+	private static Constants getConstants(Class<? extends Enum<?>> type) {
+		final Constants constants = CONSTANTS.get(type);
+		if (constants != null) {
+			return constants;
+		}
+		
+		final Constants newConstants = new Constants(type);
+		final Constants existing = CONSTANTS.putIfAbsent(type, newConstants);
+		return (existing == null) ? newConstants : existing;
+	}
+}
@@ -0,0 +1,116 @@
+package com.codahale.shore.params;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * A {@link WebApplicationException} thrown when a parameter is unparsable.
+ * <p>
+ * It doesn't record a stack trace: it's thrown from a parameter's
+ * constructor, caught by Jersey, and turned into its response, so the trace
+ * would never be read, and filling it in is most of what a rejection costs.
+ * Its response, which echoes the invalid value, isn't built until it's asked
+ * for, since {@link ParamRejections} may send a terse one instead; until
+ * then, {@link WebApplicationException} holds a shared, empty
+ * {@code 400 Bad Request} placeholder rather than building one per
+ * rejection.
+ * 
+ * @author coda
+ *
+ */
+public class InvalidParamException extends WebApplicationException {
+	private static final long serialVersionUID = 4473651390487405312L;
+	private static final Response PLACEHOLDER = Response.status(Status.BAD_REQUEST).build();
+	private final Class<?> paramClass;
+	private final String param;
+	private final String reason;
+	private final transient AbstractParam<?> source;
+	private transient Response response;
+	
+	/**
+	 * Creates a new {@link InvalidParamException}.
+	 * 
+	 * @param paramClass the parameter class which rejected {@code param}
+	 * @param param the invalid parameter
+	 * @param reason why {@code param} is invalid; must be the same for every
+	 *            rejection by {@code paramClass}
+	 */
+	InvalidParamException(Class<?> paramClass, String param, String reason) {
+		super(PLACEHOLDER);
+		this.paramClass = paramClass;
+		this.param = param;
+		this.reason = reason;
+		this.source = null;
+	}
+	
+	/**
+	 * Creates a new {@link InvalidParamException} whose response comes from
+	 * {@link AbstractParam#onError(String, Throwable)}.
+	 * 
+	 * @param source the parameter which rejected {@code param}
+	 * @param param the invalid parameter
+	 * @param cause the exception thrown by {@link AbstractParam#parse(String)}
+	 */
+	InvalidParamException(AbstractParam<?> source, String param, Throwable cause) {
+		super(cause, PLACEHOLDER);
+		this.paramClass = source.getClass();
+		this.param = param;
+		this.reason = null;
+		this.source = source;
+	}
+	
+	/**
+	 * Returns the parameter class which rejected the parameter.
+	 */
+	public Class<?> getParamClass() {
+		return paramClass;
+	}
+	
+	/**
+	 * Returns the invalid parameter.
+	 */
+	public String getParam() {
+		return param;
+	}
+	
+	/**
+	 * Returns why the parameter is invalid, or {@code null} if the parameter
+	 * class is an {@link AbstractParam} descendant.
+	 */
+	public String getReason() {
+		return reason;
+	}
+	
+	/**
+	 * Returns a {@code 400 Bad Request} response describing the invalid
+	 * parameter.
+	 */
+	@Override
+	public synchronized Response getResponse() {
+		if (response == null) {
+			if (source != null) {
+				this.response = source.onError(param, getCause());
+			} else {
+				this.response = Response
+									.status(Status.BAD_REQUEST)
+									.type(MediaType.TEXT_PLAIN_TYPE)
+									.entity(new StringBuilder()
+												.append("Invalid parameter: ")
+												.append(param)
+												.append(" (")
+												.append(reason)
+												.append(").")
+												.toString())
+									.build();
+			}
+		}
+		return response;
+	}
+	
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
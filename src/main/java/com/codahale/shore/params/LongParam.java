@@ -0,0 +1,78 @@
+package com.codahale.shore.params;
+
+import javax.ws.rs.WebApplicationException;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A parameter which parses a decimal {@code long}, without boxing it.
+ * <p>
+ * Jersey creates parameters with {@link #valueOf(String)}, which returns
+ * shared instances for values between {@code -128} and {@code 1023} and
+ * allocates only for the rest.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public final class LongParam {
+	private static final int CACHE_LOW = -128;
+	private static final int CACHE_HIGH = 1023;
+	private static final LongParam[] CACHE = new LongParam[CACHE_HIGH - CACHE_LOW + 1];
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new LongParam(i + CACHE_LOW);
+		}
+	}
+	
+	/**
+	 * Parses {@code param}, returning a shared instance if the value is
+	 * small.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @return {@code param} as an {@link LongParam}
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public static LongParam valueOf(String param) throws WebApplicationException {
+		final long value = parse(param);
+		if ((value >= CACHE_LOW) && (value <= CACHE_HIGH)) {
+			return CACHE[(int) value - CACHE_LOW];
+		}
+		return new LongParam(value);
+	}
+	
+	private final long value;
+	
+	/**
+	 * Parses {@code param}, throwing an exception if {@code param} is
+	 * unparsable.
+	 * 
+	 * @param param an external input from a path, query, form, or other parameter
+	 * @throws WebApplicationException if {@code param} is unparsable
+	 */
+	public LongParam(String param) throws WebApplicationException {
+		this(parse(param));
+	}
+	
+	private LongParam(long value) {
+		this.value = value;
+	}
+	
+	/**
+	 * Returns the parsed value.
+	 * 
+	 * @return the parsed value
+	 */
+	public long getValue() {
+		return value;
+	}
+	
+	@Override
+	public String toString() {
+		return Long.toString(value);
+	}
+	
+	private static long parse(String param) throws WebApplicationException {
+		return Params.parseLong(LongParam.class, param, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+}
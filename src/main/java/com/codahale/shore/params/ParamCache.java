@@ -0,0 +1,121 @@
+package com.codahale.shore.params;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * A small, direct-mapped cache of parsed parameters, keyed by their raw
+ * values. Each value maps to a single slot, and a miss overwrites whatever
+ * was in it, so the cache never grows and a hit costs a hash and a string
+ * comparison. Parameters are immutable, so they can be shared freely.
+ * <p>
+ * The number of slots is set by the {@code shore.params.cache_size} property
+ * (default: {@code 256}), which is read by {@link #configure(TypedProperties)}
+ * when the server starts; {@code 0} disables caching.
+ * 
+ * @author coda
+ *
+ * @param <P> the type of parameter cached
+ */
+@ThreadSafe
+public final class ParamCache<P> {
+	public static final String SIZE_PROPERTY = "shore.params.cache_size";
+	public static final int DEFAULT_SIZE = 256;
+	private static final List<ParamCache<?>> CACHES = new CopyOnWriteArrayList<ParamCache<?>>();
+	private static volatile int size = DEFAULT_SIZE;
+	
+	/**
+	 * Resizes the parameter caches to {@code shore.params.cache_size} slots,
+	 * emptying them.
+	 * 
+	 * @param properties the application's properties
+	 */
+	public static void configure(TypedProperties properties) {
+		size = properties.getInt(SIZE_PROPERTY, DEFAULT_SIZE);
+		for (ParamCache<?> cache : CACHES) {
+			cache.resize(size);
+		}
+	}
+	
+	@Immutable
+	private static class Slot<P> {
+		private final String key;
+		private final P value;
+		
+		public Slot(String key, P value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+	
+	private volatile AtomicReferenceArray<Slot<P>> slots;
+	
+	/**
+	 * Creates a new {@link ParamCache} which is resized by
+	 * {@link #configure(TypedProperties)}.
+	 */
+	ParamCache() {
+		// registered first, so a concurrent configure() can't be missed
+		CACHES.add(this);
+		resize(size);
+	}
+	
+	/**
+	 * Replaces the cache's slots.
+	 * 
+	 * @param count the number of slots, rounded up to a power of two; if
+	 *            {@code 0} or less, nothing is cached
+	 */
+	private void resize(int count) {
+		if (count > 0) {
+			final int capacity = Integer.highestOneBit(count - 1) << 1;
+			this.slots = new AtomicReferenceArray<Slot<P>>(Math.max(capacity, 1));
+		} else {
+			this.slots = null;
+		}
+	}
+	
+	/**
+	 * Returns the parameter cached for a raw value, or {@code null}.
+	 * 
+	 * @param key the raw value
+	 * @return the cached parameter, or {@code null}
+	 */
+	P get(String key) {
+		final AtomicReferenceArray<Slot<P>> slots = this.slots;
+		if ((slots == null) || (key == null)) {
+			return null;
+		}
+		final Slot<P> slot = slots.get(index(slots, key));
+		if ((slot != null) && slot.key.equals(key)) {
+			return slot.value;
+		}
+		return null;
+	}
+	
+	/**
+	 * Caches a parameter, replacing whichever one shared its slot.
+	 * 
+	 * @param key the raw value
+	 * @param value the parsed parameter
+	 * @return {@code value}
+	 */
+	P put(String key, P value) {
+		final AtomicReferenceArray<Slot<P>> slots = this.slots;
+		if (slots != null) {
+			slots.set(index(slots, key), new Slot<P>(key, value));
+		}
+		return value;
+	}
+	
+	private static int index(AtomicReferenceArray<?> slots, String key) {
+		final int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (slots.length() - 1);
+	}
+}
@@ -0,0 +1,143 @@
+package com.codahale.shore.params;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.metrics.Meter;
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.google.common.collect.MapMaker;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchAdapter;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+/**
+ * A Jersey provider which turns the {@link InvalidParamException}s thrown
+ * while a resource method's parameters are being parsed into
+ * {@code 400 Bad Request} responses, and meters them, as
+ * {@code <param class>.rejections}, so a flood of malformed requests shows
+ * up in the metrics.
+ * <p>
+ * If {@code shore.params.terse_errors} is {@code true}, the responses don't
+ * echo the invalid value: each parameter class gets a single message, built
+ * the first time it rejects a value and reused after that. {@link AbstractParam}
+ * descendants get a plain {@code Invalid parameter.} in that mode, whatever
+ * their {@link AbstractParam#onError(String, Throwable)} returns.
+ * <p>
+ * Parameters injected into a resource's fields or constructor are parsed
+ * before any resource method is dispatched, so their rejections are neither
+ * metered nor made terse.
+ * 
+ * @author coda
+ *
+ */
+@Provider
+@ThreadSafe
+public class ParamRejections implements ResourceMethodDispatchAdapter {
+	public static final String TERSE_PROPERTY = "shore.params.terse_errors";
+	
+	private class RejectingRequestDispatcher implements RequestDispatcher {
+		private final RequestDispatcher dispatcher;
+		
+		public RejectingRequestDispatcher(RequestDispatcher dispatcher) {
+			this.dispatcher = dispatcher;
+		}
+		
+		@Override
+		public void dispatch(Object resource, HttpContext context) {
+			try {
+				dispatcher.dispatch(resource, context);
+			} catch (InvalidParamException e) {
+				context.getResponse().setResponse(reject(e));
+			}
+		}
+	}
+	
+	private final ConcurrentMap<Class<?>, Meter> meters = new MapMaker().makeMap();
+	private final ConcurrentMap<Class<?>, String> messages = new MapMaker().makeMap();
+	private final MetricsRegistry metrics;
+	private final boolean terse;
+	
+	/**
+	 * Creates a new {@link ParamRejections}.
+	 * 
+	 * @param metrics the registry to meter rejections in
+	 * @param terse if {@code true}, don't echo invalid values
+	 */
+	public ParamRejections(MetricsRegistry metrics, boolean terse) {
+		this.metrics = checkNotNull(metrics);
+		this.terse = terse;
+	}
+	
+	@Override
+	public ResourceMethodDispatchProvider adapt(final ResourceMethodDispatchProvider provider) {
+		return new ResourceMethodDispatchProvider() {
+			@Override
+			public RequestDispatcher create(AbstractResourceMethod resourceMethod) {
+				final RequestDispatcher dispatcher = provider.create(resourceMethod);
+				if (dispatcher == null) {
+					return null;
+				}
+				
+				return new RejectingRequestDispatcher(dispatcher);
+			}
+		};
+	}
+	
+	/**
+	 * Meters a rejection and returns the response to send for it.
+	 * 
+	 * @param e the rejection
+	 * @return a new {@code 400 Bad Request} response
+	 */
+	public Response reject(InvalidParamException e) {
+		getMeter(e.getParamClass()).mark();
+		if (terse) {
+			return Response
+					.status(Status.BAD_REQUEST)
+					.type(MediaType.TEXT_PLAIN_TYPE)
+					.entity(getMessage(e.getParamClass(), e.getReason()))
+					.build();
+		}
+		return e.getResponse();
+	}
+	
+	/**
+	 * Returns the meter of rejections for a parameter class.
+	 * 
+	 * @param type a parameter class
+	 * @return the meter of {@code type}'s rejections
+	 */
+	public Meter getMeter(Class<?> type) {
+		final Meter meter = meters.get(type);
+		if (meter != null) {
+			return meter;
+		}
+		
+		final Meter newMeter = metrics.meter(type.getName() + ".rejections");
+		final Meter existing = meters.putIfAbsent(type, newMeter);
+		return (existing == null) ? newMeter : existing;
+	}
+	
+	private String getMessage(Class<?> type, String reason) {
+		final String message = messages.get(type);
+		if (message != null) {
+			return message;
+		}
+		
+		final String newMessage = (reason == null)
+				? "Invalid parameter."
+				: "Invalid parameter (" + reason + ").";
+		final String existing = messages.putIfAbsent(type, newMessage);
+		return (existing == null) ? newMessage : existing;
+	}
+}
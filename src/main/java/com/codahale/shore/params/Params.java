@@ -0,0 +1,86 @@
+package com.codahale.shore.params;
+
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Parsing helpers for the built-in parameter classes.
+ * 
+ * @author coda
+ *
+ */
+final class Params {
+	private Params() {
+		// singleton
+	}
+	
+	/**
+	 * Parses a decimal integer between {@code min} and {@code max} without
+	 * boxing or allocating.
+	 * 
+	 * @param type the parameter class, for metering rejections
+	 * @param param an external input
+	 * @param min the smallest acceptable value (must be negative)
+	 * @param max the largest acceptable value (must be positive)
+	 * @return {@code param} as a {@code long}
+	 * @throws WebApplicationException if {@code param} is unparsable or out of
+	 *             range
+	 */
+	static long parseLong(Class<?> type, String param, long min, long max) throws WebApplicationException {
+		if ((param == null) || (param.length() == 0)) {
+			throw new InvalidParamException(type, param, "not an integer");
+		}
+		
+		final int length = param.length();
+		int i = 0;
+		boolean negative = false;
+		final char first = param.charAt(0);
+		if ((first == '-') || (first == '+')) {
+			if (length == 1) {
+				throw new InvalidParamException(type, param, "not an integer");
+			}
+			negative = (first == '-');
+			i++;
+		}
+		
+		// accumulate negatively, since |min| > max
+		final long limit = negative ? min : -max;
+		final long multiplicationLimit = limit / 10;
+		long result = 0;
+		for (; i < length; i++) {
+			final int digit = param.charAt(i) - '0';
+			if ((digit < 0) || (digit > 9) || (result < multiplicationLimit)) {
+				throw new InvalidParamException(type, param, "not an integer");
+			}
+			result *= 10;
+			if (result < (limit + digit)) {
+				throw new InvalidParamException(type, param, "not an integer");
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+	
+	/**
+	 * Returns the value of a run of decimal digits, or {@code -1} if
+	 * {@code s} doesn't have {@code count} digits at {@code offset}.
+	 * 
+	 * @param s a string
+	 * @param offset the index of the first digit
+	 * @param count the number of digits
+	 * @return the digits' value, or {@code -1}
+	 */
+	static int digits(String s, int offset, int count) {
+		if ((offset + count) > s.length()) {
+			return -1;
+		}
+		int result = 0;
+		for (int i = offset; i < (offset + count); i++) {
+			final int digit = s.charAt(i) - '0';
+			if ((digit < 0) || (digit > 9)) {
+				return -1;
+			}
+			result = (result * 10) + digit;
+		}
+		return result;
+	}
+}
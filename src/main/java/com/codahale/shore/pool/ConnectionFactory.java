@@ -0,0 +1,20 @@
+package com.codahale.shore.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens new database connections for a {@link ConnectionPool}.
+ * 
+ * @author coda
+ *
+ */
+public interface ConnectionFactory {
+	/**
+	 * Opens a new connection.
+	 * 
+	 * @return a new connection
+	 * @throws SQLException if the connection can't be opened
+	 */
+	Connection open() throws SQLException;
+}
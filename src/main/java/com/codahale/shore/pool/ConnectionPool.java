@@ -0,0 +1,560 @@
+package com.codahale.shore.pool;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.metrics.Histogram;
+import com.codahale.shore.metrics.StripedCounter;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A pool of database connections which avoids locking on the fast path.
+ * <p>
+ * Checkouts are bounded by a non-fair {@link Semaphore}, which only parks a
+ * thread when every connection is in use; idle connections are kept in a
+ * lock-free queue. Connections which have been idle for a while are
+ * validated before they're handed out, and connections which are too old or
+ * have been idle too long are closed.
+ * <p>
+ * New connections are given the pool's auto-commit and isolation settings,
+ * if it has any. The connections handed out are proxies which keep track of
+ * the settings changed through them, and of whether any statements have been
+ * run since the last commit or rollback, so a released connection is only
+ * rolled back if it's dirty, and only has the settings which were changed
+ * restored, without asking the database for any of them.
+ * <p>
+ * Connections checked out for longer than the leak detection threshold are
+ * logged, along with the stack trace of the code which checked them out.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class ConnectionPool {
+	private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getCanonicalName());
+	
+	private static class Entry implements InvocationHandler {
+		private final Connection connection;
+		private final Connection proxy;
+		private final boolean autoCommit;
+		private final boolean readOnly;
+		private final int isolation;
+		private final long createdAt;
+		private volatile long lastUsedAt;
+		private volatile long leasedAt;
+		private volatile Throwable leasedBy;
+		private volatile boolean reported;
+		// only changed through the proxy, by the thread which checked it out
+		private boolean currentAutoCommit, currentReadOnly, dirty;
+		private int currentIsolation;
+		
+		public Entry(Connection connection, long now) throws SQLException {
+			this.connection = connection;
+			this.proxy = (Connection) Proxy.newProxyInstance(
+				Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				this
+			);
+			this.autoCommit = connection.getAutoCommit();
+			this.readOnly = connection.isReadOnly();
+			this.isolation = connection.getTransactionIsolation();
+			this.currentAutoCommit = autoCommit;
+			this.currentReadOnly = readOnly;
+			this.currentIsolation = isolation;
+			this.createdAt = now;
+			this.lastUsedAt = now;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			final String name = method.getName();
+			if (method.getDeclaringClass() == Object.class) {
+				if ("equals".equals(name)) {
+					return proxy == args[0];
+				} else if ("hashCode".equals(name)) {
+					return System.identityHashCode(proxy);
+				}
+				return "Pooled " + connection;
+			}
+			
+			final Object result;
+			try {
+				result = method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			
+			if ("setAutoCommit".equals(name)) {
+				this.currentAutoCommit = (Boolean) args[0];
+				if (currentAutoCommit) {
+					// turning auto-commit on commits the open transaction
+					this.dirty = false;
+				}
+			} else if ("setReadOnly".equals(name)) {
+				this.currentReadOnly = (Boolean) args[0];
+			} else if ("setTransactionIsolation".equals(name)) {
+				this.currentIsolation = (Integer) args[0];
+			} else if (name.startsWith("create") || name.startsWith("prepare")) {
+				this.dirty = true;
+			} else if (("commit".equals(name) || "rollback".equals(name)) && (args == null)) {
+				this.dirty = false;
+			}
+			return result;
+		}
+	}
+	
+	private final String name;
+	private final PoolSettings settings;
+	private final ConnectionFactory factory;
+	private final Boolean autoCommit;
+	private final Integer isolation;
+	private final Semaphore permits;
+	private final ConcurrentLinkedQueue<Entry> idle = new ConcurrentLinkedQueue<Entry>();
+	private final ConcurrentMap<Connection, Entry> leased = new MapMaker().makeMap();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicInteger idleSize = new AtomicInteger();
+	private final Histogram waitTimes = new Histogram();
+	private final StripedCounter timeouts = new StripedCounter();
+	private final StripedCounter leaks = new StripedCounter();
+	private final StripedCounter created = new StripedCounter();
+	private final ScheduledExecutorService leakDetector;
+	private volatile boolean closed;
+	
+	/**
+	 * Creates a new {@link ConnectionPool}.
+	 * 
+	 * @param name the pool's name
+	 * @param settings the pool's settings
+	 * @param factory a factory for new connections
+	 */
+	public ConnectionPool(String name, PoolSettings settings, ConnectionFactory factory) {
+		this(name, settings, factory, null, null);
+	}
+	
+	/**
+	 * Creates a new {@link ConnectionPool} whose connections have the given
+	 * auto-commit and isolation settings.
+	 * 
+	 * @param name the pool's name
+	 * @param settings the pool's settings
+	 * @param factory a factory for new connections
+	 * @param autoCommit the connections' auto-commit setting, or {@code null}
+	 *            for the driver's default
+	 * @param isolation the connections' transaction isolation level, or
+	 *            {@code null} for the driver's default
+	 */
+	public ConnectionPool(String name, PoolSettings settings, ConnectionFactory factory,
+			Boolean autoCommit, Integer isolation) {
+		this.name = checkNotNull(name);
+		this.settings = checkNotNull(settings);
+		this.factory = checkNotNull(factory);
+		this.autoCommit = autoCommit;
+		this.isolation = isolation;
+		this.permits = new Semaphore(settings.getMaxSize(), false);
+		
+		final long threshold = settings.getLeakDetectionThreshold();
+		if (threshold > 0) {
+			this.leakDetector = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "shore-pool-leak-detector-" + ConnectionPool.this.name);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			final long period = Math.max(1, threshold / 2);
+			leakDetector.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					detectLeaks();
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			this.leakDetector = null;
+		}
+	}
+	
+	/**
+	 * Checks out a connection, waiting up to the checkout timeout (or
+	 * indefinitely, if it's {@code 0}) for one to become available.
+	 * 
+	 * @return a connection
+	 * @throws SQLException if no connection became available in time, or if
+	 *             a new connection couldn't be opened
+	 */
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException(name + " connection pool is closed");
+		}
+		
+		final long start = System.nanoTime();
+		final boolean acquired;
+		try {
+			if (settings.getCheckoutTimeout() == 0) {
+				permits.acquire();
+				acquired = true;
+			} else {
+				acquired = permits.tryAcquire(settings.getCheckoutTimeout(), TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection from " + name);
+		} finally {
+			waitTimes.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		}
+		
+		if (!acquired) {
+			timeouts.increment();
+			throw new SQLException("Timed out after " + settings.getCheckoutTimeout()
+				+ "ms waiting for a connection from " + name);
+		}
+		
+		boolean leasedEntry = false;
+		try {
+			final Entry entry = checkout();
+			entry.leasedAt = System.currentTimeMillis();
+			entry.reported = false;
+			if (leakDetector != null) {
+				entry.leasedBy = new Throwable("Connection checked out here");
+			}
+			leased.put(entry.proxy, entry);
+			leasedEntry = true;
+			return entry.proxy;
+		} finally {
+			if (!leasedEntry) {
+				permits.release();
+			}
+		}
+	}
+	
+	/**
+	 * Returns a connection to the pool. Connections which have been closed,
+	 * which can't be reset, or which are returned after the pool is closed,
+	 * are discarded.
+	 * 
+	 * @param connection a connection checked out from this pool
+	 * @throws SQLException if the connection can't be closed
+	 */
+	public void release(Connection connection) throws SQLException {
+		final Entry entry = leased.remove(checkNotNull(connection));
+		if (entry == null) {
+			LOGGER.warning("Closing a connection which wasn't checked out from " + name);
+			connection.close();
+			return;
+		}
+		
+		try {
+			entry.lastUsedAt = System.currentTimeMillis();
+			entry.leasedBy = null;
+			if (closed || entry.connection.isClosed() || !reset(entry)) {
+				destroy(entry);
+			} else {
+				idle.offer(entry);
+				idleSize.incrementAndGet();
+				if (closed) {
+					// raced with close(), which may have missed this entry
+					drainIdle();
+				}
+			}
+		} finally {
+			permits.release();
+		}
+	}
+	
+	/**
+	 * Opens idle connections until the pool has {@code count} of them open,
+	 * or as many as it's allowed to. Each connection's slot is reserved
+	 * before it's opened, and prefilling stops rather than waits if every
+	 * connection is checked out, so the pool never grows past its maximum
+	 * size.
+	 * 
+	 * @param count the number of connections to have open
+	 * @return the number of connections opened
+	 * @throws SQLException if a connection couldn't be opened
+	 */
+	public int prefill(int count) throws SQLException {
+		final int target = Math.min(count, settings.getMaxSize());
+		int opened = 0;
+		while (!closed && reserve(target)) {
+			try {
+				if (!permits.tryAcquire()) {
+					size.decrementAndGet();
+					break;
+				}
+				
+				try {
+					final Entry entry = open();
+					created.increment();
+					idle.offer(entry);
+					idleSize.incrementAndGet();
+					opened++;
+				} finally {
+					permits.release();
+				}
+			} catch (SQLException e) {
+				size.decrementAndGet();
+				throw e;
+			} catch (RuntimeException e) {
+				size.decrementAndGet();
+				throw e;
+			}
+		}
+		
+		if (closed) {
+			// raced with close(), which may have missed these entries
+			drainIdle();
+		}
+		return opened;
+	}
+	
+	/**
+	 * Closes all idle connections and stops the pool from handing out new
+	 * ones. Connections which are checked out are closed when they're
+	 * returned.
+	 */
+	public void close() {
+		this.closed = true;
+		if (leakDetector != null) {
+			leakDetector.shutdownNow();
+		}
+		drainIdle();
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public PoolSettings getSettings() {
+		return settings;
+	}
+	
+	/**
+	 * Returns the number of open connections, in use or not.
+	 */
+	public int getSize() {
+		return size.get();
+	}
+	
+	/**
+	 * Returns the number of open connections which aren't in use.
+	 */
+	public int getIdleConnections() {
+		return idleSize.get();
+	}
+	
+	/**
+	 * Returns the number of connections which are checked out.
+	 */
+	public int getActiveConnections() {
+		return leased.size();
+	}
+	
+	/**
+	 * Returns an estimate of the number of threads waiting for a connection.
+	 */
+	public int getWaitingThreads() {
+		return permits.getQueueLength();
+	}
+	
+	/**
+	 * Returns the time threads spent waiting for a connection, in
+	 * microseconds.
+	 */
+	public Histogram getWaitTimes() {
+		return waitTimes;
+	}
+	
+	/**
+	 * Returns the number of checkouts which timed out.
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+	
+	/**
+	 * Returns the number of connections reported as possible leaks.
+	 */
+	public long getLeaks() {
+		return leaks.sum();
+	}
+	
+	/**
+	 * Returns the number of connections opened over the pool's lifetime.
+	 */
+	public long getConnectionsCreated() {
+		return created.sum();
+	}
+	
+	@Override
+	public String toString() {
+		return name + " (size=" + getSize() + ", active=" + getActiveConnections()
+				+ ", idle=" + getIdleConnections() + ", waiting=" + getWaitingThreads() + ")";
+	}
+	
+	private Entry checkout() throws SQLException {
+		Entry entry;
+		while ((entry = idle.poll()) != null) {
+			idleSize.decrementAndGet();
+			if (isUsable(entry)) {
+				return entry;
+			}
+			destroy(entry);
+		}
+		
+		final Entry newEntry = open();
+		size.incrementAndGet();
+		created.increment();
+		return newEntry;
+	}
+	
+	private Entry open() throws SQLException {
+		final Connection connection = factory.open();
+		try {
+			if ((autoCommit != null) && (connection.getAutoCommit() != autoCommit)) {
+				connection.setAutoCommit(autoCommit);
+			}
+			
+			if ((isolation != null) && (connection.getTransactionIsolation() != isolation)) {
+				connection.setTransactionIsolation(isolation);
+			}
+			return new Entry(connection, System.currentTimeMillis());
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+	}
+	
+	private boolean reset(Entry entry) {
+		final Connection connection = entry.connection;
+		try {
+			if (entry.dirty && !entry.currentAutoCommit) {
+				connection.rollback();
+			}
+			entry.dirty = false;
+			
+			if (entry.currentAutoCommit != entry.autoCommit) {
+				connection.setAutoCommit(entry.autoCommit);
+				entry.currentAutoCommit = entry.autoCommit;
+			}
+			
+			if (entry.currentReadOnly != entry.readOnly) {
+				connection.setReadOnly(entry.readOnly);
+				entry.currentReadOnly = entry.readOnly;
+			}
+			
+			if (entry.currentIsolation != entry.isolation) {
+				connection.setTransactionIsolation(entry.isolation);
+				entry.currentIsolation = entry.isolation;
+			}
+			return true;
+		} catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Discarding a connection from " + name + " which couldn't be reset", e);
+			return false;
+		}
+	}
+	
+	private boolean reserve(int target) {
+		while (true) {
+			final int current = size.get();
+			if (current >= target) {
+				return false;
+			}
+			
+			if (size.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	private boolean isUsable(Entry entry) {
+		final long now = System.currentTimeMillis();
+		if ((settings.getMaxLifetime() > 0) && ((now - entry.createdAt) > settings.getMaxLifetime())) {
+			return false;
+		}
+		
+		final long idleTime = now - entry.lastUsedAt;
+		if ((settings.getIdleTimeout() > 0) && (idleTime > settings.getIdleTimeout())) {
+			return false;
+		}
+		
+		if (idleTime > settings.getValidationInterval()) {
+			return isValid(entry.connection);
+		}
+		return true;
+	}
+	
+	private boolean isValid(Connection connection) {
+		try {
+			if (settings.getTestQuery() == null) {
+				return connection.isValid(Math.max(1, (int) TimeUnit.MILLISECONDS.toSeconds(settings.getCheckoutTimeout())));
+			}
+			
+			final Statement statement = connection.createStatement();
+			try {
+				statement.execute(settings.getTestQuery());
+			} finally {
+				statement.close();
+			}
+			return true;
+		} catch (AbstractMethodError e) {
+			// a pre-JDBC 4 driver without isValid()
+			try {
+				return !connection.isClosed();
+			} catch (SQLException ex) {
+				return false;
+			}
+		} catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Discarding an invalid connection from " + name, e);
+			return false;
+		}
+	}
+	
+	private void destroy(Entry entry) {
+		size.decrementAndGet();
+		try {
+			entry.connection.close();
+		} catch (SQLException e) {
+			LOGGER.log(Level.FINE, "Error closing a connection from " + name, e);
+		}
+	}
+	
+	private void drainIdle() {
+		Entry entry;
+		while ((entry = idle.poll()) != null) {
+			idleSize.decrementAndGet();
+			destroy(entry);
+		}
+	}
+	
+	private void detectLeaks() {
+		final long now = System.currentTimeMillis();
+		for (Entry entry : leased.values()) {
+			final long age = now - entry.leasedAt;
+			if (!entry.reported && (age > settings.getLeakDetectionThreshold())) {
+				entry.reported = true;
+				leaks.increment();
+				LOGGER.log(Level.WARNING, "A connection from " + name + " has been checked out for "
+						+ age + "ms and may have leaked", entry.leasedBy);
+			}
+		}
+	}
+}
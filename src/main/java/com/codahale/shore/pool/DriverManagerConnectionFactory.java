@@ -0,0 +1,45 @@
+package com.codahale.shore.pool;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A {@link ConnectionFactory} which opens connections via
+ * {@link DriverManager}.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class DriverManagerConnectionFactory implements ConnectionFactory {
+	private final String url;
+	private final Properties properties;
+	
+	/**
+	 * Creates a new {@link DriverManagerConnectionFactory}.
+	 * 
+	 * @param url the JDBC URL of the database
+	 * @param properties the connection properties, including {@code user} and
+	 *            {@code password}
+	 */
+	public DriverManagerConnectionFactory(String url, Properties properties) {
+		this.url = checkNotNull(url);
+		this.properties = new Properties();
+		this.properties.putAll(checkNotNull(properties));
+	}
+	
+	@Override
+	public Connection open() throws SQLException {
+		return DriverManager.getConnection(url, properties);
+	}
+	
+	public String getUrl() {
+		return url;
+	}
+}
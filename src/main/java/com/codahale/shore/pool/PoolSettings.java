@@ -0,0 +1,145 @@
+package com.codahale.shore.pool;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.Immutable;
+
+import org.hibernate.cfg.Environment;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * The settings for a {@link ConnectionPool}, read from the properties file:
+ * <dl>
+ * 	<dt>{@code shore.pool.min_size}</dt>
+ * 	<dd>The number of connections opened when the application is warmed up.
+ * 	Defaults to 1.</dd>
+ * 	<dt>{@code shore.pool.max_size}</dt>
+ * 	<dd>The maximum number of open connections. Defaults to
+ * 	{@code hibernate.connection.pool_size}, or 10.</dd>
+ * 	<dt>{@code shore.pool.checkout_timeout}</dt>
+ * 	<dd>The number of milliseconds to wait for a connection before giving
+ * 	up, or {@code 0} to wait indefinitely. Defaults to 30 seconds.</dd>
+ * 	<dt>{@code shore.pool.idle_timeout}</dt>
+ * 	<dd>The number of milliseconds a connection may sit unused before it's
+ * 	closed. Defaults to 3 hours.</dd>
+ * 	<dt>{@code shore.pool.max_lifetime}</dt>
+ * 	<dd>The number of milliseconds after which a connection is closed,
+ * 	regardless of use. Defaults to 4 hours.</dd>
+ * 	<dt>{@code shore.pool.validation_interval}</dt>
+ * 	<dd>The number of milliseconds a connection may sit unused before it's
+ * 	validated on checkout. Defaults to 30 seconds.</dd>
+ * 	<dt>{@code shore.pool.test_query}</dt>
+ * 	<dd>The query used to validate connections. If not set, the driver's
+ * 	{@code Connection#isValid(int)} is used.</dd>
+ * 	<dt>{@code shore.pool.leak_detection_threshold}</dt>
+ * 	<dd>The number of milliseconds a connection may be checked out before
+ * 	it's reported as a possible leak, or {@code 0} to disable leak
+ * 	detection. Defaults to {@code 0}, since the stack trace of every checkout
+ * 	is recorded while it's enabled.</dd>
+ * </dl>
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class PoolSettings {
+	public static final String PREFIX = "shore.pool.";
+	private final int minSize;
+	private final int maxSize;
+	private final long checkoutTimeout;
+	private final long idleTimeout;
+	private final long maxLifetime;
+	private final long validationInterval;
+	private final String testQuery;
+	private final long leakDetectionThreshold;
+	
+	/**
+	 * Returns the pool settings in a set of properties.
+	 * 
+	 * @param properties the Hibernate properties
+	 * @return the pool settings
+	 */
+	public static PoolSettings fromProperties(TypedProperties properties) {
+		return fromProperties(properties, PREFIX);
+	}
+	
+	/**
+	 * Returns the pool settings in a set of properties, with keys beginning
+	 * with {@code prefix} instead of {@code shore.pool.}.
+	 * 
+	 * @param properties the Hibernate properties
+	 * @param prefix the prefix of the settings' keys
+	 * @return the pool settings
+	 */
+	public static PoolSettings fromProperties(TypedProperties properties, String prefix) {
+		final int maxSize = properties.getInt(prefix + "max_size", properties.getInt(Environment.POOL_SIZE, 10));
+		return new PoolSettings(
+			properties.getInt(prefix + "min_size", Math.min(1, maxSize)),
+			maxSize,
+			properties.getLong(prefix + "checkout_timeout", 30000),
+			properties.getLong(prefix + "idle_timeout", 10800000),
+			properties.getLong(prefix + "max_lifetime", 14400000),
+			properties.getLong(prefix + "validation_interval", 30000),
+			properties.getString(prefix + "test_query", null),
+			properties.getLong(prefix + "leak_detection_threshold", 0)
+		);
+	}
+	
+	/**
+	 * Creates a new {@link PoolSettings}. All times are in milliseconds; a
+	 * time of {@code 0} disables the corresponding check (a checkout timeout
+	 * of {@code 0} waits indefinitely).
+	 */
+	public PoolSettings(int minSize, int maxSize, long checkoutTimeout,
+			long idleTimeout, long maxLifetime, long validationInterval,
+			String testQuery, long leakDetectionThreshold) {
+		checkArgument(maxSize > 0, "maxSize must be positive");
+		checkArgument((minSize >= 0) && (minSize <= maxSize), "minSize must be between 0 and maxSize");
+		checkArgument(checkoutTimeout >= 0, "checkoutTimeout must not be negative");
+		checkArgument(idleTimeout >= 0, "idleTimeout must not be negative");
+		checkArgument(maxLifetime >= 0, "maxLifetime must not be negative");
+		checkArgument(validationInterval >= 0, "validationInterval must not be negative");
+		checkArgument(leakDetectionThreshold >= 0, "leakDetectionThreshold must not be negative");
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.checkoutTimeout = checkoutTimeout;
+		this.idleTimeout = idleTimeout;
+		this.maxLifetime = maxLifetime;
+		this.validationInterval = validationInterval;
+		this.testQuery = testQuery;
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+	
+	public int getMinSize() {
+		return minSize;
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public long getCheckoutTimeout() {
+		return checkoutTimeout;
+	}
+	
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+	
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+	
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+	
+	public String getTestQuery() {
+		return testQuery;
+	}
+	
+	public long getLeakDetectionThreshold() {
+		return leakDetectionThreshold;
+	}
+}
@@ -0,0 +1,116 @@
+package com.codahale.shore.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.connection.ConnectionProviderFactory;
+import org.hibernate.util.ReflectHelper;
+
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A Hibernate {@link ConnectionProvider} backed by a {@link ConnectionPool}.
+ * Connections are opened using the standard Hibernate connection properties
+ * ({@code hibernate.connection.driver_class}, {@code hibernate.connection.url},
+ * etc.); the pool is configured via {@link PoolSettings}, and its connections
+ * are opened with the {@code hibernate.connection.autocommit} and
+ * {@code hibernate.connection.isolation} settings, so they don't have to be
+ * changed on each checkout. The pools built are
+ * available via {@link #getPools()}, so their statistics can be reported.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class PooledConnectionProvider implements ConnectionProvider {
+	/**
+	 * The name under which the pool is registered. Defaults to
+	 * {@code primary}.
+	 */
+	public static final String NAME_PROPERTY = "shore.pool.name";
+	private static final Logger LOGGER = Logger.getLogger(PooledConnectionProvider.class.getCanonicalName());
+	private static final ConcurrentMap<String, ConnectionPool> POOLS = new MapMaker().makeMap();
+	
+	/**
+	 * Returns the pools built by this provider, by name.
+	 * 
+	 * @return the active connection pools
+	 */
+	public static Map<String, ConnectionPool> getPools() {
+		return ImmutableMap.copyOf(POOLS);
+	}
+	
+	private volatile ConnectionPool pool;
+	
+	@Override
+	public void configure(Properties props) throws HibernateException {
+		final TypedProperties properties = new TypedProperties(props);
+		final String driverClass = properties.getString(Environment.DRIVER, null);
+		if (driverClass != null) {
+			try {
+				ReflectHelper.classForName(driverClass);
+			} catch (ClassNotFoundException e) {
+				throw new HibernateException("JDBC driver class not found: " + driverClass, e);
+			}
+		}
+		
+		final String url = properties.getString(Environment.URL, null);
+		if (url == null) {
+			throw new HibernateException("JDBC URL was not specified by property " + Environment.URL);
+		}
+		
+		final Integer isolation = (properties.getString(Environment.ISOLATION, null) == null) ? null
+				: properties.getInt(Environment.ISOLATION, 0);
+		
+		final String name = properties.getString(NAME_PROPERTY, "primary");
+		final PoolSettings settings = PoolSettings.fromProperties(properties);
+		this.pool = new ConnectionPool(
+			name,
+			settings,
+			new DriverManagerConnectionFactory(url, ConnectionProviderFactory.getConnectionProperties(props)),
+			properties.getBoolean(Environment.AUTOCOMMIT, false),
+			isolation
+		);
+		POOLS.put(name, pool);
+		LOGGER.info("Pooling up to " + settings.getMaxSize() + " connections to " + url);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return pool.getConnection();
+	}
+	
+	@Override
+	public void closeConnection(Connection conn) throws SQLException {
+		pool.release(conn);
+	}
+	
+	@Override
+	public void close() throws HibernateException {
+		POOLS.remove(pool.getName(), pool);
+		pool.close();
+	}
+	
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+	
+	/**
+	 * Returns the underlying pool.
+	 */
+	public ConnectionPool getPool() {
+		return pool;
+	}
+}
@@ -0,0 +1,389 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.util.RolloverFileOutputStream;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+/**
+ * A {@link RequestLog} which writes NCSA-format lines without blocking the
+ * request thread on I/O.
+ * <p>
+ * Each request is formatted straight into a preallocated
+ * {@link LineRingBuffer} slot, and a background thread drains the buffer to
+ * the log in batches. If the buffer fills up, lines are either dropped and
+ * counted, or the request thread waits for room, depending on the
+ * {@link OverflowPolicy}. If the log can't be written to, the background
+ * thread stops and all further lines are dropped.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class AsyncRequestLog extends AbstractLifeCycle implements RequestLog {
+	/**
+	 * What to do with a line when the buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Discard the line and count it as dropped.
+		 */
+		DROP,
+		
+		/**
+		 * Wait for the background thread to make room.
+		 */
+		BLOCK
+	}
+	
+	private static final Logger LOGGER = Logger.getLogger(AsyncRequestLog.class.getCanonicalName());
+	private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final int BATCH_SIZE = 256;
+	private final AtomicLong droppedLines = new AtomicLong();
+	private final AtomicLong loggedLines = new AtomicLong();
+	private final OutputStream fixedOutput;
+	private volatile CachedTimestamp cachedTimestamp = new CachedTimestamp(-1, null);
+	private volatile boolean running = false;
+	private int capacity = 4096;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+	private String filename = null;
+	private boolean append = true;
+	private int retainDays = 31;
+	private boolean extended = false;
+	private boolean logLatency = false;
+	private String timeZone = "GMT";
+	private LineRingBuffer buffer;
+	private SimpleDateFormat dateFormat;
+	private OutputStream output;
+	private Thread drainer;
+	
+	/**
+	 * Creates a new {@link AsyncRequestLog} which writes to a file if
+	 * {@link #setFilename(String)} is called, or to {@code System.err}
+	 * otherwise.
+	 */
+	public AsyncRequestLog() {
+		this.fixedOutput = null;
+	}
+	
+	/**
+	 * Creates a new {@link AsyncRequestLog} which writes to
+	 * {@code output}.
+	 * 
+	 * @param output the stream to write the log to
+	 */
+	public AsyncRequestLog(OutputStream output) {
+		this.fixedOutput = checkNotNull(output);
+	}
+	
+	@Override
+	public void log(Request request, Response response) {
+		if (!running) {
+			droppedLines.incrementAndGet();
+			return;
+		}
+		
+		long position = buffer.claim();
+		while (position < 0) {
+			if ((overflowPolicy == OverflowPolicy.DROP) || !running) {
+				droppedLines.incrementAndGet();
+				return;
+			}
+			LockSupport.parkNanos(FULL_WAIT);
+			position = buffer.claim();
+		}
+		
+		final StringBuilder line = buffer.get(position);
+		try {
+			format(line, request, response);
+		} catch (RuntimeException e) {
+			line.setLength(0);
+			LOGGER.log(Level.WARNING, "Unable to format request log line", e);
+		} finally {
+			buffer.publish(position);
+		}
+	}
+	
+	/**
+	 * Returns the number of lines dropped because the buffer was full.
+	 */
+	public long getDroppedLines() {
+		return droppedLines.get();
+	}
+	
+	/**
+	 * Returns the number of lines written to the log.
+	 */
+	public long getLoggedLines() {
+		return loggedLines.get();
+	}
+	
+	/**
+	 * Returns the number of lines waiting to be written.
+	 */
+	public int getPendingLines() {
+		final LineRingBuffer current = buffer;
+		return (current == null) ? 0 : current.size();
+	}
+	
+	/**
+	 * Sets the number of lines which can be waiting to be written. Rounded
+	 * up to the next power of two. Defaults to 4096.
+	 */
+	public void setCapacity(int capacity) {
+		checkArgument(capacity > 0, "capacity must be positive");
+		this.capacity = capacity;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Sets what to do with lines when the buffer is full. Defaults to
+	 * {@link OverflowPolicy#DROP}.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = checkNotNull(overflowPolicy);
+	}
+	
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+	
+	/**
+	 * Sets the log file's name. If it contains {@code yyyy_mm_dd}, the file
+	 * is rolled over daily.
+	 */
+	public void setFilename(String filename) {
+		this.filename = filename;
+	}
+	
+	public String getFilename() {
+		return filename;
+	}
+	
+	public void setAppend(boolean append) {
+		this.append = append;
+	}
+	
+	public boolean isAppend() {
+		return append;
+	}
+	
+	/**
+	 * Sets the number of days rolled-over log files are kept.
+	 */
+	public void setRetainDays(int retainDays) {
+		this.retainDays = retainDays;
+	}
+	
+	public int getRetainDays() {
+		return retainDays;
+	}
+	
+	/**
+	 * If {@code true}, the referer and user agent are logged.
+	 */
+	public void setExtended(boolean extended) {
+		this.extended = extended;
+	}
+	
+	public boolean isExtended() {
+		return extended;
+	}
+	
+	/**
+	 * If {@code true}, the number of milliseconds spent on the request is
+	 * logged.
+	 */
+	public void setLogLatency(boolean logLatency) {
+		this.logLatency = logLatency;
+	}
+	
+	public boolean isLogLatency() {
+		return logLatency;
+	}
+	
+	/**
+	 * Sets the time zone timestamps are logged in. Defaults to GMT.
+	 */
+	public void setTimeZone(String timeZone) {
+		this.timeZone = checkNotNull(timeZone);
+	}
+	
+	public String getTimeZone() {
+		return timeZone;
+	}
+	
+	@Override
+	protected void doStart() throws Exception {
+		this.buffer = new LineRingBuffer(roundUpToPowerOfTwo(capacity), 256);
+		this.dateFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+		dateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
+		this.cachedTimestamp = new CachedTimestamp(-1, null);
+		this.output = openOutput();
+		this.running = true;
+		
+		final Writer writer = new OutputStreamWriter(output, "UTF-8");
+		this.drainer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain(writer);
+			}
+		}, "shore-request-log");
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+	
+	@Override
+	protected void doStop() throws Exception {
+		this.running = false;
+		LockSupport.unpark(drainer);
+		drainer.join();
+		if (output != fixedOutput) {
+			if (filename != null) {
+				output.close();
+			} else {
+				output.flush();
+			}
+		}
+	}
+	
+	private void drain(Writer writer) {
+		try {
+			while (running) {
+				if (drainBatch(writer) == 0) {
+					LockSupport.parkNanos(IDLE_WAIT);
+				}
+			}
+			
+			while (drainBatch(writer) > 0) {
+				// write out everything logged before we stopped
+			}
+		} catch (IOException e) {
+			// stop accepting lines, so blocked request threads give up
+			this.running = false;
+			LOGGER.log(Level.SEVERE, "Unable to write request log; dropping all further lines", e);
+		}
+	}
+	
+	private int drainBatch(Writer writer) throws IOException {
+		final int drained = buffer.drain(writer, BATCH_SIZE);
+		if (drained > 0) {
+			writer.flush();
+			loggedLines.addAndGet(drained);
+		}
+		return drained;
+	}
+	
+	private OutputStream openOutput() throws IOException {
+		if (fixedOutput != null) {
+			return fixedOutput;
+		}
+		
+		if (filename != null) {
+			return new RolloverFileOutputStream(filename, append, retainDays, TimeZone.getTimeZone(timeZone));
+		}
+		
+		return System.err;
+	}
+	
+	private void format(StringBuilder line, Request request, Response response) {
+		line.append(request.getRemoteAddr()).append(" - ");
+		
+		final String user = request.getRemoteUser();
+		line.append((user == null) ? "-" : user);
+		
+		line.append(" [").append(formatTimestamp(request.getTimeStamp())).append("] \"")
+			.append(request.getMethod()).append(' ')
+			.append(request.getRequestURI());
+		
+		final String query = request.getQueryString();
+		if (query != null) {
+			line.append('?').append(query);
+		}
+		
+		line.append(' ').append(request.getProtocol()).append("\" ");
+		
+		final int status = response.getStatus();
+		line.append((status <= 0) ? 404 : status).append(' ');
+		
+		final long length = response.getContentCount();
+		if (length >= 0) {
+			line.append(length);
+		} else {
+			line.append('-');
+		}
+		
+		if (extended) {
+			appendQuoted(line, request.getHeader("Referer"));
+			appendQuoted(line, request.getHeader("User-Agent"));
+		}
+		
+		if (logLatency) {
+			line.append(' ').append(System.currentTimeMillis() - request.getTimeStamp());
+		}
+	}
+	
+	private void appendQuoted(StringBuilder line, String value) {
+		if (value == null) {
+			line.append(" \"-\"");
+		} else {
+			line.append(" \"").append(value).append('"');
+		}
+	}
+	
+	/*
+	 * Timestamps only have a resolution of a second, so the formatted value is
+	 * cached and only reformatted (under a lock) when the second changes.
+	 */
+	private String formatTimestamp(long timestamp) {
+		final long second = timestamp / 1000;
+		final CachedTimestamp cached = cachedTimestamp;
+		if (cached.second == second) {
+			return cached.text;
+		}
+		
+		synchronized (dateFormat) {
+			final String text = dateFormat.format(new Date(timestamp));
+			cachedTimestamp = new CachedTimestamp(second, text);
+			return text;
+		}
+	}
+	
+	private static int roundUpToPowerOfTwo(int value) {
+		final int highest = Integer.highestOneBit(value);
+		return (highest == value) ? value : (highest << 1);
+	}
+	
+	private static final class CachedTimestamp {
+		private final long second;
+		private final String text;
+		
+		public CachedTimestamp(long second, String text) {
+			this.second = second;
+			this.text = text;
+		}
+	}
+}
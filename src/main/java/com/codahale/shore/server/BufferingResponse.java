@@ -0,0 +1,309 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.eclipse.jetty.http.HttpHeaders;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * A response wrapper which buffers the body and records the status and
+ * headers, so a filter can decide what to do with the response once it's
+ * been rendered. Headers are passed through to the wrapped response as
+ * they're set, except for {@code Content-Length}, which is set when the body
+ * is written.
+ *
+ * @author coda
+ *
+ */
+@NotThreadSafe
+class BufferingResponse extends HttpServletResponseWrapper {
+	/**
+	 * A recorded header.
+	 */
+	static class Header {
+		private final String name;
+		private final String value;
+		private final long date;
+		private final boolean added;
+
+		public Header(String name, String value, long date, boolean added) {
+			this.name = name;
+			this.value = value;
+			this.date = date;
+			this.added = added;
+		}
+
+		public void applyTo(HttpServletResponse response) {
+			if (value == null) {
+				if (added) {
+					response.addDateHeader(name, date);
+				} else {
+					response.setDateHeader(name, date);
+				}
+			} else if (added) {
+				response.addHeader(name, value);
+			} else {
+				response.setHeader(name, value);
+			}
+		}
+	}
+
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private final List<Header> headers = Lists.newArrayList();
+	private ServletOutputStream stream;
+	private PrintWriter writer;
+	private int status = SC_OK;
+	private boolean bypassed, cookies;
+
+	public BufferingResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	/**
+	 * Returns the response's status code.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns {@code true} if the response was sent with
+	 * {@link #sendError(int)} or {@link #sendRedirect(String)}, bypassing the
+	 * buffer.
+	 */
+	public boolean isBypassed() {
+		return bypassed;
+	}
+
+	/**
+	 * Returns {@code true} if the response sets cookies.
+	 */
+	public boolean hasCookies() {
+		return cookies;
+	}
+
+	/**
+	 * Returns the last value set for a header, or {@code null}.
+	 *
+	 * @param name the header's name
+	 */
+	public String getHeader(String name) {
+		for (int i = headers.size() - 1; i >= 0; i--) {
+			final Header header = headers.get(i);
+			if (header.name.equalsIgnoreCase(name) && (header.value != null)) {
+				return header.value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the last date set for a header, or {@code -1}.
+	 *
+	 * @param name the header's name
+	 */
+	public long getDateHeader(String name) {
+		for (int i = headers.size() - 1; i >= 0; i--) {
+			final Header header = headers.get(i);
+			if (header.name.equalsIgnoreCase(name) && (header.value == null)) {
+				return header.date;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the headers set on the response, in order.
+	 */
+	public List<Header> getHeaders() {
+		return ImmutableList.copyOf(headers);
+	}
+
+	/**
+	 * Returns the buffered body.
+	 */
+	public byte[] getBody() {
+		flushWriter();
+		return body.toByteArray();
+	}
+
+	/**
+	 * Writes the buffered body to the wrapped response, unless it's already
+	 * been committed.
+	 *
+	 * @throws IOException if the body can't be written
+	 */
+	public void writeBody() throws IOException {
+		flushWriter();
+		if (!isCommitted() && (body.size() > 0)) {
+			super.setContentLength(body.size());
+			body.writeTo(super.getOutputStream());
+		}
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		this.status = sc;
+		super.setStatus(sc);
+	}
+
+	@Override
+	@Deprecated
+	public void setStatus(int sc, String sm) {
+		this.status = sc;
+		super.setStatus(sc, sm);
+	}
+
+	@Override
+	public void sendError(int sc) throws IOException {
+		this.status = sc;
+		this.bypassed = true;
+		super.sendError(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) throws IOException {
+		this.status = sc;
+		this.bypassed = true;
+		super.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String location) throws IOException {
+		this.status = SC_MOVED_TEMPORARILY;
+		this.bypassed = true;
+		super.sendRedirect(location);
+	}
+
+	@Override
+	public void addCookie(Cookie cookie) {
+		this.cookies = true;
+		super.addCookie(cookie);
+	}
+
+	@Override
+	public void setContentLength(int len) {
+		// the body's length is known once it's buffered
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		if (record(name, value, -1, false)) {
+			super.setHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		if (record(name, value, -1, true)) {
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value) {
+		if (record(name, Integer.toString(value), -1, false)) {
+			super.setIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addIntHeader(String name, int value) {
+		if (record(name, Integer.toString(value), -1, true)) {
+			super.addIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setDateHeader(String name, long date) {
+		record(name, null, date, false);
+		super.setDateHeader(name, date);
+	}
+
+	@Override
+	public void addDateHeader(String name, long date) {
+		record(name, null, date, true);
+		super.addDateHeader(name, date);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		checkState(writer == null, "getWriter() has already been called");
+		if (stream == null) {
+			this.stream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					body.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					body.write(b, off, len);
+				}
+			};
+		}
+		return stream;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer == null) {
+			checkState(stream == null, "getOutputStream() has already been called");
+			this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			this.stream = null;
+		}
+		return writer;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		flushWriter();
+	}
+
+	@Override
+	public void resetBuffer() {
+		super.resetBuffer();
+		body.reset();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		body.reset();
+		headers.clear();
+		this.status = SC_OK;
+		this.cookies = false;
+	}
+
+	private void flushWriter() {
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+	private boolean record(String name, String value, long date, boolean added) {
+		if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			return false;
+		}
+		if (HttpHeaders.SET_COOKIE.equalsIgnoreCase(name)) {
+			this.cookies = true;
+		}
+		headers.add(new Header(name, value, date, added));
+		return true;
+	}
+}
@@ -0,0 +1,643 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import com.codahale.shore.util.PathMatcher;
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * A handler which compresses responses with {@code gzip} or {@code deflate},
+ * as negotiated by the request's {@code Accept-Encoding} header.
+ * <p>
+ * A response is buffered until it's larger than
+ * {@code shore.compression.min_size} bytes (default: {@code 1024}); smaller
+ * responses aren't worth compressing, and are sent as-is with a
+ * {@code Content-Length}. Only textual content types are compressed, and
+ * responses which already have a {@code Content-Encoding} are left alone.
+ * <p>
+ * A compressed response is a different representation from the uncompressed
+ * one, so its {@code ETag} is suffixed with the coding (e.g.,
+ * {@code "v1"} becomes {@code "v1-gzip"}). The suffix is stripped from the
+ * tags in a request's {@code If-None-Match} header before it's handled, so
+ * that the application (or {@link ResponseCacheFilter}) can match them against
+ * its own tags and answer with {@code 304 Not Modified}.
+ * <p>
+ * The compressed bodies of successful {@code GET} responses marked
+ * {@code Cache-Control: public, immutable} are kept in an LRU cache of up to
+ * {@code shore.compression.cache_size} entries (default: {@code 256}), and
+ * later requests for them are answered without compressing them again, or
+ * calling the application at all. Since a cache hit skips every servlet
+ * filter, only responses which are safe to share are cached: not those marked
+ * {@code private} or {@code no-store}, which set cookies, or which vary on
+ * anything but {@code Accept-Encoding}, and never responses to requests with
+ * an {@code Authorization} header. Requests with {@code Cache-Control: no-cache}
+ * are always handled by the application.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class CompressionHandler extends HandlerWrapper {
+	public static final String ENABLED_PROPERTY = "shore.compression";
+	public static final String MIN_SIZE_PROPERTY = "shore.compression.min_size";
+	public static final String CACHE_SIZE_PROPERTY = "shore.compression.cache_size";
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	private static final int MAX_CACHED_BODY = 1024 * 1024;
+	private static final int BUFFER_SIZE = 8192;
+
+	private static class CachedResponse {
+		private final String contentType;
+		private final String cacheControl;
+		private final String etag;
+		private final byte[] body;
+
+		public CachedResponse(String contentType, String cacheControl, String etag, byte[] body) {
+			this.contentType = contentType;
+			this.cacheControl = cacheControl;
+			this.etag = etag;
+			this.body = body;
+		}
+	}
+
+	private final PathMatcher excludedPaths;
+	private final int minSize;
+	private final Map<String, CachedResponse> cache;
+
+	/**
+	 * Creates a new {@link CompressionHandler}.
+	 *
+	 * @param properties the application's properties
+	 * @param excludedPaths the paths of responses which shouldn't be
+	 *            compressed (e.g., static files, which are precompressed)
+	 */
+	public CompressionHandler(TypedProperties properties, PathMatcher excludedPaths) {
+		this.excludedPaths = checkNotNull(excludedPaths);
+		this.minSize = checkNotNull(properties).getInt(MIN_SIZE_PROPERTY, 1024);
+		final int cacheSize = properties.getInt(CACHE_SIZE_PROPERTY, 256);
+		this.cache = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 4169433932702716153L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request,
+			HttpServletResponse response) throws IOException, ServletException {
+		if (excludedPaths.matches(target) || "HEAD".equals(request.getMethod())) {
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		final String encoding = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+		if (encoding == null) {
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+
+		final boolean cacheable = "GET".equals(request.getMethod())
+				&& (request.getHeader(HttpHeaders.AUTHORIZATION) == null);
+		final String key = cacheable ? cacheKey(encoding, request) : null;
+		if (cacheable && !ResponseCacheFilter.isNoCache(request)) {
+			final CachedResponse cached;
+			synchronized (cache) {
+				cached = cache.get(key);
+			}
+			if (cached != null) {
+				sendCached(cached, encoding, baseRequest, request, response);
+				return;
+			}
+		}
+
+		final NegotiatedRequest negotiated = new NegotiatedRequest(request, encoding);
+		final CompressingResponse compressing = new CompressingResponse(response, encoding, minSize, cacheable,
+			negotiated.hasCodedTags());
+		super.handle(target, baseRequest, negotiated, compressing);
+		compressing.finish();
+
+		final byte[] body = compressing.getCachedBody();
+		if (body != null) {
+			synchronized (cache) {
+				cache.put(key, new CachedResponse(
+					compressing.getContentType(),
+					compressing.getCacheControl(),
+					compressing.getETag(),
+					body
+				));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of compressed responses which are cached.
+	 */
+	public int getCachedResponses() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Picks a content coding from an {@code Accept-Encoding} header,
+	 * preferring {@code gzip} to {@code deflate}.
+	 *
+	 * @param acceptEncoding the value of the header, or {@code null}
+	 * @return {@link #GZIP}, {@link #DEFLATE}, or {@code null} if the client
+	 *         accepts neither
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+
+		boolean gzip = false, deflate = false;
+		for (String coding : acceptEncoding.split(",")) {
+			final int semicolon = coding.indexOf(';');
+			final String name = ((semicolon < 0) ? coding : coding.substring(0, semicolon)).trim();
+			if ((semicolon >= 0) && isZeroQuality(coding.substring(semicolon + 1))) {
+				continue;
+			}
+			if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+				gzip = true;
+			} else if (DEFLATE.equalsIgnoreCase(name)) {
+				deflate = true;
+			}
+		}
+
+		if (gzip) {
+			return GZIP;
+		}
+		return deflate ? DEFLATE : null;
+	}
+
+	/**
+	 * Returns {@code true} if a response with the given content type is worth
+	 * compressing.
+	 *
+	 * @param contentType a content type, or {@code null}
+	 */
+	public static boolean isCompressible(String contentType) {
+		if (contentType == null) {
+			return false;
+		}
+
+		final int semicolon = contentType.indexOf(';');
+		final String type = ((semicolon < 0) ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+		return type.startsWith("text/")
+				|| type.endsWith("/json") || type.endsWith("+json")
+				|| type.endsWith("/xml") || type.endsWith("+xml")
+				|| type.endsWith("/javascript") || type.endsWith("/x-javascript");
+	}
+
+	private static boolean isZeroQuality(String parameters) {
+		for (String parameter : parameters.split(";")) {
+			final String p = parameter.trim();
+			if (p.startsWith("q=")) {
+				try {
+					return Double.parseDouble(p.substring(2).trim()) <= 0.0;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String cacheKey(String encoding, HttpServletRequest request) {
+		final String query = request.getQueryString();
+		final StringBuilder key = new StringBuilder(encoding).append(' ').append(request.getRequestURI());
+		if (query != null) {
+			key.append('?').append(query);
+		}
+		return key.toString();
+	}
+
+	private void sendCached(CachedResponse cached, String encoding, Request baseRequest,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+		baseRequest.setHandled(true);
+		if (cached.cacheControl != null) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL, cached.cacheControl);
+		}
+		if (cached.etag != null) {
+			response.setHeader(HttpHeaders.ETAG, cached.etag);
+			if (ResponseCacheFilter.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), cached.etag)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+		}
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(cached.contentType);
+		response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+		response.setContentLength(cached.body.length);
+		response.getOutputStream().write(cached.body);
+	}
+
+	/**
+	 * A request whose {@code If-None-Match} tags have had the negotiated
+	 * coding's suffix removed.
+	 */
+	private static class NegotiatedRequest extends HttpServletRequestWrapper {
+		private final String ifNoneMatch;
+		private final boolean codedTags;
+
+		public NegotiatedRequest(HttpServletRequest request, String encoding) {
+			super(request);
+			final String header = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+			if (header == null) {
+				this.ifNoneMatch = null;
+				this.codedTags = false;
+			} else {
+				final String suffix = "-" + encoding + "\"";
+				final StringBuilder builder = new StringBuilder(header.length());
+				boolean coded = false;
+				for (String tag : header.split(",")) {
+					String t = tag.trim();
+					if (t.endsWith(suffix)) {
+						t = t.substring(0, t.length() - suffix.length()) + '"';
+						coded = true;
+					}
+					if (builder.length() > 0) {
+						builder.append(", ");
+					}
+					builder.append(t);
+				}
+				this.ifNoneMatch = builder.toString();
+				this.codedTags = coded;
+			}
+		}
+
+		/**
+		 * Returns {@code true} if any of the request's {@code If-None-Match}
+		 * tags were for the compressed representation.
+		 */
+		public boolean hasCodedTags() {
+			return codedTags;
+		}
+
+		@Override
+		public String getHeader(String name) {
+			if (HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+				return ifNoneMatch;
+			}
+			return super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<?> getHeaders(String name) {
+			if (HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+				if (ifNoneMatch == null) {
+					return Collections.enumeration(Collections.emptyList());
+				}
+				return Collections.enumeration(Collections.singletonList(ifNoneMatch));
+			}
+			return super.getHeaders(name);
+		}
+	}
+
+	/**
+	 * Buffers a response until it's big enough to compress, then streams it
+	 * through a compressor.
+	 */
+	private static class CompressingResponse extends HttpServletResponseWrapper {
+		private final String encoding;
+		private final int minSize;
+		private final boolean cacheable, codedTags;
+		private final ByteArrayOutputStream buffer;
+		private ServletOutputStream stream;
+		private PrintWriter writer;
+		private OutputStream out;
+		private Deflater deflater;
+		private ByteArrayOutputStream cachedBody;
+		private String cacheControl, etag;
+		private int status = SC_OK;
+		private long contentLength = -1;
+		private boolean bypassed, compressing, cookies, varies;
+
+		public CompressingResponse(HttpServletResponse response, String encoding, int minSize, boolean cacheable,
+				boolean codedTags) {
+			super(response);
+			this.encoding = encoding;
+			this.minSize = minSize;
+			this.cacheable = cacheable;
+			this.codedTags = codedTags;
+			this.buffer = new ByteArrayOutputStream(Math.max(minSize, 64));
+		}
+
+		public String getCacheControl() {
+			return cacheControl;
+		}
+
+		public String getETag() {
+			return (etag == null) ? null : withCoding(etag, encoding);
+		}
+
+		public byte[] getCachedBody() {
+			return (cachedBody == null) ? null : cachedBody.toByteArray();
+		}
+
+		@Override
+		public void setStatus(int sc) {
+			this.status = sc;
+			super.setStatus(sc);
+		}
+
+		@Override
+		@Deprecated
+		public void setStatus(int sc, String sm) {
+			this.status = sc;
+			super.setStatus(sc, sm);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			this.bypassed = true;
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			this.bypassed = true;
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			this.bypassed = true;
+			super.sendRedirect(location);
+		}
+
+		@Override
+		public void addCookie(Cookie cookie) {
+			this.cookies = true;
+			super.addCookie(cookie);
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			this.contentLength = len;
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (!interceptHeader(name, value)) {
+				super.setHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!interceptHeader(name, value)) {
+				super.addHeader(name, value);
+			}
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			if (!interceptHeader(name, Integer.toString(value))) {
+				super.setIntHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			if (!interceptHeader(name, Integer.toString(value))) {
+				super.addIntHeader(name, value);
+			}
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			checkState(writer == null, "getWriter() has already been called");
+			if (stream == null) {
+				this.stream = new ServletOutputStream() {
+					@Override
+					public void write(int b) throws IOException {
+						write(new byte[] { (byte) b }, 0, 1);
+					}
+
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						CompressingResponse.this.write(b, off, len);
+					}
+				};
+			}
+			return stream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (writer == null) {
+				checkState(stream == null, "getOutputStream() has already been called");
+				this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+				this.stream = null;
+			}
+			return writer;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+			if (out != null) {
+				out.flush();
+			}
+		}
+
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			buffer.reset();
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			buffer.reset();
+			this.status = SC_OK;
+			this.contentLength = -1;
+			this.cacheControl = null;
+			this.etag = null;
+			this.cookies = false;
+			this.varies = false;
+		}
+
+		public void finish() throws IOException {
+			if (writer != null) {
+				writer.flush();
+			}
+
+			if (out == null) {
+				if (bypassed || (buffer.size() == 0)) {
+					if (!isCommitted()) {
+						// a 304 carries the tag of the representation the client has
+						applyETag((status == SC_NOT_MODIFIED) && codedTags);
+						if (contentLength >= 0) {
+							super.setContentLength((int) contentLength);
+						}
+					}
+					return;
+				}
+				applyETag(false);
+				super.setContentLength(buffer.size());
+				buffer.writeTo(super.getOutputStream());
+				return;
+			}
+
+			if (compressing) {
+				out.close();
+				if (deflater != null) {
+					deflater.end();
+				}
+			}
+		}
+
+		private boolean interceptHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				this.contentLength = (value == null) ? -1 : Long.parseLong(value);
+				return true;
+			}
+			if (HttpHeaders.ETAG.equalsIgnoreCase(name) && (out == null)) {
+				// held back until it's known whether the body is compressed
+				this.etag = value;
+				return true;
+			}
+			if (HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(name)) {
+				this.cacheControl = value;
+			} else if (HttpHeaders.SET_COOKIE.equalsIgnoreCase(name)) {
+				this.cookies = true;
+			} else if (HttpHeaders.VARY.equalsIgnoreCase(name)) {
+				this.varies = true;
+			}
+			return false;
+		}
+
+		private void write(byte[] b, int off, int len) throws IOException {
+			if (out == null) {
+				if (bypassed || ((buffer.size() + len) <= minSize)) {
+					buffer.write(b, off, len);
+					return;
+				}
+				start();
+			}
+			out.write(b, off, len);
+		}
+
+		private void start() throws IOException {
+			final OutputStream raw = super.getOutputStream();
+			if (!isCompressible(getContentType()) || (containsHeader(HttpHeaders.CONTENT_ENCODING))
+					|| !hasCompressibleStatus(status)) {
+				applyETag(false);
+				if (contentLength >= 0) {
+					super.setContentLength((int) contentLength);
+				}
+				this.out = raw;
+			} else {
+				super.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+				applyETag(true);
+				OutputStream sink = raw;
+				if (cacheable && (status == SC_OK) && !cookies && !varies && isShareable(cacheControl)) {
+					this.cachedBody = new ByteArrayOutputStream();
+					sink = new OutputStream() {
+						@Override
+						public void write(int b) throws IOException {
+							write(new byte[] { (byte) b }, 0, 1);
+						}
+
+						@Override
+						public void write(byte[] b, int off, int len) throws IOException {
+							raw.write(b, off, len);
+							if (cachedBody != null) {
+								cachedBody.write(b, off, len);
+								if (cachedBody.size() > MAX_CACHED_BODY) {
+									cachedBody = null;
+								}
+							}
+						}
+
+						@Override
+						public void flush() throws IOException {
+							raw.flush();
+						}
+
+						@Override
+						public void close() throws IOException {
+							raw.close();
+						}
+					};
+				}
+				if (GZIP.equals(encoding)) {
+					this.out = new GZIPOutputStream(sink, BUFFER_SIZE);
+				} else {
+					this.deflater = new Deflater();
+					this.out = new DeflaterOutputStream(sink, deflater, BUFFER_SIZE);
+				}
+				this.compressing = true;
+			}
+			buffer.writeTo(out);
+			buffer.reset();
+		}
+
+		private static boolean hasCompressibleStatus(int status) {
+			if ((status == SC_NO_CONTENT) || (status == SC_PARTIAL_CONTENT)) {
+				return false;
+			}
+			return ((status >= 200) && (status < 300)) || (status >= 400);
+		}
+
+		private void applyETag(boolean compressed) {
+			if (etag != null) {
+				super.setHeader(HttpHeaders.ETAG, compressed ? withCoding(etag, encoding) : etag);
+			}
+		}
+
+		private static String withCoding(String etag, String encoding) {
+			if (etag.endsWith("\"")) {
+				return etag.substring(0, etag.length() - 1) + '-' + encoding + '"';
+			}
+			return etag + '-' + encoding;
+		}
+
+		private static boolean isShareable(String cacheControl) {
+			if (cacheControl == null) {
+				return false;
+			}
+			final String directives = cacheControl.toLowerCase();
+			return directives.contains("public") && directives.contains("immutable")
+					&& !directives.contains("private") && !directives.contains("no-store");
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.Immutable;
+
+import org.eclipse.jetty.server.AbstractConnector;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * Tunes a Jetty {@link Connector} using values from the application's
+ * properties file:
+ * <dl>
+ * 	<dt>{@code shore.connector.acceptors}</dt>
+ * 	<dd>The number of acceptor threads. For a {@link SelectChannelConnector},
+ * 	this is also the number of selector sets the connections are spread
+ * 	across.</dd>
+ * 	<dt>{@code shore.connector.accept_queue_size}</dt>
+ * 	<dd>The depth of the socket's accept queue.</dd>
+ * 	<dt>{@code shore.connector.max_idle_time}</dt>
+ * 	<dd>The number of milliseconds a connection may be idle before it's
+ * 	closed.</dd>
+ * 	<dt>{@code shore.connector.low_resources_connections}</dt>
+ * 	<dd>The number of open connections above which a
+ * 	{@link SelectChannelConnector} considers itself low on resources.</dd>
+ * 	<dt>{@code shore.connector.low_resources_max_idle_time}</dt>
+ * 	<dd>The number of milliseconds a connection may be idle while the
+ * 	connector is low on resources.</dd>
+ * </dl>
+ * Settings which aren't present are left at Jetty's defaults.
+ *
+ * @author coda
+ *
+ */
+@Immutable
+public class ConnectorSettings {
+	public static final String ACCEPTORS = "shore.connector.acceptors";
+	public static final String ACCEPT_QUEUE_SIZE = "shore.connector.accept_queue_size";
+	public static final String MAX_IDLE_TIME = "shore.connector.max_idle_time";
+	public static final String LOW_RESOURCES_CONNECTIONS = "shore.connector.low_resources_connections";
+	public static final String LOW_RESOURCES_MAX_IDLE_TIME = "shore.connector.low_resources_max_idle_time";
+	private final TypedProperties properties;
+
+	/**
+	 * Creates a new {@link ConnectorSettings}.
+	 *
+	 * @param properties the application's properties
+	 */
+	public ConnectorSettings(TypedProperties properties) {
+		this.properties = checkNotNull(properties);
+	}
+
+	/**
+	 * Applies the settings to {@code connector}. Settings which don't apply
+	 * to the connector's type are ignored.
+	 *
+	 * @param connector a Jetty connector
+	 * @return {@code connector}
+	 */
+	public Connector applyTo(Connector connector) {
+		checkNotNull(connector);
+
+		if (properties.contains(MAX_IDLE_TIME)) {
+			connector.setMaxIdleTime(properties.getInt(MAX_IDLE_TIME, 0));
+		}
+
+		if (connector instanceof AbstractConnector) {
+			final AbstractConnector abstractConnector = (AbstractConnector) connector;
+			if (properties.contains(ACCEPTORS)) {
+				abstractConnector.setAcceptors(properties.getInt(ACCEPTORS, 0));
+			}
+
+			if (properties.contains(ACCEPT_QUEUE_SIZE)) {
+				abstractConnector.setAcceptQueueSize(properties.getInt(ACCEPT_QUEUE_SIZE, 0));
+			}
+		}
+
+		if (connector instanceof SelectChannelConnector) {
+			final SelectChannelConnector nioConnector = (SelectChannelConnector) connector;
+			if (properties.contains(LOW_RESOURCES_CONNECTIONS)) {
+				nioConnector.setLowResourcesConnections(properties.getInt(LOW_RESOURCES_CONNECTIONS, 0));
+			}
+
+			if (properties.contains(LOW_RESOURCES_MAX_IDLE_TIME)) {
+				nioConnector.setLowResourcesMaxIdleTime(properties.getInt(LOW_RESOURCES_MAX_IDLE_TIME, 0));
+			}
+		}
+
+		return connector;
+	}
+}
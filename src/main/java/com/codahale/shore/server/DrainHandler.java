@@ -0,0 +1,117 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import com.codahale.shore.util.PathMatcher;
+
+/**
+ * A handler which counts the requests in flight so the server can be
+ * drained before it's stopped. While draining, requests for the health
+ * check are answered with {@code 503 Service Unavailable}, so load balancers
+ * stop sending traffic, and every other response closes its connection.
+ *
+ * @author coda
+ * @see GracefulShutdown
+ */
+@ThreadSafe
+public class DrainHandler extends HandlerWrapper {
+	private final PathMatcher healthChecks;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final Object idle = new Object();
+	private volatile boolean draining;
+
+	/**
+	 * Creates a new {@link DrainHandler}.
+	 *
+	 * @param healthChecks the paths of the application's health checks
+	 */
+	public DrainHandler(PathMatcher healthChecks) {
+		this.healthChecks = checkNotNull(healthChecks);
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request,
+			HttpServletResponse response) throws IOException, ServletException {
+		inFlight.incrementAndGet();
+		try {
+			if (draining) {
+				if (healthChecks.matches(target)) {
+					baseRequest.setHandled(true);
+					response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+					response.setHeader(HttpHeaders.CONNECTION, "close");
+					response.setContentLength(0);
+					return;
+				}
+				response.setHeader(HttpHeaders.CONNECTION, "close");
+			}
+
+			super.handle(target, baseRequest, request, response);
+		} finally {
+			if ((inFlight.decrementAndGet() == 0) && draining) {
+				synchronized (idle) {
+					idle.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts failing health checks and closing connections after each
+	 * response.
+	 */
+	public void drain() {
+		this.draining = true;
+	}
+
+	/**
+	 * Returns {@code true} if the server is being drained.
+	 */
+	public boolean isDraining() {
+		return draining;
+	}
+
+	/**
+	 * Returns the number of requests being handled.
+	 */
+	public int getRequestsInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Waits for the requests in flight to finish.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of {@code timeout}
+	 * @return {@code true} if all requests finished, {@code false} if some
+	 *         were still in flight when the timeout elapsed
+	 * @throws InterruptedException if the thread was interrupted while
+	 *             waiting
+	 */
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (idle) {
+			while (inFlight.get() > 0) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				idle.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+			}
+		}
+		return true;
+	}
+}
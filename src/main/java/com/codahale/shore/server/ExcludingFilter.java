@@ -0,0 +1,77 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.util.PathMatcher;
+
+/**
+ * A servlet filter which passes requests to another filter unless their paths
+ * match a {@link PathMatcher}, in which case the other filter is skipped.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class ExcludingFilter implements Filter {
+	private final Filter filter;
+	private final PathMatcher excludedPaths;
+	
+	/**
+	 * Creates a new {@link ExcludingFilter}.
+	 * 
+	 * @param filter the filter to apply to requests which aren't excluded
+	 * @param excludedPaths the paths of requests to exclude
+	 */
+	public ExcludingFilter(Filter filter, PathMatcher excludedPaths) {
+		this.filter = checkNotNull(filter);
+		this.excludedPaths = checkNotNull(excludedPaths);
+	}
+	
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		filter.init(filterConfig);
+	}
+	
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response,
+			FilterChain chain) throws IOException, ServletException {
+		if ((request instanceof HttpServletRequest) && excludedPaths.matches(getPath((HttpServletRequest) request))) {
+			chain.doFilter(request, response);
+		} else {
+			filter.doFilter(request, response, chain);
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		filter.destroy();
+	}
+	
+	/**
+	 * Returns the filter requests are passed to.
+	 */
+	public Filter getFilter() {
+		return filter;
+	}
+	
+	private String getPath(HttpServletRequest request) {
+		final String servletPath = request.getServletPath();
+		final String pathInfo = request.getPathInfo();
+		if (pathInfo == null) {
+			return servletPath;
+		}
+		return (servletPath == null) ? pathInfo : servletPath + pathInfo;
+	}
+}
@@ -0,0 +1,61 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConnection;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.RequestLogHandler;
+
+import com.codahale.shore.util.PathMatcher;
+
+/**
+ * A {@link RequestLogHandler} which doesn't log requests for a set of
+ * ignored paths, or requests which came in through a {@link LocalConnector}
+ * (i.e., warm-up requests). The check happens before the request log is
+ * invoked, so ignored requests aren't formatted or buffered at all.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class FilteringRequestLogHandler extends RequestLogHandler {
+	private final PathMatcher ignoredPaths;
+	
+	/**
+	 * Creates a new {@link FilteringRequestLogHandler}.
+	 * 
+	 * @param ignoredPaths the paths of requests which shouldn't be logged
+	 */
+	public FilteringRequestLogHandler(PathMatcher ignoredPaths) {
+		this.ignoredPaths = checkNotNull(ignoredPaths);
+	}
+	
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request,
+			HttpServletResponse response) throws IOException, ServletException {
+		if (ignoredPaths.matches(target) || isLocal(baseRequest)) {
+			final Handler handler = getHandler();
+			if (handler != null) {
+				handler.handle(target, baseRequest, request, response);
+			}
+			return;
+		}
+		
+		super.handle(target, baseRequest, request, response);
+	}
+	
+	private boolean isLocal(Request baseRequest) {
+		final HttpConnection connection = baseRequest.getConnection();
+		return (connection != null) && (connection.getConnector() instanceof LocalConnector);
+	}
+}
@@ -0,0 +1,128 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+
+import com.codahale.shore.util.TypedProperties;
+
+/**
+ * Drains a server before stopping it, so requests in flight aren't cut off
+ * and load balancers have time to stop sending it traffic:
+ * <ol>
+ * 	<li>Health checks start failing, and the server keeps handling requests
+ * 	for {@code shore.drain.delay} milliseconds (default: {@code 5000}).</li>
+ * 	<li>The connectors stop accepting connections.</li>
+ * 	<li>The requests in flight are given up to {@code shore.drain.timeout}
+ * 	milliseconds (default: {@code 30000}) to finish.</li>
+ * 	<li>The server is stopped, and the {@link SessionFactory} is closed,
+ * 	which closes the connection pool.</li>
+ * </ol>
+ * The health check paths are read from {@code shore.drain.health_check}
+ * (default: {@code /health}), as a comma-separated list of
+ * {@link com.codahale.shore.util.PathMatcher} specs.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class GracefulShutdown implements Runnable {
+	public static final String HEALTH_CHECK_PROPERTY = "shore.drain.health_check";
+	public static final String DELAY_PROPERTY = "shore.drain.delay";
+	public static final String TIMEOUT_PROPERTY = "shore.drain.timeout";
+	public static final String DEFAULT_HEALTH_CHECK = "/health";
+	private static final Logger LOGGER = Logger.getLogger(GracefulShutdown.class.getCanonicalName());
+	private final Server server;
+	private final DrainHandler handler;
+	private final SessionFactory sessionFactory;
+	private final long delay;
+	private final long timeout;
+	private final List<LifeCycle> dependents = new CopyOnWriteArrayList<LifeCycle>();
+
+	/**
+	 * Creates a new {@link GracefulShutdown}.
+	 *
+	 * @param server the server to stop
+	 * @param handler the server's outermost handler
+	 * @param sessionFactory the application's session factory
+	 * @param properties the application's properties
+	 */
+	public GracefulShutdown(Server server, DrainHandler handler, SessionFactory sessionFactory,
+			TypedProperties properties) {
+		this.server = checkNotNull(server);
+		this.handler = checkNotNull(handler);
+		this.sessionFactory = checkNotNull(sessionFactory);
+		this.delay = checkNotNull(properties).getLong(DELAY_PROPERTY, 5000);
+		this.timeout = properties.getLong(TIMEOUT_PROPERTY, 30000);
+	}
+
+	/**
+	 * Stops {@code lifeCycle} once the server has been drained and stopped
+	 * (e.g., an admin server, which should report the drain).
+	 *
+	 * @param lifeCycle a component to stop after the server
+	 */
+	public void alsoStop(LifeCycle lifeCycle) {
+		dependents.add(checkNotNull(lifeCycle));
+	}
+
+	@Override
+	public void run() {
+		try {
+			LOGGER.info("Draining: failing health checks for " + delay + "ms");
+			handler.drain();
+			Thread.sleep(delay);
+
+			LOGGER.info("Draining: closing connectors");
+			for (Connector connector : server.getConnectors()) {
+				connector.close();
+			}
+
+			LOGGER.info("Draining: waiting up to " + timeout + "ms for "
+					+ handler.getRequestsInFlight() + " requests to finish");
+			if (!handler.awaitIdle(timeout, TimeUnit.MILLISECONDS)) {
+				LOGGER.warning("Stopping with " + handler.getRequestsInFlight() + " requests in flight");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.warning("Interrupted while draining; stopping now");
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Error while draining; stopping now", e);
+		}
+
+		try {
+			server.stop();
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Error stopping the server", e);
+		}
+
+		for (LifeCycle dependent : dependents) {
+			try {
+				dependent.stop();
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Error stopping " + dependent, e);
+			}
+		}
+
+		try {
+			if (!sessionFactory.isClosed()) {
+				sessionFactory.close();
+			}
+		} catch (HibernateException e) {
+			LOGGER.log(Level.WARNING, "Error closing the session factory", e);
+		}
+		LOGGER.info("Stopped");
+	}
+}
@@ -0,0 +1,107 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * A {@link QueuedThreadPool} with a bounded job queue which keeps track of
+ * how busy it is and how often it turns work away.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class InstrumentedThreadPool extends QueuedThreadPool {
+	private final BlockingQueue<Runnable> queue;
+	private final AtomicLong rejections = new AtomicLong();
+	
+	/**
+	 * Creates a new {@link InstrumentedThreadPool}.
+	 * 
+	 * @param minThreads the minimum number of worker threads
+	 * @param maxThreads the maximum number of worker threads
+	 * @param maxQueued the maximum number of jobs waiting for a thread
+	 */
+	public InstrumentedThreadPool(int minThreads, int maxThreads, int maxQueued) {
+		this(new ArrayBlockingQueue<Runnable>(maxQueued), minThreads, maxThreads);
+	}
+	
+	private InstrumentedThreadPool(BlockingQueue<Runnable> queue, int minThreads, int maxThreads) {
+		super(queue);
+		checkArgument(minThreads > 0, "minThreads must be positive");
+		checkArgument(maxThreads >= minThreads, "maxThreads must be at least minThreads");
+		this.queue = queue;
+		setMaxThreads(maxThreads);
+		setMinThreads(minThreads);
+	}
+	
+	@Override
+	public boolean dispatch(Runnable job) {
+		final boolean dispatched = super.dispatch(job);
+		if (!dispatched) {
+			rejections.incrementAndGet();
+		}
+		return dispatched;
+	}
+	
+	/**
+	 * Returns the number of threads currently running a job.
+	 * 
+	 * @return the number of busy threads
+	 */
+	public int getActiveThreads() {
+		return Math.max(0, getThreads() - getIdleThreads());
+	}
+	
+	/**
+	 * Returns the number of jobs waiting for a thread.
+	 * 
+	 * @return the depth of the job queue
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+	
+	/**
+	 * Returns the maximum number of jobs which can wait for a thread.
+	 * 
+	 * @return the capacity of the job queue
+	 */
+	public int getQueueCapacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+	
+	/**
+	 * Returns {@code true} if the job queue is full, meaning new work will be
+	 * rejected.
+	 * 
+	 * @return whether or not the pool is saturated
+	 */
+	public boolean isSaturated() {
+		return queue.remainingCapacity() == 0;
+	}
+	
+	/**
+	 * Returns the number of jobs and requests which have been rejected
+	 * because the pool was saturated.
+	 * 
+	 * @return the number of rejections
+	 */
+	public long getRejections() {
+		return rejections.get();
+	}
+	
+	/**
+	 * Records a request which was rejected because the pool was saturated.
+	 */
+	public void markRejected() {
+		rejections.incrementAndGet();
+	}
+}
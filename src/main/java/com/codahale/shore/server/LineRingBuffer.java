@@ -0,0 +1,160 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A bounded, lock-free ring of reusable line buffers with many producers and
+ * a single consumer.
+ * <p>
+ * A producer {@linkplain #claim() claims} a slot, formats its line directly
+ * into the slot's {@link StringBuilder}, then {@linkplain #publish(long)
+ * publishes} it. The consumer {@linkplain #drain(Writer, int) drains}
+ * published lines in order and hands their slots back to the producers. The
+ * buffers are allocated once, up front, so a steady stream of lines doesn't
+ * allocate.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class LineRingBuffer {
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	private final int mask;
+	private final StringBuilder[] lines;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final char[] scratch = new char[1024];
+	private volatile long tail = 0;
+	
+	/**
+	 * Creates a new {@link LineRingBuffer}.
+	 * 
+	 * @param capacity the number of lines the buffer can hold; must be a
+	 *            power of two
+	 * @param lineLength the initial size of each line buffer
+	 */
+	public LineRingBuffer(int capacity, int lineLength) {
+		checkArgument((capacity > 0) && (Integer.bitCount(capacity) == 1), "capacity must be a power of two");
+		this.mask = capacity - 1;
+		this.lines = new StringBuilder[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			lines[i] = new StringBuilder(lineLength);
+			sequences.set(i, i);
+		}
+	}
+	
+	/**
+	 * Claims the next free slot. The caller must write its line to
+	 * {@link #get(long)} and then call {@link #publish(long)}, even if
+	 * formatting the line fails.
+	 * 
+	 * @return the claimed position, or {@code -1} if the buffer is full
+	 */
+	public long claim() {
+		while (true) {
+			final long position = head.get();
+			final long difference = sequences.get(index(position)) - position;
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					lines[index(position)].setLength(0);
+					return position;
+				}
+			} else if (difference < 0) {
+				return -1;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the line buffer for a claimed position.
+	 * 
+	 * @param position a position returned by {@link #claim()}
+	 * @return the slot's line buffer
+	 */
+	public StringBuilder get(long position) {
+		return lines[index(position)];
+	}
+	
+	/**
+	 * Makes a claimed position's line visible to the consumer.
+	 * 
+	 * @param position a position returned by {@link #claim()}
+	 */
+	public void publish(long position) {
+		sequences.lazySet(index(position), position + 1);
+	}
+	
+	/**
+	 * Writes up to {@code maxLines} published lines to {@code writer}, each
+	 * followed by a line separator, and frees their slots. Empty lines are
+	 * skipped. Must only be called by a single consumer thread.
+	 * 
+	 * @param writer the destination for the lines
+	 * @param maxLines the maximum number of lines to write
+	 * @return the number of slots drained
+	 * @throws IOException if the lines can't be written
+	 */
+	public int drain(Writer writer, int maxLines) throws IOException {
+		long position = tail;
+		int drained = 0;
+		try {
+			while (drained < maxLines) {
+				final int index = index(position);
+				if (sequences.get(index) != (position + 1)) {
+					break;
+				}
+				
+				final StringBuilder line = lines[index];
+				if (line.length() > 0) {
+					write(writer, line);
+					writer.write(LINE_SEPARATOR);
+				}
+				sequences.lazySet(index, position + lines.length);
+				position++;
+				drained++;
+			}
+		} finally {
+			tail = position;
+		}
+		return drained;
+	}
+	
+	/**
+	 * Returns the number of claimed slots which haven't been drained.
+	 * 
+	 * @return the number of pending lines
+	 */
+	public int size() {
+		return (int) Math.max(0, head.get() - tail);
+	}
+	
+	/**
+	 * Returns the number of lines the buffer can hold.
+	 * 
+	 * @return the buffer's capacity
+	 */
+	public int capacity() {
+		return lines.length;
+	}
+	
+	private void write(Writer writer, StringBuilder line) throws IOException {
+		final int length = line.length();
+		for (int offset = 0; offset < length; offset += scratch.length) {
+			final int count = Math.min(scratch.length, length - offset);
+			line.getChars(offset, offset + count, scratch, 0);
+			writer.write(scratch, 0, count);
+		}
+	}
+	
+	private int index(long position) {
+		return (int) (position & mask);
+	}
+}
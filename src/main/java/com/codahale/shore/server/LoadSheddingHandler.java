@@ -0,0 +1,50 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+/**
+ * A handler which responds with {@code 503 Service Unavailable} without
+ * invoking the wrapped handler while an {@link InstrumentedThreadPool} is
+ * saturated, freeing the worker thread as quickly as possible.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class LoadSheddingHandler extends HandlerWrapper {
+	private final InstrumentedThreadPool threadPool;
+	
+	/**
+	 * Creates a new {@link LoadSheddingHandler}.
+	 * 
+	 * @param threadPool the server's thread pool
+	 */
+	public LoadSheddingHandler(InstrumentedThreadPool threadPool) {
+		this.threadPool = checkNotNull(threadPool);
+	}
+	
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request,
+			HttpServletResponse response) throws IOException, ServletException {
+		if (threadPool.isSaturated()) {
+			threadPool.markRejected();
+			baseRequest.setHandled(true);
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			response.setContentLength(0);
+			return;
+		}
+		
+		super.handle(target, baseRequest, request, response);
+	}
+}
@@ -0,0 +1,360 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import com.codahale.shore.hibernate.EntityChange;
+import com.codahale.shore.hibernate.EntityChangeListener;
+import com.codahale.shore.hibernate.EntityChanges;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A bounded, in-memory cache of rendered {@code GET} responses, evicting the
+ * least-recently used entries once it's full and expired entries when
+ * they're next looked up.
+ * <p>
+ * It's bound for injection so that resources can invalidate the responses
+ * they've changed, and it subscribes to {@link EntityChanges}: when an entity
+ * is updated or deleted, every response which loaded it is evicted, and when
+ * one is inserted, every response which loaded an entity of its class is
+ * evicted. (A response which loaded no entities of that class at all, like
+ * an empty list, only expires.)
+ * <p>
+ * Responses are rendered outside the cache's lock, so a change can be
+ * published while a response which depends on it is being rendered. To keep
+ * that response from being cached, callers take a {@link #getGeneration()}
+ * stamp before rendering and pass it to {@link #put(String, Entry, long)},
+ * which refuses entries with dependencies changed since the stamp.
+ *
+ * @author coda
+ * @see ResponseCacheFilter
+ */
+@ThreadSafe
+public class ResponseCache implements EntityChangeListener {
+	public static final String SIZE_PROPERTY = "shore.response_cache.size";
+	public static final int DEFAULT_SIZE = 1000;
+	private static final int MAX_CHANGES = 10000;
+
+	/**
+	 * A cached response.
+	 */
+	@Immutable
+	public static class Entry {
+		private final String contentType;
+		private final String cacheControl;
+		private final String etag;
+		private final long lastModified;
+		private final long expiresAt;
+		private final byte[] body;
+		private final Set<String> entities;
+
+		/**
+		 * Creates a new {@link Entry}.
+		 *
+		 * @param contentType the response's content type
+		 * @param cacheControl the response's {@code Cache-Control} header, or
+		 *            {@code null}
+		 * @param etag the response's entity tag
+		 * @param lastModified when the response was last modified, in
+		 *            milliseconds since the epoch
+		 * @param expiresAt when the entry expires, in milliseconds since the
+		 *            epoch
+		 * @param body the response's body
+		 * @param entities the classes and keys of the entities loaded to
+		 *            render the response
+		 * @see EntityChanges#stopRecordingLoads()
+		 */
+		public Entry(String contentType, String cacheControl, String etag, long lastModified,
+				long expiresAt, byte[] body, Set<String> entities) {
+			this.contentType = contentType;
+			this.cacheControl = cacheControl;
+			this.etag = checkNotNull(etag);
+			this.lastModified = lastModified;
+			this.expiresAt = expiresAt;
+			this.body = checkNotNull(body);
+			this.entities = ImmutableSet.copyOf(entities);
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getCacheControl() {
+			return cacheControl;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		/**
+		 * Returns the response's body. Callers must not modify it.
+		 */
+		public byte[] getBody() {
+			return body;
+		}
+
+		/**
+		 * Returns the classes and keys of the entities loaded to render the
+		 * response.
+		 */
+		public Set<String> getEntities() {
+			return entities;
+		}
+
+		/**
+		 * Returns {@code true} if the entry has expired at {@code now}.
+		 *
+		 * @param now the current time, in milliseconds since the epoch
+		 */
+		public boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+	}
+
+	private final LinkedHashMap<String, Entry> entries;
+	private final Map<String, Set<String>> dependents = Maps.newHashMap();
+	private final LinkedHashMap<String, Long> changes;
+	private long generation = 0;
+	private long forgotten = 0;
+
+	/**
+	 * Creates a new {@link ResponseCache}.
+	 *
+	 * @param maxEntries the maximum number of responses to keep
+	 */
+	public ResponseCache(final int maxEntries) {
+		checkArgument(maxEntries > 0, "maxEntries must be positive");
+		this.entries = new LinkedHashMap<String, ResponseCache.Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = -2926181340394632245L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+				if (size() > maxEntries) {
+					unindex(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		this.changes = new LinkedHashMap<String, Long>() {
+			private static final long serialVersionUID = 5310489409458223342L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				if (size() > MAX_CHANGES) {
+					forgotten = eldest.getValue();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the key for a request: its path, query string, and
+	 * {@code Accept} header.
+	 *
+	 * @param path the request path
+	 * @param query the query string, or {@code null}
+	 * @param accept the {@code Accept} header, or {@code null}
+	 */
+	public static String key(String path, String query, String accept) {
+		final StringBuilder key = new StringBuilder(path);
+		if (query != null) {
+			key.append('?').append(query);
+		}
+		key.append(' ');
+		if (accept != null) {
+			key.append(accept);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the unexpired response cached under a key, or {@code null}.
+	 *
+	 * @param key the response's key
+	 * @return the cached response, or {@code null}
+	 */
+	public Entry get(String key) {
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			if ((entry != null) && entry.isExpired(System.currentTimeMillis())) {
+				entries.remove(key);
+				unindex(key, entry);
+				return null;
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Returns the current generation of changes, to be passed to
+	 * {@link #put(String, Entry, long)} once the response has been rendered.
+	 */
+	public long getGeneration() {
+		synchronized (entries) {
+			return generation;
+		}
+	}
+
+	/**
+	 * Caches a response.
+	 *
+	 * @param key the response's key
+	 * @param entry the response
+	 */
+	public void put(String key, Entry entry) {
+		checkNotNull(key);
+		checkNotNull(entry);
+		synchronized (entries) {
+			store(key, entry);
+		}
+	}
+
+	/**
+	 * Caches a response unless an entity it depends on has changed since it
+	 * started being rendered.
+	 *
+	 * @param key the response's key
+	 * @param entry the response
+	 * @param generation the value of {@link #getGeneration()} before the
+	 *            response started being rendered
+	 * @return {@code true} if the response was cached
+	 */
+	public boolean put(String key, Entry entry, long generation) {
+		checkNotNull(key);
+		checkNotNull(entry);
+		synchronized (entries) {
+			if (generation < forgotten) {
+				// changes since the stamp were forgotten, so it may be stale
+				return false;
+			}
+			for (String dependency : entry.getEntities()) {
+				final Long changed = changes.get(dependency);
+				if ((changed != null) && (changed > generation)) {
+					return false;
+				}
+			}
+			store(key, entry);
+			return true;
+		}
+	}
+
+	/**
+	 * Removes every response cached for a path, whatever its query string
+	 * or {@code Accept} header.
+	 *
+	 * @param path the request path (e.g., {@code /widgets/hoople})
+	 */
+	public void invalidate(String path) {
+		checkNotNull(path);
+		synchronized (entries) {
+			final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				final Map.Entry<String, Entry> cached = iterator.next();
+				final String key = cached.getKey();
+				if (key.startsWith(path) && (key.length() > path.length())) {
+					final char c = key.charAt(path.length());
+					if ((c == '?') || (c == ' ')) {
+						unindex(key, cached.getValue());
+						iterator.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every response which depends on a changed entity.
+	 *
+	 * @param change a committed change
+	 */
+	@Override
+	public void onChange(EntityChange change) {
+		final String dependency = (change.getType() == EntityChange.Type.INSERT)
+				? change.getEntityClass().getName() : change.getKey();
+		synchronized (entries) {
+			generation++;
+			changes.remove(dependency);
+			changes.put(dependency, generation);
+
+			final Set<String> keys = dependents.get(dependency);
+			if (keys != null) {
+				for (String key : ImmutableSet.copyOf(keys)) {
+					unindex(key, entries.remove(key));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every cached response.
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+			dependents.clear();
+			// responses being rendered may predate this
+			generation++;
+			forgotten = generation;
+		}
+	}
+
+	/**
+	 * Returns the number of cached responses, some of which may have expired.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private void store(String key, Entry entry) {
+		final Entry previous = entries.put(key, entry);
+		if (previous != null) {
+			unindex(key, previous);
+		}
+		for (String dependency : entry.getEntities()) {
+			Set<String> keys = dependents.get(dependency);
+			if (keys == null) {
+				keys = Sets.newHashSet();
+				dependents.put(dependency, keys);
+			}
+			keys.add(key);
+		}
+	}
+
+	private void unindex(String key, Entry entry) {
+		if (entry == null) {
+			return;
+		}
+		for (String dependency : entry.getEntities()) {
+			final Set<String> keys = dependents.get(dependency);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					dependents.remove(dependency);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.http.HttpHeaders;
+
+import com.codahale.shore.hibernate.EntityChanges;
+import com.codahale.shore.metrics.Meter;
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * A servlet filter which caches {@code GET} responses for the paths added
+ * with {@link com.codahale.shore.AbstractConfiguration#cacheResponsesFor(String, long, java.util.concurrent.TimeUnit)},
+ * ahead of the Hibernate session filters, so a cache hit never opens a
+ * session.
+ * <p>
+ * Responses are keyed by path, query string, and {@code Accept} header. Only
+ * {@code 200 OK} responses without cookies or {@code private} or
+ * {@code no-store} cache directives are cached, and requests with an
+ * {@code Authorization} header always go to the application. Requests with
+ * {@code Cache-Control: no-cache} (or {@code Pragma: no-cache}) aren't
+ * answered from the cache, but their responses replace the cached ones. Cached
+ * responses get a strong {@code ETag} (an MD5 digest of the body) and a
+ * {@code Last-Modified} date unless the application set them, and
+ * {@code If-None-Match} and {@code If-Modified-Since} requests are answered
+ * with {@code 304 Not Modified}.
+ * <p>
+ * The entities loaded while rendering a response are recorded, so that
+ * {@link ResponseCache} can evict it when they change. A response whose
+ * entities change while it's being rendered is sent but not cached.
+ * <p>
+ * Hits and misses are metered for each path spec as
+ * {@code com.codahale.shore.server.ResponseCacheFilter.<spec>.hits} and
+ * {@code .misses}.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class ResponseCacheFilter implements Filter {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static class Rule {
+		private final PathMatcher matcher;
+		private final long ttl;
+		private final Meter hits, misses;
+
+		public Rule(String spec, long ttl, MetricsRegistry metrics) {
+			this.matcher = new PathMatcher(ImmutableList.of(spec));
+			this.ttl = ttl;
+			this.hits = metrics.meter(ResponseCacheFilter.class.getName() + "." + spec + ".hits");
+			this.misses = metrics.meter(ResponseCacheFilter.class.getName() + "." + spec + ".misses");
+		}
+	}
+
+	private final ResponseCache cache;
+	private final List<Rule> rules;
+
+	/**
+	 * Creates a new {@link ResponseCacheFilter}.
+	 *
+	 * @param cache the cache to keep responses in
+	 * @param ttls the URI specs of cacheable paths and how long to cache their
+	 *            responses, in milliseconds
+	 * @param metrics the registry to record hits and misses in
+	 */
+	public ResponseCacheFilter(ResponseCache cache, Map<String, Long> ttls, MetricsRegistry metrics) {
+		this.cache = checkNotNull(cache);
+		final List<Rule> rules = Lists.newArrayList();
+		for (Entry<String, Long> ttl : ttls.entrySet()) {
+			rules.add(new Rule(ttl.getKey(), ttl.getValue(), checkNotNull(metrics)));
+		}
+		this.rules = ImmutableList.copyOf(rules);
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+
+	}
+
+	@Override
+	public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(req instanceof HttpServletRequest) || !(resp instanceof HttpServletResponse)) {
+			chain.doFilter(req, resp);
+			return;
+		}
+
+		final HttpServletRequest request = (HttpServletRequest) req;
+		final HttpServletResponse response = (HttpServletResponse) resp;
+		final Rule rule = "GET".equals(request.getMethod()) ? findRule(getPath(request)) : null;
+		if ((rule == null) || (request.getHeader(HttpHeaders.AUTHORIZATION) != null)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		final String key = ResponseCache.key(getPath(request), request.getQueryString(),
+			request.getHeader(HttpHeaders.ACCEPT));
+		final ResponseCache.Entry cached = isNoCache(request) ? null : cache.get(key);
+		if (cached != null) {
+			rule.hits.mark();
+			send(cached, request, response);
+			return;
+		}
+
+		rule.misses.mark();
+		final BufferingResponse buffering = new BufferingResponse(response);
+		final long generation = cache.getGeneration();
+		final Set<String> entities;
+		EntityChanges.startRecordingLoads();
+		try {
+			chain.doFilter(request, buffering);
+		} finally {
+			entities = EntityChanges.stopRecordingLoads();
+		}
+
+		if (isCacheable(buffering)) {
+			final byte[] body = buffering.getBody();
+			final long now = System.currentTimeMillis();
+			final String etag = buffering.getHeader(HttpHeaders.ETAG);
+			final long lastModified = buffering.getDateHeader(HttpHeaders.LAST_MODIFIED);
+			final ResponseCache.Entry entry = new ResponseCache.Entry(
+				buffering.getContentType(),
+				buffering.getHeader(HttpHeaders.CACHE_CONTROL),
+				(etag == null) ? computeETag(body) : etag,
+				(lastModified < 0) ? now : lastModified,
+				now + rule.ttl,
+				body,
+				entities
+			);
+			cache.put(key, entry, generation);
+			send(entry, request, response);
+		} else {
+			buffering.writeBody();
+		}
+	}
+
+	@Override
+	public void destroy() {
+
+	}
+
+	private boolean isCacheable(BufferingResponse response) {
+		if ((response.getStatus() != HttpServletResponse.SC_OK) || response.isBypassed()
+				|| response.hasCookies() || response.isCommitted()) {
+			return false;
+		}
+		final String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+		if (cacheControl == null) {
+			return true;
+		}
+		final String directives = cacheControl.toLowerCase();
+		return !directives.contains("no-store") && !directives.contains("private");
+	}
+
+	private Rule findRule(String path) {
+		for (Rule rule : rules) {
+			if (rule.matcher.matches(path)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	private void send(ResponseCache.Entry entry, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		response.setHeader(HttpHeaders.ETAG, entry.getETag());
+		response.setDateHeader(HttpHeaders.LAST_MODIFIED, entry.getLastModified());
+		if (entry.getCacheControl() != null) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL, entry.getCacheControl());
+		}
+
+		if (isNotModified(entry, request)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		if (entry.getContentType() != null) {
+			response.setContentType(entry.getContentType());
+		}
+		response.setContentLength(entry.getBody().length);
+		response.getOutputStream().write(entry.getBody());
+	}
+
+	private boolean isNotModified(ResponseCache.Entry entry, HttpServletRequest request) {
+		final String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			return matches(ifNoneMatch, entry.getETag());
+		}
+
+		final long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+		return (ifModifiedSince >= 0) && ((entry.getLastModified() / 1000) <= (ifModifiedSince / 1000));
+	}
+
+	/**
+	 * Returns {@code true} if a request asks not to be answered from a cache.
+	 *
+	 * @param request a request
+	 */
+	static boolean isNoCache(HttpServletRequest request) {
+		final String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+		if ((cacheControl != null) && cacheControl.toLowerCase().contains("no-cache")) {
+			return true;
+		}
+		final String pragma = request.getHeader(HttpHeaders.PRAGMA);
+		return (pragma != null) && pragma.toLowerCase().contains("no-cache");
+	}
+
+	/**
+	 * Returns {@code true} if an {@code If-None-Match} header matches an
+	 * entity tag, using the weak comparison.
+	 *
+	 * @param ifNoneMatch the value of the header, or {@code null}
+	 * @param etag the entity tag
+	 */
+	static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		final String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String tag : ifNoneMatch.split(",")) {
+			final String t = tag.trim();
+			if ("*".equals(t) || opaque.equals(t.startsWith("W/") ? t.substring(2) : t)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String computeETag(byte[] body) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+			final char[] chars = new char[(digest.length * 2) + 2];
+			chars[0] = '"';
+			for (int i = 0; i < digest.length; i++) {
+				chars[(i * 2) + 1] = HEX[(digest[i] >> 4) & 0xF];
+				chars[(i * 2) + 2] = HEX[digest[i] & 0xF];
+			}
+			chars[chars.length - 1] = '"';
+			return new String(chars);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String getPath(HttpServletRequest request) {
+		final String servletPath = request.getServletPath();
+		final String pathInfo = request.getPathInfo();
+		if (pathInfo == null) {
+			return servletPath;
+		}
+		return (servletPath == null) ? pathInfo : servletPath + pathInfo;
+	}
+}
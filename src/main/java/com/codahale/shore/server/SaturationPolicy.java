@@ -0,0 +1,21 @@
+package com.codahale.shore.server;
+
+/**
+ * What the server does with requests when its worker pool's job queue is
+ * full.
+ * 
+ * @author coda
+ *
+ */
+public enum SaturationPolicy {
+	/**
+	 * Keep processing requests as threads become available.
+	 */
+	QUEUE,
+	
+	/**
+	 * Immediately respond with {@code 503 Service Unavailable} instead of
+	 * running the application.
+	 */
+	REJECT
+}
@@ -0,0 +1,52 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import net.jcip.annotations.Immutable;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.params.ParamRejections;
+import com.google.inject.AbstractModule;
+
+/**
+ * Binds the server's own components so that resources can inject them.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class ServerModule extends AbstractModule {
+	private final ThreadPool threadPool;
+	private final MetricsRegistry metrics;
+	private final ResponseCache responseCache;
+	private final ParamRejections paramRejections;
+	
+	/**
+	 * Creates a new {@link ServerModule}.
+	 * 
+	 * @param threadPool the server's thread pool
+	 * @param metrics the application's metrics
+	 * @param responseCache the server's response cache
+	 * @param paramRejections the server's handler of invalid parameters
+	 */
+	public ServerModule(ThreadPool threadPool, MetricsRegistry metrics, ResponseCache responseCache,
+			ParamRejections paramRejections) {
+		this.threadPool = checkNotNull(threadPool);
+		this.metrics = checkNotNull(metrics);
+		this.responseCache = checkNotNull(responseCache);
+		this.paramRejections = checkNotNull(paramRejections);
+	}
+	
+	@Override
+	protected void configure() {
+		bind(ThreadPool.class).toInstance(threadPool);
+		bind(MetricsRegistry.class).toInstance(metrics);
+		bind(ResponseCache.class).toInstance(responseCache);
+		bind(ParamRejections.class).toInstance(paramRejections);
+		if (threadPool instanceof InstrumentedThreadPool) {
+			bind(InstrumentedThreadPool.class).toInstance((InstrumentedThreadPool) threadPool);
+		}
+	}
+}
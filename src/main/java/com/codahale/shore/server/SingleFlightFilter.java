@@ -0,0 +1,294 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.http.HttpHeaders;
+
+import com.codahale.shore.metrics.Meter;
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+/**
+ * A servlet filter which coalesces identical, concurrent {@code GET}
+ * requests for the paths added with
+ * {@link com.codahale.shore.AbstractConfiguration#coalesceRequestsFor(String, String...)}:
+ * the first request is handled by the application, and the rest wait for it
+ * and are sent a copy of its response, so a burst of requests for the same
+ * thing runs one set of queries instead of hundreds.
+ * <p>
+ * Requests are identical if they have the same path, query string,
+ * {@code Accept} header, and values for the headers listed for the path.
+ * Requests with an {@code Authorization} header aren't coalesced unless it's
+ * one of the listed headers, and conditional requests (those with an
+ * {@code If-None-Match} or {@code If-Modified-Since} header) are never
+ * coalesced, since their responses depend on what the client already has.
+ * Only {@code 200 OK} responses which don't set cookies are shared; the
+ * requests waiting on any other response are handled by the application
+ * instead.
+ * <p>
+ * Waiting requests hold their threads, so they only wait
+ * {@code shore.single_flight.timeout} milliseconds (default: {@code 1000})
+ * for the first request to finish. After that, one of them retries the
+ * request itself and the rest are sent a {@code 503 Service Unavailable},
+ * rather than piling onto a request which is already slow. Coalesced and
+ * timed out requests are metered for each path spec as
+ * {@code com.codahale.shore.server.SingleFlightFilter.<spec>.coalesced} and
+ * {@code com.codahale.shore.server.SingleFlightFilter.<spec>.timeouts}.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class SingleFlightFilter implements Filter {
+	public static final String TIMEOUT_PROPERTY = "shore.single_flight.timeout";
+	public static final long DEFAULT_TIMEOUT = 1000;
+
+	private static class Rule {
+		private final PathMatcher matcher;
+		private final List<String> headers;
+		private final Meter coalesced;
+		private final Meter timeouts;
+
+		public Rule(String spec, List<String> headers, MetricsRegistry metrics) {
+			this.matcher = new PathMatcher(ImmutableList.of(spec));
+			this.headers = ImmutableList.copyOf(headers);
+			this.coalesced = metrics.meter(SingleFlightFilter.class.getName() + "." + spec + ".coalesced");
+			this.timeouts = metrics.meter(SingleFlightFilter.class.getName() + "." + spec + ".timeouts");
+		}
+
+		public boolean includes(String header) {
+			for (String name : headers) {
+				if (name.equalsIgnoreCase(header)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	@Immutable
+	private static class SharedResponse {
+		private final int status;
+		private final String contentType;
+		private final List<BufferingResponse.Header> headers;
+		private final byte[] body;
+
+		public SharedResponse(BufferingResponse response) {
+			this.status = response.getStatus();
+			this.contentType = response.getContentType();
+			this.headers = response.getHeaders();
+			this.body = response.getBody();
+		}
+
+		public void replayTo(HttpServletResponse response) throws IOException {
+			response.setStatus(status);
+			if (contentType != null) {
+				response.setContentType(contentType);
+			}
+			for (BufferingResponse.Header header : headers) {
+				header.applyTo(response);
+			}
+			if (body.length > 0) {
+				response.setContentLength(body.length);
+				response.getOutputStream().write(body);
+			}
+		}
+	}
+
+	private static class Flight {
+		private final CountDownLatch landed = new CountDownLatch(1);
+		private final AtomicBoolean retried = new AtomicBoolean();
+		private volatile SharedResponse response;
+
+		public void land(SharedResponse response) {
+			this.response = response;
+			landed.countDown();
+		}
+
+		public SharedResponse await(long timeout) {
+			try {
+				if (landed.await(timeout, TimeUnit.MILLISECONDS)) {
+					return response;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}
+
+		public boolean hasLanded() {
+			return landed.getCount() == 0;
+		}
+
+		/**
+		 * Returns {@code true} for the first waiting request to give up on
+		 * this flight, which may then retry it.
+		 */
+		public boolean claimRetry() {
+			return retried.compareAndSet(false, true);
+		}
+	}
+
+	private final ConcurrentMap<String, Flight> flights = new MapMaker().makeMap();
+	private final List<Rule> rules;
+	private final long timeout;
+
+	/**
+	 * Creates a new {@link SingleFlightFilter}.
+	 *
+	 * @param paths the URI specs of paths to coalesce requests for, and the
+	 *            names of the headers which distinguish their requests
+	 * @param metrics the registry to record coalesced requests in
+	 * @param timeout how long a request waits for an identical one to
+	 *            finish, in milliseconds
+	 */
+	public SingleFlightFilter(Map<String, List<String>> paths, MetricsRegistry metrics, long timeout) {
+		checkNotNull(metrics);
+		final List<Rule> rules = Lists.newArrayList();
+		for (Entry<String, List<String>> path : paths.entrySet()) {
+			rules.add(new Rule(path.getKey(), path.getValue(), metrics));
+		}
+		this.rules = ImmutableList.copyOf(rules);
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+
+	}
+
+	@Override
+	public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+			throws IOException, ServletException {
+		if (!(req instanceof HttpServletRequest) || !(resp instanceof HttpServletResponse)) {
+			chain.doFilter(req, resp);
+			return;
+		}
+
+		final HttpServletRequest request = (HttpServletRequest) req;
+		final HttpServletResponse response = (HttpServletResponse) resp;
+		final Rule rule = "GET".equals(request.getMethod()) ? findRule(getPath(request)) : null;
+		if ((rule == null) || isConditional(request) || ((request.getHeader(HttpHeaders.AUTHORIZATION) != null)
+				&& !rule.includes(HttpHeaders.AUTHORIZATION))) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		final String key = buildKey(rule, request);
+		final Flight flight = new Flight();
+		final Flight leader = flights.putIfAbsent(key, flight);
+		if (leader != null) {
+			final SharedResponse shared = leader.await(timeout);
+			if (shared != null) {
+				rule.coalesced.mark();
+				shared.replayTo(response);
+			} else if (leader.hasLanded() || leader.claimRetry()) {
+				chain.doFilter(request, response);
+			} else {
+				rule.timeouts.mark();
+				response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				response.setContentLength(0);
+			}
+			return;
+		}
+
+		final BufferingResponse buffering = new BufferingResponse(response);
+		SharedResponse shared = null;
+		try {
+			chain.doFilter(request, buffering);
+			if ((buffering.getStatus() == HttpServletResponse.SC_OK) && !buffering.isBypassed()
+					&& !buffering.hasCookies() && !buffering.isCommitted()) {
+				shared = new SharedResponse(buffering);
+			}
+		} finally {
+			// removed first, so requests which arrive after this one has
+			// landed start a new flight instead of sharing a stale response
+			flights.remove(key, flight);
+			flight.land(shared);
+		}
+		buffering.writeBody();
+	}
+
+	@Override
+	public void destroy() {
+
+	}
+
+	/**
+	 * Returns the number of requests which are being handled on behalf of
+	 * others.
+	 */
+	public int getFlightsInProgress() {
+		return flights.size();
+	}
+
+	private String buildKey(Rule rule, HttpServletRequest request) {
+		final StringBuilder key = new StringBuilder(getPath(request));
+		final String query = request.getQueryString();
+		if (query != null) {
+			key.append('?').append(query);
+		}
+		if (!rule.includes(HttpHeaders.ACCEPT)) {
+			appendHeader(key, HttpHeaders.ACCEPT, request);
+		}
+		for (String header : rule.headers) {
+			appendHeader(key, header, request);
+		}
+		return key.toString();
+	}
+
+	private static void appendHeader(StringBuilder key, String header, HttpServletRequest request) {
+		key.append('\n').append(header).append(':');
+		final String value = request.getHeader(header);
+		if (value != null) {
+			key.append(value);
+		}
+	}
+
+	private static boolean isConditional(HttpServletRequest request) {
+		return (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null)
+				|| (request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null);
+	}
+
+	private Rule findRule(String path) {
+		for (Rule rule : rules) {
+			if (rule.matcher.matches(path)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	private static String getPath(HttpServletRequest request) {
+		final String servletPath = request.getServletPath();
+		final String pathInfo = request.getPathInfo();
+		if (pathInfo == null) {
+			return servletPath;
+		}
+		return (servletPath == null) ? pathInfo : servletPath + pathInfo;
+	}
+}
@@ -0,0 +1,163 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Runs the phases of a server's startup, some of them concurrently, and
+ * records how long each one took. The number of threads used for concurrent
+ * phases is read from {@code shore.startup.threads}; {@code 1} runs them one
+ * after another.
+ *
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class Startup {
+	public static final String THREADS_PROPERTY = "shore.startup.threads";
+	public static final int DEFAULT_THREADS = 3;
+	private final Logger logger;
+	private final ExecutorService executor;
+	private final Map<String, Long> timings = Maps.newLinkedHashMap();
+	private final long startedAt = System.nanoTime();
+
+	/**
+	 * Creates a new {@link Startup}.
+	 *
+	 * @param logger the logger to report timings to
+	 * @param threads the number of phases which may run at once
+	 */
+	public Startup(Logger logger, int threads) {
+		checkArgument(threads > 0, "threads must be positive");
+		this.logger = checkNotNull(logger);
+		final AtomicInteger count = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r, "shore-startup-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs a phase in the current thread.
+	 *
+	 * @param phase the phase's name
+	 * @param task the phase's work
+	 * @return the result of {@code task}
+	 * @throws RuntimeException if {@code task} throws an exception
+	 */
+	public <T> T run(String phase, Callable<T> task) {
+		checkNotNull(phase);
+		final long start = System.nanoTime();
+		try {
+			return task.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			synchronized (timings) {
+				timings.put(phase, elapsed);
+			}
+			logger.fine("Finished " + phase + " in " + elapsed + "ms");
+		}
+	}
+
+	/**
+	 * Runs a phase in the background.
+	 *
+	 * @param phase the phase's name
+	 * @param task the phase's work
+	 * @return the result of {@code task}, to be passed to {@link #await(Future)}
+	 */
+	public <T> Future<T> submit(final String phase, final Callable<T> task) {
+		return submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return run(phase, task);
+			}
+		});
+	}
+
+	/**
+	 * Runs several phases, one after another, in the background. The task
+	 * should time its phases with {@link #run(String, Callable)}.
+	 *
+	 * @param task the phases' work
+	 * @return the result of {@code task}, to be passed to {@link #await(Future)}
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(checkNotNull(task));
+	}
+
+	/**
+	 * Waits for a background phase to finish.
+	 *
+	 * @param future the result of {@link #submit(String, Callable)}
+	 * @return the phase's result
+	 * @throws RuntimeException if the phase failed or the wait was
+	 *             interrupted
+	 */
+	public <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the number of milliseconds each finished phase took, in the
+	 * order they finished.
+	 */
+	public Map<String, Long> getTimings() {
+		synchronized (timings) {
+			return ImmutableMap.copyOf(timings);
+		}
+	}
+
+	/**
+	 * Stops any unfinished phases and logs how long startup has taken,
+	 * broken down by phase.
+	 */
+	public void finish() {
+		executor.shutdownNow();
+		final StringBuilder builder = new StringBuilder("Startup took ");
+		builder.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)).append("ms (");
+		boolean first = true;
+		for (Entry<String, Long> timing : getTimings().entrySet()) {
+			if (!first) {
+				builder.append(", ");
+			}
+			builder.append(timing.getKey()).append(": ").append(timing.getValue()).append("ms");
+			first = false;
+		}
+		logger.info(builder.append(")").toString());
+	}
+}
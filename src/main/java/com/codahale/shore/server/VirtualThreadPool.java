@@ -0,0 +1,216 @@
+package com.codahale.shore.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * A Jetty {@link ThreadPool} which runs each job on a new virtual thread.
+ * Blocking JDBC calls made by a request park the virtual thread instead of
+ * tying up a platform thread, so the number of requests in flight is bounded
+ * by the connection pool rather than the thread pool.
+ * <p>
+ * Warp Persist binds each request's {@code Session} to a thread-local, as do
+ * its {@code @Transactional} interceptors; both work unchanged on virtual
+ * threads, and since every request gets a fresh thread nothing carries over
+ * from one request to the next.
+ * <p>
+ * A virtual thread which blocks while pinned to its carrier thread (inside a
+ * {@code synchronized} block before Java 24, or in a native frame) ties the
+ * carrier up. If pinning traces are enabled, the pool streams the JVM's
+ * {@code jdk.VirtualThreadPinned} Flight Recorder events while it's running
+ * and logs a warning, with a stack trace, for each request thread which was
+ * pinned for longer than the event's threshold (20ms by default). Unlike
+ * {@code -Djdk.tracePinnedThreads}, which was removed in Java 24, this works
+ * on every JVM with virtual threads.
+ * <p>
+ * Requires Java 21 or later.
+ * 
+ * @author coda
+ *
+ */
+@ThreadSafe
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+	private static final Logger LOGGER = Logger.getLogger(VirtualThreadPool.class.getCanonicalName());
+	private final ThreadFactory factory;
+	private final boolean tracePinning;
+	private final AtomicInteger activeThreads = new AtomicInteger();
+	private final Object lock = new Object();
+	private volatile Object pinningEvents;
+	
+	/**
+	 * Creates a new {@link VirtualThreadPool}.
+	 * 
+	 * @param tracePinning if {@code true}, log a stack trace whenever a
+	 *            request thread blocks while pinned
+	 * @throws IllegalStateException if the JVM doesn't support virtual threads
+	 */
+	public VirtualThreadPool(boolean tracePinning) throws IllegalStateException {
+		this.factory = buildFactory("shore-request-");
+		this.tracePinning = tracePinning;
+	}
+	
+	/**
+	 * Returns {@code true} if the JVM supports virtual threads.
+	 * 
+	 * @return whether or not virtual threads are available
+	 */
+	public static boolean isSupported() {
+		try {
+			buildFactory("shore-probe-");
+			return true;
+		} catch (IllegalStateException e) {
+			return false;
+		}
+	}
+	
+	@Override
+	public boolean dispatch(final Runnable job) {
+		if (!isRunning()) {
+			return false;
+		}
+		
+		final Thread thread = factory.newThread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					job.run();
+				} finally {
+					activeThreads.decrementAndGet();
+				}
+			}
+		});
+		activeThreads.incrementAndGet();
+		boolean started = false;
+		try {
+			thread.start();
+			started = true;
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Unable to start a request thread", e);
+		} finally {
+			if (!started) {
+				activeThreads.decrementAndGet();
+			}
+		}
+		return started;
+	}
+	
+	@Override
+	public void join() throws InterruptedException {
+		synchronized (lock) {
+			while (isStarting() || isRunning()) {
+				lock.wait();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of jobs currently running.
+	 */
+	@Override
+	public int getThreads() {
+		return activeThreads.get();
+	}
+	
+	/**
+	 * Returns zero, since virtual threads are never pooled.
+	 */
+	@Override
+	public int getIdleThreads() {
+		return 0;
+	}
+	
+	/**
+	 * Returns {@code false}, since a new virtual thread can always be
+	 * created.
+	 */
+	@Override
+	public boolean isLowOnThreads() {
+		return false;
+	}
+	
+	@Override
+	protected void doStart() throws Exception {
+		if (tracePinning) {
+			this.pinningEvents = startPinningEvents();
+		}
+	}
+	
+	@Override
+	protected void doStop() throws Exception {
+		final Object events = pinningEvents;
+		if (events != null) {
+			this.pinningEvents = null;
+			events.getClass().getMethod("close").invoke(events);
+		}
+		
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Starts a {@code jdk.jfr.consumer.RecordingStream} which logs
+	 * {@code jdk.VirtualThreadPinned} events, or returns {@code null} if the
+	 * JVM doesn't have Flight Recorder.
+	 */
+	private static Object startPinningEvents() {
+		try {
+			final Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+			final Class<?> settingsClass = Class.forName("jdk.jfr.EventSettings");
+			final Class<?> consumerClass = Class.forName("java.util.function.Consumer");
+			final Object stream = streamClass.getConstructor().newInstance();
+			final Object settings = streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+			settingsClass.getMethod("withStackTrace").invoke(settings);
+			final Object consumer = Proxy.newProxyInstance(
+				VirtualThreadPool.class.getClassLoader(),
+				new Class<?>[] { consumerClass },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("accept".equals(method.getName())) {
+							LOGGER.warning("A request thread blocked while pinned to its carrier thread: " + args[0]);
+							return null;
+						} else if ("equals".equals(method.getName())) {
+							return proxy == args[0];
+						} else if ("hashCode".equals(method.getName())) {
+							return System.identityHashCode(proxy);
+						}
+						return "pinned thread logger";
+					}
+				}
+			);
+			streamClass.getMethod("onEvent", String.class, consumerClass).invoke(stream, PINNED_EVENT, consumer);
+			streamClass.getMethod("startAsync").invoke(stream);
+			return stream;
+		} catch (Exception e) {
+			LOGGER.warning("Unable to trace pinned threads without Flight Recorder: " + e);
+			return null;
+		}
+	}
+	
+	private static ThreadFactory buildFactory(String prefix) throws IllegalStateException {
+		try {
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to create virtual threads", e);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.codahale.shore.server;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import net.jcip.annotations.Immutable;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import com.codahale.shore.pool.ConnectionPool;
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.Iterables;
+
+/**
+ * Warms up an application before its server starts accepting connections,
+ * so the first requests after a deploy aren't slowed down by an empty
+ * connection pool, uncompiled queries, and a cold JIT. Configured from the
+ * application's properties file:
+ * <dl>
+ * 	<dt>{@code shore.warmup}</dt>
+ * 	<dd>Whether or not to warm up the application. Defaults to
+ * 	{@code true}.</dd>
+ * 	<dt>{@code shore.warmup.connections}</dt>
+ * 	<dd>The number of connections to open in each connection pool. Defaults
+ * 	to the pool's minimum size.</dd>
+ * 	<dt>{@code shore.warmup.iterations}</dt>
+ * 	<dd>The number of times each warm-up request is sent. Defaults to
+ * 	{@code 10}.</dd>
+ * </dl>
+ * Warm-up requests are sent with {@code Cache-Control: no-cache}, so they're
+ * handled by the application rather than answered from the response caches,
+ * and they aren't written to the request log. They are counted in the
+ * application's metrics (resource timers, cache misses, etc.), like any
+ * other request.
+ *
+ * @author coda
+ * @see com.codahale.shore.AbstractConfiguration#addWarmUpRequest(String)
+ */
+@Immutable
+public class WarmUp {
+	public static final String ENABLED_PROPERTY = "shore.warmup";
+	public static final String CONNECTIONS_PROPERTY = "shore.warmup.connections";
+	public static final String ITERATIONS_PROPERTY = "shore.warmup.iterations";
+	private static final int DEFAULT_ITERATIONS = 10;
+	private static final Logger LOGGER = Logger.getLogger(WarmUp.class.getCanonicalName());
+	private final TypedProperties properties;
+
+	/**
+	 * Creates a new {@link WarmUp}.
+	 *
+	 * @param properties the application's properties
+	 */
+	public WarmUp(TypedProperties properties) {
+		this.properties = checkNotNull(properties);
+	}
+
+	/**
+	 * Returns {@code true} if the application should be warmed up.
+	 */
+	public boolean isEnabled() {
+		return properties.getBoolean(ENABLED_PROPERTY, true);
+	}
+
+	/**
+	 * Opens connections in each pool, so requests don't wait for them.
+	 *
+	 * @param pools the application's connection pools
+	 * @return the number of connections opened
+	 * @throws SQLException if a connection couldn't be opened
+	 */
+	public int prefillPools(Collection<ConnectionPool> pools) throws SQLException {
+		int opened = 0;
+		for (ConnectionPool pool : pools) {
+			opened += pool.prefill(properties.getInt(CONNECTIONS_PROPERTY, pool.getSettings().getMinSize()));
+			LOGGER.info("Prefilled " + pool);
+		}
+		return opened;
+	}
+
+	/**
+	 * Compiles each of Hibernate's named queries, so their plans are cached
+	 * before they're used.
+	 *
+	 * @param sessionFactory the application's session factory
+	 * @param configuration the configuration {@code sessionFactory} was built
+	 *            from
+	 * @return the number of queries compiled
+	 */
+	@SuppressWarnings("unchecked")
+	public int compileNamedQueries(SessionFactory sessionFactory, Configuration configuration) {
+		final Iterable<String> names = Iterables.concat(
+			(Set<String>) configuration.getNamedQueries().keySet(),
+			(Set<String>) configuration.getNamedSQLQueries().keySet()
+		);
+
+		// Sessions don't open a connection until one's needed, and compiling
+		// a query doesn't need one.
+		final Session session = sessionFactory.openSession();
+		try {
+			int compiled = 0;
+			for (String name : names) {
+				session.getNamedQuery(name);
+				compiled++;
+			}
+			return compiled;
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * Sends each warm-up request through the application, in-process,
+	 * bypassing the response caches.
+	 *
+	 * @param connector a connector attached to the application's server
+	 * @param paths the paths to request
+	 * @return the number of requests which failed
+	 * @throws Exception if a request couldn't be sent
+	 */
+	public int sendRequests(LocalConnector connector, Collection<String> paths) throws Exception {
+		final int iterations = properties.getInt(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS);
+		int failures = 0;
+		for (int i = 0; i < iterations; i++) {
+			for (String path : paths) {
+				final String statusLine = getStatusLine(connector.getResponses(
+					"GET " + path + " HTTP/1.1\r\nHost: localhost\r\nCache-Control: no-cache\r\nConnection: close\r\n\r\n"
+				));
+				if (!isSuccessful(statusLine)) {
+					failures++;
+					if (i == 0) {
+						LOGGER.warning("Warm-up request for " + path + " failed: " + statusLine);
+					}
+				}
+			}
+		}
+		return failures;
+	}
+
+	private String getStatusLine(String response) {
+		if (response == null) {
+			return "no response";
+		}
+
+		final int end = response.indexOf("\r\n");
+		return (end < 0) ? response : response.substring(0, end);
+	}
+
+	private boolean isSuccessful(String statusLine) {
+		// e.g. HTTP/1.1 200 OK
+		final String[] parts = statusLine.split(" ");
+		return (parts.length > 1) && (parts[1].startsWith("2") || parts[1].startsWith("3"));
+	}
+}
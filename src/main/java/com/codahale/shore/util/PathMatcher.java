@@ -0,0 +1,192 @@
+package com.codahale.shore.util;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.jcip.annotations.Immutable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Matches request paths against a set of URI specs, compiled once up front.
+ * <p>
+ * Specs are interpreted like servlet URL patterns, with a few extensions:
+ * <dl>
+ * 	<dt>{@code /exact/path}</dt>
+ * 	<dd>Matches the path exactly.</dd>
+ * 	<dt>{@code /prefix/*}</dt>
+ * 	<dd>Matches {@code /prefix} and anything below it.</dd>
+ * 	<dt>{@code *.ext}</dt>
+ * 	<dd>Matches any path ending in {@code .ext}.</dd>
+ * 	<dt>{@code /health*}, {@code /widget/?/status}</dt>
+ * 	<dd>Any other spec containing {@code *} or {@code ?} is a glob, where
+ * 	{@code *} matches any run of characters and {@code ?} matches one.</dd>
+ * 	<dt>{@code regex:^/v[0-9]+/ping$}</dt>
+ * 	<dd>A regular expression.</dd>
+ * </dl>
+ * Exact paths and suffixes are checked with set lookups, and prefixes with
+ * a character trie, none of which allocate. Globs and regular expressions
+ * are checked last.
+ * 
+ * @author coda
+ *
+ */
+@Immutable
+public class PathMatcher {
+	private static final String REGEX_PREFIX = "regex:";
+	private final Set<String> exactPaths;
+	private final TrieNode prefixes;
+	private final List<String> suffixes;
+	private final List<Pattern> patterns;
+	private final boolean empty;
+	
+	/**
+	 * Compiles a set of URI specs into a new {@link PathMatcher}.
+	 * 
+	 * @param specs a set of URI specs
+	 */
+	public PathMatcher(Iterable<String> specs) {
+		final Set<String> exactPaths = Sets.newHashSet();
+		final Set<String> suffixes = Sets.newLinkedHashSet();
+		final List<Pattern> patterns = Lists.newArrayList();
+		this.prefixes = new TrieNode();
+		
+		for (String spec : checkNotNull(specs)) {
+			checkNotNull(spec);
+			if (spec.startsWith(REGEX_PREFIX)) {
+				patterns.add(Pattern.compile(spec.substring(REGEX_PREFIX.length())));
+			} else if (spec.startsWith("*.") && (spec.indexOf('*', 1) < 0)) {
+				suffixes.add(spec.substring(1));
+			} else if (spec.endsWith("/*") && (spec.indexOf('*') == (spec.length() - 1))
+					&& (spec.indexOf('?') < 0)) {
+				prefixes.add(spec.substring(0, spec.length() - 2));
+			} else if ((spec.indexOf('*') >= 0) || (spec.indexOf('?') >= 0)) {
+				patterns.add(compileGlob(spec));
+			} else {
+				exactPaths.add(spec);
+			}
+		}
+		
+		this.exactPaths = ImmutableSet.copyOf(exactPaths);
+		this.suffixes = ImmutableList.copyOf(suffixes);
+		this.patterns = ImmutableList.copyOf(patterns);
+		this.empty = this.exactPaths.isEmpty() && prefixes.isEmpty()
+				&& this.suffixes.isEmpty() && this.patterns.isEmpty();
+	}
+	
+	/**
+	 * Returns {@code true} if {@code path} matches any of the specs.
+	 * 
+	 * @param path a request path
+	 * @return whether or not {@code path} matches
+	 */
+	public boolean matches(String path) {
+		if (empty || (path == null)) {
+			return false;
+		}
+		
+		if (exactPaths.contains(path) || prefixes.matchesPrefixOf(path)) {
+			return true;
+		}
+		
+		for (int i = 0; i < suffixes.size(); i++) {
+			if (path.endsWith(suffixes.get(i))) {
+				return true;
+			}
+		}
+		
+		for (int i = 0; i < patterns.size(); i++) {
+			if (patterns.get(i).matcher(path).matches()) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Returns {@code true} if there are no specs to match.
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+	
+	private static Pattern compileGlob(String glob) {
+		final StringBuilder regex = new StringBuilder(glob.length() + 16);
+		final StringBuilder literal = new StringBuilder();
+		for (int i = 0; i < glob.length(); i++) {
+			final char c = glob.charAt(i);
+			if ((c == '*') || (c == '?')) {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append((c == '*') ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString());
+	}
+	
+	/*
+	 * A node in a character trie of path prefixes. Lookups of ASCII
+	 * characters use cached Character instances, so they don't allocate.
+	 */
+	private static final class TrieNode {
+		private final Map<Character, TrieNode> children = Maps.newHashMap();
+		private boolean terminal = false;
+		
+		public void add(String prefix) {
+			TrieNode node = this;
+			for (int i = 0; i < prefix.length(); i++) {
+				final Character c = Character.valueOf(prefix.charAt(i));
+				TrieNode child = node.children.get(c);
+				if (child == null) {
+					child = new TrieNode();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			node.terminal = true;
+		}
+		
+		public boolean isEmpty() {
+			return !terminal && children.isEmpty();
+		}
+		
+		/*
+		 * A prefix matches if it's followed by the end of the path or a
+		 * slash, so /health/* matches /health and /health/db but not
+		 * /healthy.
+		 */
+		public boolean matchesPrefixOf(String path) {
+			TrieNode node = this;
+			final int length = path.length();
+			for (int i = 0; i <= length; i++) {
+				if (node.terminal && ((i == length) || (path.charAt(i) == '/') || (i == 0))) {
+					return true;
+				}
+				if (i == length) {
+					return false;
+				}
+				node = node.children.get(Character.valueOf(path.charAt(i)));
+				if (node == null) {
+					return false;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.codahale.shore.util;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Properties;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A read-only view of a set of {@link Properties} which parses values into
+ * primitive types, falling back to defaults for missing values.
+ *
+ * @author coda
+ *
+ */
+@Immutable
+public class TypedProperties {
+	private final Properties properties;
+
+	/**
+	 * Creates a new {@link TypedProperties} around a set of properties.
+	 *
+	 * @param properties a set of properties
+	 */
+	public TypedProperties(Properties properties) {
+		this.properties = checkNotNull(properties);
+	}
+
+	/**
+	 * Returns {@code true} if {@code key} has a non-blank value.
+	 *
+	 * @param key a property name
+	 * @return whether or not {@code key} is set
+	 */
+	public boolean contains(String key) {
+		return getString(key, null) != null;
+	}
+
+	/**
+	 * Returns the trimmed value of {@code key}, or {@code defaultValue} if
+	 * {@code key} is missing or blank.
+	 *
+	 * @param key a property name
+	 * @param defaultValue the value to return if {@code key} is not set
+	 * @return the value of {@code key}
+	 */
+	public String getString(String key, String defaultValue) {
+		final String value = properties.getProperty(checkNotNull(key));
+		if ((value == null) || (value.trim().length() == 0)) {
+			return defaultValue;
+		}
+		return value.trim();
+	}
+
+	/**
+	 * Returns the value of {@code key} as an {@code int}.
+	 *
+	 * @param key a property name
+	 * @param defaultValue the value to return if {@code key} is not set
+	 * @return the value of {@code key}
+	 * @throws IllegalArgumentException if the value is not an integer
+	 */
+	public int getInt(String key, int defaultValue) throws IllegalArgumentException {
+		final String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw invalid(key, value, "an integer");
+		}
+	}
+
+	/**
+	 * Returns the value of {@code key} as a {@code long}.
+	 *
+	 * @param key a property name
+	 * @param defaultValue the value to return if {@code key} is not set
+	 * @return the value of {@code key}
+	 * @throws IllegalArgumentException if the value is not an integer
+	 */
+	public long getLong(String key, long defaultValue) throws IllegalArgumentException {
+		final String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw invalid(key, value, "an integer");
+		}
+	}
+
+	/**
+	 * Returns the value of {@code key} as a {@code boolean}.
+	 *
+	 * @param key a property name
+	 * @param defaultValue the value to return if {@code key} is not set
+	 * @return the value of {@code key}
+	 * @throws IllegalArgumentException if the value is not {@code true} or
+	 *             {@code false}
+	 */
+	public boolean getBoolean(String key, boolean defaultValue) throws IllegalArgumentException {
+		final String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		if ("true".equalsIgnoreCase(value)) {
+			return true;
+		} else if ("false".equalsIgnoreCase(value)) {
+			return false;
+		}
+
+		throw invalid(key, value, "true or false");
+	}
+
+	/**
+	 * Returns the underlying properties.
+	 *
+	 * @return the underlying properties
+	 */
+	public Properties getProperties() {
+		return properties;
+	}
+
+	private IllegalArgumentException invalid(String key, String value, String expected) {
+		return new IllegalArgumentException(key + " must be " + expected + ", but was \"" + value + "\"");
+	}
+}
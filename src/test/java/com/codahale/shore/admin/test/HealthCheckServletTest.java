@@ -0,0 +1,100 @@
+package com.codahale.shore.admin.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.admin.HealthCheckServlet;
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.server.DrainHandler;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+
+@RunWith(Enclosed.class)
+public class HealthCheckServletTest {
+	private static class FixedHealthCheck extends HealthCheck {
+		private final Result result;
+		
+		public FixedHealthCheck(String name, Result result) {
+			super(name);
+			this.result = result;
+		}
+		
+		@Override
+		protected Result check() throws Exception {
+			return result;
+		}
+	}
+	
+	private static abstract class Context {
+		protected DrainHandler drainHandler;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		protected StringWriter output;
+		
+		@Before
+		public void setup() throws Exception {
+			this.drainHandler = new DrainHandler(new PathMatcher(ImmutableList.of("/health")));
+			this.request = mock(HttpServletRequest.class);
+			when(request.getMethod()).thenReturn("GET");
+			this.output = new StringWriter();
+			this.response = mock(HttpServletResponse.class);
+			when(response.getWriter()).thenReturn(new PrintWriter(output));
+		}
+		
+		protected void get(HealthCheck... healthChecks) throws Exception {
+			new HealthCheckServlet(ImmutableList.of(healthChecks), drainHandler).service(request, response);
+		}
+	}
+	
+	public static class Passing_Health_Checks extends Context {
+		@Test
+		public void itRespondsWithOK() throws Exception {
+			get(new FixedHealthCheck("one", HealthCheck.Result.healthy()),
+				new FixedHealthCheck("two", HealthCheck.Result.healthy("fine")));
+			
+			verify(response).setStatus(200);
+			verify(response).setContentType("text/plain");
+			assertThat(output.toString(), is(
+				"* one: OK" + System.getProperty("line.separator") +
+				"* two: OK: fine" + System.getProperty("line.separator")
+			));
+		}
+	}
+	
+	public static class A_Failing_Health_Check extends Context {
+		@Test
+		public void itRespondsWithAnInternalServerError() throws Exception {
+			get(new FixedHealthCheck("one", HealthCheck.Result.healthy()),
+				new FixedHealthCheck("two", HealthCheck.Result.unhealthy("down")));
+			
+			verify(response).setStatus(500);
+			assertThat(output.toString(), is(
+				"* one: OK" + System.getProperty("line.separator") +
+				"! two: ERROR: down" + System.getProperty("line.separator")
+			));
+		}
+	}
+	
+	public static class A_Draining_Server extends Context {
+		@Test
+		public void itRespondsWithServiceUnavailable() throws Exception {
+			drainHandler.drain();
+			get(new FixedHealthCheck("one", HealthCheck.Result.healthy()));
+			
+			verify(response).setStatus(503);
+			assertThat(output.toString(), is("! draining" + System.getProperty("line.separator")));
+		}
+	}
+}
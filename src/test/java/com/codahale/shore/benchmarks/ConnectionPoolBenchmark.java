@@ -0,0 +1,161 @@
+package com.codahale.shore.benchmarks;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Environment;
+
+import com.codahale.shore.benchmarks.fixtures.Widget;
+import com.codahale.shore.dao.AbstractDAO;
+import com.codahale.shore.metrics.Histogram;
+import com.codahale.shore.modules.HibernateModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Provider;
+
+/**
+ * Compares Shore's connection pool with C3P0 by having many threads load
+ * widgets through an {@link AbstractDAO}, each in its own session and
+ * transaction, against an in-memory HSQLDB database.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.codahale.shore.benchmarks.ConnectionPoolBenchmark}.
+ */
+public class ConnectionPoolBenchmark {
+	private static final int THREADS = 64;
+	private static final int POOL_SIZE = 8;
+	private static final int UNITS_OF_WORK = 5000;
+	private static final int WIDGETS = 1000;
+	private static final int RUNS = 5;
+	
+	private static class WidgetDAO extends AbstractDAO<Widget> {
+		public WidgetDAO(Provider<Session> provider) {
+			super(provider, Widget.class);
+		}
+		
+		public Widget findById(long id) {
+			return get(id);
+		}
+		
+		public void saveAll(Iterable<Widget> widgets) {
+			persistAll(widgets);
+		}
+	}
+	
+	private static class SessionHolder implements Provider<Session> {
+		private final ThreadLocal<Session> session = new ThreadLocal<Session>();
+		
+		@Override
+		public Session get() {
+			return session.get();
+		}
+		
+		public void set(Session session) {
+			this.session.set(session);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Logger.getLogger("org.hibernate").setLevel(Level.OFF);
+		Logger.getLogger("com.mchange").setLevel(Level.OFF);
+		Logger.getLogger("com.codahale").setLevel(Level.OFF);
+		
+		final SessionFactory shore = buildSessionFactory("PoolBenchmarkShore", "shore");
+		final SessionFactory c3p0 = buildSessionFactory("PoolBenchmarkC3P0", "c3p0");
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int i = 0; i < RUNS; i++) {
+				run("shore", shore, executor);
+				run("c3p0 ", c3p0, executor);
+			}
+		} finally {
+			executor.shutdown();
+			shore.close();
+			c3p0.close();
+		}
+	}
+	
+	private static void run(String name, final SessionFactory sessionFactory,
+			ExecutorService executor) throws Exception {
+		final SessionHolder holder = new SessionHolder();
+		final WidgetDAO dao = new WidgetDAO(holder);
+		final Histogram latencies = new Histogram();
+		
+		final List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(THREADS);
+		for (int i = 0; i < THREADS; i++) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < UNITS_OF_WORK; j++) {
+						final long start = System.nanoTime();
+						final Session session = sessionFactory.openSession();
+						holder.set(session);
+						try {
+							final Transaction transaction = session.beginTransaction();
+							dao.findById((j % WIDGETS) + 1);
+							transaction.commit();
+						} finally {
+							holder.set(null);
+							session.close();
+						}
+						latencies.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+					}
+					return null;
+				}
+			});
+		}
+		
+		final long start = System.nanoTime();
+		executor.invokeAll(tasks);
+		final double seconds = (System.nanoTime() - start) / 1.0e9;
+		
+		System.out.printf("%s: %,.0f units of work/s, p50=%dus, p99=%dus, max=%dus%n",
+			name, latencies.getCount() / seconds, latencies.getQuantile(0.5),
+			latencies.getQuantile(0.99), latencies.getMax());
+	}
+	
+	private static SessionFactory buildSessionFactory(String database, String pool) {
+		final Properties properties = new Properties();
+		properties.setProperty(Environment.DIALECT, "org.hibernate.dialect.HSQLDialect");
+		properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+		properties.setProperty(Environment.USER, "sa");
+		properties.setProperty(Environment.PASS, "");
+		properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:" + database);
+		properties.setProperty(Environment.HBM2DDL_AUTO, "create-drop");
+		properties.setProperty(Environment.C3P0_MIN_SIZE, Integer.toString(POOL_SIZE));
+		properties.setProperty(Environment.C3P0_MAX_SIZE, Integer.toString(POOL_SIZE));
+		properties.setProperty("shore.pool.max_size", Integer.toString(POOL_SIZE));
+		properties.setProperty(HibernateModule.CONNECTION_POOL, pool);
+		
+		final SessionFactory sessionFactory = new HibernateModule(
+			Logger.getLogger(ConnectionPoolBenchmark.class.getCanonicalName()),
+			properties,
+			ImmutableList.of("com.codahale.shore.benchmarks.fixtures")
+		).getConfiguration().buildSessionFactory();
+		
+		final SessionHolder holder = new SessionHolder();
+		final Session session = sessionFactory.openSession();
+		holder.set(session);
+		try {
+			final Transaction transaction = session.beginTransaction();
+			final List<Widget> widgets = Lists.newArrayListWithCapacity(WIDGETS);
+			for (int i = 0; i < WIDGETS; i++) {
+				widgets.add(new Widget("widget-" + i));
+			}
+			new WidgetDAO(holder).saveAll(widgets);
+			transaction.commit();
+		} finally {
+			session.close();
+		}
+		return sessionFactory;
+	}
+}
@@ -0,0 +1,102 @@
+package com.codahale.shore.benchmarks;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Environment;
+import org.hibernate.classic.Session;
+import org.hibernate.context.ManagedSessionContext;
+
+import com.codahale.shore.hibernate.LazySessionFilter;
+import com.codahale.shore.modules.HibernateModule;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Measures the per-request cost of the unit of work for requests which don't
+ * use the database: opening and closing a session for every request (as
+ * Warp Persist's {@code SessionFilter} does) versus {@link LazySessionFilter}
+ * versus excluding the request from the unit of work entirely.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.codahale.shore.benchmarks.LazySessionBenchmark}.
+ */
+public class LazySessionBenchmark {
+	private static final int REQUESTS = 1000000;
+	private static final int RUNS = 5;
+	
+	private static final FilterChain RESOURCE = new FilterChain() {
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response)
+				throws IOException, ServletException {
+			// doesn't touch the database
+		}
+	};
+	
+	public static void main(String[] args) throws Exception {
+		Logger.getLogger("org.hibernate").setLevel(Level.OFF);
+		Logger.getLogger("com.codahale").setLevel(Level.OFF);
+		
+		final SessionFactory eagerFactory = buildSessionFactory("EagerSessions", false);
+		final SessionFactory lazyFactory = buildSessionFactory("LazySessions", true);
+		final LazySessionFilter lazyFilter = new LazySessionFilter();
+		
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			for (int j = 0; j < REQUESTS; j++) {
+				// what SessionFilter does
+				final Session session = eagerFactory.openSession();
+				ManagedSessionContext.bind(session);
+				try {
+					RESOURCE.doFilter(null, null);
+				} finally {
+					ManagedSessionContext.unbind(eagerFactory);
+					session.close();
+				}
+			}
+			report("eager   ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < REQUESTS; j++) {
+				lazyFilter.doFilter(null, null, RESOURCE);
+			}
+			report("lazy    ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < REQUESTS; j++) {
+				RESOURCE.doFilter(null, null);
+			}
+			report("excluded", System.nanoTime() - start);
+		}
+		
+		eagerFactory.close();
+		lazyFactory.close();
+	}
+	
+	private static void report(String name, long nanos) {
+		System.out.printf("%s: %,.0fns/request%n", name, (double) nanos / REQUESTS);
+	}
+	
+	private static SessionFactory buildSessionFactory(String database, boolean lazy) {
+		final Properties properties = new Properties();
+		properties.setProperty(Environment.DIALECT, "org.hibernate.dialect.HSQLDialect");
+		properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+		properties.setProperty(Environment.USER, "sa");
+		properties.setProperty(Environment.PASS, "");
+		properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:" + database);
+		properties.setProperty(Environment.HBM2DDL_AUTO, "create-drop");
+		properties.setProperty(HibernateModule.LAZY_SESSIONS, Boolean.toString(lazy));
+		return new HibernateModule(
+			Logger.getLogger(LazySessionBenchmark.class.getCanonicalName()),
+			properties,
+			ImmutableList.of("com.codahale.shore.benchmarks.fixtures")
+		).getConfiguration().buildSessionFactory();
+	}
+}
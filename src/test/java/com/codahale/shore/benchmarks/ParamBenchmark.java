@@ -0,0 +1,245 @@
+package com.codahale.shore.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.params.AbstractParam;
+import com.codahale.shore.params.BooleanParam;
+import com.codahale.shore.params.DateTimeParam;
+import com.codahale.shore.params.EnumParam;
+import com.codahale.shore.params.IntParam;
+import com.codahale.shore.params.InvalidParamException;
+import com.codahale.shore.params.LongParam;
+import com.codahale.shore.params.ParamRejections;
+import com.codahale.shore.params.UUIDParam;
+
+/**
+ * Compares parsing a small set of hot values with {@link AbstractParam}
+ * descendants against {@link IntParam}, {@link LongParam},
+ * {@link BooleanParam}, {@link UUIDParam}, {@link DateTimeParam}, and an
+ * {@link EnumParam} descendant, which parse without boxing and reuse
+ * instances for repeated values, and compares the cost of rejecting
+ * malformed values with and without terse errors.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.codahale.shore.benchmarks.ParamBenchmark}.
+ */
+public class ParamBenchmark {
+	private static final int PARAMS = 10000000;
+	private static final int RUNS = 5;
+	
+	private static class IntegerParam extends AbstractParam<Integer> {
+		public IntegerParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected Integer parse(String param) throws Exception {
+			return Integer.valueOf(param);
+		}
+	}
+	
+	private static class OldLongParam extends AbstractParam<Long> {
+		public OldLongParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected Long parse(String param) throws Exception {
+			return Long.valueOf(param);
+		}
+	}
+	
+	private static class OldBooleanParam extends AbstractParam<Boolean> {
+		public OldBooleanParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected Boolean parse(String param) throws Exception {
+			return Boolean.valueOf(param);
+		}
+	}
+	
+	private static class OldDateParam extends AbstractParam<Date> {
+		public OldDateParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected Date parse(String param) throws Exception {
+			final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			return format.parse(param);
+		}
+	}
+	
+	private static class OldTimeUnitParam extends AbstractParam<TimeUnit> {
+		public OldTimeUnitParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected TimeUnit parse(String param) throws Exception {
+			return TimeUnit.valueOf(param.toUpperCase());
+		}
+	}
+	
+	private static class TimeUnitParam extends EnumParam<TimeUnit> {
+		public TimeUnitParam(String param) throws WebApplicationException {
+			super(TimeUnit.class, param);
+		}
+	}
+	
+	private static class OldUUIDParam extends AbstractParam<UUID> {
+		public OldUUIDParam(String param) throws WebApplicationException {
+			super(param);
+		}
+		
+		@Override
+		protected UUID parse(String param) throws Exception {
+			return UUID.fromString(param);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		final String[] ints = new String[16];
+		final String[] longs = new String[16];
+		final String[] booleans = new String[16];
+		final String[] uuids = new String[16];
+		final String[] dates = new String[16];
+		final String[] units = new String[16];
+		final String[] garbage = new String[16];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = Integer.toString(i * 50);
+			longs[i] = Long.toString(System.currentTimeMillis() + i);
+			booleans[i] = Boolean.toString((i & 1) == 0);
+			uuids[i] = UUID.randomUUID().toString();
+			dates[i] = String.format("2010-03-%02dT14:30:00Z", i + 1);
+			units[i] = TimeUnit.values()[i % TimeUnit.values().length].name().toLowerCase();
+			garbage[i] = "200$$" + i;
+		}
+		
+		final ParamRejections verbose = new ParamRejections(new MetricsRegistry(), false);
+		final ParamRejections terse = new ParamRejections(new MetricsRegistry(), true);
+		long sink = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new IntegerParam(ints[j & 15]).getValue();
+			}
+			report("AbstractParam<Integer>", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += IntParam.valueOf(ints[j & 15]).getValue();
+			}
+			report("IntParam              ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new OldLongParam(longs[j & 15]).getValue();
+			}
+			report("AbstractParam<Long>   ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += LongParam.valueOf(longs[j & 15]).getValue();
+			}
+			report("LongParam             ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new OldBooleanParam(booleans[j & 15]).getValue() ? 1 : 0;
+			}
+			report("AbstractParam<Boolean>", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += BooleanParam.valueOf(booleans[j & 15]).getValue() ? 1 : 0;
+			}
+			report("BooleanParam          ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new OldUUIDParam(uuids[j & 15]).getValue().getLeastSignificantBits();
+			}
+			report("AbstractParam<UUID>   ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += UUIDParam.valueOf(uuids[j & 15]).getValue().getLeastSignificantBits();
+			}
+			report("UUIDParam             ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new OldDateParam(dates[j & 15]).getValue().getTime();
+			}
+			report("AbstractParam<Date>   ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += DateTimeParam.valueOf(dates[j & 15]).getMillis();
+			}
+			report("DateTimeParam         ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new OldTimeUnitParam(units[j & 15]).getValue().ordinal();
+			}
+			report("AbstractParam<Enum>   ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				sink += new TimeUnitParam(units[j & 15]).getValue().ordinal();
+			}
+			report("EnumParam             ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				try {
+					new IntegerParam(garbage[j & 15]);
+				} catch (InvalidParamException e) {
+					sink += verbose.reject(e).getStatus();
+				}
+			}
+			report("rejected Integer      ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				try {
+					IntParam.valueOf(garbage[j & 15]);
+				} catch (InvalidParamException e) {
+					sink += verbose.reject(e).getStatus();
+				}
+			}
+			report("rejected IntParam     ", System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for (int j = 0; j < PARAMS; j++) {
+				try {
+					IntParam.valueOf(garbage[j & 15]);
+				} catch (InvalidParamException e) {
+					sink += terse.reject(e).getStatus();
+				}
+			}
+			report("rejected IntParam (terse)", System.nanoTime() - start);
+		}
+		
+		// keeps the JIT from eliminating the loops
+		System.out.println(sink == 42 ? "" : " ");
+	}
+	
+	private static void report(String name, long nanos) {
+		System.out.printf("%s: %,.1fns/param (%,dMB heap used)%n",
+			name, (double) nanos / PARAMS,
+			(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024));
+	}
+}
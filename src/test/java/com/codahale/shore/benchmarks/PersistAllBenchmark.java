@@ -0,0 +1,141 @@
+package com.codahale.shore.benchmarks;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.DriverManagerConnectionProvider;
+
+import com.codahale.shore.benchmarks.fixtures.Widget;
+import com.codahale.shore.dao.AbstractDAO;
+import com.codahale.shore.modules.HibernateModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Provider;
+
+/**
+ * Compares saving widgets one at a time with {@link AbstractDAO#persist}
+ * against saving them in batches with {@link AbstractDAO#persistAll}, using
+ * an in-memory HSQLDB database.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.codahale.shore.benchmarks.PersistAllBenchmark}.
+ */
+public class PersistAllBenchmark {
+	private static final int WIDGETS = 100000;
+	private static final int RUNS = 5;
+	
+	private static class WidgetDAO extends AbstractDAO<Widget> {
+		public WidgetDAO(Provider<Session> provider) {
+			super(provider, Widget.class);
+		}
+		
+		public void saveEach(Iterable<Widget> widgets) {
+			for (Widget widget : widgets) {
+				persist(widget);
+			}
+			currentSession().flush();
+		}
+		
+		public void saveAll(Iterable<Widget> widgets) {
+			persistAll(widgets);
+		}
+	}
+	
+	private static abstract class Run {
+		private final SessionFactory sessionFactory;
+		private Session session;
+		
+		public Run(SessionFactory sessionFactory) {
+			this.sessionFactory = sessionFactory;
+		}
+		
+		public long time(List<Widget> widgets) {
+			this.session = sessionFactory.openSession();
+			try {
+				final Transaction transaction = session.beginTransaction();
+				final long start = System.nanoTime();
+				save(new WidgetDAO(new Provider<Session>() {
+					@Override
+					public Session get() {
+						return session;
+					}
+				}), widgets);
+				transaction.commit();
+				return System.nanoTime() - start;
+			} finally {
+				session.close();
+			}
+		}
+		
+		protected abstract void save(WidgetDAO dao, List<Widget> widgets);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Logger.getLogger("org.hibernate").setLevel(Level.OFF);
+		Logger.getLogger("com.mchange").setLevel(Level.OFF);
+		
+		final SessionFactory unbatched = buildSessionFactory("PersistEach", 0);
+		final SessionFactory batched = buildSessionFactory("PersistAll", AbstractDAO.DEFAULT_BATCH_SIZE);
+		
+		final Run each = new Run(unbatched) {
+			@Override
+			protected void save(WidgetDAO dao, List<Widget> widgets) {
+				dao.saveEach(widgets);
+			}
+		};
+		
+		final Run all = new Run(batched) {
+			@Override
+			protected void save(WidgetDAO dao, List<Widget> widgets) {
+				dao.saveAll(widgets);
+			}
+		};
+		
+		for (int i = 0; i < RUNS; i++) {
+			report("persist   ", each.time(buildWidgets()));
+			report("persistAll", all.time(buildWidgets()));
+		}
+		
+		unbatched.close();
+		batched.close();
+	}
+	
+	private static void report(String name, long nanos) {
+		final double seconds = nanos / 1.0e9;
+		System.out.printf("%s: %,d widgets in %.2fs (%,.0f widgets/s, %,dMB heap used)%n",
+			name, WIDGETS, seconds, WIDGETS / seconds,
+			(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024));
+	}
+	
+	private static List<Widget> buildWidgets() {
+		final List<Widget> widgets = Lists.newArrayListWithCapacity(WIDGETS);
+		for (int i = 0; i < WIDGETS; i++) {
+			widgets.add(new Widget("widget-" + i));
+		}
+		return widgets;
+	}
+	
+	private static SessionFactory buildSessionFactory(String database, int batchSize) {
+		final Properties properties = new Properties();
+		properties.setProperty(Environment.DIALECT, "org.hibernate.dialect.HSQLDialect");
+		properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+		properties.setProperty(Environment.USER, "sa");
+		properties.setProperty(Environment.PASS, "");
+		properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:" + database);
+		properties.setProperty(Environment.POOL_SIZE, "1");
+		properties.setProperty(Environment.CONNECTION_PROVIDER, DriverManagerConnectionProvider.class.getName());
+		properties.setProperty(Environment.HBM2DDL_AUTO, "create-drop");
+		properties.setProperty(Environment.STATEMENT_BATCH_SIZE, Integer.toString(batchSize));
+		return new HibernateModule(
+			Logger.getLogger(PersistAllBenchmark.class.getCanonicalName()),
+			properties,
+			ImmutableList.of("com.codahale.shore.benchmarks.fixtures")
+		).getConfiguration().buildSessionFactory();
+	}
+}
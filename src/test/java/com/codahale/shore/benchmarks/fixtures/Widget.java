@@ -0,0 +1,32 @@
+package com.codahale.shore.benchmarks.fixtures;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+// IDENTITY keys would force Hibernate to insert widgets one at a time
+@Entity
+public class Widget {
+	@Id
+	@GeneratedValue(strategy=GenerationType.SEQUENCE)
+	private Long id;
+	
+	private String name;
+	
+	public Widget() {
+		// for Hibernate
+	}
+	
+	public Widget(String name) {
+		this.name = name;
+	}
+	
+	public Long getId() {
+		return id;
+	}
+	
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,54 @@
+package com.codahale.shore.cache.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.hibernate.cache.Cache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.cache.BoundedCacheProvider;
+
+@RunWith(Enclosed.class)
+public class BoundedCacheProviderTest {
+	public static class Two_Providers_With_The_Same_Region {
+		private BoundedCacheProvider one, two;
+		private Cache oneWidgets, twoWidgets;
+		
+		@Before
+		public void setup() throws Exception {
+			this.one = new BoundedCacheProvider();
+			one.start(new Properties());
+			this.oneWidgets = one.buildCache("widgets", new Properties());
+			
+			this.two = new BoundedCacheProvider();
+			two.start(new Properties());
+			this.twoWidgets = two.buildCache("widgets", new Properties());
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			one.stop();
+			two.stop();
+		}
+		
+		@Test
+		public void itReportsBothRegions() throws Exception {
+			assertThat(BoundedCacheProvider.getRegions().contains(oneWidgets), is(true));
+			assertThat(BoundedCacheProvider.getRegions().contains(twoWidgets), is(true));
+		}
+		
+		@Test
+		public void itOnlyDropsTheStoppedProvidersRegions() throws Exception {
+			one.stop();
+			
+			assertThat(BoundedCacheProvider.getRegions().contains(oneWidgets), is(false));
+			assertThat(BoundedCacheProvider.getRegions().contains(twoWidgets), is(true));
+		}
+	}
+}
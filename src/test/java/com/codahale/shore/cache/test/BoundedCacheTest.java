@@ -0,0 +1,118 @@
+package com.codahale.shore.cache.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.cache.BoundedCache;
+import com.codahale.shore.cache.EvictionPolicy;
+import com.codahale.shore.cache.RegionSettings;
+
+@RunWith(Enclosed.class)
+public class BoundedCacheTest {
+	public static class An_LRU_Cache {
+		private BoundedCache cache;
+		
+		@Before
+		public void setup() throws Exception {
+			this.cache = new BoundedCache("widgets", new RegionSettings(2, 0, EvictionPolicy.LRU));
+			cache.put("one", 1);
+			cache.put("two", 2);
+		}
+		
+		@Test
+		public void itHasARegionName() throws Exception {
+			assertThat(cache.getRegionName(), is("widgets"));
+		}
+		
+		@Test
+		public void itReturnsCachedValues() throws Exception {
+			assertThat(cache.get("one"), is((Object) 1));
+			assertThat(cache.read("two"), is((Object) 2));
+			assertThat(cache.get("three"), is(nullValue()));
+		}
+		
+		@Test
+		public void itCountsHitsAndMisses() throws Exception {
+			cache.get("one");
+			cache.get("three");
+			
+			assertThat(cache.getHits(), is(1L));
+			assertThat(cache.getMisses(), is(1L));
+			assertThat(cache.getPuts(), is(2L));
+		}
+		
+		@Test
+		public void itEvictsTheLeastRecentlyUsedEntry() throws Exception {
+			cache.get("one");
+			cache.put("three", 3);
+			
+			assertThat(cache.getElementCountInMemory(), is(2L));
+			assertThat(cache.get("two"), is(nullValue()));
+			assertThat(cache.get("one"), is((Object) 1));
+			assertThat(cache.getEvictions(), is(1L));
+		}
+		
+		@Test
+		public void itRemovesEntries() throws Exception {
+			cache.remove("one");
+			
+			assertThat(cache.get("one"), is(nullValue()));
+		}
+		
+		@Test
+		public void itClearsEntries() throws Exception {
+			cache.clear();
+			
+			assertThat(cache.getElementCountInMemory(), is(0L));
+		}
+	}
+	
+	public static class An_LFU_Cache {
+		@Test
+		public void itEvictsTheLeastFrequentlyUsedEntry() throws Exception {
+			final BoundedCache cache = new BoundedCache("widgets", new RegionSettings(2, 0, EvictionPolicy.LFU));
+			cache.put("one", 1);
+			cache.put("two", 2);
+			cache.get("one");
+			cache.get("one");
+			cache.get("two");
+			cache.put("three", 3);
+			
+			assertThat(cache.get("two"), is(nullValue()));
+			assertThat(cache.get("one"), is((Object) 1));
+			assertThat(cache.get("three"), is((Object) 3));
+		}
+	}
+	
+	public static class A_Large_Cache {
+		@Test
+		public void itHoldsNoMoreThanItsMaximumNumberOfEntries() throws Exception {
+			final BoundedCache cache = new BoundedCache("widgets", new RegionSettings(1000, 0, EvictionPolicy.LRU));
+			for (int i = 0; i < 5000; i++) {
+				cache.put(i, i);
+			}
+			
+			assertThat(cache.getElementCountInMemory(), is(1000L));
+			assertThat(cache.getEvictions(), is(4000L));
+			assertThat(cache.get(4999), is((Object) 4999));
+		}
+	}
+	
+	public static class An_Expiring_Cache {
+		@Test
+		public void itExpiresEntries() throws Exception {
+			final BoundedCache cache = new BoundedCache("widgets", new RegionSettings(2, 1, EvictionPolicy.LRU));
+			cache.put("one", 1);
+			Thread.sleep(10);
+			
+			assertThat(cache.get("one"), is(nullValue()));
+			assertThat(cache.getExpirations(), is(1L));
+			assertThat(cache.toMap().isEmpty(), is(true));
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.codahale.shore.cache.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.cache.EvictionPolicy;
+import com.codahale.shore.cache.RegionSettings;
+import com.codahale.shore.util.TypedProperties;
+
+@RunWith(Enclosed.class)
+public class RegionSettingsTest {
+	public static class Reading_Region_Settings {
+		private Properties properties;
+		
+		@Before
+		public void setup() throws Exception {
+			this.properties = new Properties();
+			properties.setProperty("shore.cache.default.max_entries", "100");
+			properties.setProperty("shore.cache.default.eviction", "lfu");
+			properties.setProperty("shore.cache.region.widgets.max_entries", "20");
+			properties.setProperty("shore.cache.region.widgets.ttl", "30");
+		}
+		
+		@Test
+		public void itUsesTheRegionsOwnSettings() throws Exception {
+			final RegionSettings settings = RegionSettings.forRegion("widgets", new TypedProperties(properties));
+			
+			assertThat(settings.getMaxEntries(), is(20));
+			assertThat(settings.getTimeToLive(), is(30000L));
+			assertThat(settings.getEvictionPolicy(), is(EvictionPolicy.LFU));
+		}
+		
+		@Test
+		public void itFallsBackToTheDefaultSettings() throws Exception {
+			final RegionSettings settings = RegionSettings.forRegion("gadgets", new TypedProperties(properties));
+			
+			assertThat(settings.getMaxEntries(), is(100));
+			assertThat(settings.getTimeToLive(), is(0L));
+			assertThat(settings.getEvictionPolicy(), is(EvictionPolicy.LFU));
+		}
+		
+		@Test
+		public void itNeverBoundsTheUpdateTimestampsRegion() throws Exception {
+			final RegionSettings settings = RegionSettings.forRegion("org.hibernate.cache.UpdateTimestampsCache", new TypedProperties(properties));
+			
+			assertThat(settings.getMaxEntries(), is(Integer.MAX_VALUE));
+			assertThat(settings.getTimeToLive(), is(0L));
+		}
+	}
+}
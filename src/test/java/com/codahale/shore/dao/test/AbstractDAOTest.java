@@ -9,13 +9,17 @@ import java.util.List;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 
 import com.codahale.shore.dao.AbstractDAO;
+import com.codahale.shore.dao.ScrollableIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
@@ -38,6 +42,10 @@ public class AbstractDAOTest {
 			return criteria();
 		}
 		
+		public Criteria getCachedCriteria(String region) {
+			return cachedCriteria(region);
+		}
+		
 		public String getUniqueResultFromCriteria() {
 			return uniqueResult(criteria());
 		}
@@ -58,6 +66,14 @@ public class AbstractDAOTest {
 			return list(namedQuery(name));
 		}
 
+		public ScrollableIterator<String> getScrollFromCriteria() {
+			return scroll(criteria());
+		}
+		
+		public ScrollableIterator<String> getScrollFromQuery(String name) {
+			return scroll(namedQuery(name), 10);
+		}
+
 		public String getInstance(Integer i) {
 			return get(i);
 		}
@@ -65,6 +81,10 @@ public class AbstractDAOTest {
 		public String save(String entity) {
 			return persist(entity);
 		}
+		
+		public int saveAll(Iterable<String> entities, int batchSize) {
+			return persistAll(entities, batchSize);
+		}
 	}
 	
 	public static class A_Descendant_Of_AbstractDAO {
@@ -113,6 +133,17 @@ public class AbstractDAOTest {
 			verify(session).createCriteria(String.class);
 		}
 		
+		@Test
+		public void itCreatesNewCacheableCriteriaQueries() throws Exception {
+			when(critera.setCacheable(true)).thenReturn(critera);
+			when(critera.setCacheRegion("widgets")).thenReturn(critera);
+			
+			assertThat(dao.getCachedCriteria("widgets"), is(critera));
+			
+			verify(critera).setCacheable(true);
+			verify(critera).setCacheRegion("widgets");
+		}
+		
 		@Test
 		public void itReturnsUniqueResultsFromCriteriaQueries() throws Exception {
 			when(critera.uniqueResult()).thenReturn("woo");
@@ -150,6 +181,32 @@ public class AbstractDAOTest {
 			verify(query).list();
 		}
 		
+		@Test
+		public void itScrollsThroughCriteriaQueries() throws Exception {
+			final ScrollableResults results = mock(ScrollableResults.class);
+			when(critera.setFetchSize(100)).thenReturn(critera);
+			when(critera.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+			when(results.next()).thenReturn(true);
+			when(results.get(0)).thenReturn("woo");
+			
+			assertThat(dao.getScrollFromCriteria().next(), is("woo"));
+			verify(critera).setFetchSize(100);
+			verify(critera).scroll(ScrollMode.FORWARD_ONLY);
+		}
+		
+		@Test
+		public void itScrollsThroughQueries() throws Exception {
+			final ScrollableResults results = mock(ScrollableResults.class);
+			when(query.setFetchSize(10)).thenReturn(query);
+			when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+			when(results.next()).thenReturn(true);
+			when(results.get(0)).thenReturn("woo");
+			
+			assertThat(dao.getScrollFromQuery("query-name").next(), is("woo"));
+			verify(query).setFetchSize(10);
+			verify(query).scroll(ScrollMode.FORWARD_ONLY);
+		}
+		
 		@Test
 		public void itGetsEntitiesById() throws Exception {
 			when(session.get(String.class, 200)).thenReturn("woo!");
@@ -164,5 +221,37 @@ public class AbstractDAOTest {
 			
 			verify(session).saveOrUpdate("woo");
 		}
+		
+		@Test
+		public void itPersistsEntitiesInBatches() throws Exception {
+			final int count = dao.saveAll(ImmutableList.of("one", "two", "three", "four", "five"), 2);
+			
+			assertThat(count, is(5));
+			final InOrder inOrder = inOrder(session);
+			inOrder.verify(session).saveOrUpdate("one");
+			inOrder.verify(session).saveOrUpdate("two");
+			inOrder.verify(session).flush();
+			inOrder.verify(session).clear();
+			inOrder.verify(session).saveOrUpdate("three");
+			inOrder.verify(session).saveOrUpdate("four");
+			inOrder.verify(session).flush();
+			inOrder.verify(session).clear();
+			inOrder.verify(session).saveOrUpdate("five");
+			inOrder.verify(session).flush();
+			inOrder.verify(session).clear();
+		}
+		
+		@Test
+		public void itDoesNotFlushTwiceAfterAFullBatch() throws Exception {
+			dao.saveAll(ImmutableList.of("one", "two"), 2);
+			
+			verify(session, times(1)).flush();
+			verify(session, times(1)).clear();
+		}
+		
+		@Test(expected=IllegalArgumentException.class)
+		public void itRequiresAPositiveBatchSize() throws Exception {
+			dao.saveAll(ImmutableList.of("one"), 0);
+		}
 	}
 }
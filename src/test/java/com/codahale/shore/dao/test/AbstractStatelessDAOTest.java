@@ -0,0 +1,180 @@
+package com.codahale.shore.dao.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.StatelessSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.dao.AbstractStatelessDAO;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+@RunWith(Enclosed.class)
+public class AbstractStatelessDAOTest {
+	private static class MockDAO extends AbstractStatelessDAO<String> {
+		@Inject
+		public MockDAO(Provider<StatelessSession> provider) {
+			super(provider, String.class);
+		}
+		
+		public StatelessSession getSession() {
+			return currentSession();
+		}
+		
+		public Criteria getCriteria() {
+			return criteria();
+		}
+		
+		public Query getNamedQuery(String name) {
+			return namedQuery(name);
+		}
+		
+		public String getUniqueResultFromCriteria() {
+			return uniqueResult(criteria());
+		}
+		
+		public String getUniqueResultFromQuery(String name) {
+			return uniqueResult(namedQuery(name));
+		}
+		
+		public List<String> getListFromCriteria() {
+			return list(criteria());
+		}
+		
+		public List<String> getListFromQuery(String name) {
+			return list(namedQuery(name));
+		}
+		
+		public String getInstance(Integer i) {
+			return get(i);
+		}
+		
+		public String create(String entity) {
+			return insert(entity);
+		}
+		
+		public String save(String entity) {
+			return update(entity);
+		}
+		
+		public void remove(String entity) {
+			delete(entity);
+		}
+	}
+	
+	public static class A_Descendant_Of_AbstractStatelessDAO {
+		private MockDAO dao;
+		private Criteria criteria;
+		private Query query;
+		private StatelessSession session;
+		
+		@Before
+		public void setup() throws Exception {
+			this.query = mock(Query.class);
+			this.criteria = mock(Criteria.class);
+			this.session = mock(StatelessSession.class);
+			when(session.createCriteria(String.class)).thenReturn(criteria);
+			when(session.getNamedQuery(anyString())).thenReturn(query);
+			
+			this.dao = Guice.createInjector(new AbstractModule() {
+				@Override
+				protected void configure() {
+					bind(StatelessSession.class).toInstance(session);
+				}
+			}).getInstance(MockDAO.class);
+		}
+		
+		@Test
+		public void itGetsASessionFromTheInjectedProvider() throws Exception {
+			assertThat(dao.getSession(), is(sameInstance(session)));
+		}
+		
+		@Test
+		public void itHasAnEntityClass() throws Exception {
+			assertThat(dao.getEntityClass(), is(sameInstance(String.class)));
+		}
+		
+		@Test
+		public void itGetsNamedQueries() throws Exception {
+			assertThat(dao.getNamedQuery("query-name"), is(query));
+			
+			verify(session).getNamedQuery("query-name");
+		}
+		
+		@Test
+		public void itCreatesNewCriteraQueries() throws Exception {
+			assertThat(dao.getCriteria(), is(criteria));
+			
+			verify(session).createCriteria(String.class);
+		}
+		
+		@Test
+		public void itReturnsUniqueResultsFromCriteriaQueries() throws Exception {
+			when(criteria.uniqueResult()).thenReturn("woo");
+			
+			assertThat(dao.getUniqueResultFromCriteria(), is("woo"));
+		}
+		
+		@Test
+		public void itReturnsUniqueResultsFromQueries() throws Exception {
+			when(query.uniqueResult()).thenReturn("woo");
+			
+			assertThat(dao.getUniqueResultFromQuery("query-name"), is("woo"));
+		}
+		
+		@Test
+		public void itReturnsListsFromCriteriaQueries() throws Exception {
+			when(criteria.list()).thenReturn(ImmutableList.of("woo"));
+			
+			assertThat(dao.getListFromCriteria(), is((List<String>) ImmutableList.of("woo")));
+		}
+		
+		@Test
+		public void itReturnsListsFromQueries() throws Exception {
+			when(query.list()).thenReturn(ImmutableList.of("woo"));
+			
+			assertThat(dao.getListFromQuery("query-name"), is((List<String>) ImmutableList.of("woo")));
+		}
+		
+		@Test
+		public void itGetsEntitiesById() throws Exception {
+			when(session.get(String.class, 200)).thenReturn("woo!");
+			
+			assertThat(dao.getInstance(200), is("woo!"));
+		}
+		
+		@Test
+		public void itInsertsEntities() throws Exception {
+			assertThat(dao.create("woo"), is("woo"));
+			
+			verify(session).insert("woo");
+		}
+		
+		@Test
+		public void itUpdatesEntities() throws Exception {
+			assertThat(dao.save("woo"), is("woo"));
+			
+			verify(session).update("woo");
+		}
+		
+		@Test
+		public void itDeletesEntities() throws Exception {
+			dao.remove("woo");
+			
+			verify(session).delete("woo");
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.codahale.shore.dao.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.NoSuchElementException;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.dao.ScrollableIterator;
+
+@RunWith(Enclosed.class)
+public class ScrollableIteratorTest {
+	public static class Iterating_Over_Results {
+		private Session session;
+		private ScrollableResults results;
+		private ScrollableIterator<String> iterator;
+		
+		@Before
+		public void setup() throws Exception {
+			this.session = mock(Session.class);
+			this.results = mock(ScrollableResults.class);
+			when(results.next()).thenReturn(true, true, false);
+			when(results.get(0)).thenReturn("one", "two");
+			when(session.contains(anyObject())).thenReturn(true);
+			this.iterator = new ScrollableIterator<String>(session, results);
+		}
+		
+		@Test
+		public void itReturnsTheFirstColumnOfEachRow() throws Exception {
+			assertThat(iterator.hasNext(), is(true));
+			assertThat(iterator.next(), is("one"));
+			assertThat(iterator.hasNext(), is(true));
+			assertThat(iterator.next(), is("two"));
+			assertThat(iterator.hasNext(), is(false));
+		}
+		
+		@Test
+		public void itDoesNotAdvanceOnRepeatedCallsToHasNext() throws Exception {
+			iterator.hasNext();
+			iterator.hasNext();
+			
+			assertThat(iterator.next(), is("one"));
+			verify(results, times(1)).next();
+		}
+		
+		@Test
+		public void itEvictsEachEntityAfterMovingPastIt() throws Exception {
+			iterator.next();
+			verify(session, never()).evict("one");
+			
+			iterator.next();
+			verify(session).evict("one");
+			verify(session, never()).evict("two");
+			
+			iterator.hasNext();
+			verify(session).evict("two");
+		}
+		
+		@Test
+		public void itDoesNotEvictObjectsWhichAreNotInTheSession() throws Exception {
+			when(session.contains("one")).thenReturn(false);
+			
+			iterator.next();
+			iterator.next();
+			
+			verify(session, never()).evict("one");
+		}
+		
+		@Test
+		public void itClosesTheResultsWhenExhausted() throws Exception {
+			while (iterator.hasNext()) {
+				iterator.next();
+			}
+			
+			verify(results).close();
+		}
+		
+		@Test
+		public void itClosesTheResultsOnlyOnce() throws Exception {
+			iterator.next();
+			iterator.close();
+			iterator.close();
+			
+			verify(results, times(1)).close();
+			verify(session).evict("one");
+			assertThat(iterator.hasNext(), is(false));
+		}
+		
+		@Test(expected=NoSuchElementException.class)
+		public void itThrowsAnExceptionWhenExhausted() throws Exception {
+			iterator.next();
+			iterator.next();
+			iterator.next();
+		}
+		
+		@Test(expected=UnsupportedOperationException.class)
+		public void itDoesNotSupportRemoval() throws Exception {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+}
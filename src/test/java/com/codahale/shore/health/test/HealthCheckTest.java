@@ -0,0 +1,90 @@
+package com.codahale.shore.health.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.health.DeadlockHealthCheck;
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.health.HealthCheck.Result;
+
+@RunWith(Enclosed.class)
+public class HealthCheckTest {
+	private static class ExplodingHealthCheck extends HealthCheck {
+		private final Exception exception;
+		
+		public ExplodingHealthCheck(Exception exception) {
+			super("exploding");
+			this.exception = exception;
+		}
+		
+		@Override
+		protected Result check() throws Exception {
+			throw exception;
+		}
+	}
+	
+	public static class A_Health_Check {
+		@Test
+		public void itHasAName() throws Exception {
+			assertThat(new ExplodingHealthCheck(new Exception()).getName(), is("exploding"));
+		}
+		
+		@Test
+		public void itIsUnhealthyIfTheCheckThrowsAnException() throws Exception {
+			final Exception exception = new Exception("boom");
+			final Result result = new ExplodingHealthCheck(exception).execute();
+			
+			assertThat(result.isHealthy(), is(false));
+			assertThat(result.getMessage(), is("boom"));
+			assertThat(result.getError(), is((Throwable) exception));
+			assertThat(result.toString(), is("ERROR: boom"));
+		}
+	}
+	
+	public static class A_Result {
+		@Test
+		public void itCanBeHealthy() throws Exception {
+			assertThat(Result.healthy().isHealthy(), is(true));
+			assertThat(Result.healthy().toString(), is("OK"));
+			assertThat(Result.healthy("fine").toString(), is("OK: fine"));
+		}
+		
+		@Test
+		public void itCanBeUnhealthy() throws Exception {
+			assertThat(Result.unhealthy("bad").isHealthy(), is(false));
+			assertThat(Result.unhealthy("bad").toString(), is("ERROR: bad"));
+		}
+	}
+	
+	public static class A_Deadlock_Health_Check {
+		@Test
+		public void itIsHealthyWithoutDeadlockedThreads() throws Exception {
+			final ThreadMXBean threads = mock(ThreadMXBean.class);
+			
+			assertThat(new DeadlockHealthCheck(threads).execute().isHealthy(), is(true));
+		}
+		
+		@Test
+		public void itIsUnhealthyWithDeadlockedThreads() throws Exception {
+			final ThreadInfo info = mock(ThreadInfo.class);
+			when(info.getThreadName()).thenReturn("worker-1");
+			when(info.getLockName()).thenReturn("java.lang.Object@1234");
+			final ThreadMXBean threads = mock(ThreadMXBean.class);
+			when(threads.findDeadlockedThreads()).thenReturn(new long[] { 1 });
+			when(threads.getThreadInfo(new long[] { 1 })).thenReturn(new ThreadInfo[] { info });
+			
+			final Result result = new DeadlockHealthCheck(threads).execute();
+			
+			assertThat(result.isHealthy(), is(false));
+			assertThat(result.getMessage(), is("deadlocked threads: worker-1 (waiting on java.lang.Object@1234)"));
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Transaction;
+import org.hibernate.event.EventSource;
+import org.hibernate.event.PostLoadEvent;
+import org.hibernate.event.PostUpdateEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.hibernate.EntityChange;
+import com.codahale.shore.hibernate.EntityChangeEventListener;
+import com.codahale.shore.hibernate.EntityChangeListener;
+import com.codahale.shore.hibernate.EntityChanges;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+@RunWith(Enclosed.class)
+public class EntityChangesTest {
+	private static class Widget {
+		
+	}
+	
+	public static class Publishing_Changes {
+		private EntityChanges changes;
+		private EntityChangeListener first, second;
+		private EntityChange change;
+		
+		@Before
+		public void setup() throws Exception {
+			this.changes = new EntityChanges();
+			this.first = mock(EntityChangeListener.class);
+			this.second = mock(EntityChangeListener.class);
+			this.change = new EntityChange(EntityChange.Type.UPDATE, Widget.class, 42L);
+			changes.subscribe(first);
+			changes.subscribe(second);
+		}
+		
+		@Test
+		public void itPublishesToEverySubscriber() throws Exception {
+			changes.publish(change);
+			
+			verify(first).onChange(change);
+			verify(second).onChange(change);
+		}
+		
+		@Test
+		public void itKeepsPublishingIfASubscriberFails() throws Exception {
+			doThrow(new IllegalStateException("boom")).when(first).onChange(change);
+			
+			changes.publish(change);
+			
+			verify(second).onChange(change);
+		}
+		
+		@Test
+		public void itStopsPublishingToUnsubscribers() throws Exception {
+			changes.unsubscribe(first);
+			changes.publish(change);
+			
+			verify(first, never()).onChange(any(EntityChange.class));
+		}
+	}
+	
+	public static class An_Entity_Change {
+		@Test
+		public void itHasAKey() throws Exception {
+			final EntityChange change = new EntityChange(EntityChange.Type.DELETE, Widget.class, 42L);
+			
+			assertThat(change.getKey(), is(Widget.class.getName() + "#42"));
+			assertThat(change.toString(), is("DELETE " + Widget.class.getName() + "#42"));
+		}
+	}
+	
+	public static class The_Event_Listener {
+		private EntityChanges changes;
+		private EntityChangeListener subscriber;
+		private EntityChangeEventListener listener;
+		private Transaction transaction;
+		private PostUpdateEvent event;
+		private final List<Synchronization> synchronizations = Lists.newArrayList();
+		
+		@Before
+		public void setup() throws Exception {
+			this.changes = new EntityChanges();
+			this.subscriber = mock(EntityChangeListener.class);
+			changes.subscribe(subscriber);
+			this.listener = new EntityChangeEventListener(changes);
+			
+			this.transaction = mock(Transaction.class);
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					synchronizations.add((Synchronization) invocation.getArguments()[0]);
+					return null;
+				}
+			}).when(transaction).registerSynchronization(any(Synchronization.class));
+			final EventSource session = mock(EventSource.class);
+			when(session.getTransaction()).thenReturn(transaction);
+			this.event = mock(PostUpdateEvent.class);
+			when(event.getSession()).thenReturn(session);
+			when(event.getEntity()).thenReturn(new Widget());
+			when(event.getId()).thenReturn(42L);
+		}
+		
+		@Test
+		public void itPublishesChangesOnceTheTransactionCommits() throws Exception {
+			when(transaction.isActive()).thenReturn(true);
+			
+			listener.onPostUpdate(event);
+			
+			verify(subscriber, never()).onChange(any(EntityChange.class));
+			
+			synchronizations.get(0).afterCompletion(Status.STATUS_COMMITTED);
+			
+			verify(subscriber).onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 42L));
+		}
+		
+		@Test
+		public void itDoesNotPublishRolledBackChanges() throws Exception {
+			when(transaction.isActive()).thenReturn(true);
+			
+			listener.onPostUpdate(event);
+			
+			synchronizations.get(0).afterCompletion(Status.STATUS_ROLLEDBACK);
+			
+			verify(subscriber, never()).onChange(any(EntityChange.class));
+		}
+		
+		@Test
+		public void itPublishesChangesOutsideTransactionsImmediately() throws Exception {
+			when(transaction.isActive()).thenReturn(false);
+			
+			listener.onPostUpdate(event);
+			
+			verify(subscriber).onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 42L));
+		}
+		
+		@Test
+		public void itRecordsLoads() throws Exception {
+			final PostLoadEvent load = mock(PostLoadEvent.class);
+			when(load.getEntity()).thenReturn(new Widget());
+			when(load.getId()).thenReturn(42L);
+			
+			listener.onPostLoad(load);
+			EntityChanges.startRecordingLoads();
+			listener.onPostLoad(load);
+			final Set<String> loaded = EntityChanges.stopRecordingLoads();
+			
+			assertThat(loaded, is((Set<String>) ImmutableSet.of(Widget.class.getName(), Widget.class.getName() + "#42")));
+			assertThat(EntityChanges.stopRecordingLoads().isEmpty(), is(true));
+		}
+	}
+}
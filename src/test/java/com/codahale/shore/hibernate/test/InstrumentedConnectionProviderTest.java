@@ -0,0 +1,111 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.DriverManagerConnectionProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.hibernate.InstrumentedConnectionProvider;
+
+@RunWith(Enclosed.class)
+public class InstrumentedConnectionProviderTest {
+	private static Properties buildProperties() {
+		final Properties properties = new Properties();
+		properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+		properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:InstrumentedConnectionProviderTest");
+		properties.setProperty(Environment.USER, "sa");
+		properties.setProperty(Environment.PASS, "");
+		properties.setProperty(Environment.POOL_SIZE, "1");
+		properties.setProperty(InstrumentedConnectionProvider.DELEGATE_PROPERTY, DriverManagerConnectionProvider.class.getName());
+		return properties;
+	}
+	
+	public static class Configuring_A_Provider {
+		@Test
+		public void itWrapsTheDelegateProvider() throws Exception {
+			final InstrumentedConnectionProvider provider = new InstrumentedConnectionProvider();
+			provider.configure(buildProperties());
+			try {
+				assertThat(provider.getDelegate(), is(instanceOf(DriverManagerConnectionProvider.class)));
+			} finally {
+				provider.close();
+			}
+		}
+		
+		@Test
+		public void itRecordsToTheStatisticsWithTheConfiguredId() throws Exception {
+			final DatabaseStatistics statistics = new DatabaseStatistics();
+			final Properties properties = buildProperties();
+			properties.setProperty(DatabaseStatistics.ID_PROPERTY, statistics.getId());
+			
+			final InstrumentedConnectionProvider provider = new InstrumentedConnectionProvider();
+			provider.configure(properties);
+			try {
+				assertThat(provider.getStatistics(), is(sameInstance(statistics)));
+			} finally {
+				provider.close();
+			}
+		}
+		
+		@Test(expected=HibernateException.class)
+		public void itRequiresADelegateProvider() throws Exception {
+			final Properties properties = buildProperties();
+			properties.remove(InstrumentedConnectionProvider.DELEGATE_PROPERTY);
+			
+			new InstrumentedConnectionProvider().configure(properties);
+		}
+	}
+	
+	public static class Using_A_Connection {
+		private InstrumentedConnectionProvider provider;
+		private Connection connection;
+		
+		@Before
+		public void setup() throws Exception {
+			this.provider = new InstrumentedConnectionProvider();
+			provider.configure(buildProperties());
+			this.connection = provider.getConnection();
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			provider.closeConnection(connection);
+			provider.close();
+		}
+		
+		@Test
+		public void itRecordsConnectionAcquisitions() throws Exception {
+			assertThat(provider.getStatistics().getConnectionAcquisitions().getCount(), is(1L));
+		}
+		
+		@Test
+		public void itDoesNotWrapConnections() throws Exception {
+			assertThat(Proxy.isProxyClass(connection.getClass()), is(false));
+		}
+		
+		@Test
+		public void itDoesNotRecordStatements() throws Exception {
+			final Statement statement = connection.createStatement();
+			statement.execute("CALL 1");
+			statement.close();
+			
+			connection.setAutoCommit(false);
+			connection.commit();
+			
+			assertThat(provider.getStatistics().getStatements().getCount(), is(0L));
+		}
+	}
+}
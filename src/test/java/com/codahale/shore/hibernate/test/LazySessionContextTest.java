@@ -0,0 +1,104 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.hibernate.HibernateException;
+import org.hibernate.classic.Session;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.hibernate.LazySessionContext;
+
+@RunWith(Enclosed.class)
+public class LazySessionContextTest {
+	private static abstract class Context {
+		protected SessionFactoryImplementor factory;
+		protected Session session;
+		protected LazySessionContext context;
+		
+		@Before
+		public void setup() throws Exception {
+			this.session = mock(Session.class);
+			when(session.isOpen()).thenReturn(true);
+			this.factory = mock(SessionFactoryImplementor.class);
+			when(factory.openSession()).thenReturn(session);
+			this.context = new LazySessionContext(factory);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			LazySessionContext.end();
+		}
+	}
+	
+	public static class A_Unit_Of_Work_Which_Uses_A_Session extends Context {
+		@Test
+		public void itOpensASessionOnFirstUse() throws Exception {
+			LazySessionContext.begin();
+			verify(factory, never()).openSession();
+			
+			assertThat(context.currentSession(), is(sameInstance(session)));
+			assertThat(context.currentSession(), is(sameInstance(session)));
+			verify(factory, times(1)).openSession();
+		}
+		
+		@Test
+		public void itClosesTheSessionWhenItEnds() throws Exception {
+			LazySessionContext.begin();
+			context.currentSession();
+			
+			assertThat(LazySessionContext.end(), is(true));
+			verify(session).close();
+		}
+	}
+	
+	public static class A_Unit_Of_Work_With_Two_Session_Factories extends Context {
+		@Test
+		public void itOpensASessionFromEachFactory() throws Exception {
+			final Session otherSession = mock(Session.class);
+			when(otherSession.isOpen()).thenReturn(true);
+			final SessionFactoryImplementor otherFactory = mock(SessionFactoryImplementor.class);
+			when(otherFactory.openSession()).thenReturn(otherSession);
+			final LazySessionContext otherContext = new LazySessionContext(otherFactory);
+			
+			LazySessionContext.begin();
+			assertThat(context.currentSession(), is(sameInstance(session)));
+			assertThat(otherContext.currentSession(), is(sameInstance(otherSession)));
+			
+			assertThat(LazySessionContext.end(), is(true));
+			verify(session).close();
+			verify(otherSession).close();
+		}
+	}
+	
+	public static class A_Unit_Of_Work_Which_Does_Not_Use_A_Session extends Context {
+		@Test
+		public void itNeverOpensASession() throws Exception {
+			LazySessionContext.begin();
+			
+			assertThat(LazySessionContext.end(), is(false));
+			verifyZeroInteractions(factory);
+		}
+	}
+	
+	public static class Asking_For_A_Session_Outside_A_Unit_Of_Work extends Context {
+		@Test(expected=HibernateException.class)
+		public void itThrowsAnException() throws Exception {
+			context.currentSession();
+		}
+	}
+	
+	public static class Beginning_Nested_Units_Of_Work extends Context {
+		@Test(expected=IllegalStateException.class)
+		public void itThrowsAnException() throws Exception {
+			LazySessionContext.begin();
+			LazySessionContext.begin();
+		}
+	}
+}
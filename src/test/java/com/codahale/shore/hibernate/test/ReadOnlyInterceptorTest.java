@@ -0,0 +1,64 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.dao.ReadOnly;
+import com.codahale.shore.hibernate.ReadOnlyContext;
+import com.codahale.shore.hibernate.ReadOnlyInterceptor;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
+
+@RunWith(Enclosed.class)
+public class ReadOnlyInterceptorTest {
+	public static class WidgetDAO {
+		@ReadOnly
+		public boolean read() {
+			return ReadOnlyContext.isReadOnly();
+		}
+		
+		public boolean write() {
+			return ReadOnlyContext.isReadOnly();
+		}
+		
+		@ReadOnly
+		public boolean readThenFail() {
+			throw new IllegalStateException("oops");
+		}
+	}
+	
+	public static class Calling_An_Annotated_Method {
+		private final WidgetDAO dao = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bindInterceptor(Matchers.any(), Matchers.annotatedWith(ReadOnly.class), new ReadOnlyInterceptor());
+			}
+		}).getInstance(WidgetDAO.class);
+		
+		@Test
+		public void itRunsTheMethodInAReadOnlyUnitOfWork() throws Exception {
+			assertThat(dao.read(), is(true));
+			assertThat(ReadOnlyContext.isReadOnly(), is(false));
+		}
+		
+		@Test
+		public void itDoesNotAffectOtherMethods() throws Exception {
+			assertThat(dao.write(), is(false));
+		}
+		
+		@Test
+		public void itEndsTheUnitOfWorkIfTheMethodThrows() throws Exception {
+			try {
+				dao.readThenFail();
+				fail("should have thrown an IllegalStateException");
+			} catch (IllegalStateException e) {
+				assertThat(ReadOnlyContext.isReadOnly(), is(false));
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.hibernate.ReadOnlyContext;
+import com.codahale.shore.hibernate.RoutingConnectionProvider;
+import com.codahale.shore.pool.PooledConnectionProvider;
+
+@RunWith(Enclosed.class)
+public class RoutingConnectionProviderTest {
+	private static final String PRIMARY_URL = "jdbc:hsqldb:mem:RoutingPrimary";
+	private static final String REPLICA_URL = "jdbc:hsqldb:mem:RoutingReplica";
+	
+	private static abstract class Context {
+		protected RoutingConnectionProvider provider;
+		
+		@Before
+		public void setup() throws Exception {
+			Class.forName("org.hsqldb.jdbcDriver");
+			execute(PRIMARY_URL, "DROP TABLE marker IF EXISTS", "CREATE TABLE marker (name VARCHAR(20))", "INSERT INTO marker VALUES ('primary')");
+			execute(REPLICA_URL, "DROP TABLE marker IF EXISTS", "CREATE TABLE marker (name VARCHAR(20))", "INSERT INTO marker VALUES ('replica')");
+			execute(REPLICA_URL, "DROP TABLE lag IF EXISTS", "CREATE TABLE lag (seconds INTEGER)", "INSERT INTO lag VALUES (0)");
+			
+			this.provider = new RoutingConnectionProvider();
+			provider.configure(buildProperties());
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			provider.close();
+			while (ReadOnlyContext.isReadOnly()) {
+				ReadOnlyContext.end();
+			}
+		}
+		
+		protected Properties buildProperties() {
+			final Properties properties = new Properties();
+			properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+			properties.setProperty(Environment.URL, PRIMARY_URL);
+			properties.setProperty(Environment.USER, "sa");
+			properties.setProperty(Environment.PASS, "");
+			properties.setProperty(RoutingConnectionProvider.DELEGATE_PROPERTY, PooledConnectionProvider.class.getName());
+			properties.setProperty(RoutingConnectionProvider.REPLICA_URL, REPLICA_URL);
+			properties.setProperty(RoutingConnectionProvider.REPLICA_CHECK_INTERVAL, "0");
+			return properties;
+		}
+		
+		protected String database() throws Exception {
+			final Connection connection = provider.getConnection();
+			try {
+				final Statement statement = connection.createStatement();
+				final ResultSet results = statement.executeQuery("SELECT name FROM marker");
+				results.next();
+				final String name = results.getString(1);
+				results.close();
+				statement.close();
+				return name;
+			} finally {
+				provider.closeConnection(connection);
+			}
+		}
+		
+		protected static void execute(String url, String... sql) throws Exception {
+			final Connection connection = DriverManager.getConnection(url, "sa", "");
+			try {
+				final Statement statement = connection.createStatement();
+				for (String s : sql) {
+					statement.execute(s);
+				}
+				statement.close();
+			} finally {
+				connection.close();
+			}
+		}
+	}
+	
+	public static class Routing_Connections extends Context {
+		@Test
+		public void itSendsReadWriteUnitsOfWorkToThePrimary() throws Exception {
+			assertThat(database(), is("primary"));
+		}
+		
+		@Test
+		public void itSendsReadOnlyUnitsOfWorkToTheReplica() throws Exception {
+			ReadOnlyContext.begin();
+			assertThat(database(), is("replica"));
+			ReadOnlyContext.end();
+			
+			assertThat(database(), is("primary"));
+		}
+		
+		@Test
+		public void itStaysReadOnlyUntilTheOutermostUnitOfWorkEnds() throws Exception {
+			ReadOnlyContext.begin();
+			ReadOnlyContext.begin();
+			ReadOnlyContext.end();
+			
+			assertThat(database(), is("replica"));
+		}
+		
+		@Test
+		public void itReturnsConnectionsToTheDatabaseTheyCameFrom() throws Exception {
+			ReadOnlyContext.begin();
+			database();
+			
+			assertThat(PooledConnectionProvider.getPools().get("replica").getIdleConnections(), is(1));
+			assertThat(PooledConnectionProvider.getPools().get("primary").getIdleConnections(), is(0));
+		}
+	}
+	
+	public static class A_Lagging_Replica extends Context {
+		@Override
+		protected Properties buildProperties() {
+			final Properties properties = super.buildProperties();
+			properties.setProperty(RoutingConnectionProvider.REPLICA_LAG_QUERY, "SELECT seconds FROM lag");
+			properties.setProperty(RoutingConnectionProvider.REPLICA_MAX_LAG, "10");
+			return properties;
+		}
+		
+		@Test
+		public void itSendsReadsToThePrimary() throws Exception {
+			execute(REPLICA_URL, "UPDATE lag SET seconds = 100");
+			provider.getMonitor().check();
+			ReadOnlyContext.begin();
+			
+			assertThat(provider.getMonitor().getLag(), is(100L));
+			assertThat(database(), is("primary"));
+		}
+		
+		@Test
+		public void itSendsReadsBackToTheReplicaOnceItCatchesUp() throws Exception {
+			execute(REPLICA_URL, "UPDATE lag SET seconds = 100");
+			provider.getMonitor().check();
+			execute(REPLICA_URL, "UPDATE lag SET seconds = 2");
+			provider.getMonitor().check();
+			ReadOnlyContext.begin();
+			
+			assertThat(database(), is("replica"));
+		}
+	}
+	
+	public static class A_Failed_Replica extends Context {
+		@Override
+		protected Properties buildProperties() {
+			final Properties properties = super.buildProperties();
+			properties.setProperty(RoutingConnectionProvider.REPLICA_CHECK_INTERVAL, "60000");
+			return properties;
+		}
+		
+		@Test
+		public void itSendsReadsToThePrimaryForAWhile() throws Exception {
+			provider.getMonitor().markFailed(new Exception("boom"));
+			ReadOnlyContext.begin();
+			
+			assertThat(provider.getMonitor().isAvailable(), is(false));
+			assertThat(database(), is("primary"));
+		}
+	}
+	
+	public static class An_Unconfigured_Provider {
+		@Test(expected=HibernateException.class)
+		public void itRequiresAReplicaURL() throws Exception {
+			final Properties properties = new Properties();
+			properties.setProperty(RoutingConnectionProvider.DELEGATE_PROPERTY, PooledConnectionProvider.class.getName());
+			
+			new RoutingConnectionProvider().configure(properties);
+		}
+	}
+}
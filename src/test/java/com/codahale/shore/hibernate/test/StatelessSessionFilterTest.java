@@ -0,0 +1,289 @@
+package com.codahale.shore.hibernate.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.FilterMapping;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.hibernate.StatelessSessionFilter;
+import com.codahale.shore.hibernate.StatelessSessionProvider;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+@RunWith(Enclosed.class)
+public class StatelessSessionFilterTest {
+	private static abstract class Context {
+		protected StatelessSession session;
+		protected Transaction transaction;
+		protected StatelessSessionProvider provider;
+		protected StatelessSessionFilter filter;
+		protected ServletRequest request;
+		protected HttpServletResponse response;
+		
+		@Before
+		public void setup() throws Exception {
+			this.transaction = mock(Transaction.class);
+			when(transaction.isActive()).thenReturn(true);
+			this.session = mock(StatelessSession.class);
+			when(session.getTransaction()).thenReturn(transaction);
+			final SessionFactory sessionFactory = mock(SessionFactory.class);
+			when(sessionFactory.openStatelessSession()).thenReturn(session);
+			
+			this.provider = new StatelessSessionProvider(new Provider<SessionFactory>() {
+				@Override
+				public SessionFactory get() {
+					return sessionFactory;
+				}
+			});
+			this.filter = new StatelessSessionFilter();
+			this.request = mock(ServletRequest.class);
+			this.response = mock(HttpServletResponse.class);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			StatelessSessionProvider.close(false);
+		}
+		
+		protected FilterChain chainWhich(final Answer<Void> answer) throws Exception {
+			final FilterChain chain = mock(FilterChain.class);
+			doAnswer(answer).when(chain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+			return chain;
+		}
+	}
+	
+	public static class Providing_A_Stateless_Session extends Context {
+		@Test
+		public void itOpensASessionAndATransactionOnFirstUse() throws Exception {
+			assertThat(provider.get(), is(sameInstance(session)));
+			assertThat(provider.get(), is(sameInstance(session)));
+			
+			verify(session, times(1)).beginTransaction();
+		}
+	}
+	
+	public static class A_Request_Which_Uses_A_Stateless_Session extends Context {
+		@Test
+		public void itCommitsAndClosesTheSession() throws Exception {
+			filter.doFilter(request, response, chainWhich(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					provider.get();
+					return null;
+				}
+			}));
+			
+			verify(transaction).commit();
+			verify(transaction, never()).rollback();
+			verify(session).close();
+		}
+	}
+	
+	public static class A_Request_Which_Flushes_Its_Response extends Context {
+		private FilterChain chain;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.chain = chainWhich(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					provider.get();
+					((ServletResponse) invocation.getArguments()[1]).flushBuffer();
+					return null;
+				}
+			});
+		}
+		
+		@Test
+		public void itCommitsBeforeFlushingTheResponse() throws Exception {
+			filter.doFilter(request, response, chain);
+			
+			final InOrder inOrder = inOrder(transaction, response);
+			inOrder.verify(transaction).commit();
+			inOrder.verify(response).flushBuffer();
+		}
+		
+		@Test
+		public void itDoesNotFlushTheResponseIfTheCommitFails() throws Exception {
+			doThrow(new HibernateException("oh no")).when(transaction).commit();
+			
+			try {
+				filter.doFilter(request, response, chain);
+				fail("should have thrown a HibernateException");
+			} catch (HibernateException e) {
+				assertThat(e.getMessage(), is("oh no"));
+			}
+			
+			verify(response, never()).flushBuffer();
+		}
+	}
+	
+	public static class A_Request_Which_Fails extends Context {
+		@Test
+		public void itRollsBackAndClosesTheSession() throws Exception {
+			try {
+				filter.doFilter(request, response, chainWhich(new Answer<Void>() {
+					@Override
+					public Void answer(InvocationOnMock invocation) throws Throwable {
+						provider.get();
+						throw new ServletException("oh no");
+					}
+				}));
+				fail("should have thrown a ServletException");
+			} catch (ServletException e) {
+				assertThat(e.getMessage(), is("oh no"));
+			}
+			
+			verify(transaction).rollback();
+			verify(transaction, never()).commit();
+			verify(session).close();
+		}
+	}
+	
+	public static class A_Request_Which_Does_Not_Use_A_Stateless_Session extends Context {
+		@Test
+		public void itDoesNotOpenASession() throws Exception {
+			final FilterChain chain = mock(FilterChain.class);
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(eq(request), any(ServletResponse.class));
+			verifyZeroInteractions(session);
+		}
+	}
+	
+	public static class A_Request_Handled_By_A_Servlet extends Context {
+		private Server server;
+		private LocalConnector connector;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			final ServletContextHandler context = new ServletContextHandler();
+			context.addServlet(new ServletHolder(new HttpServlet() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+					if (req.getRequestURI().equals("/stateless")) {
+						provider.get();
+					}
+					resp.setContentType("text/plain");
+					resp.getWriter().print("hoople");
+					resp.flushBuffer();
+				}
+			}), "/*");
+			context.addFilter(new FilterHolder(filter), "/*", FilterMapping.DEFAULT);
+			this.connector = new LocalConnector();
+			this.server = new Server();
+			server.addConnector(connector);
+			server.setHandler(context);
+			server.start();
+		}
+		
+		@After
+		public void stopServer() throws Exception {
+			server.stop();
+		}
+		
+		@Test
+		public void itServesRequestsWhichDoNotUseAStatelessSession() throws Exception {
+			final String response = connector.getResponses("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+			
+			assertThat(response.startsWith("HTTP/1.1 200 OK"), is(true));
+			assertThat(response.endsWith("hoople"), is(true));
+			verifyZeroInteractions(session);
+		}
+		
+		@Test
+		public void itCommitsAndThenServesRequestsWhichUseAStatelessSession() throws Exception {
+			final String response = connector.getResponses("GET /stateless HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+			
+			assertThat(response.startsWith("HTTP/1.1 200 OK"), is(true));
+			assertThat(response.endsWith("hoople"), is(true));
+			verify(transaction).commit();
+			verify(session).close();
+		}
+	}
+	
+	public static class Deciding_Whether_The_Filter_Is_Required {
+		private static class StatelessWidgetDAO {
+			@Inject
+			public StatelessWidgetDAO(Provider<StatelessSession> provider) {
+				// nothing to see here
+			}
+		}
+		
+		private static class StatelessWidgetResource {
+			@Inject
+			public StatelessWidgetResource(StatelessWidgetDAO dao) {
+				// nothing to see here
+			}
+		}
+		
+		private static class WidgetResource {
+			@Inject
+			public WidgetResource(Injector injector) {
+				// nothing to see here
+			}
+		}
+		
+		private final Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(StatelessWidgetDAO.class);
+			}
+		});
+		
+		@Test
+		public void itIsRequiredIfAResourceDependsOnAStatelessSession() throws Exception {
+			assertThat(StatelessSessionFilter.isRequired(Guice.createInjector(), ImmutableList.<Class<?>>of(StatelessWidgetResource.class)), is(true));
+		}
+		
+		@Test
+		public void itIsRequiredIfABoundClassDependsOnAStatelessSession() throws Exception {
+			assertThat(StatelessSessionFilter.isRequired(injector, ImmutableList.<Class<?>>of(WidgetResource.class)), is(true));
+		}
+		
+		@Test
+		public void itIsNotRequiredIfNothingDependsOnAStatelessSession() throws Exception {
+			assertThat(StatelessSessionFilter.isRequired(Guice.createInjector(), ImmutableList.<Class<?>>of(WidgetResource.class)), is(false));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.codahale.shore.index.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.index.ClassIndex;
+import com.codahale.shore.modules.test.fixtures.Cat;
+import com.codahale.shore.modules.test.fixtures.Dog;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+
+@RunWith(Enclosed.class)
+public class ClassIndexTest {
+	public static class An_Empty_Index {
+		private ClassIndex index;
+		
+		@Before
+		public void setup() throws Exception {
+			this.index = ClassIndex.read("nonexistent", getClass().getClassLoader());
+		}
+		
+		@Test
+		public void itIsEmpty() throws Exception {
+			assertThat(index.isEmpty(), is(true));
+		}
+		
+		@Test
+		public void itHasNoClasses() throws Exception {
+			assertThat(index.getClasses("com.codahale.shore").isEmpty(), is(true));
+		}
+		
+		@Test
+		public void itHasUnindexedRootsForPackagesOnTheClasspath() throws Exception {
+			assertThat(index.getUnindexedRoots("com.codahale.shore.modules.test.fixtures").isEmpty(), is(false));
+		}
+		
+		@Test
+		public void itHasNoUnindexedRootsForPackagesNotOnTheClasspath() throws Exception {
+			assertThat(index.getUnindexedRoots("com.example.nonexistent").isEmpty(), is(true));
+		}
+	}
+	
+	public static class An_Index_Read_From_A_Classpath_Root {
+		private ClassIndex index;
+		
+		@Before
+		public void setup() throws Exception {
+			final String path = "com/codahale/shore/modules/test/fixtures";
+			final String url = getClass().getClassLoader().getResource(path).toString();
+			final String root = url.substring(0, url.lastIndexOf(path));
+			this.index = new ClassIndex(getClass().getClassLoader(), ImmutableList.of(root), ImmutableList.of(
+				"com.codahale.shore.modules.test.fixtures.Dog"
+			));
+		}
+		
+		@Test
+		public void itHasNoUnindexedRootsForPackagesInTheRoot() throws Exception {
+			assertThat(index.getUnindexedRoots("com.codahale.shore.modules.test.fixtures").isEmpty(), is(true));
+		}
+		
+		@Test
+		public void itTrustsTheIndexForPackagesInTheRoot() throws Exception {
+			assertThat(index.getClasses("com.codahale.shore.modules.test.fixtures"), is((Set<Class<?>>) ImmutableSet.<Class<?>>of(Dog.class)));
+		}
+	}
+	
+	public static class An_Index {
+		private ClassIndex index;
+		
+		@Before
+		public void setup() throws Exception {
+			this.index = new ClassIndex(getClass().getClassLoader(), ImmutableList.of(
+				"com.codahale.shore.modules.test.fixtures.Dog",
+				"com.codahale.shore.modules.test.fixtures.Cat",
+				"com.codahale.shore.modules.test.fixtures.sub.Bird",
+				"com.codahale.shore.modules.test.fixturesque.Fish"
+			));
+		}
+		
+		@Test
+		public void itIsNotEmpty() throws Exception {
+			assertThat(index.isEmpty(), is(false));
+		}
+		
+		@Test
+		public void itReturnsTheClassNamesInAPackageAndItsSubpackages() throws Exception {
+			assertThat(index.getClassNames("com.codahale.shore.modules.test.fixtures"), is((Set<String>) ImmutableSortedSet.of(
+				"com.codahale.shore.modules.test.fixtures.Cat",
+				"com.codahale.shore.modules.test.fixtures.Dog",
+				"com.codahale.shore.modules.test.fixtures.sub.Bird"
+			)));
+		}
+		
+		@Test
+		public void itReturnsNoClassNamesForAnUnindexedPackage() throws Exception {
+			assertThat(index.getClassNames("com.example").isEmpty(), is(true));
+		}
+		
+		@Test
+		public void itLoadsTheClassesWhichExist() throws Exception {
+			assertThat(index.getClasses("com.codahale.shore.modules.test.fixtures"), is((Set<Class<?>>) ImmutableSet.<Class<?>>of(Cat.class, Dog.class)));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.codahale.shore.integration.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.codahale.shore.Shore;
+import com.codahale.shore.server.InstrumentedThreadPool;
+import com.google.common.collect.Lists;
+
+/**
+ * Holds open far more keep-alive connections than the server has worker
+ * threads, and checks that the server keeps answering requests.
+ */
+public class ConnectionScalingTest {
+	private static final int CONNECTIONS = 400;
+	private static final int MAX_THREADS = 32;
+
+	private static class ScalingTestConfig extends IntegrationTestConfig {
+		private volatile InstrumentedThreadPool threadPool;
+
+		@Override
+		protected void configure() {
+			super.configure();
+			setThreadPoolSize(4, MAX_THREADS);
+		}
+
+		@Override
+		public ThreadPool getThreadPool() {
+			this.threadPool = (InstrumentedThreadPool) super.getThreadPool();
+			return threadPool;
+		}
+	}
+
+	private static ScalingTestConfig config = new ScalingTestConfig();
+	private static ExecutorService executor = Executors.newSingleThreadExecutor();
+	private static int port = new Random().nextInt(10000) + 20000;
+
+	@BeforeClass
+	public static void setupThread() throws Exception {
+		Logger.getLogger("org.hibernate").setLevel(Level.OFF);
+		Logger.getLogger("org.eclipse.jetty").setLevel(Level.OFF);
+		Logger.getLogger("com.sun.jersey").setLevel(Level.OFF);
+		Logger.getLogger("com.mchange").setLevel(Level.OFF);
+		Logger.getLogger("com.codahale").setLevel(Level.OFF);
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Shore.run(config, "server", "-p", Integer.toString(port), "-c", "src/test/resources/hsql-memory.properties");
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		waitForServer();
+	}
+
+	private static void waitForServer() throws Exception {
+		final long deadline = System.currentTimeMillis() + 60000;
+		while (true) {
+			try {
+				new Socket("localhost", port).close();
+				return;
+			} catch (IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw e;
+				}
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	@Test
+	public void itHoldsMoreIdleKeepAliveConnectionsThanItHasThreads() throws Exception {
+		final List<Socket> sockets = Lists.newArrayListWithCapacity(CONNECTIONS);
+		try {
+			for (int i = 0; i < CONNECTIONS; i++) {
+				final Socket socket = new Socket("localhost", port);
+				socket.setSoTimeout(10000);
+				sockets.add(socket);
+				assertThat(head(socket), is("HTTP/1.1 404 Not Found"));
+			}
+
+			// every connection is now idle and kept alive, without tying up a
+			// worker thread
+			assertThat(config.threadPool.getThreads() <= MAX_THREADS, is(true));
+			assertThat(config.threadPool.getActiveThreads() < MAX_THREADS, is(true));
+
+			// a new one should still be served promptly
+			final Socket socket = new Socket("localhost", port);
+			socket.setSoTimeout(2000);
+			sockets.add(socket);
+			assertThat(head(socket), is("HTTP/1.1 404 Not Found"));
+
+			// and so should the idle ones
+			for (Socket idle : sockets) {
+				assertThat(head(idle), is("HTTP/1.1 404 Not Found"));
+			}
+
+			assertThat(config.threadPool.getThreads() <= MAX_THREADS, is(true));
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	private String head(Socket socket) throws IOException {
+		final OutputStream output = socket.getOutputStream();
+		// HEAD responses have no body, so the headers are all there is to read
+		output.write("HEAD /widget/nonexistent HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes("US-ASCII"));
+		output.flush();
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+		final String statusLine = reader.readLine();
+		String line;
+		while (((line = reader.readLine()) != null) && (line.length() > 0)) {
+			// skip headers
+		}
+		return statusLine;
+	}
+
+	@AfterClass
+	public static void teardownThread() throws Exception {
+		executor.shutdown();
+	}
+}
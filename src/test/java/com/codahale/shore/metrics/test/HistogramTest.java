@@ -0,0 +1,97 @@
+package com.codahale.shore.metrics.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.metrics.Histogram;
+
+@RunWith(Enclosed.class)
+public class HistogramTest {
+	public static class An_Empty_Histogram {
+		private final Histogram histogram = new Histogram();
+		
+		@Test
+		public void itHasNoValues() throws Exception {
+			assertThat(histogram.getCount(), is(0L));
+			assertThat(histogram.getSum(), is(0L));
+			assertThat(histogram.getMax(), is(0L));
+			assertThat(histogram.getMean(), is(0.0));
+			assertThat(histogram.getQuantile(0.99), is(0L));
+		}
+	}
+	
+	public static class A_Histogram_Of_Small_Values {
+		private Histogram histogram;
+		
+		@Before
+		public void setup() throws Exception {
+			this.histogram = new Histogram();
+			for (int i = 1; i <= 100; i++) {
+				histogram.update(i);
+			}
+		}
+		
+		@Test
+		public void itCountsTheValues() throws Exception {
+			assertThat(histogram.getCount(), is(100L));
+			assertThat(histogram.getSum(), is(5050L));
+			assertThat(histogram.getMax(), is(100L));
+			assertThat(histogram.getMean(), is(50.5));
+		}
+		
+		@Test
+		public void itEstimatesQuantiles() throws Exception {
+			assertThat(histogram.getQuantile(0.0), is(1L));
+			assertThat(histogram.getQuantile(0.25), is(25L));
+			assertThat(histogram.getQuantile(0.5), is(51L));
+			assertThat(histogram.getQuantile(1.0), is(100L));
+		}
+		
+		@Test(expected=IllegalArgumentException.class)
+		public void itRejectsQuantilesOutOfRange() throws Exception {
+			histogram.getQuantile(1.5);
+		}
+	}
+	
+	public static class A_Histogram_Of_Large_Values {
+		private Histogram histogram;
+		
+		@Before
+		public void setup() throws Exception {
+			this.histogram = new Histogram();
+			histogram.update(1000000);
+			histogram.update(2000000);
+			histogram.update(Long.MAX_VALUE);
+		}
+		
+		@Test
+		public void itEstimatesQuantilesWithinSixPercent() throws Exception {
+			final long median = histogram.getQuantile(0.3);
+			
+			assertTrue(median >= 1000000);
+			assertTrue(median <= 1062500);
+		}
+		
+		@Test
+		public void itHandlesTheLargestValues() throws Exception {
+			assertThat(histogram.getMax(), is(Long.MAX_VALUE));
+			assertThat(histogram.getQuantile(1.0), is(Long.MAX_VALUE));
+		}
+	}
+	
+	public static class Recording_A_Negative_Value {
+		@Test
+		public void itRecordsItAsZero() throws Exception {
+			final Histogram histogram = new Histogram();
+			histogram.update(-20);
+			
+			assertThat(histogram.getCount(), is(1L));
+			assertThat(histogram.getSum(), is(0L));
+		}
+	}
+}
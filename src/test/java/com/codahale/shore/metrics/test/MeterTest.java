@@ -0,0 +1,51 @@
+package com.codahale.shore.metrics.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.metrics.Meter;
+
+@RunWith(Enclosed.class)
+public class MeterTest {
+	public static class A_New_Meter {
+		private final Meter meter = new Meter();
+		
+		@Test
+		public void itHasNoEvents() throws Exception {
+			assertThat(meter.getCount(), is(0L));
+			assertThat(meter.getMeanRate(), is(0.0));
+		}
+		
+		@Test
+		public void itHasNoMovingAveragesUntilTheFirstTick() throws Exception {
+			meter.mark();
+			
+			assertThat(meter.getOneMinuteRate(), is(0.0));
+			assertThat(meter.getFiveMinuteRate(), is(0.0));
+			assertThat(meter.getFifteenMinuteRate(), is(0.0));
+		}
+	}
+	
+	public static class Marking_Events {
+		private final Meter meter = new Meter();
+		
+		@Test
+		public void itCountsThem() throws Exception {
+			meter.mark();
+			meter.mark(4);
+			
+			assertThat(meter.getCount(), is(5L));
+		}
+		
+		@Test
+		public void itHasAMeanRate() throws Exception {
+			meter.mark(100);
+			
+			assertThat(meter.getMeanRate() > 0.0, is(true));
+		}
+	}
+}
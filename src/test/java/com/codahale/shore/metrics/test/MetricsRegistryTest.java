@@ -0,0 +1,59 @@
+package com.codahale.shore.metrics.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.metrics.Timer;
+
+@RunWith(Enclosed.class)
+public class MetricsRegistryTest {
+	public static class A_Registry {
+		private final MetricsRegistry registry = new MetricsRegistry();
+		
+		@Test
+		public void itCreatesTimersOnce() throws Exception {
+			assertThat(registry.timer("one"), is(sameInstance(registry.timer("one"))));
+			assertThat(registry.timer("one"), is(not(sameInstance(registry.timer("two")))));
+		}
+		
+		@Test
+		public void itCreatesMetersOnce() throws Exception {
+			assertThat(registry.meter("one"), is(sameInstance(registry.meter("one"))));
+		}
+		
+		@Test
+		public void itCreatesHistogramsOnce() throws Exception {
+			assertThat(registry.histogram("one"), is(sameInstance(registry.histogram("one"))));
+		}
+		
+		@Test
+		public void itListsTimersByName() throws Exception {
+			final Timer b = registry.timer("b");
+			final Timer a = registry.timer("a");
+			
+			assertThat(registry.getTimers().keySet().iterator().next(), is("a"));
+			assertThat(registry.getTimers().get("a"), is(sameInstance(a)));
+			assertThat(registry.getTimers().get("b"), is(sameInstance(b)));
+		}
+	}
+	
+	public static class A_Timer {
+		private final Timer timer = new MetricsRegistry().timer("woo");
+		
+		@Test
+		public void itRecordsDurationsInMicroseconds() throws Exception {
+			timer.update(3, TimeUnit.MILLISECONDS);
+			
+			assertThat(timer.getCount(), is(1L));
+			assertThat(timer.getDurations().getMax(), is(3000L));
+			assertThat(timer.getMeter().getCount(), is(1L));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.codahale.shore.metrics.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.metrics.StripedCounter;
+import com.google.common.collect.Lists;
+
+@RunWith(Enclosed.class)
+public class StripedCounterTest {
+	public static class A_New_Counter {
+		@Test
+		public void itIsZero() throws Exception {
+			assertThat(new StripedCounter().sum(), is(0L));
+		}
+	}
+	
+	public static class Incrementing_A_Counter {
+		@Test
+		public void itSumsIncrementsAndAdditions() throws Exception {
+			final StripedCounter counter = new StripedCounter();
+			counter.increment();
+			counter.add(41);
+			
+			assertThat(counter.sum(), is(42L));
+			assertThat(counter.toString(), is("42"));
+		}
+		
+		@Test
+		public void itDoesNotLoseConcurrentIncrements() throws Exception {
+			final StripedCounter counter = new StripedCounter();
+			final ExecutorService executor = Executors.newFixedThreadPool(8);
+			try {
+				final List<Callable<Void>> tasks = Lists.newArrayList();
+				for (int i = 0; i < 8; i++) {
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							for (int j = 0; j < 10000; j++) {
+								counter.increment();
+							}
+							return null;
+						}
+					});
+				}
+				executor.invokeAll(tasks);
+			} finally {
+				executor.shutdown();
+			}
+			
+			assertThat(counter.sum(), is(80000L));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.codahale.shore.metrics.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.metrics.TimedResourceMethodDispatchAdapter;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+@RunWith(Enclosed.class)
+public class TimedResourceMethodDispatchAdapterTest {
+	public static class WidgetResource {
+		public String getWidget() {
+			return "widget";
+		}
+		
+		public String getGadget(String name) {
+			return name;
+		}
+		
+		public String getGadget(String name, int size) {
+			return name + size;
+		}
+	}
+	
+	public static class Dispatching_A_Resource_Method {
+		private MetricsRegistry metrics;
+		private RequestDispatcher inner;
+		private RequestDispatcher dispatcher;
+		private HttpContext context;
+		private Object resource;
+		
+		@Before
+		public void setup() throws Exception {
+			this.metrics = new MetricsRegistry();
+			this.inner = mock(RequestDispatcher.class);
+			this.context = mock(HttpContext.class);
+			this.resource = new WidgetResource();
+			
+			final AbstractResourceMethod method = mock(AbstractResourceMethod.class);
+			when(method.getMethod()).thenReturn(WidgetResource.class.getMethod("getWidget"));
+			final ResourceMethodDispatchProvider provider = mock(ResourceMethodDispatchProvider.class);
+			when(provider.create(method)).thenReturn(inner);
+			
+			this.dispatcher = new TimedResourceMethodDispatchAdapter(metrics).adapt(provider).create(method);
+		}
+		
+		@Test
+		public void itDispatchesTheRequest() throws Exception {
+			dispatcher.dispatch(resource, context);
+			
+			verify(inner).dispatch(resource, context);
+		}
+		
+		@Test
+		public void itTimesTheMethod() throws Exception {
+			dispatcher.dispatch(resource, context);
+			
+			final String name = WidgetResource.class.getName() + ".getWidget";
+			assertThat(metrics.getTimers().get(name).getCount(), is(1L));
+		}
+		
+		@Test
+		public void itTimesMethodsWhichThrowExceptions() throws Exception {
+			doThrow(new IllegalStateException("boom")).when(inner).dispatch(resource, context);
+			
+			try {
+				dispatcher.dispatch(resource, context);
+				fail("should have thrown an IllegalStateException");
+			} catch (IllegalStateException e) {
+				final String name = WidgetResource.class.getName() + ".getWidget";
+				assertThat(metrics.getTimers().get(name).getCount(), is(1L));
+			}
+		}
+	}
+	
+	public static class Dispatching_An_Overloaded_Resource_Method {
+		@Test
+		public void itTimesEachOverloadSeparately() throws Exception {
+			final MetricsRegistry metrics = new MetricsRegistry();
+			final TimedResourceMethodDispatchAdapter adapter = new TimedResourceMethodDispatchAdapter(metrics);
+			final ResourceMethodDispatchProvider provider = mock(ResourceMethodDispatchProvider.class);
+			when(provider.create(any(AbstractResourceMethod.class))).thenReturn(mock(RequestDispatcher.class));
+			
+			final AbstractResourceMethod one = mock(AbstractResourceMethod.class);
+			when(one.getMethod()).thenReturn(WidgetResource.class.getMethod("getGadget", String.class));
+			final AbstractResourceMethod two = mock(AbstractResourceMethod.class);
+			when(two.getMethod()).thenReturn(WidgetResource.class.getMethod("getGadget", String.class, int.class));
+			
+			adapter.adapt(provider).create(one).dispatch(new WidgetResource(), mock(HttpContext.class));
+			adapter.adapt(provider).create(two).dispatch(new WidgetResource(), mock(HttpContext.class));
+			
+			final String name = WidgetResource.class.getName() + ".getGadget";
+			assertThat(metrics.getTimers().get(name + "(String)").getCount(), is(1L));
+			assertThat(metrics.getTimers().get(name + "(String,int)").getCount(), is(1L));
+		}
+	}
+}
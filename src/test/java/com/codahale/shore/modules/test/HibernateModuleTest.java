@@ -21,6 +21,9 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.codahale.shore.hibernate.DatabaseStatistics;
+import com.codahale.shore.hibernate.TimedFlushEventListener;
+import com.codahale.shore.hibernate.TimedLoadEventListener;
 import com.codahale.shore.modules.HibernateInitializer;
 import com.codahale.shore.modules.HibernateModule;
 import com.google.common.collect.ImmutableList;
@@ -86,6 +89,13 @@ public class HibernateModuleTest {
 			assertThat(getProperty("hibernate.current_session_context_class"), is("managed"));
 		}
 		
+		@Test
+		public void itHasALazySessionContextIfConfigured() throws Exception {
+			properties.setProperty("shore.session.lazy", "true");
+			
+			assertThat(getProperty("hibernate.current_session_context_class"), is("com.codahale.shore.hibernate.LazySessionContext"));
+		}
+		
 		@Test
 		public void itFormatsSQLQueries() throws Exception {
 			assertThat(getProperty("hibernate.format_sql"), is("true"));
@@ -96,16 +106,83 @@ public class HibernateModuleTest {
 			assertThat(getProperty("hibernate.use_sql_comments"), is("true"));
 		}
 		
+		@Test
+		public void itBatchesInsertsAndUpdates() throws Exception {
+			assertThat(getProperty("hibernate.jdbc.batch_size"), is("50"));
+			assertThat(getProperty("hibernate.order_inserts"), is("true"));
+			assertThat(getProperty("hibernate.order_updates"), is("true"));
+			assertThat(getProperty("hibernate.jdbc.batch_versioned_data"), is("true"));
+		}
+		
 		@Test
 		public void itDoesNotKeepUsageStatistics() throws Exception {
 			assertThat(getProperty("hibernate.generate_statistics"), is("false"));
 		}
 		
 		@Test
-		public void itUsesC3P0sConnectionPool() throws Exception {
+		public void itUsesShoresConnectionPoolByDefault() throws Exception {
+			assertThat(getProperty("hibernate.connection.provider_class"), is("com.codahale.shore.pool.PooledConnectionProvider"));
+		}
+		
+		@Test
+		public void itUsesC3P0sConnectionPoolIfConfigured() throws Exception {
+			properties.setProperty("shore.connection.pool", "c3p0");
+			
 			assertThat(getProperty("hibernate.connection.provider_class"), is("org.hibernate.connection.C3P0ConnectionProvider"));
 		}
 		
+		@Test
+		public void itUsesCustomConnectionProvidersIfConfigured() throws Exception {
+			properties.setProperty("shore.connection.pool", "org.hibernate.connection.DriverManagerConnectionProvider");
+			
+			assertThat(getProperty("hibernate.connection.provider_class"), is("org.hibernate.connection.DriverManagerConnectionProvider"));
+		}
+		
+		@Test
+		public void itPrefersAnExplicitConnectionProviderClass() throws Exception {
+			properties.setProperty("shore.connection.pool", "c3p0");
+			properties.setProperty("hibernate.connection.provider_class", "org.hibernate.connection.DriverManagerConnectionProvider");
+			
+			assertThat(getProperty("hibernate.connection.provider_class"), is("org.hibernate.connection.DriverManagerConnectionProvider"));
+		}
+		
+		@Test
+		public void itRoutesReadOnlyUnitsOfWorkToAReplicaIfConfigured() throws Exception {
+			properties.setProperty("shore.replica.url", "jdbc:hsqldb:mem:ShoreServerCommandTestReplica");
+			
+			assertThat(getProperty("hibernate.connection.provider_class"), is("com.codahale.shore.hibernate.RoutingConnectionProvider"));
+			assertThat(getProperty("shore.routing.connection_provider"), is("com.codahale.shore.pool.PooledConnectionProvider"));
+		}
+		
+		@Test
+		public void itRecordsDatabaseStatisticsIfEnabled() throws Exception {
+			properties.setProperty("shore.statistics", "true");
+			final HibernateModule module = createModule();
+			final Properties config = module.getConfiguration().getProperties();
+			
+			assertThat(config.getProperty("hibernate.connection.provider_class"), is("com.codahale.shore.hibernate.InstrumentedConnectionProvider"));
+			assertThat(config.getProperty("shore.statistics.connection_provider"), is("com.codahale.shore.pool.PooledConnectionProvider"));
+			assertThat(config.getProperty("shore.statistics.id"), is(module.getStatistics().getId()));
+			assertThat(config.getProperty("hibernate.jdbc.factory_class"), is("com.codahale.shore.hibernate.TimedBatcherFactory"));
+			assertThat(module.getConfiguration().getEventListeners().getLoadEventListeners()[0], is(instanceOf(TimedLoadEventListener.class)));
+			assertThat(module.getConfiguration().getEventListeners().getFlushEventListeners()[0], is(instanceOf(TimedFlushEventListener.class)));
+		}
+		
+		@Test
+		public void itTimesStatementsEvenIfWritesAreNotBatched() throws Exception {
+			properties.setProperty("shore.statistics", "true");
+			properties.setProperty("hibernate.jdbc.batch_size", "0");
+			
+			assertThat(getProperty("hibernate.jdbc.factory_class"), is("com.codahale.shore.hibernate.TimedBatcherFactory"));
+		}
+		
+		@Test
+		public void itDoesNotRecordDatabaseStatisticsByDefault() throws Exception {
+			assertThat(getProperty("hibernate.connection.provider_class"), is("com.codahale.shore.pool.PooledConnectionProvider"));
+			assertThat(getProperty("shore.statistics.id"), is(nullValue()));
+			assertThat(getProperty("hibernate.jdbc.factory_class"), is(nullValue()));
+		}
+		
 		@Test
 		public void itConfiguresC3P0toCheckConnectionValidity() throws Exception {
 			assertThat(getProperty("hibernate.c3p0.idle_test_period"), is("3600"));
@@ -114,6 +191,43 @@ public class HibernateModuleTest {
 			assertThat(getProperty("hibernate.c3p0.maxConnectionAge"), is("14400"));
 		}
 		
+		@Test
+		public void itUsesABoundedSecondLevelCache() throws Exception {
+			assertThat(getProperty("hibernate.cache.provider_class"), is("com.codahale.shore.cache.BoundedCacheProvider"));
+		}
+		
+		@Test
+		public void itDoesNotCacheEntitiesOrQueriesByDefault() throws Exception {
+			assertThat(getProperty("hibernate.cache.use_second_level_cache"), is("false"));
+			assertThat(getProperty("hibernate.cache.use_query_cache"), is("false"));
+		}
+		
+		@Test
+		public void itAllowsEntitiesAndQueriesToBeCached() throws Exception {
+			properties.setProperty("shore.cache.entities", "true");
+			properties.setProperty("shore.cache.queries", "true");
+			
+			assertThat(getProperty("hibernate.cache.use_second_level_cache"), is("true"));
+			assertThat(getProperty("hibernate.cache.use_query_cache"), is("true"));
+		}
+		
+		@Test
+		public void itConfiguresCacheRegionsForCachedEntities() throws Exception {
+			createModule();
+			
+			verify(logger).info("Caching com.codahale.shore.modules.test.fixtures.Dog in region com.codahale.shore.modules.test.fixtures.Dog");
+			assertThat(getProperty("shore.cache.region.com.codahale.shore.modules.test.fixtures.Dog.max_entries"), is("500"));
+			assertThat(getProperty("shore.cache.region.com.codahale.shore.modules.test.fixtures.Dog.ttl"), is("60"));
+			assertThat(getProperty("shore.cache.region.com.codahale.shore.modules.test.fixtures.Dog.eviction"), is("LFU"));
+		}
+		
+		@Test
+		public void itAllowsCacheRegionSettingsToBeOverridden() throws Exception {
+			properties.setProperty("shore.cache.region.com.codahale.shore.modules.test.fixtures.Dog.max_entries", "20");
+			
+			assertThat(getProperty("shore.cache.region.com.codahale.shore.modules.test.fixtures.Dog.max_entries"), is("20"));
+		}
+		
 		@Test
 		public void itAllowsDefaultSettingsToBeOverridden() throws Exception {
 			properties.setProperty("hibernate.generate_statistics", "true");
@@ -184,6 +298,13 @@ public class HibernateModuleTest {
 			assertThat(className, is("com.wideplay.warp.hibernate.HibernatePersistenceService"));
 		}
 		
+		@Test
+		public void itBindsTheDatabaseStatistics() throws Exception {
+			final Map<Key<?>, Object> bindings = getBindings(module);
+			
+			assertThat(bindings.get(Key.get(DatabaseStatistics.class)), sameInstance((Object) module.getStatistics()));
+		}
+		
 		@Test
 		public void itBindsAHibernateInitializerAsAnEagerSingleton() throws Exception {
 			final Map<Key<?>, Object> bindings = getBindings(module);
@@ -5,7 +5,15 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.codahale.shore.cache.CacheRegion;
+import com.codahale.shore.cache.EvictionPolicy;
+
 @Entity
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
+@CacheRegion(maxEntries=500, timeToLive=60, eviction=EvictionPolicy.LFU)
 public class Dog {
 	@Id
 	@GeneratedValue(strategy=GenerationType.AUTO)
@@ -6,11 +6,15 @@ import static org.junit.Assert.*;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.codahale.shore.metrics.MetricsRegistry;
 import com.codahale.shore.params.AbstractParam;
+import com.codahale.shore.params.InvalidParamException;
+import com.codahale.shore.params.ParamRejections;
 
 @RunWith(Enclosed.class)
 public class AbstractParamTest {
@@ -46,5 +50,50 @@ public class AbstractParamTest {
 				assertThat((String) response.getEntity(), is("Invalid parameter: 200$$00 (For input string: \"200$$00\")."));
 			}
 		}
+		
+		@Test
+		public void itThrowsExceptionsWithoutStackTraces() throws Exception {
+			try {
+				new IntegerParam("200$$00");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertThat(e.getStackTrace().length, is(0));
+			}
+		}
+	}
+	
+	public static class An_AbstractParam_Descendant_With_Terse_Errors {
+		private ParamRejections rejections;
+		
+		@Before
+		public void setup() throws Exception {
+			this.rejections = new ParamRejections(new MetricsRegistry(), true);
+		}
+		
+		@Test
+		public void itIsRejectedWithAResponseWhichDoesNotEchoTheParameter() throws Exception {
+			final Response response = reject("200$$00");
+			
+			assertThat(response.getStatus(), is(400));
+			assertThat((String) response.getEntity(), is("Invalid parameter."));
+		}
+		
+		@Test
+		public void itIsMetered() throws Exception {
+			reject("200$$00");
+			reject("hoople");
+			
+			assertThat(rejections.getMeter(IntegerParam.class).getCount(), is(2L));
+		}
+		
+		private Response reject(String param) {
+			try {
+				new IntegerParam(param);
+				fail("should have thrown an InvalidParamException but didn't");
+				return null;
+			} catch (InvalidParamException e) {
+				return rejections.reject(e);
+			}
+		}
 	}
 }
@@ -0,0 +1,42 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.BooleanParam;
+
+@RunWith(Enclosed.class)
+public class BooleanParamTest {
+	public static class A_BooleanParam {
+		@Test
+		public void itParsesTrueAndFalseIgnoringCase() throws Exception {
+			assertThat(new BooleanParam("true").getValue(), is(true));
+			assertThat(BooleanParam.valueOf("FALSE").getValue(), is(false));
+			assertThat(BooleanParam.valueOf("True").toString(), is("true"));
+		}
+		
+		@Test
+		public void itSharesInstances() throws Exception {
+			assertThat(BooleanParam.valueOf("true"), is(sameInstance(BooleanParam.valueOf("TRUE"))));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForAnythingElse() throws Exception {
+			try {
+				BooleanParam.valueOf("yes");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: yes (must be \"true\" or \"false\")."));
+			}
+		}
+	}
+}
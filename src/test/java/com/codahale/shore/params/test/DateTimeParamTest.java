@@ -0,0 +1,87 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.DateTimeParam;
+
+@RunWith(Enclosed.class)
+public class DateTimeParamTest {
+	public static class A_DateTimeParam {
+		@Test
+		public void itParsesADate() throws Exception {
+			final DateTimeParam param = new DateTimeParam("2010-03-01");
+			
+			assertThat(param.getMillis(), is(1267401600000L));
+			assertThat(param.getValue(), is(new Date(1267401600000L)));
+			assertThat(param.toString(), is("2010-03-01"));
+		}
+		
+		@Test
+		public void itParsesADateAndTimeInUTC() throws Exception {
+			assertThat(DateTimeParam.valueOf("2010-03-01T14:30:00Z").getMillis(), is(1267453800000L));
+			assertThat(DateTimeParam.valueOf("2010-03-01T14:30").getMillis(), is(1267453800000L));
+		}
+		
+		@Test
+		public void itParsesADateAndTimeWithAnOffsetAndMilliseconds() throws Exception {
+			assertThat(DateTimeParam.valueOf("2010-03-01T14:30:00.250-08:00").getMillis(), is(1267482600250L));
+			assertThat(DateTimeParam.valueOf("2010-03-01T14:30+0530").getMillis(), is(1267434000000L));
+			assertThat(DateTimeParam.valueOf("2010-03-01T14:30:00-08").getMillis(), is(1267482600000L));
+		}
+		
+		@Test
+		public void itParsesLeapDaysAndDatesBeforeTheEpoch() throws Exception {
+			assertThat(DateTimeParam.valueOf("2000-02-29T23:59:59.999Z").getMillis(), is(951868799999L));
+			assertThat(DateTimeParam.valueOf("1969-12-31T23:59:59.999Z").getMillis(), is(-1L));
+		}
+		
+		@Test
+		public void itCachesRecentlyParsedValues() throws Exception {
+			assertThat(DateTimeParam.valueOf("2010-03-01"), is(sameInstance(DateTimeParam.valueOf("2010-03-01"))));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForUnparsableValues() throws Exception {
+			try {
+				DateTimeParam.valueOf("2010-02-29");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: 2010-02-29 (not an ISO 8601 date)."));
+			}
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForInvalidTimes() throws Exception {
+			try {
+				DateTimeParam.valueOf("2010-03-01T24:00");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertThat(e.getResponse().getStatus(), is(400));
+			}
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForMalformedOffsets() throws Exception {
+			for (String param : new String[] { "2010-03-01T14:30+8", "2010-03-01T14:30+08:", "2010-03-01T14:30+085" }) {
+				try {
+					DateTimeParam.valueOf(param);
+					fail("should have thrown a WebApplicationException but didn't");
+				} catch (WebApplicationException e) {
+					assertThat(e.getResponse().getStatus(), is(400));
+				}
+			}
+		}
+	}
+}
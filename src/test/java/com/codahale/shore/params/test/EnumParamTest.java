@@ -0,0 +1,47 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.EnumParam;
+
+@RunWith(Enclosed.class)
+public class EnumParamTest {
+	private static enum Color {
+		RED, DARK_BLUE
+	}
+	
+	private static class ColorParam extends EnumParam<Color> {
+		public ColorParam(String param) throws WebApplicationException {
+			super(Color.class, param);
+		}
+	}
+	
+	public static class An_EnumParam_Descendant {
+		@Test
+		public void itParsesTheNameOfAConstantIgnoringCase() throws Exception {
+			assertThat(new ColorParam("RED").getValue(), is(Color.RED));
+			assertThat(new ColorParam("dark_blue").getValue(), is(Color.DARK_BLUE));
+			assertThat(new ColorParam("Dark_Blue").toString(), is("DARK_BLUE"));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForUnknownNames() throws Exception {
+			try {
+				new ColorParam("green");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: green (must be one of RED, DARK_BLUE)."));
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.IntParam;
+
+@RunWith(Enclosed.class)
+public class IntParamTest {
+	public static class An_IntParam {
+		@Test
+		public void itParsesAStringParameterAndReturnsAParamWithAValue() throws Exception {
+			final IntParam param = new IntParam("200");
+			
+			assertThat(param.getValue(), is(200));
+			assertThat(param.toString(), is("200"));
+		}
+		
+		@Test
+		public void itParsesTheExtremes() throws Exception {
+			assertThat(IntParam.valueOf("-2147483648").getValue(), is(Integer.MIN_VALUE));
+			assertThat(IntParam.valueOf("+2147483647").getValue(), is(Integer.MAX_VALUE));
+		}
+		
+		@Test
+		public void itSharesInstancesForSmallValues() throws Exception {
+			assertThat(IntParam.valueOf("20"), is(sameInstance(IntParam.valueOf("20"))));
+			assertThat(IntParam.valueOf("-20"), is(sameInstance(IntParam.valueOf("-20"))));
+			assertThat(IntParam.valueOf("20000"), is(not(sameInstance(IntParam.valueOf("20000")))));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForUnparsableValues() throws Exception {
+			try {
+				IntParam.valueOf("200$$00");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: 200$$00 (not an integer)."));
+			}
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForValuesOutOfRange() throws Exception {
+			try {
+				new IntParam("2147483648");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertThat(e.getResponse().getStatus(), is(400));
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.LongParam;
+
+@RunWith(Enclosed.class)
+public class LongParamTest {
+	public static class A_LongParam {
+		@Test
+		public void itParsesAStringParameterAndReturnsAParamWithAValue() throws Exception {
+			final LongParam param = new LongParam("20000000000");
+			
+			assertThat(param.getValue(), is(20000000000L));
+			assertThat(param.toString(), is("20000000000"));
+		}
+		
+		@Test
+		public void itParsesTheExtremes() throws Exception {
+			assertThat(LongParam.valueOf("-9223372036854775808").getValue(), is(Long.MIN_VALUE));
+			assertThat(LongParam.valueOf("9223372036854775807").getValue(), is(Long.MAX_VALUE));
+		}
+		
+		@Test
+		public void itSharesInstancesForSmallValues() throws Exception {
+			assertThat(LongParam.valueOf("20"), is(sameInstance(LongParam.valueOf("20"))));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForUnparsableValues() throws Exception {
+			try {
+				LongParam.valueOf("9223372036854775808");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: 9223372036854775808 (not an integer)."));
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.params.IntParam;
+import com.codahale.shore.params.InvalidParamException;
+import com.codahale.shore.params.ParamRejections;
+import com.codahale.shore.params.UUIDParam;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.core.HttpResponseContext;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.spi.container.ResourceMethodDispatchProvider;
+import com.sun.jersey.spi.dispatch.RequestDispatcher;
+
+@RunWith(Enclosed.class)
+public class ParamRejectionsTest {
+	private static abstract class Context {
+		protected MetricsRegistry metrics;
+		protected ParamRejections rejections;
+		
+		protected InvalidParamException rejectInt(String param) {
+			try {
+				IntParam.valueOf(param);
+				fail("should have thrown an InvalidParamException but didn't");
+				return null;
+			} catch (InvalidParamException e) {
+				return e;
+			}
+		}
+	}
+	
+	public static class Verbose_Rejections extends Context {
+		@Before
+		public void setup() throws Exception {
+			this.metrics = new MetricsRegistry();
+			this.rejections = new ParamRejections(metrics, false);
+		}
+		
+		@Test
+		public void itThrowsInvalidParamExceptionsWithoutStackTraces() throws Exception {
+			final InvalidParamException e = rejectInt("hoople");
+			
+			assertThat(e.getStackTrace().length, is(0));
+			assertThat(e.getParamClass(), is((Object) IntParam.class));
+			assertThat(e.getParam(), is("hoople"));
+		}
+		
+		@Test
+		public void itEchoesTheInvalidParameter() throws Exception {
+			final Response response = rejections.reject(rejectInt("hoople"));
+			
+			assertThat(response.getStatus(), is(400));
+			assertThat((String) response.getEntity(), is("Invalid parameter: hoople (not an integer)."));
+		}
+		
+		@Test
+		public void itMetersRejectionsForEachParamClass() throws Exception {
+			rejections.reject(rejectInt("hoople"));
+			rejections.reject(rejectInt("hoople"));
+			try {
+				UUIDParam.valueOf("hoople");
+			} catch (InvalidParamException e) {
+				rejections.reject(e);
+			}
+			
+			assertThat(metrics.meter("com.codahale.shore.params.IntParam.rejections").getCount(), is(2L));
+			assertThat(rejections.getMeter(IntParam.class).getCount(), is(2L));
+			assertThat(metrics.meter("com.codahale.shore.params.UUIDParam.rejections").getCount(), is(1L));
+		}
+	}
+	
+	public static class Terse_Rejections extends Context {
+		@Before
+		public void setup() throws Exception {
+			this.metrics = new MetricsRegistry();
+			this.rejections = new ParamRejections(metrics, true);
+		}
+		
+		@Test
+		public void itReusesAMessageForEachParamClass() throws Exception {
+			final Response first = rejections.reject(rejectInt("hoople"));
+			final Response second = rejections.reject(rejectInt("poople"));
+			
+			assertThat(first.getStatus(), is(400));
+			assertThat((String) first.getEntity(), is("Invalid parameter (not an integer)."));
+			assertThat(second.getEntity(), is(sameInstance(first.getEntity())));
+		}
+		
+		@Test
+		public void itBuildsANewResponseForEachRejection() throws Exception {
+			final Response first = rejections.reject(rejectInt("hoople"));
+			final Response second = rejections.reject(rejectInt("poople"));
+			
+			assertThat(second, is(not(sameInstance(first))));
+		}
+		
+		@Test
+		public void itStillMetersRejections() throws Exception {
+			rejections.reject(rejectInt("hoople"));
+			
+			assertThat(metrics.meter("com.codahale.shore.params.IntParam.rejections").getCount(), is(1L));
+		}
+	}
+	
+	public static class Dispatching_A_Resource_Method_With_An_Invalid_Param extends Context {
+		private HttpContext context;
+		private HttpResponseContext responseContext;
+		private RequestDispatcher dispatcher;
+		
+		@Before
+		public void setup() throws Exception {
+			this.metrics = new MetricsRegistry();
+			this.rejections = new ParamRejections(metrics, true);
+			
+			this.responseContext = mock(HttpResponseContext.class);
+			this.context = mock(HttpContext.class);
+			when(context.getResponse()).thenReturn(responseContext);
+			
+			final RequestDispatcher original = mock(RequestDispatcher.class);
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					IntParam.valueOf("hoople");
+					return null;
+				}
+			}).when(original).dispatch(any(), any(HttpContext.class));
+			final ResourceMethodDispatchProvider provider = mock(ResourceMethodDispatchProvider.class);
+			when(provider.create(any(AbstractResourceMethod.class))).thenReturn(original);
+			
+			this.dispatcher = rejections.adapt(provider).create(mock(AbstractResourceMethod.class));
+		}
+		
+		@Test
+		public void itRespondsWithABadRequest() throws Exception {
+			final Response[] sent = new Response[1];
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					sent[0] = (Response) invocation.getArguments()[0];
+					return null;
+				}
+			}).when(responseContext).setResponse(any(Response.class));
+			
+			dispatcher.dispatch(new Object(), context);
+			
+			assertThat(sent[0].getStatus(), is(400));
+			assertThat((String) sent[0].getEntity(), is("Invalid parameter (not an integer)."));
+			assertThat(rejections.getMeter(IntParam.class).getCount(), is(1L));
+		}
+	}
+}
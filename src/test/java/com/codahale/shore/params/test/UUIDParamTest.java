@@ -0,0 +1,62 @@
+package com.codahale.shore.params.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.params.UUIDParam;
+
+@RunWith(Enclosed.class)
+public class UUIDParamTest {
+	public static class A_UUIDParam {
+		private static final String UUID_STRING = "0f8fad5b-d9cb-469f-a165-70867728950e";
+		
+		@Test
+		public void itParsesAStringParameterAndReturnsAParamWithAValue() throws Exception {
+			final UUIDParam param = new UUIDParam(UUID_STRING);
+			
+			assertThat(param.getValue(), is(UUID.fromString(UUID_STRING)));
+			assertThat(param.toString(), is(UUID_STRING));
+		}
+		
+		@Test
+		public void itParsesUpperCaseDigits() throws Exception {
+			assertThat(new UUIDParam("FFFFFFFF-FFFF-FFFF-FFFF-FFFFFFFFFFFF").getValue(), is(new UUID(-1L, -1L)));
+		}
+		
+		@Test
+		public void itCachesRecentlyParsedValues() throws Exception {
+			assertThat(UUIDParam.valueOf(UUID_STRING), is(sameInstance(UUIDParam.valueOf(UUID_STRING))));
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForUnparsableValues() throws Exception {
+			try {
+				UUIDParam.valueOf("0f8fad5b-d9cb-469f-a165-70867728950g");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				final Response response = e.getResponse();
+				assertThat(response.getStatus(), is(400));
+				assertThat((String) response.getEntity(), is("Invalid parameter: 0f8fad5b-d9cb-469f-a165-70867728950g (not a UUID)."));
+			}
+		}
+		
+		@Test
+		public void itThrowsAWebApplicationExceptionForNonCanonicalValues() throws Exception {
+			try {
+				UUIDParam.valueOf("f8fad5b-d9cb-469f-a165-70867728950e");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertThat(e.getResponse().getStatus(), is(400));
+			}
+		}
+	}
+}
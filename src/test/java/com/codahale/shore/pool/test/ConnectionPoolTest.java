@@ -0,0 +1,387 @@
+package com.codahale.shore.pool.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.pool.ConnectionFactory;
+import com.codahale.shore.pool.ConnectionPool;
+import com.codahale.shore.pool.PoolSettings;
+import com.google.common.collect.Lists;
+
+@RunWith(Enclosed.class)
+public class ConnectionPoolTest {
+	private static abstract class Context {
+		protected ConnectionFactory factory;
+		protected ConnectionPool pool;
+		protected List<Connection> opened;
+		
+		@Before
+		public void setup() throws Exception {
+			this.opened = Lists.newArrayList();
+			this.factory = mock(ConnectionFactory.class);
+			when(factory.open()).thenAnswer(new Answer<Connection>() {
+				@Override
+				public Connection answer(InvocationOnMock invocation) throws Throwable {
+					final Connection connection = mock(Connection.class);
+					opened.add(connection);
+					return connection;
+				}
+			});
+			this.pool = buildPool();
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			pool.close();
+		}
+		
+		protected ConnectionPool buildPool() {
+			return new ConnectionPool("test", buildSettings(), factory);
+		}
+		
+		protected PoolSettings buildSettings() {
+			return new PoolSettings(1, 2, 50, 0, 0, 30000, null, 0);
+		}
+	}
+	
+	public static class A_New_Pool extends Context {
+		@Test
+		public void itHasNoConnections() throws Exception {
+			assertThat(pool.getName(), is("test"));
+			assertThat(pool.getSize(), is(0));
+			assertThat(pool.getIdleConnections(), is(0));
+			assertThat(pool.getActiveConnections(), is(0));
+			verifyZeroInteractions(factory);
+		}
+	}
+	
+	public static class Prefilling_A_Pool extends Context {
+		@Test
+		public void itOpensIdleConnections() throws Exception {
+			assertThat(pool.prefill(1), is(1));
+			
+			assertThat(pool.getSize(), is(1));
+			assertThat(pool.getIdleConnections(), is(1));
+			assertThat(pool.getActiveConnections(), is(0));
+		}
+		
+		@Test
+		public void itDoesNotOpenMoreThanTheMaximumSize() throws Exception {
+			assertThat(pool.prefill(5), is(2));
+			assertThat(pool.prefill(5), is(0));
+			
+			assertThat(pool.getSize(), is(2));
+			verify(factory, times(2)).open();
+		}
+		
+		@Test
+		public void itHandsOutThePrefilledConnections() throws Exception {
+			pool.prefill(1);
+			pool.getConnection();
+			
+			assertThat(pool.getSize(), is(1));
+			verify(factory, times(1)).open();
+		}
+		
+		@Test
+		public void itDoesNotGrowPastTheMaximumSizeWhileConnectionsAreCheckedOut() throws Exception {
+			final Connection checkedOut = mock(Connection.class);
+			when(factory.open()).thenAnswer(new Answer<Connection>() {
+				private boolean prefilling = true;
+				
+				@Override
+				public Connection answer(InvocationOnMock invocation) throws Throwable {
+					if (prefilling) {
+						prefilling = false;
+						assertThat(pool.getConnection(), is(notNullValue()));
+						try {
+							pool.getConnection();
+							fail("should have timed out");
+						} catch (SQLException e) {
+							assertThat(pool.getSize(), is(2));
+						}
+						return mock(Connection.class);
+					}
+					return checkedOut;
+				}
+			});
+			
+			assertThat(pool.prefill(2), is(1));
+			assertThat(pool.getSize(), is(2));
+		}
+		
+		@Test
+		public void itReleasesTheSlotIfAConnectionCannotBeOpened() throws Exception {
+			doThrow(new SQLException("nope")).when(factory).open();
+			
+			try {
+				pool.prefill(1);
+				fail("should have thrown a SQLException");
+			} catch (SQLException e) {
+				assertThat(pool.getSize(), is(0));
+			}
+		}
+	}
+	
+	public static class Checking_Out_Connections extends Context {
+		@Test
+		public void itOpensConnectionsOnDemand() throws Exception {
+			final Connection one = pool.getConnection();
+			final Connection two = pool.getConnection();
+			
+			assertThat(one, is(not(sameInstance(two))));
+			assertThat(pool.getSize(), is(2));
+			assertThat(pool.getActiveConnections(), is(2));
+			assertThat(pool.getConnectionsCreated(), is(2L));
+			assertThat(pool.getWaitTimes().getCount(), is(2L));
+		}
+		
+		@Test
+		public void itReusesReleasedConnections() throws Exception {
+			final Connection connection = pool.getConnection();
+			pool.release(connection);
+			
+			assertThat(pool.getIdleConnections(), is(1));
+			assertThat(pool.getConnection(), is(sameInstance(connection)));
+			assertThat(pool.getConnectionsCreated(), is(1L));
+		}
+		
+		@Test
+		public void itTimesOutWhenThePoolIsExhausted() throws Exception {
+			pool.getConnection();
+			pool.getConnection();
+			
+			try {
+				pool.getConnection();
+				fail("should have thrown a SQLException");
+			} catch (SQLException e) {
+				assertThat(e.getMessage(), is("Timed out after 50ms waiting for a connection from test"));
+			}
+			
+			assertThat(pool.getTimeouts(), is(1L));
+		}
+		
+		@Test
+		public void itFreesAPermitIfAConnectionCannotBeOpened() throws Exception {
+			doThrow(new SQLException("nope")).when(factory).open();
+			
+			for (int i = 0; i < 3; i++) {
+				try {
+					pool.getConnection();
+					fail("should have thrown a SQLException");
+				} catch (SQLException e) {
+					assertThat(e.getMessage(), is("nope"));
+				}
+			}
+			
+			assertThat(pool.getTimeouts(), is(0L));
+		}
+	}
+	
+	public static class Releasing_Connections extends Context {
+		@Test
+		public void itDiscardsClosedConnections() throws Exception {
+			final Connection connection = pool.getConnection();
+			when(opened.get(0).isClosed()).thenReturn(true);
+			pool.release(connection);
+			
+			assertThat(pool.getSize(), is(0));
+			assertThat(pool.getIdleConnections(), is(0));
+		}
+		
+		@Test
+		public void itRollsBackUncommittedWork() throws Exception {
+			final Connection connection = pool.getConnection();
+			connection.prepareStatement("UPDATE widgets SET name = 'hoople'");
+			pool.release(connection);
+			
+			verify(opened.get(0)).rollback();
+			assertThat(pool.getIdleConnections(), is(1));
+		}
+		
+		@Test
+		public void itDoesNotRollBackCommittedWork() throws Exception {
+			final Connection connection = pool.getConnection();
+			connection.prepareStatement("UPDATE widgets SET name = 'hoople'");
+			connection.commit();
+			pool.release(connection);
+			
+			verify(opened.get(0), never()).rollback();
+			assertThat(pool.getIdleConnections(), is(1));
+		}
+		
+		@Test
+		public void itDoesNotTouchUnusedConnections() throws Exception {
+			final Connection connection = pool.getConnection();
+			pool.release(connection);
+			
+			verify(opened.get(0), never()).rollback();
+			verify(opened.get(0), never()).setAutoCommit(anyBoolean());
+			verify(opened.get(0), never()).setReadOnly(anyBoolean());
+			verify(opened.get(0), never()).setTransactionIsolation(anyInt());
+		}
+		
+		@Test
+		public void itRestoresTheConnectionsSettings() throws Exception {
+			final Connection connection = pool.getConnection();
+			connection.setAutoCommit(true);
+			connection.setReadOnly(true);
+			connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+			pool.release(connection);
+			
+			verify(opened.get(0)).setAutoCommit(false);
+			verify(opened.get(0)).setReadOnly(false);
+			verify(opened.get(0)).setTransactionIsolation(0);
+		}
+		
+		@Test
+		public void itDiscardsConnectionsWhichCannotBeReset() throws Exception {
+			final Connection connection = pool.getConnection();
+			doThrow(new SQLException("nope")).when(opened.get(0)).rollback();
+			connection.createStatement();
+			pool.release(connection);
+			
+			verify(opened.get(0)).close();
+			assertThat(pool.getSize(), is(0));
+			assertThat(pool.getIdleConnections(), is(0));
+		}
+		
+		@Test
+		public void itClosesConnectionsWhichAreNotFromThePool() throws Exception {
+			final Connection connection = mock(Connection.class);
+			pool.release(connection);
+			
+			verify(connection).close();
+		}
+	}
+	
+	public static class A_Pool_With_Connection_Settings extends Context {
+		@Override
+		protected ConnectionPool buildPool() {
+			return new ConnectionPool("test", buildSettings(), factory, true, Connection.TRANSACTION_READ_COMMITTED);
+		}
+		
+		@Test
+		public void itAppliesThemToNewConnections() throws Exception {
+			pool.getConnection();
+			
+			verify(opened.get(0)).setAutoCommit(true);
+			verify(opened.get(0)).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		}
+	}
+	
+	public static class A_Pool_Without_A_Checkout_Timeout extends Context {
+		@Override
+		protected PoolSettings buildSettings() {
+			return new PoolSettings(1, 1, 0, 0, 0, 30000, null, 0);
+		}
+		
+		@Test
+		public void itWaitsForAConnection() throws Exception {
+			final Connection connection = pool.getConnection();
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(50);
+						pool.release(connection);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}.start();
+			
+			assertThat(pool.getConnection(), is(sameInstance(connection)));
+			assertThat(pool.getTimeouts(), is(0L));
+		}
+	}
+	
+	public static class A_Pool_With_A_Short_Validation_Interval extends Context {
+		@Override
+		protected PoolSettings buildSettings() {
+			return new PoolSettings(1, 2, 50, 0, 0, 0, "SELECT 1", 0);
+		}
+		
+		@Test
+		public void itValidatesIdleConnectionsWithTheTestQuery() throws Exception {
+			final Connection connection = pool.getConnection();
+			final Statement statement = mock(Statement.class);
+			when(opened.get(0).createStatement()).thenReturn(statement);
+			pool.release(connection);
+			Thread.sleep(5);
+			
+			assertThat(pool.getConnection(), is(sameInstance(connection)));
+			verify(statement).execute("SELECT 1");
+			verify(statement).close();
+		}
+		
+		@Test
+		public void itReplacesInvalidConnections() throws Exception {
+			final Connection connection = pool.getConnection();
+			when(opened.get(0).createStatement()).thenThrow(new SQLException("gone"));
+			pool.release(connection);
+			Thread.sleep(5);
+			
+			assertThat(pool.getConnection(), is(not(sameInstance(connection))));
+			verify(opened.get(0)).close();
+			assertThat(pool.getSize(), is(1));
+		}
+	}
+	
+	public static class A_Pool_With_Leak_Detection extends Context {
+		@Override
+		protected PoolSettings buildSettings() {
+			return new PoolSettings(1, 2, 50, 0, 0, 30000, null, 20);
+		}
+		
+		@Test
+		public void itCountsConnectionsCheckedOutForTooLong() throws Exception {
+			pool.getConnection();
+			Thread.sleep(200);
+			
+			assertThat(pool.getLeaks(), is(1L));
+		}
+	}
+	
+	public static class Closing_A_Pool extends Context {
+		@Test
+		public void itClosesIdleConnections() throws Exception {
+			final Connection connection = pool.getConnection();
+			pool.release(connection);
+			pool.close();
+			
+			verify(opened.get(0)).close();
+			assertThat(pool.getSize(), is(0));
+		}
+		
+		@Test
+		public void itClosesActiveConnectionsWhenTheyAreReleased() throws Exception {
+			final Connection connection = pool.getConnection();
+			pool.close();
+			pool.release(connection);
+			
+			verify(opened.get(0)).close();
+		}
+		
+		@Test(expected=SQLException.class)
+		public void itDoesNotHandOutConnections() throws Exception {
+			pool.close();
+			pool.getConnection();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.codahale.shore.pool.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.Environment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.pool.PooledConnectionProvider;
+
+@RunWith(Enclosed.class)
+public class PooledConnectionProviderTest {
+	public static class A_Configured_Provider {
+		private PooledConnectionProvider provider;
+		
+		@Before
+		public void setup() throws Exception {
+			final Properties properties = new Properties();
+			properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+			properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:PooledConnectionProviderTest");
+			properties.setProperty(Environment.USER, "sa");
+			properties.setProperty(Environment.PASS, "");
+			properties.setProperty("shore.pool.max_size", "3");
+			properties.setProperty("shore.pool.name", "provider-test");
+			
+			this.provider = new PooledConnectionProvider();
+			provider.configure(properties);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			provider.close();
+		}
+		
+		@Test
+		public void itRegistersItsPool() throws Exception {
+			assertThat(PooledConnectionProvider.getPools().get("provider-test"), is(sameInstance(provider.getPool())));
+			assertThat(provider.getPool().getSettings().getMaxSize(), is(3));
+		}
+		
+		@Test
+		public void itProvidesConnectionsWithAutocommitDisabled() throws Exception {
+			final Connection connection = provider.getConnection();
+			try {
+				assertThat(connection.getAutoCommit(), is(false));
+				connection.createStatement().execute("CALL 1");
+			} finally {
+				provider.closeConnection(connection);
+			}
+			
+			assertThat(provider.getPool().getIdleConnections(), is(1));
+		}
+		
+		@Test
+		public void itUnregistersItsPoolWhenClosed() throws Exception {
+			provider.close();
+			
+			assertThat(PooledConnectionProvider.getPools().containsKey("provider-test"), is(false));
+		}
+	}
+	
+	public static class An_Unconfigured_Provider {
+		@Test(expected=HibernateException.class)
+		public void itRequiresAURL() throws Exception {
+			new PooledConnectionProvider().configure(new Properties());
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.AsyncRequestLog;
+
+@RunWith(Enclosed.class)
+public class AsyncRequestLogTest {
+	private static abstract class Context {
+		protected ByteArrayOutputStream output;
+		protected AsyncRequestLog log;
+		protected Request request;
+		protected Response response;
+		
+		public void setup() throws Exception {
+			this.output = new ByteArrayOutputStream();
+			this.log = new AsyncRequestLog(output);
+			
+			this.request = mock(Request.class);
+			when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+			when(request.getTimeStamp()).thenReturn(1262304000000L);
+			when(request.getMethod()).thenReturn("GET");
+			when(request.getRequestURI()).thenReturn("/widget/dingo");
+			when(request.getQueryString()).thenReturn("q=1");
+			when(request.getProtocol()).thenReturn("HTTP/1.1");
+			when(request.getHeader("Referer")).thenReturn("http://example.com/");
+			when(request.getHeader("User-Agent")).thenReturn("curl");
+			
+			this.response = mock(Response.class);
+			when(response.getStatus()).thenReturn(200);
+			when(response.getContentCount()).thenReturn(42L);
+		}
+	}
+	
+	public static class Logging_A_Request extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			log.setExtended(true);
+			log.start();
+			log.log(request, response);
+			log.stop();
+		}
+		
+		@Test
+		public void itWritesAnNCSALine() throws Exception {
+			assertThat(output.toString("UTF-8"), is(
+				"10.0.0.1 - - [01/Jan/2010:00:00:00 +0000] \"GET /widget/dingo?q=1 HTTP/1.1\" 200 42 \"http://example.com/\" \"curl\"" +
+				System.getProperty("line.separator")
+			));
+		}
+		
+		@Test
+		public void itCountsLoggedLines() throws Exception {
+			assertThat(log.getLoggedLines(), is(1L));
+			assertThat(log.getDroppedLines(), is(0L));
+			assertThat(log.getPendingLines(), is(0));
+		}
+	}
+	
+	public static class Logging_Into_A_Full_Buffer extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			log.setCapacity(1);
+			log.setOverflowPolicy(AsyncRequestLog.OverflowPolicy.DROP);
+			log.start();
+		}
+		
+		@Test
+		public void itDropsAndCountsLinesWhichDoNotFit() throws Exception {
+			for (int i = 0; i < 1000; i++) {
+				log.log(request, response);
+			}
+			log.stop();
+			
+			assertThat(log.getLoggedLines() + log.getDroppedLines(), is(1000L));
+		}
+	}
+	
+	public static class Logging_To_A_Broken_Stream extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.log = new AsyncRequestLog(new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					throw new IOException("disk full");
+				}
+			});
+			log.setCapacity(1);
+			log.setOverflowPolicy(AsyncRequestLog.OverflowPolicy.BLOCK);
+			log.start();
+		}
+		
+		@Test(timeout = 5000)
+		public void itDropsLinesInsteadOfBlocking() throws Exception {
+			for (int i = 0; i < 1000; i++) {
+				log.log(request, response);
+			}
+			log.stop();
+			
+			assertThat(log.getLoggedLines(), is(0L));
+			assertThat(log.getDroppedLines() > 0, is(true));
+		}
+	}
+}
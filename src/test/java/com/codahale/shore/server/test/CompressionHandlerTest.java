@@ -0,0 +1,363 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.FilterMapping;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.server.CompressionHandler;
+import com.codahale.shore.server.ResponseCache;
+import com.codahale.shore.server.ResponseCacheFilter;
+import com.codahale.shore.util.PathMatcher;
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(Enclosed.class)
+public class CompressionHandlerTest {
+	private static abstract class Context {
+		protected Handler inner;
+		protected CompressionHandler handler;
+		protected Request baseRequest;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		protected ByteArrayOutputStream output;
+		
+		@Before
+		public void setup() throws Exception {
+			this.inner = mock(Handler.class);
+			this.baseRequest = mock(Request.class);
+			this.request = mock(HttpServletRequest.class);
+			when(request.getMethod()).thenReturn("GET");
+			when(request.getRequestURI()).thenReturn("/widgets");
+			when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+			
+			this.output = new ByteArrayOutputStream();
+			this.response = mock(HttpServletResponse.class);
+			when(response.getContentType()).thenReturn("application/json");
+			when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					output.write(b);
+				}
+			});
+			
+			final Properties properties = new Properties();
+			properties.setProperty("shore.compression.min_size", "100");
+			this.handler = new CompressionHandler(
+				new TypedProperties(properties),
+				new PathMatcher(ImmutableList.of("/assets/*"))
+			);
+			handler.setHandler(inner);
+		}
+		
+		protected void respondWith(final byte[] body, final String... headers) throws Exception {
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					final HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[3];
+					for (int i = 0; i < headers.length; i += 2) {
+						response.setHeader(headers[i], headers[i + 1]);
+					}
+					response.setContentLength(body.length);
+					response.getOutputStream().write(body);
+					return null;
+				}
+			}).when(inner).handle(anyString(), any(Request.class), any(HttpServletRequest.class), any(HttpServletResponse.class));
+		}
+		
+		protected byte[] bytes(int size) {
+			final byte[] bytes = new byte[size];
+			Arrays.fill(bytes, (byte) 'a');
+			return bytes;
+		}
+		
+		protected byte[] inflate(InputStream in) throws Exception {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int n;
+			while ((n = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+	}
+	
+	public static class Negotiating_An_Encoding {
+		@Test
+		public void itPrefersGzip() throws Exception {
+			assertThat(CompressionHandler.negotiate("deflate, gzip"), is("gzip"));
+		}
+		
+		@Test
+		public void itFallsBackToDeflate() throws Exception {
+			assertThat(CompressionHandler.negotiate("deflate"), is("deflate"));
+			assertThat(CompressionHandler.negotiate("gzip;q=0, deflate;q=0.5"), is("deflate"));
+		}
+		
+		@Test
+		public void itReturnsNullIfNothingIsAcceptable() throws Exception {
+			assertThat(CompressionHandler.negotiate(null), is(nullValue()));
+			assertThat(CompressionHandler.negotiate("identity"), is(nullValue()));
+		}
+		
+		@Test
+		public void itOnlyCompressesText() throws Exception {
+			assertThat(CompressionHandler.isCompressible("application/json; charset=UTF-8"), is(true));
+			assertThat(CompressionHandler.isCompressible("text/html"), is(true));
+			assertThat(CompressionHandler.isCompressible("application/atom+xml"), is(true));
+			assertThat(CompressionHandler.isCompressible("image/png"), is(false));
+			assertThat(CompressionHandler.isCompressible(null), is(false));
+		}
+	}
+	
+	public static class A_Small_Response extends Context {
+		@Test
+		public void itIsSentUncompressed() throws Exception {
+			respondWith(bytes(50));
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+			verify(response).setContentLength(50);
+			assertThat(output.toByteArray(), is(bytes(50)));
+		}
+	}
+	
+	public static class A_Large_Response extends Context {
+		@Test
+		public void itIsGzipped() throws Exception {
+			respondWith(bytes(5000));
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response).setHeader("Content-Encoding", "gzip");
+			verify(response).addHeader("Vary", "Accept-Encoding");
+			verify(response, never()).setContentLength(anyInt());
+			assertThat(output.size() < 5000, is(true));
+			assertThat(inflate(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))), is(bytes(5000)));
+		}
+		
+		@Test
+		public void itIsDeflatedIfTheClientDoesNotAcceptGzip() throws Exception {
+			when(request.getHeader("Accept-Encoding")).thenReturn("deflate");
+			respondWith(bytes(5000));
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response).setHeader("Content-Encoding", "deflate");
+			assertThat(inflate(new InflaterInputStream(new ByteArrayInputStream(output.toByteArray()))), is(bytes(5000)));
+		}
+		
+		@Test
+		public void itIsNotCompressedIfItIsNotText() throws Exception {
+			when(response.getContentType()).thenReturn("image/png");
+			respondWith(bytes(5000));
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+			verify(response).setContentLength(5000);
+			assertThat(output.toByteArray(), is(bytes(5000)));
+		}
+		
+		@Test
+		public void itIsNotCompressedIfTheClientDoesNotAcceptIt() throws Exception {
+			when(request.getHeader("Accept-Encoding")).thenReturn(null);
+			respondWith(bytes(5000));
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(inner).handle("/widgets", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itIsNotCompressedForExcludedPaths() throws Exception {
+			handler.handle("/assets/app.css", baseRequest, request, response);
+			
+			verify(inner).handle("/assets/app.css", baseRequest, request, response);
+			verify(response, never()).addHeader(anyString(), anyString());
+		}
+	}
+	
+	public static class An_Immutable_Response extends Context {
+		@Test
+		public void itIsCompressedOnce() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, max-age=31536000, immutable", "ETag", "\"v1\"");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			final byte[] first = output.toByteArray();
+			output.reset();
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			assertThat(handler.getCachedResponses(), is(1));
+			verify(inner, times(1)).handle(anyString(), any(Request.class), any(HttpServletRequest.class), any(HttpServletResponse.class));
+			verify(baseRequest).setHandled(true);
+			verify(response).setContentLength(first.length);
+			assertThat(output.toByteArray(), is(first));
+		}
+		
+		@Test
+		public void itHasAnETagForTheCompressedRepresentation() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, immutable", "ETag", "\"v1\"");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response).setHeader("ETag", "\"v1-gzip\"");
+			verify(response, never()).setHeader("ETag", "\"v1\"");
+		}
+		
+		@Test
+		public void itIsNotModifiedIfAnyETagMatches() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, immutable", "ETag", "\"v1\"");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			when(request.getHeader("If-None-Match")).thenReturn("\"v0-gzip\", \"v1-gzip\"");
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			verify(response).setStatus(304);
+		}
+		
+		@Test
+		public void itIsNotCachedUnlessItIsPublic() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "private, immutable");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			assertThat(handler.getCachedResponses(), is(0));
+		}
+		
+		@Test
+		public void itIsNotCachedIfItSetsACookie() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, immutable", "Set-Cookie", "session=hoople");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			assertThat(handler.getCachedResponses(), is(0));
+		}
+		
+		@Test
+		public void itIsNotCachedIfItVaries() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, immutable", "Vary", "Accept-Language");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			assertThat(handler.getCachedResponses(), is(0));
+		}
+		
+		@Test
+		public void itIsNeitherCachedNorServedFromTheCacheForAuthorizedRequests() throws Exception {
+			respondWith(bytes(5000), "Cache-Control", "public, immutable");
+			
+			handler.handle("/widgets", baseRequest, request, response);
+			when(request.getHeader("Authorization")).thenReturn("Basic Zm9vOmJhcg==");
+			handler.handle("/widgets", baseRequest, request, response);
+			
+			assertThat(handler.getCachedResponses(), is(1));
+			verify(inner, times(2)).handle(anyString(), any(Request.class), any(HttpServletRequest.class), any(HttpServletResponse.class));
+		}
+	}
+	
+	public static class A_Response_Cached_By_The_Response_Cache_Filter {
+		private static final String REQUEST = "GET /widgets HTTP/1.1\r\nHost: localhost\r\n"
+				+ "Accept-Encoding: gzip\r\nConnection: close\r\n";
+		private Server server;
+		private LocalConnector connector;
+		
+		@Before
+		public void setup() throws Exception {
+			final ServletContextHandler context = new ServletContextHandler();
+			context.addServlet(new ServletHolder(new HttpServlet() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+					final byte[] body = new byte[5000];
+					Arrays.fill(body, (byte) 'a');
+					resp.setContentType("text/plain");
+					resp.setHeader("ETag", "\"v1\"");
+					resp.getOutputStream().write(body);
+				}
+			}), "/*");
+			context.addFilter(new FilterHolder(new ResponseCacheFilter(
+				new ResponseCache(10),
+				ImmutableMap.of("/widgets", 60000L),
+				new MetricsRegistry()
+			)), "/*", FilterMapping.DEFAULT);
+			
+			final CompressionHandler handler = new CompressionHandler(
+				new TypedProperties(new Properties()),
+				new PathMatcher(ImmutableList.of("/assets/*"))
+			);
+			handler.setHandler(context);
+			
+			this.connector = new LocalConnector();
+			this.server = new Server();
+			server.addConnector(connector);
+			server.setHandler(handler);
+			server.start();
+		}
+		
+		@After
+		public void stopServer() throws Exception {
+			server.stop();
+		}
+		
+		@Test
+		public void itHasAnETagForTheCompressedRepresentation() throws Exception {
+			final String response = connector.getResponses(REQUEST + "\r\n");
+			
+			assertThat(response.startsWith("HTTP/1.1 200 OK"), is(true));
+			assertThat(response.contains("ETag: \"v1-gzip\""), is(true));
+		}
+		
+		@Test
+		public void itIsNotModifiedIfTheCompressedETagMatches() throws Exception {
+			connector.getResponses(REQUEST + "\r\n");
+			final String response = connector.getResponses(REQUEST + "If-None-Match: \"v1-gzip\"\r\n\r\n");
+			
+			assertThat(response.startsWith("HTTP/1.1 304 Not Modified"), is(true));
+			assertThat(response.contains("ETag: \"v1-gzip\""), is(true));
+		}
+		
+		@Test
+		public void itIsModifiedIfNoETagMatches() throws Exception {
+			connector.getResponses(REQUEST + "\r\n");
+			final String response = connector.getResponses(REQUEST + "If-None-Match: \"v0-gzip\"\r\n\r\n");
+			
+			assertThat(response.startsWith("HTTP/1.1 200 OK"), is(true));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.codahale.shore.server.test;
+
+import static org.mockito.Mockito.*;
+
+import java.util.Properties;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.ConnectorSettings;
+import com.codahale.shore.util.TypedProperties;
+
+@RunWith(Enclosed.class)
+public class ConnectorSettingsTest {
+	public static class Tuning_A_SelectChannelConnector {
+		private SelectChannelConnector connector;
+		private Properties properties;
+		
+		@Before
+		public void setup() throws Exception {
+			this.connector = mock(SelectChannelConnector.class);
+			this.properties = new Properties();
+			properties.setProperty("shore.connector.acceptors", "4");
+			properties.setProperty("shore.connector.accept_queue_size", "1024");
+			properties.setProperty("shore.connector.max_idle_time", "30000");
+			properties.setProperty("shore.connector.low_resources_connections", "20000");
+			properties.setProperty("shore.connector.low_resources_max_idle_time", "5000");
+			
+			new ConnectorSettings(new TypedProperties(properties)).applyTo(connector);
+		}
+		
+		@Test
+		public void itSetsTheNumberOfAcceptors() throws Exception {
+			verify(connector).setAcceptors(4);
+		}
+		
+		@Test
+		public void itSetsTheAcceptQueueSize() throws Exception {
+			verify(connector).setAcceptQueueSize(1024);
+		}
+		
+		@Test
+		public void itSetsTheIdleTimeout() throws Exception {
+			verify(connector).setMaxIdleTime(30000);
+		}
+		
+		@Test
+		public void itSetsTheLowResourceThresholds() throws Exception {
+			verify(connector).setLowResourcesConnections(20000);
+			verify(connector).setLowResourcesMaxIdleTime(5000);
+		}
+	}
+	
+	public static class Tuning_A_Connector_Without_Settings {
+		@Test
+		public void itLeavesTheConnectorAlone() throws Exception {
+			final Connector connector = mock(Connector.class);
+			
+			new ConnectorSettings(new TypedProperties(new Properties())).applyTo(connector);
+			
+			verifyZeroInteractions(connector);
+		}
+	}
+}
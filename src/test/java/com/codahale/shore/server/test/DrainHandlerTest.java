@@ -0,0 +1,146 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.server.DrainHandler;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+
+@RunWith(Enclosed.class)
+public class DrainHandlerTest {
+	private static abstract class Context {
+		protected Handler inner;
+		protected DrainHandler handler;
+		protected Request baseRequest;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		
+		@Before
+		public void setup() throws Exception {
+			this.inner = mock(Handler.class);
+			this.baseRequest = mock(Request.class);
+			this.request = mock(HttpServletRequest.class);
+			this.response = mock(HttpServletResponse.class);
+			
+			this.handler = new DrainHandler(new PathMatcher(ImmutableList.of("/health")));
+			handler.setHandler(inner);
+		}
+	}
+	
+	public static class Handling_Requests extends Context {
+		@Test
+		public void itIsNotDraining() throws Exception {
+			assertThat(handler.isDraining(), is(false));
+		}
+		
+		@Test
+		public void itPassesHealthChecksOn() throws Exception {
+			handler.handle("/health", baseRequest, request, response);
+			
+			verify(inner).handle("/health", baseRequest, request, response);
+			verify(response, never()).setHeader(anyString(), anyString());
+		}
+		
+		@Test
+		public void itCountsTheRequestsInFlight() throws Exception {
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					assertThat(handler.getRequestsInFlight(), is(1));
+					return null;
+				}
+			}).when(inner).handle("/woo", baseRequest, request, response);
+			
+			handler.handle("/woo", baseRequest, request, response);
+			
+			assertThat(handler.getRequestsInFlight(), is(0));
+		}
+		
+		@Test
+		public void itIsIdleWithNoRequestsInFlight() throws Exception {
+			assertThat(handler.awaitIdle(0, TimeUnit.MILLISECONDS), is(true));
+		}
+	}
+	
+	public static class Handling_Requests_While_Draining extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			handler.drain();
+		}
+		
+		@Test
+		public void itIsDraining() throws Exception {
+			assertThat(handler.isDraining(), is(true));
+		}
+		
+		@Test
+		public void itFailsHealthChecks() throws Exception {
+			handler.handle("/health", baseRequest, request, response);
+			
+			verify(baseRequest).setHandled(true);
+			verify(response).setStatus(503);
+			verifyZeroInteractions(inner);
+		}
+		
+		@Test
+		public void itClosesConnectionsAfterOtherRequests() throws Exception {
+			handler.handle("/woo", baseRequest, request, response);
+			
+			verify(response).setHeader("Connection", "close");
+			verify(inner).handle("/woo", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itWaitsForRequestsInFlightToFinish() throws Exception {
+			final CountDownLatch started = new CountDownLatch(1);
+			final CountDownLatch finish = new CountDownLatch(1);
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					started.countDown();
+					finish.await();
+					return null;
+				}
+			}).when(inner).handle("/slow", baseRequest, request, response);
+			
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						handler.handle("/slow", baseRequest, request, response);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			thread.start();
+			started.await();
+			
+			assertThat(handler.awaitIdle(10, TimeUnit.MILLISECONDS), is(false));
+			
+			finish.countDown();
+			assertThat(handler.awaitIdle(5, TimeUnit.SECONDS), is(true));
+			thread.join();
+		}
+	}
+}
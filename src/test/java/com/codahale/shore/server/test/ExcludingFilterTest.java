@@ -0,0 +1,73 @@
+package com.codahale.shore.server.test;
+
+import static org.mockito.Mockito.*;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.ExcludingFilter;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+
+@RunWith(Enclosed.class)
+public class ExcludingFilterTest {
+	private static abstract class Context {
+		protected Filter filter;
+		protected ExcludingFilter excludingFilter;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		protected FilterChain chain;
+		
+		@Before
+		public void setup() throws Exception {
+			this.filter = mock(Filter.class);
+			this.excludingFilter = new ExcludingFilter(filter, new PathMatcher(ImmutableList.of("/assets/*", "/ping")));
+			this.request = mock(HttpServletRequest.class);
+			when(request.getServletPath()).thenReturn("");
+			this.response = mock(HttpServletResponse.class);
+			this.chain = mock(FilterChain.class);
+		}
+	}
+	
+	public static class An_Excluded_Request extends Context {
+		@Test
+		public void itSkipsTheFilter() throws Exception {
+			when(request.getPathInfo()).thenReturn("/assets/site.css");
+			excludingFilter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+			verifyZeroInteractions(filter);
+		}
+	}
+	
+	public static class An_Included_Request extends Context {
+		@Test
+		public void itPassesTheRequestToTheFilter() throws Exception {
+			when(request.getPathInfo()).thenReturn("/widgets/1");
+			excludingFilter.doFilter(request, response, chain);
+			
+			verify(filter).doFilter(request, response, chain);
+			verify(chain, never()).doFilter(request, response);
+		}
+	}
+	
+	public static class The_Filter_Lifecycle extends Context {
+		@Test
+		public void itIsPassedThrough() throws Exception {
+			final FilterConfig config = mock(FilterConfig.class);
+			excludingFilter.init(config);
+			excludingFilter.destroy();
+			
+			verify(filter).init(config);
+			verify(filter).destroy();
+		}
+	}
+}
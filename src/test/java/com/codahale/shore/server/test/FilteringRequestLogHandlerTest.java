@@ -0,0 +1,77 @@
+package com.codahale.shore.server.test;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.DispatcherType;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConnection;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.Response;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.FilteringRequestLogHandler;
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+
+@RunWith(Enclosed.class)
+public class FilteringRequestLogHandlerTest {
+	public static class Handling_Requests {
+		private RequestLog log;
+		private Handler inner;
+		private FilteringRequestLogHandler handler;
+		private Request baseRequest;
+		private HttpServletRequest request;
+		private Response response;
+		
+		@Before
+		public void setup() throws Exception {
+			this.log = mock(RequestLog.class);
+			this.inner = mock(Handler.class);
+			this.baseRequest = mock(Request.class);
+			when(baseRequest.getDispatcherType()).thenReturn(DispatcherType.REQUEST);
+			this.request = mock(HttpServletRequest.class);
+			this.response = mock(Response.class);
+			
+			this.handler = new FilteringRequestLogHandler(new PathMatcher(ImmutableList.of("/health/*")));
+			handler.setRequestLog(log);
+			handler.setHandler(inner);
+		}
+		
+		@Test
+		public void itDoesNotLogIgnoredPaths() throws Exception {
+			handler.handle("/health/db", baseRequest, request, response);
+			
+			verify(inner).handle("/health/db", baseRequest, request, response);
+			verify(log, never()).log(any(Request.class), any(Response.class));
+		}
+		
+		@Test
+		public void itLogsOtherPaths() throws Exception {
+			handler.handle("/widget/dingo", baseRequest, request, response);
+			
+			verify(inner).handle("/widget/dingo", baseRequest, request, response);
+			verify(log).log(baseRequest, response);
+		}
+		
+		@Test
+		public void itDoesNotLogLocalRequests() throws Exception {
+			final HttpConnection connection = mock(HttpConnection.class);
+			when(connection.getConnector()).thenReturn(mock(LocalConnector.class));
+			when(baseRequest.getConnection()).thenReturn(connection);
+			
+			handler.handle("/widget/dingo", baseRequest, request, response);
+			
+			verify(inner).handle("/widget/dingo", baseRequest, request, response);
+			verify(log, never()).log(any(Request.class), any(Response.class));
+		}
+	}
+}
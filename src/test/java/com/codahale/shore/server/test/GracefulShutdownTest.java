@@ -0,0 +1,75 @@
+package com.codahale.shore.server.test;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+
+import com.codahale.shore.server.DrainHandler;
+import com.codahale.shore.server.GracefulShutdown;
+import com.codahale.shore.util.TypedProperties;
+
+@RunWith(Enclosed.class)
+public class GracefulShutdownTest {
+	public static class Shutting_Down_A_Server {
+		private Server server;
+		private Connector connector;
+		private DrainHandler handler;
+		private SessionFactory sessionFactory;
+		private GracefulShutdown shutdown;
+		
+		@Before
+		public void setup() throws Exception {
+			this.connector = mock(Connector.class);
+			this.server = new Server();
+			server.addConnector(connector);
+			this.handler = mock(DrainHandler.class);
+			when(handler.awaitIdle(anyLong(), any(TimeUnit.class))).thenReturn(true);
+			this.sessionFactory = mock(SessionFactory.class);
+			
+			final Properties properties = new Properties();
+			properties.setProperty("shore.drain.delay", "0");
+			properties.setProperty("shore.drain.timeout", "1000");
+			this.shutdown = new GracefulShutdown(server, handler, sessionFactory, new TypedProperties(properties));
+		}
+		
+		@Test
+		public void itDrainsTheServerBeforeStoppingIt() throws Exception {
+			shutdown.run();
+			
+			final InOrder inOrder = inOrder(handler, connector, sessionFactory);
+			inOrder.verify(handler).drain();
+			inOrder.verify(connector).close();
+			inOrder.verify(handler).awaitIdle(1000, TimeUnit.MILLISECONDS);
+			inOrder.verify(sessionFactory).close();
+		}
+		
+		@Test
+		public void itStopsEvenIfRequestsAreStillInFlight() throws Exception {
+			when(handler.awaitIdle(anyLong(), any(TimeUnit.class))).thenReturn(false);
+			
+			shutdown.run();
+			
+			verify(sessionFactory).close();
+		}
+		
+		@Test
+		public void itDoesNotCloseAClosedSessionFactory() throws Exception {
+			when(sessionFactory.isClosed()).thenReturn(true);
+			
+			shutdown.run();
+			
+			verify(sessionFactory, never()).close();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.InstrumentedThreadPool;
+
+@RunWith(Enclosed.class)
+public class InstrumentedThreadPoolTest {
+	private static class BlockingJob implements Runnable {
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+		
+		public BlockingJob(CountDownLatch release) {
+			this.release = release;
+		}
+		
+		@Override
+		public void run() {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	public static class A_Saturated_Pool {
+		private InstrumentedThreadPool pool;
+		private CountDownLatch release;
+		private boolean lastDispatch;
+		
+		@Before
+		public void setup() throws Exception {
+			this.release = new CountDownLatch(1);
+			this.pool = new InstrumentedThreadPool(1, 1, 1);
+			pool.start();
+			
+			final BlockingJob running = new BlockingJob(release);
+			pool.dispatch(running);
+			assertThat(running.started.await(5, TimeUnit.SECONDS), is(true));
+			
+			pool.dispatch(new BlockingJob(release));
+			this.lastDispatch = pool.dispatch(new BlockingJob(release));
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			release.countDown();
+			pool.stop();
+		}
+		
+		@Test
+		public void itHasActiveThreads() throws Exception {
+			assertThat(pool.getActiveThreads(), is(1));
+		}
+		
+		@Test
+		public void itHasAQueueDepth() throws Exception {
+			assertThat(pool.getQueueDepth(), is(1));
+			assertThat(pool.getQueueCapacity(), is(1));
+		}
+		
+		@Test
+		public void itIsSaturated() throws Exception {
+			assertThat(pool.isSaturated(), is(true));
+		}
+		
+		@Test
+		public void itRejectsAndCountsJobs() throws Exception {
+			assertThat(lastDispatch, is(false));
+			assertThat(pool.getRejections(), is(1L));
+		}
+		
+		@Test
+		public void itCountsRejectedRequests() throws Exception {
+			pool.markRejected();
+			
+			assertThat(pool.getRejections(), is(2L));
+		}
+	}
+}
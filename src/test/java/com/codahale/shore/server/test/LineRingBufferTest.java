@@ -0,0 +1,116 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.LineRingBuffer;
+
+@RunWith(Enclosed.class)
+public class LineRingBufferTest {
+	private static final String EOL = System.getProperty("line.separator");
+	
+	private static void write(LineRingBuffer buffer, String line) {
+		final long position = buffer.claim();
+		assertThat(position >= 0, is(true));
+		buffer.get(position).append(line);
+		buffer.publish(position);
+	}
+	
+	public static class An_Empty_Buffer {
+		@Test
+		public void itRequiresAPowerOfTwoCapacity() throws Exception {
+			try {
+				new LineRingBuffer(3, 10);
+				fail("should have thrown an IllegalArgumentException but didn't");
+			} catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), is("capacity must be a power of two"));
+			}
+		}
+		
+		@Test
+		public void itDrainsNothing() throws Exception {
+			final StringWriter writer = new StringWriter();
+			
+			assertThat(new LineRingBuffer(4, 10).drain(writer, 10), is(0));
+			assertThat(writer.toString(), is(""));
+		}
+	}
+	
+	public static class A_Buffer_With_Lines {
+		private LineRingBuffer buffer;
+		
+		@Before
+		public void setup() throws Exception {
+			this.buffer = new LineRingBuffer(4, 10);
+			write(buffer, "one");
+			write(buffer, "");
+			write(buffer, "three");
+		}
+		
+		@Test
+		public void itHasASize() throws Exception {
+			assertThat(buffer.size(), is(3));
+			assertThat(buffer.capacity(), is(4));
+		}
+		
+		@Test
+		public void itDrainsNonEmptyLinesInOrder() throws Exception {
+			final StringWriter writer = new StringWriter();
+			
+			assertThat(buffer.drain(writer, 10), is(3));
+			assertThat(writer.toString(), is("one" + EOL + "three" + EOL));
+			assertThat(buffer.size(), is(0));
+		}
+		
+		@Test
+		public void itDrainsInBatches() throws Exception {
+			final StringWriter writer = new StringWriter();
+			
+			assertThat(buffer.drain(writer, 1), is(1));
+			assertThat(writer.toString(), is("one" + EOL));
+			assertThat(buffer.size(), is(2));
+		}
+		
+		@Test
+		public void itDoesNotDrainClaimedButUnpublishedLines() throws Exception {
+			final long position = buffer.claim();
+			buffer.get(position).append("four");
+			
+			assertThat(buffer.drain(new StringWriter(), 10), is(3));
+			assertThat(buffer.size(), is(1));
+		}
+	}
+	
+	public static class A_Full_Buffer {
+		private LineRingBuffer buffer;
+		
+		@Before
+		public void setup() throws Exception {
+			this.buffer = new LineRingBuffer(2, 10);
+			write(buffer, "one");
+			write(buffer, "two");
+		}
+		
+		@Test
+		public void itRefusesToClaimSlots() throws Exception {
+			assertThat(buffer.claim(), is(-1L));
+		}
+		
+		@Test
+		public void itReusesSlotsOnceDrained() throws Exception {
+			buffer.drain(new StringWriter(), 1);
+			write(buffer, "three");
+			
+			final StringWriter writer = new StringWriter();
+			buffer.drain(writer, 10);
+			assertThat(writer.toString(), is("two" + EOL + "three" + EOL));
+		}
+	}
+}
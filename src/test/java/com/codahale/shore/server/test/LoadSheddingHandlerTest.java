@@ -0,0 +1,87 @@
+package com.codahale.shore.server.test;
+
+import static org.mockito.Mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.InstrumentedThreadPool;
+import com.codahale.shore.server.LoadSheddingHandler;
+
+@RunWith(Enclosed.class)
+public class LoadSheddingHandlerTest {
+	private static abstract class Context {
+		protected InstrumentedThreadPool pool;
+		protected Handler inner;
+		protected LoadSheddingHandler handler;
+		protected Request baseRequest;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		
+		public void setup() throws Exception {
+			this.pool = mock(InstrumentedThreadPool.class);
+			this.inner = mock(Handler.class);
+			this.baseRequest = mock(Request.class);
+			this.request = mock(HttpServletRequest.class);
+			this.response = mock(HttpServletResponse.class);
+			
+			this.handler = new LoadSheddingHandler(pool);
+			handler.setHandler(inner);
+		}
+	}
+	
+	public static class Handling_A_Request_With_Threads_To_Spare extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(pool.isSaturated()).thenReturn(false);
+			
+			handler.handle("/woo", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itPassesTheRequestOn() throws Exception {
+			verify(inner).handle("/woo", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itDoesNotCountARejection() throws Exception {
+			verify(pool, never()).markRejected();
+		}
+	}
+	
+	public static class Handling_A_Request_When_Saturated extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(pool.isSaturated()).thenReturn(true);
+			
+			handler.handle("/woo", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itRespondsWithServiceUnavailable() throws Exception {
+			verify(response).setStatus(503);
+			verify(baseRequest).setHandled(true);
+		}
+		
+		@Test
+		public void itDoesNotPassTheRequestOn() throws Exception {
+			verify(inner, never()).handle("/woo", baseRequest, request, response);
+		}
+		
+		@Test
+		public void itCountsARejection() throws Exception {
+			verify(pool).markRejected();
+		}
+	}
+}
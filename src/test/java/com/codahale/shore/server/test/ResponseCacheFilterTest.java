@@ -0,0 +1,211 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.server.ResponseCache;
+import com.codahale.shore.server.ResponseCacheFilter;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(Enclosed.class)
+public class ResponseCacheFilterTest {
+	private static final String HITS = "com.codahale.shore.server.ResponseCacheFilter./widgets/*.hits";
+	private static final String MISSES = "com.codahale.shore.server.ResponseCacheFilter./widgets/*.misses";
+	
+	private static abstract class Context {
+		protected ResponseCache cache;
+		protected MetricsRegistry metrics;
+		protected ResponseCacheFilter filter;
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		protected FilterChain chain;
+		protected ByteArrayOutputStream output;
+		
+		@Before
+		public void setup() throws Exception {
+			this.cache = new ResponseCache(10);
+			this.metrics = new MetricsRegistry();
+			this.filter = new ResponseCacheFilter(cache, ImmutableMap.of("/widgets/*", 60000L), metrics);
+			
+			this.request = mock(HttpServletRequest.class);
+			when(request.getMethod()).thenReturn("GET");
+			when(request.getServletPath()).thenReturn("/widgets/hoople");
+			when(request.getHeader("Accept")).thenReturn("application/json");
+			when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+			
+			this.output = new ByteArrayOutputStream();
+			this.response = mock(HttpServletResponse.class);
+			when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					output.write(b);
+				}
+			});
+			
+			this.chain = mock(FilterChain.class);
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					final HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+					response.setStatus(200);
+					response.getOutputStream().write("hoople".getBytes());
+					return null;
+				}
+			}).when(chain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+		}
+	}
+	
+	public static class A_Cache_Miss extends Context {
+		@Test
+		public void itCallsTheApplicationAndCachesTheResponse() throws Exception {
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(eq(request), any(ServletResponse.class));
+			assertThat(cache.size(), is(1));
+			assertThat(new String(output.toByteArray()), is("hoople"));
+			assertThat(metrics.meter(MISSES).getCount(), is(1L));
+		}
+		
+		@Test
+		public void itAddsAStrongETag() throws Exception {
+			filter.doFilter(request, response, chain);
+			
+			verify(response).setHeader("ETag", "\"7727d5cb4b7d063b97e6e7e33ca05f61\"");
+			verify(response).setContentLength(6);
+		}
+	}
+	
+	public static class A_Cache_Hit extends Context {
+		@Override
+		@Before
+		public void setup() throws Exception {
+			super.setup();
+			filter.doFilter(request, response, chain);
+			output.reset();
+		}
+		
+		@Test
+		public void itDoesNotCallTheApplication() throws Exception {
+			filter.doFilter(request, response, chain);
+			
+			verify(chain, times(1)).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+			assertThat(new String(output.toByteArray()), is("hoople"));
+			assertThat(metrics.meter(HITS).getCount(), is(1L));
+		}
+		
+		@Test
+		public void itCallsTheApplicationIfTheRequestIsNoCache() throws Exception {
+			when(request.getHeader("Cache-Control")).thenReturn("no-cache");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain, times(2)).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+			assertThat(metrics.meter(HITS).getCount(), is(0L));
+		}
+		
+		@Test
+		public void itIsNotModifiedIfTheETagMatches() throws Exception {
+			when(request.getHeader("If-None-Match")).thenReturn("\"7727d5cb4b7d063b97e6e7e33ca05f61\"");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(response).setStatus(304);
+			assertThat(output.size(), is(0));
+		}
+		
+		@Test
+		public void itIsNotModifiedIfItHasNotChangedSince() throws Exception {
+			when(request.getDateHeader("If-Modified-Since")).thenReturn(System.currentTimeMillis() + 1000);
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(response).setStatus(304);
+		}
+		
+		@Test
+		public void itMissesForADifferentRepresentation() throws Exception {
+			when(request.getHeader("Accept")).thenReturn("application/xml");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain, times(2)).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+		}
+		
+		@Test
+		public void itMissesOnceThePathIsInvalidated() throws Exception {
+			cache.invalidate("/widgets/hoople");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain, times(2)).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+		}
+	}
+	
+	public static class An_Uncacheable_Request extends Context {
+		@Test
+		public void itPassesOtherPathsThrough() throws Exception {
+			when(request.getServletPath()).thenReturn("/gadgets/1");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+			assertThat(cache.size(), is(0));
+		}
+		
+		@Test
+		public void itPassesOtherMethodsThrough() throws Exception {
+			when(request.getMethod()).thenReturn("POST");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+		}
+		
+		@Test
+		public void itPassesAuthorizedRequestsThrough() throws Exception {
+			when(request.getHeader("Authorization")).thenReturn("Basic Zm9vOmJhcg==");
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+		}
+		
+		@Test
+		public void itDoesNotCachePrivateResponses() throws Exception {
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					final HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+					response.setHeader("Cache-Control", "private");
+					response.getOutputStream().write("mine".getBytes());
+					return null;
+				}
+			}).when(chain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+			
+			filter.doFilter(request, response, chain);
+			
+			assertThat(cache.size(), is(0));
+			assertThat(new String(output.toByteArray()), is("mine"));
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.hibernate.EntityChange;
+import com.codahale.shore.server.ResponseCache;
+import com.google.common.collect.ImmutableSet;
+
+@RunWith(Enclosed.class)
+public class ResponseCacheTest {
+	private static class Widget {
+		
+	}
+	
+	private static ResponseCache.Entry entry(long ttl, String... entities) {
+		final long now = System.currentTimeMillis();
+		return new ResponseCache.Entry("text/plain", null, "\"1\"", now, now + ttl, new byte[0], ImmutableSet.of(entities));
+	}
+	
+	public static class A_Response_Cache {
+		private ResponseCache cache;
+		
+		@Before
+		public void setup() throws Exception {
+			this.cache = new ResponseCache(2);
+		}
+		
+		@Test
+		public void itEvictsTheLeastRecentlyUsedEntry() throws Exception {
+			cache.put("/one ", entry(60000));
+			cache.put("/two ", entry(60000));
+			cache.get("/one ");
+			cache.put("/three ", entry(60000));
+			
+			assertThat(cache.get("/two "), is(nullValue()));
+			assertThat(cache.get("/one "), is(notNullValue()));
+		}
+		
+		@Test
+		public void itDropsExpiredEntries() throws Exception {
+			cache.put("/one ", entry(-1));
+			
+			assertThat(cache.get("/one "), is(nullValue()));
+			assertThat(cache.size(), is(0));
+		}
+		
+		@Test
+		public void itInvalidatesEveryRepresentationOfAPath() throws Exception {
+			cache.put(ResponseCache.key("/one", "a=b", "text/plain"), entry(60000));
+			cache.put(ResponseCache.key("/one/two", null, null), entry(60000));
+			
+			cache.invalidate("/one");
+			
+			assertThat(cache.size(), is(1));
+		}
+	}
+	
+	public static class Entity_Changes {
+		private final String widgets = Widget.class.getName();
+		private ResponseCache cache;
+		
+		@Before
+		public void setup() throws Exception {
+			this.cache = new ResponseCache(10);
+			cache.put("/widgets/1 ", entry(60000, widgets, widgets + "#1"));
+			cache.put("/widgets/2 ", entry(60000, widgets, widgets + "#2"));
+		}
+		
+		@Test
+		public void anUpdateEvictsResponsesWhichLoadedTheEntity() throws Exception {
+			cache.onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 1L));
+			
+			assertThat(cache.get("/widgets/1 "), is(nullValue()));
+			assertThat(cache.get("/widgets/2 "), is(notNullValue()));
+		}
+		
+		@Test
+		public void anInsertEvictsResponsesWhichLoadedTheEntitysClass() throws Exception {
+			cache.onChange(new EntityChange(EntityChange.Type.INSERT, Widget.class, 3L));
+			
+			assertThat(cache.size(), is(0));
+		}
+		
+		@Test
+		public void anUpdateOnlyEvictsIndexedResponses() throws Exception {
+			cache.onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 3L));
+			
+			assertThat(cache.size(), is(2));
+		}
+	}
+	
+	public static class Changes_While_Rendering {
+		private final String widgets = Widget.class.getName();
+		private ResponseCache cache;
+		private long generation;
+		
+		@Before
+		public void setup() throws Exception {
+			this.cache = new ResponseCache(10);
+			this.generation = cache.getGeneration();
+		}
+		
+		@Test
+		public void itDoesNotCacheAResponseWhoseEntitiesChanged() throws Exception {
+			cache.onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 1L));
+			
+			assertThat(cache.put("/widgets/1 ", entry(60000, widgets, widgets + "#1"), generation), is(false));
+			assertThat(cache.get("/widgets/1 "), is(nullValue()));
+		}
+		
+		@Test
+		public void itCachesAResponseWhoseEntitiesDidNotChange() throws Exception {
+			cache.onChange(new EntityChange(EntityChange.Type.UPDATE, Widget.class, 2L));
+			
+			assertThat(cache.put("/widgets/1 ", entry(60000, widgets, widgets + "#1"), generation), is(true));
+			assertThat(cache.get("/widgets/1 "), is(notNullValue()));
+		}
+		
+		@Test
+		public void itDoesNotCacheAResponseStartedBeforeEverythingWasInvalidated() throws Exception {
+			cache.invalidateAll();
+			
+			assertThat(cache.put("/widgets/1 ", entry(60000, widgets, widgets + "#1"), generation), is(false));
+		}
+	}
+}
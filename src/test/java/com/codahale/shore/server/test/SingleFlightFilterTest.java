@@ -0,0 +1,239 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.shore.metrics.MetricsRegistry;
+import com.codahale.shore.server.SingleFlightFilter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(Enclosed.class)
+public class SingleFlightFilterTest {
+	private static abstract class Context {
+		protected MetricsRegistry metrics;
+		protected SingleFlightFilter filter;
+		protected FilterChain chain;
+		protected CountDownLatch entered, release;
+		protected AtomicInteger calls;
+		protected volatile int status = 200;
+		
+		@Before
+		public void setup() throws Exception {
+			this.metrics = new MetricsRegistry();
+			this.filter = new SingleFlightFilter(
+				ImmutableMap.<String, List<String>>of("/widgets/*", ImmutableList.<String>of()),
+				metrics,
+				getTimeout()
+			);
+			this.entered = new CountDownLatch(1);
+			this.release = new CountDownLatch(1);
+			this.calls = new AtomicInteger();
+			this.chain = mock(FilterChain.class);
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) throws Throwable {
+					calls.incrementAndGet();
+					entered.countDown();
+					release.await(5, TimeUnit.SECONDS);
+					final HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+					response.setStatus(status);
+					response.setHeader("X-Widget", "hoople");
+					response.getOutputStream().write("hoople".getBytes());
+					return null;
+				}
+			}).when(chain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+		}
+		
+		protected long getTimeout() {
+			return 5000;
+		}
+		
+		protected HttpServletRequest request(String method, String path, String accept) {
+			final HttpServletRequest request = mock(HttpServletRequest.class);
+			when(request.getMethod()).thenReturn(method);
+			when(request.getServletPath()).thenReturn(path);
+			when(request.getHeader("Accept")).thenReturn(accept);
+			return request;
+		}
+		
+		protected HttpServletResponse response(final ByteArrayOutputStream output) throws Exception {
+			final HttpServletResponse response = mock(HttpServletResponse.class);
+			when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					output.write(b);
+				}
+			});
+			return response;
+		}
+		
+		protected Thread start(final HttpServletRequest request, final HttpServletResponse response) {
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						filter.doFilter(request, response, chain);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			thread.start();
+			return thread;
+		}
+	}
+	
+	public static class Identical_Concurrent_Requests extends Context {
+		@Test
+		public void itHandlesOnlyOneAndSharesItsResponse() throws Exception {
+			final ByteArrayOutputStream leaderOutput = new ByteArrayOutputStream();
+			final ByteArrayOutputStream followerOutput = new ByteArrayOutputStream();
+			final HttpServletResponse followerResponse = response(followerOutput);
+			
+			final Thread leader = start(request("GET", "/widgets/hoople", "application/json"), response(leaderOutput));
+			entered.await(5, TimeUnit.SECONDS);
+			final Thread follower = start(request("GET", "/widgets/hoople", "application/json"), followerResponse);
+			while (follower.getState() != Thread.State.WAITING && follower.getState() != Thread.State.TIMED_WAITING) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			leader.join(5000);
+			follower.join(5000);
+			
+			assertThat(calls.get(), is(1));
+			assertThat(new String(leaderOutput.toByteArray()), is("hoople"));
+			assertThat(new String(followerOutput.toByteArray()), is("hoople"));
+			verify(followerResponse).setStatus(200);
+			verify(followerResponse).setHeader("X-Widget", "hoople");
+			verify(followerResponse).setContentLength(6);
+			assertThat(metrics.meter("com.codahale.shore.server.SingleFlightFilter./widgets/*.coalesced").getCount(), is(1L));
+			assertThat(filter.getFlightsInProgress(), is(0));
+		}
+		
+		@Test
+		public void itDoesNotShareErrorResponses() throws Exception {
+			this.status = 500;
+			final ByteArrayOutputStream followerOutput = new ByteArrayOutputStream();
+			
+			final Thread leader = start(request("GET", "/widgets/hoople", "application/json"), response(new ByteArrayOutputStream()));
+			entered.await(5, TimeUnit.SECONDS);
+			final Thread follower = start(request("GET", "/widgets/hoople", "application/json"), response(followerOutput));
+			while (follower.getState() != Thread.State.WAITING && follower.getState() != Thread.State.TIMED_WAITING) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			leader.join(5000);
+			follower.join(5000);
+			
+			assertThat(calls.get(), is(2));
+			assertThat(new String(followerOutput.toByteArray()), is("hoople"));
+			assertThat(metrics.meter("com.codahale.shore.server.SingleFlightFilter./widgets/*.coalesced").getCount(), is(0L));
+		}
+	}
+	
+	public static class Requests_Which_Wait_Too_Long extends Context {
+		@Override
+		protected long getTimeout() {
+			return 50;
+		}
+		
+		@Test
+		public void itRetriesOneAndTurnsTheRestAway() throws Exception {
+			final ByteArrayOutputStream firstOutput = new ByteArrayOutputStream();
+			final ByteArrayOutputStream secondOutput = new ByteArrayOutputStream();
+			
+			final Thread leader = start(request("GET", "/widgets/hoople", "application/json"), response(new ByteArrayOutputStream()));
+			entered.await(5, TimeUnit.SECONDS);
+			final Thread first = start(request("GET", "/widgets/hoople", "application/json"), response(firstOutput));
+			final Thread second = start(request("GET", "/widgets/hoople", "application/json"), response(secondOutput));
+			while ((calls.get() < 2) || (metrics.meter("com.codahale.shore.server.SingleFlightFilter./widgets/*.timeouts").getCount() < 1)) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			leader.join(5000);
+			first.join(5000);
+			second.join(5000);
+			
+			assertThat(calls.get(), is(2));
+			assertThat(new String(firstOutput.toByteArray()) + new String(secondOutput.toByteArray()), is("hoople"));
+			assertThat(metrics.meter("com.codahale.shore.server.SingleFlightFilter./widgets/*.timeouts").getCount(), is(1L));
+			assertThat(metrics.meter("com.codahale.shore.server.SingleFlightFilter./widgets/*.coalesced").getCount(), is(0L));
+		}
+	}
+	
+	public static class Different_Concurrent_Requests extends Context {
+		@Test
+		public void itHandlesRequestsForDifferentRepresentationsSeparately() throws Exception {
+			final Thread json = start(request("GET", "/widgets/hoople", "application/json"), response(new ByteArrayOutputStream()));
+			entered.await(5, TimeUnit.SECONDS);
+			final Thread xml = start(request("GET", "/widgets/hoople", "application/xml"), response(new ByteArrayOutputStream()));
+			while (calls.get() < 2) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			json.join(5000);
+			xml.join(5000);
+			
+			assertThat(calls.get(), is(2));
+		}
+		
+		@Test
+		public void itPassesOtherMethodsThrough() throws Exception {
+			release.countDown();
+			final HttpServletRequest request = request("POST", "/widgets/hoople", null);
+			final HttpServletResponse response = response(new ByteArrayOutputStream());
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+		}
+		
+		@Test
+		public void itPassesAuthorizedRequestsThrough() throws Exception {
+			release.countDown();
+			final HttpServletRequest request = request("GET", "/widgets/hoople", null);
+			when(request.getHeader("Authorization")).thenReturn("Basic Zm9vOmJhcg==");
+			final HttpServletResponse response = response(new ByteArrayOutputStream());
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+		}
+		
+		@Test
+		public void itPassesConditionalRequestsThrough() throws Exception {
+			release.countDown();
+			final HttpServletRequest request = request("GET", "/widgets/hoople", "application/json");
+			when(request.getHeader("If-None-Match")).thenReturn("\"v1\"");
+			final HttpServletResponse response = response(new ByteArrayOutputStream());
+			
+			filter.doFilter(request, response, chain);
+			
+			verify(chain).doFilter(request, response);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.Startup;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+@RunWith(Enclosed.class)
+public class StartupTest {
+	public static class A_Startup {
+		private Logger logger;
+		private Startup startup;
+
+		@Before
+		public void setup() throws Exception {
+			this.logger = mock(Logger.class);
+			this.startup = new Startup(logger, 2);
+		}
+
+		@After
+		public void teardown() throws Exception {
+			startup.finish();
+		}
+
+		@Test
+		public void itRunsPhasesInTheCurrentThread() throws Exception {
+			final Thread thread = startup.run("one", new Callable<Thread>() {
+				@Override
+				public Thread call() throws Exception {
+					return Thread.currentThread();
+				}
+			});
+
+			assertThat(thread, is(sameInstance(Thread.currentThread())));
+		}
+
+		@Test
+		public void itRunsSubmittedPhasesConcurrently() throws Exception {
+			final CountDownLatch latch = new CountDownLatch(2);
+			final Callable<Boolean> phase = new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					latch.countDown();
+					return latch.await(5, TimeUnit.SECONDS);
+				}
+			};
+
+			final Future<Boolean> one = startup.submit("one", phase);
+			final Future<Boolean> two = startup.submit("two", phase);
+
+			assertThat(startup.await(one), is(true));
+			assertThat(startup.await(two), is(true));
+		}
+
+		@Test
+		public void itRecordsTheTimeEachPhaseTook() throws Exception {
+			startup.run("one", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					Thread.sleep(20);
+					return null;
+				}
+			});
+			startup.await(startup.submit("two", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					return null;
+				}
+			}));
+
+			assertThat(Lists.newArrayList(startup.getTimings().keySet()), is((List<String>) ImmutableList.of("one", "two")));
+			assertThat(startup.getTimings().get("one") >= 20, is(true));
+		}
+
+		@Test
+		public void itRethrowsRuntimeExceptionsFromSubmittedPhases() throws Exception {
+			final IllegalStateException exception = new IllegalStateException("boom");
+			final Future<Void> future = startup.submit("one", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					throw exception;
+				}
+			});
+
+			try {
+				startup.await(future);
+				fail("should have thrown an IllegalStateException");
+			} catch (IllegalStateException e) {
+				assertThat(e, is(sameInstance(exception)));
+			}
+		}
+
+		@Test
+		public void itWrapsCheckedExceptions() throws Exception {
+			final IOException exception = new IOException("boom");
+			try {
+				startup.run("one", new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						throw exception;
+					}
+				});
+				fail("should have thrown a RuntimeException");
+			} catch (RuntimeException e) {
+				assertThat(e.getCause(), is((Throwable) exception));
+			}
+		}
+
+		@Test
+		public void itLogsTheTimingsWhenItFinishes() throws Exception {
+			startup.run("one", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					return null;
+				}
+			});
+			startup.finish();
+
+			verify(logger).info(startsWith("Startup took "));
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.server.VirtualThreadPool;
+
+@RunWith(Enclosed.class)
+public class VirtualThreadPoolTest {
+	public static class A_Virtual_Thread_Pool {
+		private VirtualThreadPool pool;
+		
+		@Before
+		public void setup() throws Exception {
+			assumeTrue(VirtualThreadPool.isSupported());
+			this.pool = new VirtualThreadPool(false);
+			pool.start();
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			if (pool != null) {
+				pool.stop();
+			}
+		}
+		
+		@Test
+		public void itRunsJobsOnNamedVirtualThreads() throws Exception {
+			final CountDownLatch finished = new CountDownLatch(1);
+			final AtomicReference<String> name = new AtomicReference<String>();
+			
+			assertThat(pool.dispatch(new Runnable() {
+				@Override
+				public void run() {
+					name.set(Thread.currentThread().getName());
+					finished.countDown();
+				}
+			}), is(true));
+			
+			assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+			assertThat(name.get().startsWith("shore-request-"), is(true));
+		}
+		
+		@Test
+		public void itCountsRunningJobs() throws Exception {
+			final CountDownLatch started = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			pool.dispatch(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			
+			assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+			assertThat(pool.getThreads(), is(1));
+			assertThat(pool.getIdleThreads(), is(0));
+			assertThat(pool.isLowOnThreads(), is(false));
+			release.countDown();
+		}
+		
+		@Test
+		public void itRejectsJobsOnceStopped() throws Exception {
+			pool.stop();
+			
+			assertThat(pool.dispatch(new Runnable() {
+				@Override
+				public void run() {
+				}
+			}), is(false));
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.codahale.shore.server.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Properties;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.pool.ConnectionPool;
+import com.codahale.shore.pool.PoolSettings;
+import com.codahale.shore.server.WarmUp;
+import com.codahale.shore.util.TypedProperties;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(Enclosed.class)
+public class WarmUpTest {
+	public static class A_Default_Warm_Up {
+		private WarmUp warmUp;
+
+		@Before
+		public void setup() throws Exception {
+			this.warmUp = new WarmUp(new TypedProperties(new Properties()));
+		}
+
+		@Test
+		public void itIsEnabled() throws Exception {
+			assertThat(warmUp.isEnabled(), is(true));
+		}
+
+		@Test
+		public void itFillsPoolsToTheirMinimumSize() throws Exception {
+			final ConnectionPool pool = mock(ConnectionPool.class);
+			when(pool.getSettings()).thenReturn(new PoolSettings(2, 7, 50, 0, 0, 30000, null, 0));
+			when(pool.prefill(2)).thenReturn(2);
+
+			assertThat(warmUp.prefillPools(ImmutableList.of(pool)), is(2));
+			verify(pool).prefill(2);
+		}
+
+		@Test
+		public void itCompilesNamedQueries() throws Exception {
+			final Configuration configuration = mock(Configuration.class);
+			when(configuration.getNamedQueries()).thenReturn(ImmutableMap.of("Widget.all", "ignored"));
+			when(configuration.getNamedSQLQueries()).thenReturn(ImmutableMap.of("Widget.raw", "ignored"));
+			final Session session = mock(Session.class);
+			final SessionFactory sessionFactory = mock(SessionFactory.class);
+			when(sessionFactory.openSession()).thenReturn(session);
+
+			assertThat(warmUp.compileNamedQueries(sessionFactory, configuration), is(2));
+			verify(session).getNamedQuery("Widget.all");
+			verify(session).getNamedQuery("Widget.raw");
+			verify(session).close();
+		}
+
+		@Test
+		public void itSendsEachRequestTenTimes() throws Exception {
+			final LocalConnector connector = mock(LocalConnector.class);
+			when(connector.getResponses(anyString())).thenReturn("HTTP/1.1 200 OK\r\n\r\n");
+
+			assertThat(warmUp.sendRequests(connector, ImmutableList.of("/one", "/two")), is(0));
+			verify(connector, times(10)).getResponses(
+				"GET /one HTTP/1.1\r\nHost: localhost\r\nCache-Control: no-cache\r\nConnection: close\r\n\r\n"
+			);
+			verify(connector, times(10)).getResponses(
+				"GET /two HTTP/1.1\r\nHost: localhost\r\nCache-Control: no-cache\r\nConnection: close\r\n\r\n"
+			);
+		}
+
+		@Test
+		public void itCountsFailedRequests() throws Exception {
+			final LocalConnector connector = mock(LocalConnector.class);
+			when(connector.getResponses(anyString())).thenReturn("HTTP/1.1 500 Internal Server Error\r\n\r\n");
+
+			assertThat(warmUp.sendRequests(connector, ImmutableList.of("/one")), is(10));
+		}
+	}
+
+	public static class A_Configured_Warm_Up {
+		private WarmUp warmUp;
+
+		@Before
+		public void setup() throws Exception {
+			final Properties properties = new Properties();
+			properties.setProperty("shore.warmup", "false");
+			properties.setProperty("shore.warmup.connections", "3");
+			properties.setProperty("shore.warmup.iterations", "2");
+			this.warmUp = new WarmUp(new TypedProperties(properties));
+		}
+
+		@Test
+		public void itCanBeDisabled() throws Exception {
+			assertThat(warmUp.isEnabled(), is(false));
+		}
+
+		@Test
+		public void itFillsPoolsToTheConfiguredSize() throws Exception {
+			final ConnectionPool pool = mock(ConnectionPool.class);
+			when(pool.getSettings()).thenReturn(new PoolSettings(2, 7, 50, 0, 0, 30000, null, 0));
+
+			warmUp.prefillPools(ImmutableList.of(pool));
+			verify(pool).prefill(3);
+		}
+
+		@Test
+		public void itSendsEachRequestTheConfiguredNumberOfTimes() throws Exception {
+			final LocalConnector connector = mock(LocalConnector.class);
+			when(connector.getResponses(anyString())).thenReturn("HTTP/1.1 304 Not Modified\r\n\r\n");
+
+			assertThat(warmUp.sendRequests(connector, ImmutableList.of("/one")), is(0));
+			verify(connector, times(2)).getResponses(anyString());
+		}
+	}
+}
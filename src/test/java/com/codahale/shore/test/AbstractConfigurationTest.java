@@ -6,10 +6,13 @@ import static org.junit.matchers.JUnitMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.jetty.server.NCSARequestLog;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.bio.SocketConnector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlets.GzipFilter;
@@ -21,7 +24,11 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
 import com.codahale.shore.AbstractConfiguration;
+import com.codahale.shore.health.HealthCheck;
+import com.codahale.shore.server.InstrumentedThreadPool;
+import com.codahale.shore.server.SaturationPolicy;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
@@ -37,6 +44,17 @@ public class AbstractConfigurationTest {
 	}
 	private static Module MOCK_MODULE = new MockModule();
 	
+	private static class MockHealthCheck extends HealthCheck {
+		public MockHealthCheck() {
+			super("mock");
+		}
+		
+		@Override
+		protected Result check() throws Exception {
+			return Result.healthy();
+		}
+	}
+	
 	private static class MockConfiguration extends AbstractConfiguration {
 		@Override
 		public String getExecutableName() {
@@ -52,6 +70,16 @@ public class AbstractConfigurationTest {
 			addServletFilter(GzipFilter.class, "/*");
 			addServletFilter(QoSFilter.class, "/hard-to-serve/*");
 			addServletFilter(new FilterHolder(WelcomeFilter.class), "/welcome");
+			setThreadPoolSize(5, 50);
+			setMaxQueuedRequests(100);
+			setSaturationPolicy(SaturationPolicy.QUEUE);
+			doNotOpenSessionsFor("/assets/*");
+			doNotOpenSessionsFor("/ping");
+			cacheResponsesFor("/widgets/*", 30, TimeUnit.SECONDS);
+			coalesceRequestsFor("/widgets/*", "Accept");
+			addWarmUpRequest("/widgets/1");
+			addHealthCheck(MockHealthCheck.class);
+			addStaticFiles("/assets/*", "/var/www/assets");
 		}
 		
 		public void doConfig() {
@@ -109,7 +137,64 @@ public class AbstractConfigurationTest {
 		
 		@Test
 		public void itHasAConnector() throws Exception {
-			assertThat(config.getConnector(), is(SocketConnector.class));
+			assertThat(config.getConnector(), is(SelectChannelConnector.class));
+		}
+		
+		@Test
+		public void itHasAnNCSARequestLogByDefault() throws Exception {
+			assertThat(config.getRequestLog(), is(NCSARequestLog.class));
+		}
+		
+		@Test
+		public void itHasABoundedThreadPool() throws Exception {
+			assertThat(config.getThreadPool(), is(InstrumentedThreadPool.class));
+			
+			final InstrumentedThreadPool pool = (InstrumentedThreadPool) config.getThreadPool();
+			assertThat(pool.getMinThreads(), is(5));
+			assertThat(pool.getMaxThreads(), is(50));
+			assertThat(pool.getQueueCapacity(), is(100));
+		}
+		
+		@Test
+		public void itHasASaturationPolicy() throws Exception {
+			assertThat(config.getSaturationPolicy(), is(SaturationPolicy.QUEUE));
+		}
+		
+		@Test
+		public void itHasAListOfSessionlessPaths() throws Exception {
+			assertThat(config.getSessionlessPaths(), is((List<String>) ImmutableList.of("/assets/*", "/ping")));
+		}
+		
+		@Test
+		public void itHasAMetricsRegistry() throws Exception {
+			assertThat(config.getMetrics(), is(notNullValue()));
+		}
+		
+		@Test
+		public void itHasAListOfWarmUpRequests() throws Exception {
+			assertThat(config.getWarmUpRequests(), is((List<String>) ImmutableList.of("/widgets/1")));
+		}
+		
+		@Test
+		public void itHasAListOfHealthChecks() throws Exception {
+			final List<Class<? extends HealthCheck>> expected = ImmutableList.<Class<? extends HealthCheck>>of(MockHealthCheck.class);
+			assertThat(config.getHealthChecks(), is(expected));
+		}
+		
+		@Test
+		public void itHasAMapOfCachedPaths() throws Exception {
+			assertThat(config.getCachedPaths(), is((Map<String, Long>) ImmutableMap.of("/widgets/*", 30000L)));
+		}
+		
+		@Test
+		public void itHasAMapOfCoalescedPaths() throws Exception {
+			final Map<String, List<String>> expected = ImmutableMap.<String, List<String>>of("/widgets/*", ImmutableList.of("Accept"));
+			assertThat(config.getCoalescedPaths(), is(expected));
+		}
+		
+		@Test
+		public void itHasAMapOfStaticFiles() throws Exception {
+			assertThat(config.getStaticFiles(), is((Map<String, String>) ImmutableMap.of("/assets/*", "/var/www/assets")));
 		}
 		
 		@Test
@@ -0,0 +1,90 @@
+package com.codahale.shore.util.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.util.PathMatcher;
+import com.google.common.collect.ImmutableList;
+
+@RunWith(Enclosed.class)
+public class PathMatcherTest {
+	public static class An_Empty_Matcher {
+		@Test
+		public void itMatchesNothing() throws Exception {
+			final PathMatcher matcher = new PathMatcher(ImmutableList.<String>of());
+			
+			assertThat(matcher.isEmpty(), is(true));
+			assertThat(matcher.matches("/"), is(false));
+		}
+	}
+	
+	public static class A_Matcher_With_Specs {
+		private PathMatcher matcher;
+		
+		@Before
+		public void setup() throws Exception {
+			this.matcher = new PathMatcher(ImmutableList.of(
+				"/ping",
+				"/health/*",
+				"*.png",
+				"/status*",
+				"/widget/?/debug",
+				"regex:^/v[0-9]+/ping$"
+			));
+		}
+		
+		@Test
+		public void itMatchesExactPaths() throws Exception {
+			assertThat(matcher.matches("/ping"), is(true));
+			assertThat(matcher.matches("/ping/pong"), is(false));
+		}
+		
+		@Test
+		public void itMatchesPrefixesOnPathBoundaries() throws Exception {
+			assertThat(matcher.matches("/health"), is(true));
+			assertThat(matcher.matches("/health/db"), is(true));
+			assertThat(matcher.matches("/healthy"), is(false));
+		}
+		
+		@Test
+		public void itMatchesExtensions() throws Exception {
+			assertThat(matcher.matches("/images/logo.png"), is(true));
+			assertThat(matcher.matches("/images/logo.gif"), is(false));
+		}
+		
+		@Test
+		public void itMatchesGlobs() throws Exception {
+			assertThat(matcher.matches("/status"), is(true));
+			assertThat(matcher.matches("/statusboard"), is(true));
+			assertThat(matcher.matches("/widget/a/debug"), is(true));
+			assertThat(matcher.matches("/widget/ab/debug"), is(false));
+		}
+		
+		@Test
+		public void itMatchesRegularExpressions() throws Exception {
+			assertThat(matcher.matches("/v2/ping"), is(true));
+			assertThat(matcher.matches("/vx/ping"), is(false));
+		}
+		
+		@Test
+		public void itDoesNotMatchOtherPaths() throws Exception {
+			assertThat(matcher.matches("/widget/dingo"), is(false));
+			assertThat(matcher.matches(null), is(false));
+		}
+	}
+	
+	public static class A_Matcher_With_A_Catch_All_Prefix {
+		@Test
+		public void itMatchesEverything() throws Exception {
+			final PathMatcher matcher = new PathMatcher(ImmutableList.of("/*"));
+			
+			assertThat(matcher.matches("/"), is(true));
+			assertThat(matcher.matches("/widget/dingo"), is(true));
+		}
+	}
+}
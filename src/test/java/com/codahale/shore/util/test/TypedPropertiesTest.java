@@ -0,0 +1,71 @@
+package com.codahale.shore.util.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.codahale.shore.util.TypedProperties;
+
+@RunWith(Enclosed.class)
+public class TypedPropertiesTest {
+	public static class A_Set_Of_Typed_Properties {
+		private TypedProperties properties;
+		
+		@Before
+		public void setup() throws Exception {
+			final Properties raw = new Properties();
+			raw.setProperty("string", " woo ");
+			raw.setProperty("blank", "  ");
+			raw.setProperty("int", "200");
+			raw.setProperty("long", "20000000000");
+			raw.setProperty("boolean", "TRUE");
+			raw.setProperty("garbage", "2oo");
+			this.properties = new TypedProperties(raw);
+		}
+		
+		@Test
+		public void itReturnsTrimmedStrings() throws Exception {
+			assertThat(properties.getString("string", "no"), is("woo"));
+		}
+		
+		@Test
+		public void itTreatsBlankValuesAsMissing() throws Exception {
+			assertThat(properties.contains("blank"), is(false));
+			assertThat(properties.getString("blank", "default"), is("default"));
+		}
+		
+		@Test
+		public void itParsesIntegers() throws Exception {
+			assertThat(properties.getInt("int", 0), is(200));
+			assertThat(properties.getInt("missing", 40), is(40));
+		}
+		
+		@Test
+		public void itParsesLongs() throws Exception {
+			assertThat(properties.getLong("long", 0), is(20000000000L));
+			assertThat(properties.getLong("missing", 40), is(40L));
+		}
+		
+		@Test
+		public void itParsesBooleans() throws Exception {
+			assertThat(properties.getBoolean("boolean", false), is(true));
+			assertThat(properties.getBoolean("missing", true), is(true));
+		}
+		
+		@Test
+		public void itThrowsAnIllegalArgumentExceptionForUnparsableValues() throws Exception {
+			try {
+				properties.getInt("garbage", 0);
+				fail("should have thrown an IllegalArgumentException but didn't");
+			} catch (IllegalArgumentException e) {
+				assertThat(e.getMessage(), is("garbage must be an integer, but was \"2oo\""));
+			}
+		}
+	}
+}